@@ -0,0 +1,95 @@
+package com.avereon.data;
+
+import com.avereon.event.EventCodec;
+import com.avereon.event.EventType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The {@link EventCodec} for node events. Nodes do not have an identity
+ * outside their process, so the codec uses an identifier function to get an
+ * id for each node in the publishing process and a resolver function to find
+ * the node for an id in the receiving process. Node values, like the children
+ * of child added events, are forwarded as node ids too. Events for nodes that
+ * cannot be resolved are skipped.
+ */
+public class NodeEventCodec implements EventCodec<NodeEvent> {
+
+	private static final byte NODE = 16;
+
+	private final Function<? super Node, String> identifier;
+
+	private final Function<String, ? extends Node> resolver;
+
+	/**
+	 * Create a node event codec.
+	 *
+	 * @param identifier Returns the id of a node in the publishing process
+	 * @param resolver Returns the node for an id in the receiving process, or null
+	 */
+	public NodeEventCodec( Function<? super Node, String> identifier, Function<String, ? extends Node> resolver ) {
+		this.identifier = identifier;
+		this.resolver = resolver;
+	}
+
+	@Override
+	public EventType<NodeEvent> getEventType() {
+		return NodeEvent.ANY;
+	}
+
+	@Override
+	public Collection<EventType<? extends NodeEvent>> getEventTypes() {
+		return List.of(
+			NodeEvent.ANY,
+			NodeEvent.MODIFIED,
+			NodeEvent.UNMODIFIED,
+			NodeEvent.ADDED,
+			NodeEvent.REMOVED,
+			NodeEvent.CHILD_ADDED,
+			NodeEvent.CHILD_REMOVED,
+			NodeEvent.NODE_CHANGED,
+			NodeEvent.PARENT_CHANGED,
+			NodeEvent.VALUE_CHANGED
+		);
+	}
+
+	@Override
+	public void encode( NodeEvent event, DataOutput output ) throws IOException {
+		EventCodec.writeString( output, identifier.apply( event.getNode() ) );
+		EventCodec.writeString( output, event.getSetKey() );
+		EventCodec.writeString( output, event.getKey() );
+		writeValue( output, event.getOldValue() );
+		writeValue( output, event.getNewValue() );
+	}
+
+	@Override
+	public NodeEvent decode( EventType<? extends NodeEvent> type, DataInput input ) throws IOException {
+		Node node = resolver.apply( EventCodec.readString( input ) );
+		String setKey = EventCodec.readString( input );
+		String key = EventCodec.readString( input );
+		Object oldValue = readValue( input );
+		Object newValue = readValue( input );
+		return node == null ? null : new NodeEvent( node, type, setKey, key, oldValue, newValue );
+	}
+
+	private void writeValue( DataOutput output, Object value ) throws IOException {
+		if( value instanceof Node node ) {
+			output.writeByte( NODE );
+			EventCodec.writeString( output, identifier.apply( node ) );
+		} else {
+			EventCodec.writeValue( output, value );
+		}
+	}
+
+	private Object readValue( DataInput input ) throws IOException {
+		byte tag = input.readByte();
+		if( tag == NODE ) return resolver.apply( EventCodec.readString( input ) );
+		return EventCodec.readValue( tag, input );
+	}
+
+}
@@ -0,0 +1,239 @@
+package com.avereon.event;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An event hub that delivers events asynchronously. Dispatched events are
+ * placed in a bounded, lock-free queue and the dispatching thread returns
+ * immediately. The queued events are delivered, in batches, on a thread from
+ * the hub executor. By default the executor starts a virtual thread for each
+ * delivery run.
+ * <p>
+ * Only one delivery run is active for a hub at a time, so events are delivered
+ * to handlers, peers and the parent hub in the order they were dispatched. In
+ * particular, the events from any one source are always delivered in order.
+ * {@link BatchEventHandler Batch handlers} receive all the matching events of a
+ * delivery batch in one call.
+ * <p>
+ * When the queue is full the {@link BackPressure} policy decides what happens
+ * to newly dispatched events.
+ */
+public class AsyncEventHub extends EventHub {
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	private static final long BLOCK_PARK_NANOS = 100_000;
+
+	private static final ExecutorService DEFAULT_EXECUTOR = Executors.newThreadPerTaskExecutor( Thread.ofVirtual().name( "EventHub-", 0 ).factory() );
+
+	@Getter
+	private final Executor executor;
+
+	@Getter
+	private final BackPressure backPressure;
+
+	private final EventRing queue;
+
+	private final Map<OverflowKey, Event> overflow;
+
+	private final AtomicBoolean scheduled;
+
+	private final LongAdder dropped;
+
+	/**
+	 * The maximum number of events delivered together.
+	 */
+	@Getter
+	@Setter
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	private volatile Thread deliveryThread;
+
+	public AsyncEventHub() {
+		this( DEFAULT_EXECUTOR );
+	}
+
+	public AsyncEventHub( Executor executor ) {
+		this( executor, DEFAULT_CAPACITY, BackPressure.BLOCK );
+	}
+
+	public AsyncEventHub( Executor executor, int capacity, BackPressure backPressure ) {
+		this.executor = Objects.requireNonNull( executor, "Executor cannot be null" );
+		this.backPressure = Objects.requireNonNull( backPressure, "Back pressure policy cannot be null" );
+		this.queue = new EventRing( capacity );
+		this.overflow = new LinkedHashMap<>();
+		this.scheduled = new AtomicBoolean();
+		this.dropped = new LongAdder();
+	}
+
+	@Override
+	public Event dispatch( Event event ) {
+		if( enqueue( event ) ) {
+			EventHubMonitor monitor = getActiveMonitor();
+			if( monitor != null ) monitor.queueDepthChanged( this, getQueueDepth() );
+			schedule();
+		}
+		return event;
+	}
+
+	/**
+	 * Get the maximum number of events the queue can hold before the back
+	 * pressure policy applies.
+	 *
+	 * @return The queue capacity
+	 */
+	public int getCapacity() {
+		return queue.capacity();
+	}
+
+	/**
+	 * Get the number of events waiting to be delivered.
+	 *
+	 * @return The number of queued events
+	 */
+	public int getQueueDepth() {
+		int size;
+		synchronized( overflow ) {
+			size = overflow.size();
+		}
+		return queue.size() + size;
+	}
+
+	/**
+	 * Get the number of events discarded due to the {@link BackPressure#DROP}
+	 * policy.
+	 *
+	 * @return The number of dropped events
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	private boolean enqueue( Event event ) {
+		// Keep coalesced events in order by not passing them in the queue
+		if( backPressure == BackPressure.COALESCE && hasOverflow() ) return coalesce( event );
+
+		if( queue.offer( event ) ) return true;
+
+		switch( backPressure ) {
+			case DROP -> {
+				dropped.increment();
+				return false;
+			}
+			case COALESCE -> {
+				return coalesce( event );
+			}
+			default -> {
+				while( !queue.offer( event ) ) {
+					// Waiting on the delivery thread would never finish
+					if( Thread.currentThread() == deliveryThread ) {
+						super.dispatch( event );
+						return false;
+					}
+					schedule();
+					LockSupport.parkNanos( BLOCK_PARK_NANOS );
+				}
+				return true;
+			}
+		}
+	}
+
+	private boolean coalesce( Event event ) {
+		synchronized( overflow ) {
+			OverflowKey key = new OverflowKey( event.getSource(), event.getEventType() );
+			// Removing the key first moves the event to the end of the order
+			overflow.remove( key );
+			overflow.put( key, event );
+		}
+		return true;
+	}
+
+	private boolean hasOverflow() {
+		synchronized( overflow ) {
+			return !overflow.isEmpty();
+		}
+	}
+
+	private void schedule() {
+		if( scheduled.compareAndSet( false, true ) ) executor.execute( this::deliverQueue );
+	}
+
+	private void deliverQueue() {
+		deliveryThread = Thread.currentThread();
+		try {
+			List<Event> batch;
+			while( !(batch = nextBatch()).isEmpty() ) {
+				deliverBatch( batch );
+			}
+		} finally {
+			deliveryThread = null;
+			scheduled.set( false );
+		}
+
+		// Events could have been queued after the last batch was collected
+		if( getQueueDepth() > 0 ) schedule();
+	}
+
+	private List<Event> nextBatch() {
+		int limit = Math.max( 1, batchSize );
+		List<Event> batch = new ArrayList<>( Math.min( limit, queue.capacity() ) );
+
+		Event event;
+		while( batch.size() < limit && (event = queue.poll()) != null ) {
+			batch.add( event );
+		}
+
+		// Coalesced events are always newer than the queued events
+		if( batch.size() < limit && queue.isEmpty() ) {
+			synchronized( overflow ) {
+				Iterator<Event> iterator = overflow.values().iterator();
+				while( batch.size() < limit && iterator.hasNext() ) {
+					batch.add( iterator.next() );
+					iterator.remove();
+				}
+			}
+		}
+
+		return batch;
+	}
+
+	private void deliverBatch( List<Event> batch ) {
+		Map<BatchEventHandler<Event>, List<Event>> batches = new LinkedHashMap<>();
+		batch.forEach( e -> deliver( e, batches ) );
+		batches.forEach( this::invokeAll );
+		batch.forEach( this::propagate );
+
+		EventHubMonitor monitor = getActiveMonitor();
+		if( monitor != null ) monitor.queueDepthChanged( this, getQueueDepth() );
+	}
+
+	/**
+	 * Events are coalesced by the identity of the source and the event type.
+	 */
+	private record OverflowKey(Object source, EventType<?> type) {
+
+		@Override
+		public boolean equals( Object object ) {
+			if( !(object instanceof OverflowKey that) ) return false;
+			return this.source == that.source && this.type == that.type;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode( source ) + System.identityHashCode( type );
+		}
+
+	}
+
+}
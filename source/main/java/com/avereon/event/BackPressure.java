@@ -0,0 +1,26 @@
+package com.avereon.event;
+
+/**
+ * The policy an {@link AsyncEventHub} uses when an event is dispatched and the
+ * event queue is full.
+ */
+public enum BackPressure {
+
+	/**
+	 * Discard the event. The number of dropped events is available from
+	 * {@link AsyncEventHub#getDroppedCount()}.
+	 */
+	DROP,
+
+	/**
+	 * Block the dispatching thread until there is room in the queue.
+	 */
+	BLOCK,
+
+	/**
+	 * Keep only the latest event for each event source and event type until
+	 * there is room in the queue.
+	 */
+	COALESCE
+
+}
@@ -0,0 +1,24 @@
+package com.avereon.event;
+
+import java.util.List;
+
+/**
+ * An event handler that can handle several events in one call. When registered
+ * with an {@link AsyncEventHub}, all the events in a delivery batch that match
+ * the registered event type are passed to {@link #handleAll(List)} at once, in
+ * the order they were dispatched. When registered with a synchronous
+ * {@link EventHub}, each event is passed as a batch of one.
+ *
+ * @param <T> The event type
+ */
+@FunctionalInterface
+public interface BatchEventHandler<T extends Event> extends EventHandler<T> {
+
+	void handleAll( List<T> events );
+
+	@Override
+	default void handle( T event ) {
+		handleAll( List.of( event ) );
+	}
+
+}
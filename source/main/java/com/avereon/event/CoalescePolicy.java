@@ -0,0 +1,104 @@
+package com.avereon.event;
+
+import lombok.Getter;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Describes how events are combined for a handler registered with
+ * {@link EventHub#register(EventType, EventHandler, CoalescePolicy)}. Events
+ * received within the time window are combined, by key, and each combined
+ * event is delivered once at the end of the window. This is useful for
+ * high-frequency events, like progress updates, where handlers only need the
+ * latest state at a limited rate.
+ * <p>
+ * Delivery is scheduled with a {@link com.avereon.util.DelayedAction}, which
+ * shares one timer thread for all coalescing handlers. Combined events are
+ * delivered on the timer thread unless an executor is provided.
+ *
+ * @param <T> The event type
+ */
+@Getter
+public final class CoalescePolicy<T extends Event> {
+
+	private static final Object SINGLE_KEY = new Object();
+
+	/**
+	 * The time window, in milliseconds.
+	 */
+	private final long window;
+
+	/**
+	 * The function that provides the key used to combine events.
+	 */
+	private final Function<? super T, ?> key;
+
+	/**
+	 * The function that combines a pending event with a newer event.
+	 */
+	private final BinaryOperator<T> merger;
+
+	/**
+	 * The executor used to deliver combined events, may be null.
+	 */
+	private final ExecutorService executor;
+
+	private CoalescePolicy( long window, Function<? super T, ?> key, BinaryOperator<T> merger, ExecutorService executor ) {
+		if( window < 0 ) throw new IllegalArgumentException( "Window cannot be negative: " + window );
+		this.window = window;
+		this.key = Objects.requireNonNull( key, "Key function cannot be null" );
+		this.merger = Objects.requireNonNull( merger, "Merge function cannot be null" );
+		this.executor = executor;
+	}
+
+	/**
+	 * Keep only the latest event within the time window.
+	 *
+	 * @param window The time window in milliseconds
+	 * @param <T> The event type
+	 * @return The coalesce policy
+	 */
+	public static <T extends Event> CoalescePolicy<T> latest( long window ) {
+		return new CoalescePolicy<>( window, e -> SINGLE_KEY, ( a, b ) -> b, null );
+	}
+
+	/**
+	 * Keep only the latest event for each key within the time window.
+	 *
+	 * @param window The time window in milliseconds
+	 * @param key The function that provides the event key
+	 * @param <T> The event type
+	 * @return The coalesce policy
+	 */
+	public static <T extends Event> CoalescePolicy<T> latest( long window, Function<? super T, ?> key ) {
+		return new CoalescePolicy<>( window, key, ( a, b ) -> b, null );
+	}
+
+	/**
+	 * Merge the events for each key within the time window.
+	 *
+	 * @param window The time window in milliseconds
+	 * @param key The function that provides the event key
+	 * @param merger The function that combines the pending event with a newer event
+	 * @param <T> The event type
+	 * @return The coalesce policy
+	 */
+	public static <T extends Event> CoalescePolicy<T> merge( long window, Function<? super T, ?> key, BinaryOperator<T> merger ) {
+		return new CoalescePolicy<>( window, key, merger, null );
+	}
+
+	/**
+	 * Create a copy of this policy that delivers combined events with the
+	 * specified executor.
+	 *
+	 * @param executor The delivery executor
+	 * @return The coalesce policy
+	 */
+	public CoalescePolicy<T> executor( ExecutorService executor ) {
+		return new CoalescePolicy<>( window, key, merger, executor );
+	}
+
+}
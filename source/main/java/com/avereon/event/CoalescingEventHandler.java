@@ -0,0 +1,79 @@
+package com.avereon.event;
+
+import com.avereon.util.DelayedAction;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The handler wrapper that combines events according to a
+ * {@link CoalescePolicy} and passes the combined events to the wrapped handler
+ * once per time window.
+ *
+ * @param <T> The event type
+ */
+final class CoalescingEventHandler<T extends Event> implements EventHandler<T> {
+
+	private final EventHub hub;
+
+	@Getter
+	private final EventHandler<? super T> handler;
+
+	private final CoalescePolicy<T> policy;
+
+	private final Map<Object, T> pending;
+
+	private final DelayedAction action;
+
+	CoalescingEventHandler( EventHub hub, EventHandler<? super T> handler, CoalescePolicy<T> policy ) {
+		this.hub = hub;
+		this.handler = handler;
+		this.policy = policy;
+		this.pending = new LinkedHashMap<>();
+		this.action = new DelayedAction( policy.getExecutor(), this::flush );
+
+		// The action is triggered one window after the first pending event
+		this.action.setMinTriggerLimit( policy.getWindow() );
+		this.action.setMaxTriggerLimit( policy.getWindow() );
+	}
+
+	@Override
+	public void handle( T event ) {
+		synchronized( pending ) {
+			pending.merge( policy.getKey().apply( event ), event, policy.getMerger() );
+		}
+		action.request();
+	}
+
+	void cancel() {
+		action.cancel();
+		synchronized( pending ) {
+			pending.clear();
+		}
+	}
+
+	private void flush() {
+		List<T> events;
+		synchronized( pending ) {
+			events = new ArrayList<>( pending.values() );
+			pending.clear();
+		}
+
+		EventHubMonitor monitor = hub.getActiveMonitor();
+		for( T event : events ) {
+			long start = monitor == null ? 0 : System.nanoTime();
+			try {
+				handler.handle( event );
+			} catch( RuntimeException handlerException ) {
+				// Do not let any handler break the others
+				EventHub.logHandlerException( handlerException );
+			} finally {
+				if( monitor != null ) monitor.handlerCompleted( hub, event, handler, System.nanoTime() - start );
+			}
+		}
+	}
+
+}
@@ -0,0 +1,239 @@
+package com.avereon.event;
+
+import lombok.CustomLog;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An event hub peer that forwards events to other processes over a Unix
+ * domain socket. Register the bridge as a peer of the hub with the events to
+ * forward, choose the event types to forward with {@link #forward(EventCodec)}
+ * and {@link #start() start} the bridge. Other processes connect to the socket
+ * with an {@link EventBridgeReceiver}, which dispatches the events to a hub in
+ * that process.
+ * <p>
+ * Each event is encoded once, on the dispatching thread, and queued for each
+ * connected receiver. A virtual thread for each receiver writes the queued
+ * frames in batches. When the queue of a receiver is full, because the
+ * receiver is not keeping up, the oldest queued frame is dropped, so a slow
+ * receiver never stalls the dispatching thread.
+ */
+@CustomLog
+public class EventBridge extends EventHub implements Closeable {
+
+	public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	@Getter
+	private final Path path;
+
+	@Getter
+	private final int queueCapacity;
+
+	private final EventFrames frames;
+
+	private final Set<Subscriber> subscribers;
+
+	private final LongAdder forwarded;
+
+	private final LongAdder dropped;
+
+	private volatile ServerSocketChannel server;
+
+	public EventBridge( Path path ) {
+		this( path, DEFAULT_QUEUE_CAPACITY );
+	}
+
+	public EventBridge( Path path, int queueCapacity ) {
+		this.path = path;
+		this.queueCapacity = queueCapacity;
+		this.frames = new EventFrames();
+		this.subscribers = new CopyOnWriteArraySet<>();
+		this.forwarded = new LongAdder();
+		this.dropped = new LongAdder();
+	}
+
+	/**
+	 * Forward the events handled by the codec to the connected receivers.
+	 *
+	 * @param codec The event codec
+	 * @param <T> The event class
+	 * @return This event bridge
+	 */
+	public <T extends Event> EventBridge forward( EventCodec<T> codec ) {
+		frames.register( codec );
+		register( codec.getEventType(), this::forward );
+		return this;
+	}
+
+	/**
+	 * Bind the socket and start accepting receivers. An existing socket file
+	 * at the bridge path is replaced.
+	 *
+	 * @return This event bridge
+	 * @throws IOException If the socket cannot be bound
+	 */
+	public synchronized EventBridge start() throws IOException {
+		if( server != null ) return this;
+		Files.deleteIfExists( path );
+		ServerSocketChannel channel = ServerSocketChannel.open( StandardProtocolFamily.UNIX );
+		channel.bind( UnixDomainSocketAddress.of( path ) );
+		server = channel;
+		Thread.ofVirtual().name( "EventBridge-accept" ).start( () -> accept( channel ) );
+		return this;
+	}
+
+	/**
+	 * Forwarded events are only delivered to the bridge itself, not passed on
+	 * to the peers and parent of the bridge.
+	 *
+	 * @param event The event
+	 * @return The event
+	 */
+	@Override
+	public Event dispatch( Event event ) {
+		deliver( event, null );
+		return event;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		ServerSocketChannel channel = server;
+		server = null;
+		if( channel == null ) return;
+		channel.close();
+		subscribers.forEach( Subscriber::close );
+		Files.deleteIfExists( path );
+	}
+
+	public boolean isRunning() {
+		return server != null;
+	}
+
+	public int getReceiverCount() {
+		return subscribers.size();
+	}
+
+	/**
+	 * Get the number of events encoded and queued for the receivers.
+	 *
+	 * @return The number of forwarded events
+	 */
+	public long getForwardedCount() {
+		return forwarded.sum();
+	}
+
+	/**
+	 * Get the number of frames dropped because a receiver queue was full.
+	 *
+	 * @return The number of dropped frames
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	private void forward( Event event ) {
+		if( subscribers.isEmpty() ) return;
+
+		byte[] frame;
+		try {
+			frame = frames.encode( event );
+		} catch( IOException exception ) {
+			log.atWarn( exception ).log( "Unable to encode event: %s", event );
+			return;
+		}
+		if( frame == null ) return;
+
+		forwarded.increment();
+		subscribers.forEach( s -> s.offer( frame ) );
+	}
+
+	private void accept( ServerSocketChannel channel ) {
+		while( channel.isOpen() ) {
+			try {
+				Subscriber subscriber = new Subscriber( channel.accept() );
+				subscribers.add( subscriber );
+				subscriber.start();
+			} catch( IOException exception ) {
+				if( channel.isOpen() ) log.atWarn( exception ).log( "Error accepting event receiver at=%s", path );
+			}
+		}
+	}
+
+	private final class Subscriber {
+
+		private final SocketChannel channel;
+
+		private final BlockingQueue<byte[]> queue;
+
+		Subscriber( SocketChannel channel ) {
+			this.channel = channel;
+			this.queue = new ArrayBlockingQueue<>( queueCapacity );
+		}
+
+		void start() {
+			Thread.ofVirtual().name( "EventBridge-write" ).start( this::write );
+		}
+
+		void offer( byte[] frame ) {
+			while( !queue.offer( frame ) ) {
+				// Drop the oldest frame so the newest state reaches the receiver
+				if( queue.poll() != null ) dropped.increment();
+			}
+		}
+
+		void close() {
+			subscribers.remove( this );
+			try {
+				channel.close();
+			} catch( IOException exception ) {
+				// Intentionally ignore exception
+			}
+		}
+
+		private void write() {
+			List<byte[]> batch = new ArrayList<>( DEFAULT_BATCH_SIZE );
+			try {
+				while( channel.isOpen() ) {
+					batch.add( queue.take() );
+					queue.drainTo( batch, DEFAULT_BATCH_SIZE - 1 );
+
+					// Write the whole batch with one gathering write when possible
+					ByteBuffer[] buffers = new ByteBuffer[ batch.size() ];
+					for( int index = 0; index < buffers.length; index++ ) {
+						buffers[ index ] = ByteBuffer.wrap( batch.get( index ) );
+					}
+					while( buffers[ buffers.length - 1 ].hasRemaining() ) {
+						channel.write( buffers );
+					}
+					batch.clear();
+				}
+			} catch( InterruptedException exception ) {
+				Thread.currentThread().interrupt();
+			} catch( IOException exception ) {
+				// The receiver disconnected
+			} finally {
+				close();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,155 @@
+package com.avereon.event;
+
+import lombok.CustomLog;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Receives the events forwarded by an {@link EventBridge} in another process
+ * and dispatches them to a local event hub. Register the same codecs as the
+ * bridge with {@link #receive(EventCodec)} before connecting. Events of types
+ * without a codec, or that a codec cannot recreate in this process, are
+ * skipped.
+ * <p>
+ * Frames are read in large blocks on a virtual thread, so a batch of frames
+ * written by the bridge is usually read with one read. A frame length that is
+ * negative or over {@link EventFrames#MAX_FRAME_LENGTH} closes the connection.
+ */
+@CustomLog
+public class EventBridgeReceiver implements Closeable {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	@Getter
+	private final EventHub hub;
+
+	private final EventFrames frames;
+
+	private final LongAdder received;
+
+	private volatile SocketChannel channel;
+
+	public EventBridgeReceiver( EventHub hub ) {
+		this.hub = hub;
+		this.frames = new EventFrames();
+		this.received = new LongAdder();
+	}
+
+	/**
+	 * Receive the events handled by the codec.
+	 *
+	 * @param codec The event codec
+	 * @param <T> The event class
+	 * @return This receiver
+	 */
+	public <T extends Event> EventBridgeReceiver receive( EventCodec<T> codec ) {
+		frames.register( codec );
+		return this;
+	}
+
+	/**
+	 * Connect to the event bridge socket and start receiving events.
+	 *
+	 * @param path The event bridge socket path
+	 * @return This receiver
+	 * @throws IOException If the connection fails
+	 */
+	public synchronized EventBridgeReceiver connect( Path path ) throws IOException {
+		if( channel != null ) throw new IllegalStateException( "Receiver already connected" );
+		SocketChannel channel = SocketChannel.open( StandardProtocolFamily.UNIX );
+		channel.connect( UnixDomainSocketAddress.of( path ) );
+		this.channel = channel;
+		Thread.ofVirtual().name( "EventBridge-read" ).start( () -> read( channel ) );
+		return this;
+	}
+
+	public boolean isConnected() {
+		SocketChannel channel = this.channel;
+		return channel != null && channel.isOpen();
+	}
+
+	/**
+	 * Get the number of events dispatched to the hub.
+	 *
+	 * @return The number of received events
+	 */
+	public long getReceivedCount() {
+		return received.sum();
+	}
+
+	@Override
+	public void close() throws IOException {
+		SocketChannel channel = this.channel;
+		if( channel != null ) channel.close();
+	}
+
+	private void read( SocketChannel channel ) {
+		ByteBuffer buffer = ByteBuffer.allocate( BUFFER_SIZE );
+		try {
+			while( channel.read( buffer ) >= 0 ) {
+				buffer.flip();
+				dispatchFrames( buffer );
+				buffer = prepareBuffer( buffer );
+			}
+		} catch( IOException exception ) {
+			if( channel.isOpen() ) log.atWarn( exception ).log( "Error receiving events, closing the connection" );
+		} finally {
+			try {
+				channel.close();
+			} catch( IOException exception ) {
+				// Intentionally ignore exception
+			}
+		}
+	}
+
+	/**
+	 * Dispatch all the complete frames in the buffer and leave the position at
+	 * the start of the first incomplete frame.
+	 */
+	private void dispatchFrames( ByteBuffer buffer ) throws IOException {
+		while( buffer.remaining() >= EventFrames.LENGTH_BYTES ) {
+			int length = getFrameLength( buffer );
+			if( buffer.remaining() < EventFrames.LENGTH_BYTES + length ) return;
+
+			int start = buffer.position() + EventFrames.LENGTH_BYTES;
+			Event event = frames.decode( buffer.slice( start, length ) );
+			buffer.position( start + length );
+
+			if( event != null ) {
+				received.increment();
+				hub.dispatch( event );
+			}
+		}
+	}
+
+	/**
+	 * Move an incomplete frame to the start of the buffer, growing the buffer
+	 * if the frame is larger than the buffer.
+	 */
+	private static ByteBuffer prepareBuffer( ByteBuffer buffer ) throws IOException {
+		if( buffer.remaining() >= EventFrames.LENGTH_BYTES ) {
+			int required = EventFrames.LENGTH_BYTES + getFrameLength( buffer );
+			if( required > buffer.capacity() ) return ByteBuffer.allocate( required ).put( buffer );
+		}
+		return buffer.compact();
+	}
+
+	/**
+	 * Get the length of the frame at the buffer position, checking that the
+	 * length is valid before any buffer is allocated for the frame.
+	 */
+	private static int getFrameLength( ByteBuffer buffer ) throws IOException {
+		int length = buffer.getInt( buffer.position() );
+		if( length < 0 || length > EventFrames.MAX_FRAME_LENGTH ) throw new IOException( "Invalid frame length: " + length );
+		return length;
+	}
+
+}
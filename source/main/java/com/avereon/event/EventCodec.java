@@ -0,0 +1,176 @@
+package com.avereon.event;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Converts events to and from the compact binary form used by the
+ * {@link EventBridge}. A codec handles a base event type and all the event
+ * types derived from it. Both the publishing and the receiving process need
+ * to register the same codecs.
+ * <p>
+ * The static methods write strings and simple values in a compact form and
+ * can be used by codec implementations.
+ *
+ * @param <T> The event class
+ */
+public interface EventCodec<T extends Event> {
+
+	byte NULL = 0;
+
+	byte STRING = 1;
+
+	byte BOOLEAN = 2;
+
+	byte INTEGER = 3;
+
+	byte LONG = 4;
+
+	byte FLOAT = 5;
+
+	byte DOUBLE = 6;
+
+	/**
+	 * Get the base event type. Events of this type, and all the types derived
+	 * from it, are forwarded by the bridge.
+	 *
+	 * @return The base event type
+	 */
+	EventType<T> getEventType();
+
+	/**
+	 * Get all the event types this codec can encode and decode. Events with a
+	 * type that is not in this collection are not forwarded.
+	 *
+	 * @return The event types
+	 */
+	Collection<EventType<? extends T>> getEventTypes();
+
+	/**
+	 * Write the event data, not including the event type.
+	 *
+	 * @param event The event to encode
+	 * @param output The output to write to
+	 * @throws IOException If an I/O error occurs
+	 */
+	void encode( T event, DataOutput output ) throws IOException;
+
+	/**
+	 * Read the event data written by {@link #encode(Event, DataOutput)} and
+	 * create a local event. Return null if the event cannot be created in this
+	 * process, for example because the source does not exist here.
+	 *
+	 * @param type The event type
+	 * @param input The input to read from
+	 * @return The event or null
+	 * @throws IOException If an I/O error occurs
+	 */
+	T decode( EventType<? extends T> type, DataInput input ) throws IOException;
+
+	/**
+	 * Write an unsigned variable length integer, seven bits per byte.
+	 */
+	static void writeVarInt( DataOutput output, int value ) throws IOException {
+		while( (value & ~0x7f) != 0 ) {
+			output.writeByte( (value & 0x7f) | 0x80 );
+			value >>>= 7;
+		}
+		output.writeByte( value );
+	}
+
+	static int readVarInt( DataInput input ) throws IOException {
+		int value = 0;
+		int shift = 0;
+		int next;
+		do {
+			if( shift > 28 ) throw new IOException( "Variable length integer too long" );
+			next = input.readUnsignedByte();
+			value |= (next & 0x7f) << shift;
+			shift += 7;
+		} while( (next & 0x80) != 0 );
+		return value;
+	}
+
+	/**
+	 * Write a string, or null, as the UTF-8 length plus one followed by the
+	 * UTF-8 bytes. Unlike {@link DataOutput#writeUTF(String)} there is no
+	 * length limit.
+	 */
+	static void writeString( DataOutput output, String value ) throws IOException {
+		if( value == null ) {
+			writeVarInt( output, 0 );
+			return;
+		}
+		byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+		writeVarInt( output, bytes.length + 1 );
+		output.write( bytes );
+	}
+
+	static String readString( DataInput input ) throws IOException {
+		int length = readVarInt( input ) - 1;
+		if( length < 0 ) return null;
+		byte[] bytes = new byte[ length ];
+		input.readFully( bytes );
+		return new String( bytes, StandardCharsets.UTF_8 );
+	}
+
+	/**
+	 * Write a value with a type tag. Strings, booleans, integers, longs,
+	 * floats and doubles keep their type. Any other value is written as its
+	 * string form.
+	 */
+	static void writeValue( DataOutput output, Object value ) throws IOException {
+		switch( value ) {
+			case null -> output.writeByte( NULL );
+			case Boolean bool -> {
+				output.writeByte( BOOLEAN );
+				output.writeBoolean( bool );
+			}
+			case Integer number -> {
+				output.writeByte( INTEGER );
+				output.writeInt( number );
+			}
+			case Long number -> {
+				output.writeByte( LONG );
+				output.writeLong( number );
+			}
+			case Float number -> {
+				output.writeByte( FLOAT );
+				output.writeFloat( number );
+			}
+			case Double number -> {
+				output.writeByte( DOUBLE );
+				output.writeDouble( number );
+			}
+			default -> {
+				output.writeByte( STRING );
+				writeString( output, value.toString() );
+			}
+		}
+	}
+
+	static Object readValue( DataInput input ) throws IOException {
+		return readValue( input.readByte(), input );
+	}
+
+	/**
+	 * Read a value after the type tag has already been read. Codecs that write
+	 * their own value tags can use this for the standard value tags.
+	 */
+	static Object readValue( byte tag, DataInput input ) throws IOException {
+		return switch( tag ) {
+			case NULL -> null;
+			case STRING -> readString( input );
+			case BOOLEAN -> input.readBoolean();
+			case INTEGER -> input.readInt();
+			case LONG -> input.readLong();
+			case FLOAT -> input.readFloat();
+			case DOUBLE -> input.readDouble();
+			default -> throw new IOException( "Unknown value tag: " + tag );
+		};
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.avereon.event;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The event codecs of a bridge and the frame format. A frame is the length of
+ * the rest of the frame as a four byte integer, the event type key as a
+ * string and the event data written by the codec. The event type key is the
+ * path of event type names from the root type, like EVENT.SETTINGS.CHANGED.
+ */
+final class EventFrames {
+
+	static final int LENGTH_BYTES = Integer.BYTES;
+
+	/**
+	 * The largest frame length, not including the length itself. Events are
+	 * small, so a larger length means the stream is corrupt or not from a
+	 * bridge, and the receiver closes the connection instead of allocating a
+	 * buffer for it.
+	 */
+	static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+	private final Map<EventType<?>, Entry> types = new ConcurrentHashMap<>();
+
+	private final Map<String, Entry> keys = new ConcurrentHashMap<>();
+
+	void register( EventCodec<?> codec ) {
+		for( EventType<?> type : codec.getEventTypes() ) {
+			Entry entry = new Entry( type, getKey( type ), codec );
+			types.put( type, entry );
+			keys.put( entry.key(), entry );
+		}
+	}
+
+	/**
+	 * Encode an event to a frame.
+	 *
+	 * @param event The event to encode
+	 * @return The frame or null if there is no codec for the event type
+	 * @throws IOException If the codec fails to encode the event or the frame
+	 * is longer than the maximum frame length
+	 */
+	@SuppressWarnings( "unchecked" )
+	byte[] encode( Event event ) throws IOException {
+		Entry entry = types.get( event.getEventType() );
+		if( entry == null ) return null;
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream( 64 );
+		DataOutputStream output = new DataOutputStream( bytes );
+		output.writeInt( 0 );
+		EventCodec.writeString( output, entry.key() );
+		((EventCodec<Event>)entry.codec()).encode( event, output );
+		output.flush();
+
+		byte[] frame = bytes.toByteArray();
+		if( frame.length - LENGTH_BYTES > MAX_FRAME_LENGTH ) throw new IOException( "Event frame too large: " + (frame.length - LENGTH_BYTES) );
+		ByteBuffer.wrap( frame ).putInt( 0, frame.length - LENGTH_BYTES );
+		return frame;
+	}
+
+	/**
+	 * Decode an event from the frame content, not including the frame length.
+	 *
+	 * @param frame The frame content
+	 * @return The event or null if the event type or event source is not known
+	 * @throws IOException If the codec fails to decode the event
+	 */
+	@SuppressWarnings( "unchecked" )
+	Event decode( ByteBuffer frame ) throws IOException {
+		DataInputStream input = new DataInputStream( new ByteBufferInputStream( frame ) );
+		Entry entry = keys.get( EventCodec.readString( input ) );
+		if( entry == null ) return null;
+		return ((EventCodec<Event>)entry.codec()).decode( (EventType<? extends Event>)entry.type(), input );
+	}
+
+	private static String getKey( EventType<?> type ) {
+		StringBuilder builder = new StringBuilder( type.getName() );
+		for( EventType<?> parent = type.getParentEventType(); parent != null; parent = parent.getParentEventType() ) {
+			builder.insert( 0, '.' ).insert( 0, parent.getName() );
+		}
+		return builder.toString();
+	}
+
+	private record Entry(EventType<?> type, String key, EventCodec<?> codec) {}
+
+	private static final class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream( ByteBuffer buffer ) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read( byte[] bytes, int offset, int length ) {
+			if( !buffer.hasRemaining() ) return -1;
+			int count = Math.min( length, buffer.remaining() );
+			buffer.get( bytes, offset, count );
+			return count;
+		}
+
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.avereon.event;
+
+import java.util.List;
+
+/**
+ * Receives instrumentation callbacks from event hubs. A monitor can be set on
+ * a single hub with {@link EventHub#setMonitor(EventHubMonitor)} or on all hubs
+ * with {@link EventHub#setDefaultMonitor(EventHubMonitor)}, and removed again
+ * at any time. Hubs without a monitor do not measure anything.
+ * <p>
+ * Monitor methods are called on the dispatching thread, in the middle of event
+ * delivery, so implementations should be fast, thread-safe and should not
+ * throw exceptions.
+ */
+public interface EventHubMonitor {
+
+	/**
+	 * Called when an event is delivered to the handlers of a hub.
+	 *
+	 * @param hub The event hub
+	 * @param event The event
+	 */
+	default void eventDelivered( EventHub hub, Event event ) {}
+
+	/**
+	 * Called after a handler finished handling an event.
+	 *
+	 * @param hub The event hub
+	 * @param event The event
+	 * @param handler The event handler
+	 * @param nanos The handler execution time in nanoseconds
+	 */
+	default void handlerCompleted( EventHub hub, Event event, EventHandler<?> handler, long nanos ) {}
+
+	/**
+	 * Called when the number of queued events of an {@link AsyncEventHub}
+	 * changes.
+	 *
+	 * @param hub The event hub
+	 * @param depth The number of queued events
+	 */
+	default void queueDepthChanged( AsyncEventHub hub, int depth ) {}
+
+	/**
+	 * Create a monitor that passes all callbacks to each of the monitors.
+	 *
+	 * @param monitors The monitors
+	 * @return The combined monitor
+	 */
+	static EventHubMonitor of( EventHubMonitor... monitors ) {
+		List<EventHubMonitor> list = List.of( monitors );
+		return new EventHubMonitor() {
+
+			@Override
+			public void eventDelivered( EventHub hub, Event event ) {
+				list.forEach( m -> m.eventDelivered( hub, event ) );
+			}
+
+			@Override
+			public void handlerCompleted( EventHub hub, Event event, EventHandler<?> handler, long nanos ) {
+				list.forEach( m -> m.handlerCompleted( hub, event, handler, nanos ) );
+			}
+
+			@Override
+			public void queueDepthChanged( AsyncEventHub hub, int depth ) {
+				list.forEach( m -> m.queueDepthChanged( hub, depth ) );
+			}
+
+		};
+	}
+
+}
@@ -0,0 +1,218 @@
+package com.avereon.event;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link EventHubMonitor} that collects dispatch statistics: the number of
+ * events delivered for each event type, an execution time histogram for each
+ * handler class, the most recent handler calls that took longer than the slow
+ * handler threshold, and the queue depth of asynchronous hubs.
+ */
+public class EventHubStatistics implements EventHubMonitor {
+
+	public static final Duration DEFAULT_SLOW_HANDLER_THRESHOLD = Duration.ofMillis( 20 );
+
+	private static final int SLOW_HANDLER_LIMIT = 100;
+
+	@Getter
+	private final Duration slowHandlerThreshold;
+
+	private final long slowHandlerNanos;
+
+	private final Map<EventType<?>, LongAdder> deliveries;
+
+	private final Map<String, Histogram> handlerTimes;
+
+	private final Deque<SlowHandler> slowHandlers;
+
+	private final Map<AsyncEventHub, QueueDepth> queueDepths;
+
+	public EventHubStatistics() {
+		this( DEFAULT_SLOW_HANDLER_THRESHOLD );
+	}
+
+	public EventHubStatistics( Duration slowHandlerThreshold ) {
+		this.slowHandlerThreshold = slowHandlerThreshold;
+		this.slowHandlerNanos = slowHandlerThreshold.toNanos();
+		this.deliveries = new ConcurrentHashMap<>();
+		this.handlerTimes = new ConcurrentHashMap<>();
+		this.slowHandlers = new ArrayDeque<>();
+		this.queueDepths = Collections.synchronizedMap( new WeakHashMap<>() );
+	}
+
+	@Override
+	public void eventDelivered( EventHub hub, Event event ) {
+		deliveries.computeIfAbsent( event.getEventType(), k -> new LongAdder() ).increment();
+	}
+
+	@Override
+	public void handlerCompleted( EventHub hub, Event event, EventHandler<?> handler, long nanos ) {
+		String handlerName = handler.getClass().getName();
+		handlerTimes.computeIfAbsent( handlerName, k -> new Histogram() ).record( nanos );
+
+		if( nanos >= slowHandlerNanos ) {
+			synchronized( slowHandlers ) {
+				if( slowHandlers.size() >= SLOW_HANDLER_LIMIT ) slowHandlers.removeFirst();
+				slowHandlers.addLast( new SlowHandler( handlerName, event.getEventType(), event.toString(), nanos ) );
+			}
+		}
+	}
+
+	@Override
+	public void queueDepthChanged( AsyncEventHub hub, int depth ) {
+		queueDepths.computeIfAbsent( hub, k -> new QueueDepth() ).update( depth );
+	}
+
+	/**
+	 * Get the number of events delivered to hub handlers for each event type.
+	 *
+	 * @return The delivery count by event type
+	 */
+	public Map<EventType<?>, Long> getDeliveryCounts() {
+		Map<EventType<?>, Long> counts = new HashMap<>();
+		deliveries.forEach( ( k, v ) -> counts.put( k, v.sum() ) );
+		return counts;
+	}
+
+	/**
+	 * Get the execution time histogram for each handler class name.
+	 *
+	 * @return The histograms by handler class name
+	 */
+	public Map<String, Histogram> getHandlerTimes() {
+		return Map.copyOf( handlerTimes );
+	}
+
+	/**
+	 * Get the most recent handler calls that took longer than the slow handler
+	 * threshold, oldest first.
+	 *
+	 * @return The slow handler calls
+	 */
+	public List<SlowHandler> getSlowHandlers() {
+		synchronized( slowHandlers ) {
+			return List.copyOf( slowHandlers );
+		}
+	}
+
+	public int getQueueDepth( AsyncEventHub hub ) {
+		QueueDepth depth = queueDepths.get( hub );
+		return depth == null ? 0 : depth.current;
+	}
+
+	public int getMaxQueueDepth( AsyncEventHub hub ) {
+		QueueDepth depth = queueDepths.get( hub );
+		return depth == null ? 0 : depth.max;
+	}
+
+	public void reset() {
+		deliveries.clear();
+		handlerTimes.clear();
+		synchronized( slowHandlers ) {
+			slowHandlers.clear();
+		}
+		queueDepths.clear();
+	}
+
+	/**
+	 * A handler call that took longer than the slow handler threshold.
+	 *
+	 * @param handler The handler class name
+	 * @param type The event type
+	 * @param event The event description
+	 * @param nanos The handler execution time in nanoseconds
+	 */
+	public record SlowHandler(String handler, EventType<?> type, String event, long nanos) {}
+
+	/**
+	 * An execution time histogram with power of two nanosecond buckets. Bucket
+	 * {@code n} counts the times from {@code 2^n} up to {@code 2^(n+1)}
+	 * nanoseconds.
+	 */
+	public static final class Histogram {
+
+		private final AtomicLongArray buckets = new AtomicLongArray( Long.SIZE );
+
+		private final LongAdder count = new LongAdder();
+
+		private final LongAdder total = new LongAdder();
+
+		private final AtomicLong max = new AtomicLong();
+
+		void record( long nanos ) {
+			long value = Math.max( 1, nanos );
+			buckets.incrementAndGet( 63 - Long.numberOfLeadingZeros( value ) );
+			count.increment();
+			total.add( value );
+			max.accumulateAndGet( value, Math::max );
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public long getTotalNanos() {
+			return total.sum();
+		}
+
+		public long getMaxNanos() {
+			return max.get();
+		}
+
+		public long getMeanNanos() {
+			long count = getCount();
+			return count == 0 ? 0 : getTotalNanos() / count;
+		}
+
+		/**
+		 * Get an upper bound of the execution time percentile.
+		 *
+		 * @param percentile The percentile, from 0 to 1
+		 * @return The upper bound of the bucket containing the percentile
+		 */
+		public long getPercentileNanos( double percentile ) {
+			long target = (long)Math.ceil( getCount() * percentile );
+			long sum = 0;
+			for( int index = 0; index < buckets.length(); index++ ) {
+				sum += buckets.get( index );
+				if( sum >= target && sum > 0 ) return index >= 62 ? Long.MAX_VALUE : (1L << (index + 1)) - 1;
+			}
+			return 0;
+		}
+
+		public long[] getBuckets() {
+			long[] counts = new long[ buckets.length() ];
+			for( int index = 0; index < counts.length; index++ ) {
+				counts[ index ] = buckets.get( index );
+			}
+			return counts;
+		}
+
+		@Override
+		public String toString() {
+			return "count=" + getCount() + " mean=" + getMeanNanos() + "ns p99=" + getPercentileNanos( 0.99 ) + "ns max=" + getMaxNanos() + "ns";
+		}
+
+	}
+
+	private static final class QueueDepth {
+
+		private volatile int current;
+
+		private volatile int max;
+
+		private synchronized void update( int depth ) {
+			current = depth;
+			if( depth > max ) max = depth;
+		}
+
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.avereon.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free, multiple producer event queue backed by a ring buffer.
+ * Each slot carries a sequence number that tells producers and consumers if
+ * the slot is ready to be written or read, so neither side needs a lock. The
+ * capacity is rounded up to the next power of two, with a minimum of two.
+ */
+final class EventRing {
+
+	private final int mask;
+
+	private final AtomicReferenceArray<Event> events;
+
+	private final AtomicLongArray sequences;
+
+	private final AtomicLong head = new AtomicLong();
+
+	private final AtomicLong tail = new AtomicLong();
+
+	EventRing( int capacity ) {
+		if( capacity < 1 ) throw new IllegalArgumentException( "Capacity must be greater than zero: " + capacity );
+		// The slot sequence numbers need at least two slots to work
+		int size = 2;
+		while( size < capacity ) size <<= 1;
+
+		this.mask = size - 1;
+		this.events = new AtomicReferenceArray<>( size );
+		this.sequences = new AtomicLongArray( size );
+		for( int index = 0; index < size; index++ ) {
+			sequences.set( index, index );
+		}
+	}
+
+	/**
+	 * Add an event to the ring.
+	 *
+	 * @param event The event to add
+	 * @return True if the event was added, false if the ring is full
+	 */
+	boolean offer( Event event ) {
+		long position = tail.get();
+		while( true ) {
+			int index = (int)(position & mask);
+			long difference = sequences.get( index ) - position;
+			if( difference == 0 ) {
+				if( tail.compareAndSet( position, position + 1 ) ) {
+					events.set( index, event );
+					sequences.set( index, position + 1 );
+					return true;
+				}
+			} else if( difference < 0 ) {
+				return false;
+			}
+			position = tail.get();
+		}
+	}
+
+	/**
+	 * Remove the oldest event from the ring.
+	 *
+	 * @return The oldest event or null if the ring is empty
+	 */
+	Event poll() {
+		long position = head.get();
+		while( true ) {
+			int index = (int)(position & mask);
+			long difference = sequences.get( index ) - (position + 1);
+			if( difference == 0 ) {
+				if( head.compareAndSet( position, position + 1 ) ) {
+					Event event = events.getAndSet( index, null );
+					sequences.set( index, position + mask + 1 );
+					return event;
+				}
+			} else if( difference < 0 ) {
+				return null;
+			}
+			position = head.get();
+		}
+	}
+
+	boolean isEmpty() {
+		return size() == 0;
+	}
+
+	int size() {
+		long size = tail.get() - head.get();
+		return (int)Math.max( 0, Math.min( size, capacity() ) );
+	}
+
+	int capacity() {
+		return mask + 1;
+	}
+
+}
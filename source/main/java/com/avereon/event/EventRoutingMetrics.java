@@ -0,0 +1,73 @@
+package com.avereon.event;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Routing counters for an {@link EventHub}. These counters show how much work
+ * the hub does for events that pass through it and how much work the interest
+ * bitmaps save by pruning branches that have no interested handlers.
+ */
+public final class EventRoutingMetrics {
+
+	private final LongAdder delivered = new LongAdder();
+
+	private final LongAdder pruned = new LongAdder();
+
+	private final LongAdder rebuilt = new LongAdder();
+
+	EventRoutingMetrics() {}
+
+	/**
+	 * The number of events delivered to the handlers of the hub.
+	 *
+	 * @return The delivered event count
+	 */
+	public long getDeliveredCount() {
+		return delivered.sum();
+	}
+
+	/**
+	 * The number of events routed to the hub from a peer or child hub that
+	 * were skipped because no handler on the hub, its peers or its parents was
+	 * interested in the event type.
+	 *
+	 * @return The pruned event count
+	 */
+	public long getPrunedCount() {
+		return pruned.sum();
+	}
+
+	/**
+	 * The number of times the interest bitmap of the hub was rebuilt after
+	 * handlers, peers or parents changed.
+	 *
+	 * @return The interest rebuild count
+	 */
+	public long getRebuildCount() {
+		return rebuilt.sum();
+	}
+
+	public void reset() {
+		delivered.reset();
+		pruned.reset();
+		rebuilt.reset();
+	}
+
+	void delivered() {
+		delivered.increment();
+	}
+
+	void pruned() {
+		pruned.increment();
+	}
+
+	void rebuilt() {
+		rebuilt.increment();
+	}
+
+	@Override
+	public String toString() {
+		return "delivered=" + getDeliveredCount() + " pruned=" + getPrunedCount() + " rebuilt=" + getRebuildCount();
+	}
+
+}
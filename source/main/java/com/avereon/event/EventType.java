@@ -2,8 +2,13 @@ package com.avereon.event;
 
 import lombok.Getter;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public final class EventType<T extends Event> {
 
+	private static final AtomicInteger NEXT_INDEX = new AtomicInteger();
+
 	public static final EventType<Event> ROOT = new EventType<>( null, "EVENT" );
 
 	private final EventType<? super T> parent;
@@ -11,6 +16,17 @@ public final class EventType<T extends Event> {
 	@Getter
 	private final String name;
 
+	/**
+	 * The unique index of this event type, used as the bit position of this
+	 * type in event interest bitmaps.
+	 */
+	private final int index;
+
+	/**
+	 * The bitmap of this event type and all its parent event types.
+	 */
+	private final long[] lineage;
+
 	public EventType( final String name ) {
 		this( ROOT, name );
 	}
@@ -22,12 +38,26 @@ public final class EventType<T extends Event> {
 	public EventType( final EventType<? super T> parent, final String name ) {
 		this.parent = parent;
 		this.name = name;
+		this.index = NEXT_INDEX.getAndIncrement();
+
+		int word = index >>> 6;
+		long[] bits = parent == null ? new long[ 0 ] : parent.lineage;
+		this.lineage = Arrays.copyOf( bits, Math.max( bits.length, word + 1 ) );
+		this.lineage[ word ] |= 1L << index;
 	}
 
 	public EventType<? super T> getParentEventType() {
 		return parent;
 	}
 
+	int getIndex() {
+		return index;
+	}
+
+	long[] getLineage() {
+		return lineage;
+	}
+
 	@Override
 	public String toString() {
 		return name;
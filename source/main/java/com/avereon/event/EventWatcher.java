@@ -3,15 +3,42 @@ package com.avereon.event;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
+/**
+ * An event handler that captures events so other threads can wait for them.
+ * The state is guarded by a {@link ReentrantLock}, not by object monitors, and
+ * each wait parks on its own future, so waiting virtual threads do not pin
+ * their carrier thread and an event only wakes the wait it satisfies.
+ * <p>
+ * An event matches a wait if the event type is the waited for type and the
+ * optional predicate accepts the event. A matching event is consumed by the
+ * wait it satisfies, but events that do not match stay captured for other
+ * waits, up to {@link #MAX_CAPTURED_EVENTS}, after which the oldest captured
+ * events are dropped. Events are first offered to the waits, in the order
+ * they started for each event type, and are captured only if no wait takes
+ * them.
+ */
 public class EventWatcher implements EventHandler<Event> {
 
 	public static final long DEFAULT_WAIT_TIMEOUT = 5000;
 
-	private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+	/**
+	 * The most events kept for later waits.
+	 */
+	public static final int MAX_CAPTURED_EVENTS = 10_000;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Deque<Event> events = new ArrayDeque<>();
+
+	private final Map<EventType<?>, Queue<Waiter>> waiters = new HashMap<>();
 
 	@Getter
 	private final long timeout;
@@ -30,67 +57,242 @@ public class EventWatcher implements EventHandler<Event> {
 
 	@Override
 	@SuppressWarnings( "java:S106" )
-	public synchronized void handle( Event event ) {
+	public void handle( Event event ) {
 		if( printEventCapture ) System.out.println( "Captured event: type=" + event.getEventType() );
-		events.offer( event );
-		notifyAll();
+
+		// A wait can be withdrawn after it is taken, then offer the event again
+		Waiter waiter;
+		do {
+			lock.lock();
+			try {
+				waiter = takeWaiter( event );
+				if( waiter == null ) {
+					if( events.size() == MAX_CAPTURED_EVENTS ) events.poll();
+					events.offer( event );
+				}
+			} finally {
+				lock.unlock();
+			}
+
+			// Complete the future outside the lock since dependent actions run here
+		} while( waiter != null && !waiter.future().complete( event ) );
 	}
 
-	public void waitForEvent( EventType<? extends Event> type ) throws InterruptedException, TimeoutException {
-		waitForEvent( type, timeout );
+	public Event waitForEvent( EventType<? extends Event> type ) throws InterruptedException, TimeoutException {
+		return waitForEvent( type, timeout );
 	}
 
 	@SuppressWarnings( "unused" )
-	public void waitForNextEvent( EventType<? extends Event> type ) throws InterruptedException, TimeoutException {
-		waitForNextEvent( type, timeout );
+	public Event waitForNextEvent( EventType<? extends Event> type ) throws InterruptedException, TimeoutException {
+		return waitForNextEvent( type, timeout );
 	}
 
 	/**
-	 * Wait for an event of a specific class to occur. If the event has already
+	 * Wait for an event of a specific type to occur. If the event has already
 	 * occurred, this method will return immediately. If the event has not
 	 * already occurred, then this method waits until the next event occurs, or
-	 * the specified timeout, whichever comes first.
+	 * the specified timeout, whichever comes first. A timeout of zero only
+	 * checks the captured events.
+	 *
+	 * @param type The event type to wait for
+	 * @param timeout How long, in milliseconds, to wait for the event
+	 * @return The event, or null if the timeout is zero and the event has not
+	 * occurred
+	 * @throws InterruptedException If the waiting thread is interrupted
+	 * @throws TimeoutException If the timeout is exceeded
+	 */
+	public Event waitForEvent( EventType<? extends Event> type, long timeout ) throws InterruptedException, TimeoutException {
+		return waitForEvent( type, e -> true, timeout );
+	}
+
+	/**
+	 * Wait for an event of a specific type, that also matches the predicate, to
+	 * occur. If the event has already occurred, this method will return
+	 * immediately. If the event has not already occurred, then this method
+	 * waits until the next event occurs, or the specified timeout, whichever
+	 * comes first. A timeout of zero only checks the captured events.
 	 *
 	 * @param type The event type to wait for
+	 * @param predicate The event predicate
 	 * @param timeout How long, in milliseconds, to wait for the event
-	 * @throws InterruptedException If the timeout is exceeded
+	 * @param <T> The event type
+	 * @return The event, or null if the timeout is zero and the event has not
+	 * occurred
+	 * @throws InterruptedException If the waiting thread is interrupted
+	 * @throws TimeoutException If the timeout is exceeded
 	 */
-	public synchronized void waitForEvent( EventType<? extends Event> type, long timeout ) throws InterruptedException, TimeoutException {
-		boolean shouldWait = timeout > 0;
-		long start = System.currentTimeMillis();
-		long expiration = start + timeout;
-		long duration = expiration - System.currentTimeMillis();
-
-		while( findNext( type ) == null & shouldWait ) {
-			wait( duration );
-			duration = expiration - System.currentTimeMillis();
-			shouldWait = duration > 0;
+	public <T extends Event> T waitForEvent( EventType<T> type, Predicate<? super T> predicate, long timeout ) throws InterruptedException, TimeoutException {
+		if( timeout <= 0 ) {
+			lock.lock();
+			try {
+				return take( type, predicate );
+			} finally {
+				lock.unlock();
+			}
 		}
-		duration = expiration - System.currentTimeMillis();
 
-		if( duration < 0 ) throw new TimeoutException( "Timeout waiting for event " + type.getParentEventType() + "." + type );
+		CompletableFuture<T> future = expect( type, predicate );
+		try {
+			return future.get( timeout, TimeUnit.MILLISECONDS );
+		} catch( TimeoutException exception ) {
+			throw new TimeoutException( "Timeout waiting for event " + type.getParentEventType() + "." + type );
+		} catch( ExecutionException exception ) {
+			// The futures of waits are only completed with events
+			throw new IllegalStateException( exception.getCause() );
+		} finally {
+			// Withdraw the wait if it did not get an event
+			future.cancel( false );
+		}
 	}
 
 	/**
-	 * Wait for the next event of a specific class to occur. This method always
+	 * Wait for the next event of a specific type to occur. This method always
 	 * waits until the next event occurs, or the specified timeout, whichever
 	 * comes first.
 	 *
-	 * @param type The event class to wait for
+	 * @param type The event type to wait for
 	 * @param timeout How long, in milliseconds, to wait for the event
-	 * @throws InterruptedException If the timeout is exceeded
+	 * @return The event
+	 * @throws InterruptedException If the waiting thread is interrupted
+	 * @throws TimeoutException If the timeout is exceeded
+	 */
+	public Event waitForNextEvent( EventType<? extends Event> type, long timeout ) throws InterruptedException, TimeoutException {
+		lock.lock();
+		try {
+			// Discard the events of this type that have already occurred
+			events.removeIf( e -> isType( e, type ) );
+		} finally {
+			lock.unlock();
+		}
+		return waitForEvent( type, timeout );
+	}
+
+	/**
+	 * Get a future for an event of a specific type. If the event has already
+	 * occurred, the future is already complete.
+	 *
+	 * @param type The event type to expect
+	 * @param <T> The event type
+	 * @return The event future
 	 */
-	public synchronized void waitForNextEvent( EventType<? extends Event> type, long timeout ) throws InterruptedException, TimeoutException {
-		findNext( type );
-		waitForEvent( type, timeout );
+	public <T extends Event> CompletableFuture<T> expect( EventType<T> type ) {
+		return expect( type, e -> true );
 	}
 
-	private Event findNext( EventType<? extends Event> type ) {
-		Event event;
-		while( (event = events.poll()) != null ) {
-			if( event.getEventType() == type ) return event;
+	/**
+	 * Get a future for an event of a specific type that also matches the
+	 * predicate. If the event has already occurred, the future is already
+	 * complete. Cancelling the future, or completing it some other way, like
+	 * with {@link CompletableFuture#orTimeout(long, TimeUnit)}, withdraws the
+	 * wait and the event it would have taken is captured instead.
+	 *
+	 * @param type The event type to expect
+	 * @param predicate The event predicate
+	 * @param <T> The event type
+	 * @return The event future
+	 */
+	@SuppressWarnings( "unchecked" )
+	public <T extends Event> CompletableFuture<T> expect( EventType<T> type, Predicate<? super T> predicate ) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+
+		T event;
+		lock.lock();
+		try {
+			event = take( type, predicate );
+			if( event == null ) {
+				Waiter waiter = new Waiter( e -> predicate.test( (T)e ), (CompletableFuture<Event>)(CompletableFuture<?>)future );
+				waiters.computeIfAbsent( type, k -> new ArrayDeque<>() ).offer( waiter );
+				future.whenComplete( ( e, t ) -> removeWaiter( type, waiter ) );
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		if( event != null ) future.complete( event );
+		return future;
+	}
+
+	/**
+	 * Get the captured events that have not been consumed by a wait.
+	 *
+	 * @return The captured events
+	 */
+	public List<Event> getEvents() {
+		lock.lock();
+		try {
+			return List.copyOf( events );
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Discard the captured events and cancel all the event futures.
+	 */
+	public void reset() {
+		List<Waiter> cancelled = new ArrayList<>();
+		lock.lock();
+		try {
+			events.clear();
+			waiters.values().forEach( cancelled::addAll );
+			waiters.clear();
+		} finally {
+			lock.unlock();
+		}
+		cancelled.forEach( w -> w.future().cancel( false ) );
+	}
+
+	@SuppressWarnings( "unchecked" )
+	private <T extends Event> T take( EventType<T> type, Predicate<? super T> predicate ) {
+		Iterator<Event> iterator = events.iterator();
+		while( iterator.hasNext() ) {
+			Event event = iterator.next();
+			if( isType( event, type ) && predicate.test( (T)event ) ) {
+				iterator.remove();
+				return (T)event;
+			}
 		}
 		return null;
 	}
 
+	private Waiter takeWaiter( Event event ) {
+		EventType<?> type = event.getEventType();
+		Queue<Waiter> queue = waiters.get( type );
+		if( queue == null ) return null;
+
+		Iterator<Waiter> iterator = queue.iterator();
+		while( iterator.hasNext() ) {
+			Waiter waiter = iterator.next();
+			if( waiter.future().isDone() ) {
+				iterator.remove();
+			} else if( waiter.predicate().test( event ) ) {
+				iterator.remove();
+				if( queue.isEmpty() ) waiters.remove( type );
+				return waiter;
+			}
+		}
+		if( queue.isEmpty() ) waiters.remove( type );
+		return null;
+	}
+
+	/**
+	 * Remove a withdrawn wait, so waits that never get an event do not stay
+	 * queued.
+	 */
+	private void removeWaiter( EventType<?> type, Waiter waiter ) {
+		lock.lock();
+		try {
+			Queue<Waiter> queue = waiters.get( type );
+			if( queue != null && queue.remove( waiter ) && queue.isEmpty() ) waiters.remove( type );
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static boolean isType( Event event, EventType<?> type ) {
+		return event.getEventType() == type;
+	}
+
+	private record Waiter(Predicate<Event> predicate, CompletableFuture<Event> future) {}
+
 }
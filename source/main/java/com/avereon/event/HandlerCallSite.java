@@ -0,0 +1,23 @@
+package com.avereon.event;
+
+/**
+ * The template for the handler call sites created by
+ * {@link TypedEventDispatcher}. Each copy of this class has its own
+ * {@code handle} call site, so the JIT only sees the handler classes of one
+ * group at the call site and can inline the handler.
+ */
+final class HandlerCallSite implements HandlerInvoker {
+
+	@Override
+	public void invoke( EventHandler<Event>[] handlers, Event event ) {
+		for( EventHandler<Event> handler : handlers ) {
+			try {
+				handler.handle( event );
+			} catch( RuntimeException handlerException ) {
+				// Do not let any handler break the others
+				EventHub.logHandlerException( handlerException );
+			}
+		}
+	}
+
+}
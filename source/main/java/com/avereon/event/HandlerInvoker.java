@@ -0,0 +1,10 @@
+package com.avereon.event;
+
+/**
+ * Invokes a group of event handlers. See {@link TypedEventDispatcher}.
+ */
+interface HandlerInvoker {
+
+	void invoke( EventHandler<Event>[] handlers, Event event );
+
+}
@@ -0,0 +1,123 @@
+package com.avereon.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * An {@link EventHubMonitor} that records Java Flight Recorder events. Slow
+ * handler events are enabled by default and are recorded for handler calls
+ * that take longer than the threshold. Event delivery and queue depth events
+ * are disabled by default since there can be a lot of them, but can be enabled
+ * in the recording settings.
+ * <p>
+ * This monitor needs the {@code jdk.jfr} module at runtime.
+ */
+public class JfrEventHubMonitor implements EventHubMonitor {
+
+	@Getter
+	private final Duration slowHandlerThreshold;
+
+	private final long slowHandlerNanos;
+
+	public JfrEventHubMonitor() {
+		this( EventHubStatistics.DEFAULT_SLOW_HANDLER_THRESHOLD );
+	}
+
+	public JfrEventHubMonitor( Duration slowHandlerThreshold ) {
+		this.slowHandlerThreshold = slowHandlerThreshold;
+		this.slowHandlerNanos = slowHandlerThreshold.toNanos();
+	}
+
+	@Override
+	public void eventDelivered( EventHub hub, Event event ) {
+		EventDelivery record = new EventDelivery();
+		if( !record.isEnabled() ) return;
+		record.eventType = event.getEventType().getName();
+		record.eventClass = event.getClass().getName();
+		record.commit();
+	}
+
+	@Override
+	public void handlerCompleted( EventHub hub, Event event, EventHandler<?> handler, long nanos ) {
+		if( nanos < slowHandlerNanos ) return;
+		SlowEventHandler record = new SlowEventHandler();
+		if( !record.isEnabled() ) return;
+		record.handlerClass = handler.getClass().getName();
+		record.eventType = event.getEventType().getName();
+		record.eventClass = event.getClass().getName();
+		record.handlerTime = nanos;
+		record.commit();
+	}
+
+	@Override
+	public void queueDepthChanged( AsyncEventHub hub, int depth ) {
+		EventQueueDepth record = new EventQueueDepth();
+		if( !record.isEnabled() ) return;
+		record.depth = depth;
+		record.capacity = hub.getCapacity();
+		record.commit();
+	}
+
+	@Name( "com.avereon.event.SlowEventHandler" )
+	@Label( "Slow Event Handler" )
+	@Description( "An event handler took longer than the slow handler threshold" )
+	@Category( { "Avereon", "Events" } )
+	@StackTrace( false )
+	static class SlowEventHandler extends jdk.jfr.Event {
+
+		@Label( "Handler Class" )
+		String handlerClass;
+
+		@Label( "Event Type" )
+		String eventType;
+
+		@Label( "Event Class" )
+		String eventClass;
+
+		@Label( "Handler Time" )
+		@Timespan( Timespan.NANOSECONDS )
+		long handlerTime;
+
+	}
+
+	@Name( "com.avereon.event.EventDelivery" )
+	@Label( "Event Delivery" )
+	@Description( "An event was delivered to the handlers of an event hub" )
+	@Category( { "Avereon", "Events" } )
+	@Enabled( false )
+	@StackTrace( false )
+	static class EventDelivery extends jdk.jfr.Event {
+
+		@Label( "Event Type" )
+		String eventType;
+
+		@Label( "Event Class" )
+		String eventClass;
+
+	}
+
+	@Name( "com.avereon.event.EventQueueDepth" )
+	@Label( "Event Queue Depth" )
+	@Description( "The number of events queued in an asynchronous event hub" )
+	@Category( { "Avereon", "Events" } )
+	@Enabled( false )
+	@StackTrace( false )
+	static class EventQueueDepth extends jdk.jfr.Event {
+
+		@Label( "Depth" )
+		int depth;
+
+		@Label( "Capacity" )
+		int capacity;
+
+	}
+
+}
@@ -0,0 +1,115 @@
+package com.avereon.event;
+
+import lombok.CustomLog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An event dispatcher that avoids the single, megamorphic handler call site of
+ * the standard dispatch. For each event type, the handlers of the type and its
+ * parent types are resolved once into a route. In the route the handlers are
+ * grouped by concrete class and each group is called from its own call site.
+ * The call sites are copies of {@link HandlerCallSite}, defined as hidden
+ * classes, one for each handler class, so the JIT sees a single receiver class
+ * at each call site and can inline the handler.
+ * <p>
+ * Routes are rebuilt when the handlers of the hub change.
+ */
+@CustomLog
+final class TypedEventDispatcher {
+
+	private static final HandlerInvoker SHARED_CALL_SITE = new HandlerCallSite();
+
+	private static final byte[] CALL_SITE_TEMPLATE = loadCallSiteTemplate();
+
+	private static final ClassValue<HandlerInvoker> CALL_SITES = new ClassValue<>() {
+
+		@Override
+		protected HandlerInvoker computeValue( Class<?> type ) {
+			return createCallSite();
+		}
+
+	};
+
+	private final EventHub hub;
+
+	// False to call every group from the shared call site
+	private final boolean callSites;
+
+	private volatile Routes routes;
+
+	TypedEventDispatcher( EventHub hub, boolean callSites ) {
+		this.hub = hub;
+		this.callSites = callSites;
+		this.routes = new Routes( -1, Map.of() );
+	}
+
+	void dispatch( Event event, long handlerVersion ) {
+		Routes routes = this.routes;
+		if( routes.version() != handlerVersion ) this.routes = routes = new Routes( handlerVersion, new ConcurrentHashMap<>() );
+
+		for( Group group : routes.routes().computeIfAbsent( event.getEventType(), this::createRoute ) ) {
+			group.invoker().invoke( group.handlers(), event );
+		}
+	}
+
+	@SuppressWarnings( "unchecked" )
+	private Group[] createRoute( EventType<?> eventType ) {
+		List<Group> groups = new ArrayList<>();
+
+		// Keep the order of the standard dispatch, handlers of the event type
+		// first and then the handlers of each parent type
+		EventType<?> type = eventType;
+		while( type != null ) {
+			Map<Class<?>, List<EventHandler<Event>>> classHandlers = new LinkedHashMap<>();
+			for( EventHandler<Event> handler : getEventHandlers( type ) ) {
+				classHandlers.computeIfAbsent( handler.getClass(), k -> new ArrayList<>() ).add( handler );
+			}
+			classHandlers.forEach( ( k, v ) -> groups.add( new Group( callSites ? CALL_SITES.get( k ) : SHARED_CALL_SITE, (EventHandler<Event>[])v.toArray( new EventHandler<?>[ 0 ] ) ) ) );
+			type = type.getParentEventType();
+		}
+
+		return groups.toArray( new Group[ 0 ] );
+	}
+
+	private Collection<? extends EventHandler<Event>> getEventHandlers( EventType<?> type ) {
+		// If a ConcurrentModificationException occurs, try again until a clean
+		// copy of the map can be generated.
+		while( true ) {
+			try {
+				return hub.getEventHandlers( type );
+			} catch( ConcurrentModificationException cme ) {
+				// Intentionally ignore exception
+			}
+		}
+	}
+
+	private static HandlerInvoker createCallSite() {
+		if( CALL_SITE_TEMPLATE == null ) return SHARED_CALL_SITE;
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass( CALL_SITE_TEMPLATE, true );
+			return (HandlerInvoker)lookup.findConstructor( lookup.lookupClass(), MethodType.methodType( void.class ) ).invoke();
+		} catch( Throwable throwable ) {
+			log.atWarn().log( "Unable to create handler call site: %s", throwable.getMessage() );
+			return SHARED_CALL_SITE;
+		}
+	}
+
+	private static byte[] loadCallSiteTemplate() {
+		try( InputStream input = HandlerCallSite.class.getResourceAsStream( HandlerCallSite.class.getSimpleName() + ".class" ) ) {
+			return input == null ? null : input.readAllBytes();
+		} catch( IOException exception ) {
+			return null;
+		}
+	}
+
+	private record Routes(long version, Map<EventType<?>, Group[]> routes) {}
+
+	private record Group(HandlerInvoker invoker, EventHandler<Event>[] handlers) {}
+
+}
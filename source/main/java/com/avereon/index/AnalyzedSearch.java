@@ -0,0 +1,18 @@
+package com.avereon.index;
+
+import com.avereon.result.Result;
+
+import java.util.List;
+
+/**
+ * A search with the analyzer of the searched index, so equal searches with
+ * the same analyzer share cached results.
+ */
+record AnalyzedSearch(Search search, Analyzer analyzer) implements Search {
+
+	@Override
+	public Result<List<Hit>> search( Index index, IndexQuery query ) {
+		return search.search( index, query, analyzer );
+	}
+
+}
@@ -0,0 +1,133 @@
+package com.avereon.index;
+
+import java.util.*;
+
+/**
+ * Analyzes the words split from text before they are indexed or searched.
+ * An analyzer maps a word to the word to index, or drops it, and analyzers
+ * are chained with {@link #then(Analyzer)}. The same analyzer must be used to
+ * index and to search an index, so the query words match the indexed words.
+ * <p>
+ * Analyzing changes the indexed word, not the hit. The hit length and
+ * coordinates still refer to the word in the text, so the hit context and
+ * snippets show the original text.
+ */
+@FunctionalInterface
+public interface Analyzer {
+
+	/**
+	 * Keeps every word as it is.
+	 */
+	Analyzer NONE = word -> word;
+
+	/**
+	 * A short list of common English words that do not help find documents.
+	 */
+	Set<String> ENGLISH_STOP_WORDS = Set.of( "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into", "is", "it", "no", "not", "of", "on", "or", "such", "that", "the", "their", "then", "there", "these", "they", "this", "to", "was", "will", "with" );
+
+	/**
+	 * Analyze a word.
+	 *
+	 * @param word The word
+	 * @return The word to index, or null to drop the word
+	 */
+	String analyze( String word );
+
+	/**
+	 * Analyze the words of a query. Terms with more than one word are split
+	 * like the indexed text, and terms that are dropped are removed. The word
+	 * position of each remaining term is kept, so a phrase still matches the
+	 * indexed words across the dropped words.
+	 *
+	 * @param query The query
+	 * @return The analyzed query
+	 */
+	default IndexQuery analyze( IndexQuery query ) {
+		List<String> terms = new ArrayList<>();
+		List<Integer> positions = new ArrayList<>();
+		int position = 0;
+		for( String term : query.terms() ) {
+			for( String word : Terms.split( term ) ) {
+				String analyzed = analyze( word );
+				if( analyzed != null ) {
+					terms.add( analyzed );
+					positions.add( position );
+				}
+				position++;
+			}
+		}
+		return IndexQuery.builder().terms( terms ).positions( positions ).build();
+	}
+
+	/**
+	 * Chain another analyzer after this one. Dropped words are not passed on.
+	 *
+	 * @param next The next analyzer
+	 * @return The chained analyzer
+	 */
+	default Analyzer then( Analyzer next ) {
+		return word -> {
+			String analyzed = analyze( word );
+			return analyzed == null ? null : next.analyze( analyzed );
+		};
+	}
+
+	/**
+	 * Get the analyzer for English text: lower case, drop the English stop
+	 * words and stem.
+	 *
+	 * @return The English analyzer
+	 */
+	static Analyzer english() {
+		return lowerCase().then( stopWords( ENGLISH_STOP_WORDS ) ).then( stemmer() );
+	}
+
+	/**
+	 * Case fold words one code point at a time, independent of the default
+	 * locale, the same as the text term source.
+	 *
+	 * @return The lower case analyzer
+	 */
+	static Analyzer lowerCase() {
+		return word -> {
+			StringBuilder folded = new StringBuilder( word.length() );
+			word.codePoints().forEach( p -> folded.appendCodePoint( TextTokenizer.fold( p ) ) );
+			return folded.toString();
+		};
+	}
+
+	/**
+	 * Drop words in a set. The words should be analyzed the same way as the
+	 * words checked against them, usually lower case.
+	 *
+	 * @param stopWords The words to drop
+	 * @return The stop word analyzer
+	 */
+	static Analyzer stopWords( Collection<String> stopWords ) {
+		Set<String> words = Set.copyOf( stopWords );
+		return word -> words.contains( word ) ? null : word;
+	}
+
+	/**
+	 * Replace words with a synonym, so the words of a synonym group are indexed
+	 * as one word. Map each word of the group to the same word.
+	 *
+	 * @param synonyms The synonym of each word
+	 * @return The synonym analyzer
+	 */
+	static Analyzer synonyms( Map<String, String> synonyms ) {
+		Map<String, String> words = Map.copyOf( synonyms );
+		return word -> words.getOrDefault( word, word );
+	}
+
+	/**
+	 * Remove common English inflections, like plurals and the -ing and -ed
+	 * endings, see {@link LightStemmer}.
+	 *
+	 * @return The stemming analyzer
+	 */
+	static Analyzer stemmer() {
+		return LightStemmer::stem;
+	}
+
+}
@@ -0,0 +1,154 @@
+package com.avereon.index;
+
+import com.avereon.result.Result;
+import lombok.EqualsAndHashCode;
+
+import java.util.*;
+
+/**
+ * The boolean search implementation finds the documents that match a
+ * {@link Query}. The query terms are joined into one query expression and
+ * parsed, see {@link Query#parse(String)}, so a query like
+ * {@code title:index AND (java OR kotlin) -draft} can be given as one term or
+ * as its parts.
+ * <p>
+ * The query is evaluated with a cost estimate for each part, the number of
+ * documents with hits for its words. The parts of an and query are evaluated
+ * from the cheapest, and the evaluation stops as soon as no documents are
+ * left, so rare words limit the work for common words. Excluded documents are
+ * only looked up if there are documents left to exclude them from.
+ * <p>
+ * One hit is returned for each matching document, the highest priority hit of
+ * the matched words, with the number of matched hits as points.
+ */
+@EqualsAndHashCode
+public class BooleanSearch implements Search {
+
+	@Override
+	public Result<List<Hit>> search( Index index, IndexQuery query ) {
+		return search( index, query, Analyzer.NONE );
+	}
+
+	/**
+	 * Search with the words of the query expression analyzed, keeping the
+	 * operators.
+	 */
+	@Override
+	public Result<List<Hit>> search( Index index, IndexQuery query, Analyzer analyzer ) {
+		try {
+			return search( index, Query.parse( String.join( " ", query.terms() ), analyzer ) );
+		} catch( IllegalArgumentException exception ) {
+			return Result.of( exception );
+		}
+	}
+
+	public Result<List<Hit>> search( Index index, Query query ) {
+		try {
+			List<Hit> hits = new ArrayList<>();
+			for( Match match : evaluate( index, query ).values() ) {
+				hits.add( match.hit.setPoints( match.count ) );
+			}
+			hits.sort( new HitSort() );
+			return Result.of( hits );
+		} catch( IllegalArgumentException exception ) {
+			return Result.of( exception );
+		}
+	}
+
+	/**
+	 * Evaluate a query to the matching documents. Documents are compared by
+	 * identity, document equality compares content.
+	 */
+	private Map<Document, Match> evaluate( Index index, Query query ) {
+		return switch( query ) {
+			case Query.Word word -> evaluateWord( index, word );
+			case Query.Or or -> evaluateOr( index, or );
+			case Query.And and -> evaluateAnd( index, and );
+			case Query.Not not -> throw new IllegalArgumentException( "Query excludes documents without including any: " + not );
+		};
+	}
+
+	private Map<Document, Match> evaluateWord( Index index, Query.Word word ) {
+		Map<Document, Match> matches = new IdentityHashMap<>();
+		for( Hit hit : index.getHits( word.word() ) ) {
+			if( hit.getDocument() == null ) continue;
+			if( word.priority() != Query.ANY_PRIORITY && hit.getPriority() != word.priority() ) continue;
+			matches.computeIfAbsent( hit.getDocument(), d -> new Match() ).add( hit );
+		}
+		return matches;
+	}
+
+	private Map<Document, Match> evaluateOr( Index index, Query.Or or ) {
+		Map<Document, Match> matches = new IdentityHashMap<>();
+		for( Query query : or.queries() ) {
+			evaluate( index, query ).forEach( ( document, match ) -> matches.merge( document, match, Match::add ) );
+		}
+		return matches;
+	}
+
+	private Map<Document, Match> evaluateAnd( Index index, Query.And and ) {
+		List<Query> included = new ArrayList<>();
+		List<Query> excluded = new ArrayList<>();
+		for( Query query : and.queries() ) {
+			if( query instanceof Query.Not not ) {
+				excluded.add( not.query() );
+			} else {
+				included.add( query );
+			}
+		}
+		if( included.isEmpty() ) throw new IllegalArgumentException( "Query excludes documents without including any: " + and );
+
+		// Evaluate the cheapest parts first and stop when nothing is left
+		Map<Query, Long> costs = new HashMap<>();
+		Comparator<Query> cheapest = Comparator.comparingLong( q -> costs.computeIfAbsent( q, k -> getCost( index, k ) ) );
+		included.sort( cheapest );
+		excluded.sort( cheapest );
+
+		Map<Document, Match> matches = evaluate( index, included.getFirst() );
+		for( int part = 1; part < included.size() && !matches.isEmpty(); part++ ) {
+			Map<Document, Match> partMatches = evaluate( index, included.get( part ) );
+			matches.keySet().retainAll( partMatches.keySet() );
+			matches.forEach( ( document, match ) -> match.add( partMatches.get( document ) ) );
+		}
+		for( int part = 0; part < excluded.size() && !matches.isEmpty(); part++ ) {
+			matches.keySet().removeAll( evaluate( index, excluded.get( part ) ).keySet() );
+		}
+		return matches;
+	}
+
+	/**
+	 * Estimate the number of documents a query looks at.
+	 */
+	private long getCost( Index index, Query query ) {
+		return switch( query ) {
+			case Query.Word word -> index.getDocumentFrequency( word.word() );
+			case Query.Or or -> or.queries().stream().mapToLong( q -> getCost( index, q ) ).sum();
+			case Query.And and -> and.queries().stream().filter( q -> !(q instanceof Query.Not) ).mapToLong( q -> getCost( index, q ) ).min().orElse( 0 );
+			case Query.Not not -> getCost( index, not.query() );
+		};
+	}
+
+	/**
+	 * The matched hits of a document.
+	 */
+	private static final class Match {
+
+		private Hit hit;
+
+		private int count;
+
+		private Match add( Hit hit ) {
+			if( this.hit == null || hit.getPriority() > this.hit.getPriority() ) this.hit = hit;
+			count++;
+			return this;
+		}
+
+		private Match add( Match match ) {
+			if( hit == null || match.hit.getPriority() > hit.getPriority() ) hit = match.hit;
+			count += match.count;
+			return this;
+		}
+
+	}
+
+}
@@ -0,0 +1,236 @@
+package com.avereon.index;
+
+import com.avereon.result.Result;
+import lombok.CustomLog;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Indexes many documents into one index with a pipeline of bounded stages:
+ * <ol>
+ *   <li>A feeder takes documents from the source and puts them in a bounded
+ *   queue, so a large source waits for the workers instead of filling
+ *   memory</li>
+ *   <li>Workers read, parse and tokenize the documents and push the hits into
+ *   a private in memory segment, so workers do not share mutable state</li>
+ *   <li>When a private segment is large enough, and when the workers finish,
+ *   the segment is merged into the index. A {@link SegmentedIndex} stores it
+ *   as a new segment file, other indexes receive its hits</li>
+ * </ol>
+ * The progress counts and throughput can be read while the documents are
+ * indexed.
+ */
+@CustomLog
+public class BulkIndexing {
+
+	private static final int QUEUE_CAPACITY = 256;
+
+	// Tells a worker there are no more documents
+	private static final Document END = new Document();
+
+	private final Index index;
+
+	private final Iterable<Document> documents;
+
+	private final Analyzer analyzer;
+
+	private final int workers;
+
+	private final BlockingQueue<Document> queue;
+
+	private final AtomicLong submittedCount;
+
+	private final AtomicLong indexedCount;
+
+	private final AtomicLong failedCount;
+
+	private final AtomicLong hitCount;
+
+	private final AtomicLong segmentCount;
+
+	private final CompletableFuture<Result<Long>> future;
+
+	private volatile long startTime;
+
+	private volatile long endTime;
+
+	BulkIndexing( Index index, Iterable<Document> documents, Analyzer analyzer, int workers ) {
+		this.index = index;
+		this.documents = documents;
+		this.analyzer = analyzer;
+		this.workers = Math.max( 1, workers );
+		this.queue = new ArrayBlockingQueue<>( QUEUE_CAPACITY );
+		this.submittedCount = new AtomicLong();
+		this.indexedCount = new AtomicLong();
+		this.failedCount = new AtomicLong();
+		this.hitCount = new AtomicLong();
+		this.segmentCount = new AtomicLong();
+		this.future = new CompletableFuture<>();
+	}
+
+	BulkIndexing start() {
+		startTime = System.nanoTime();
+		ExecutorService stages = Executors.newFixedThreadPool( workers + 1 );
+		stages.execute( this::feed );
+		CompletableFuture<?>[] running = new CompletableFuture<?>[ workers ];
+		for( int worker = 0; worker < workers; worker++ ) {
+			running[ worker ] = CompletableFuture.runAsync( this::work, stages );
+		}
+		stages.shutdown();
+
+		CompletableFuture.allOf( running ).whenComplete( ( result, throwable ) -> {
+			endTime = System.nanoTime();
+			log.atDebug().log( "Indexed %s documents in %s at %s documents per second", indexedCount.get(), getElapsed(), (long)getDocumentsPerSecond() );
+			if( throwable != null ) {
+				future.complete( Result.of( throwable instanceof Exception exception ? exception : new ExecutionException( throwable ) ) );
+			} else {
+				future.complete( Result.of( indexedCount.get() ) );
+			}
+		} );
+		return this;
+	}
+
+	/**
+	 * Get the future result, the number of documents indexed.
+	 *
+	 * @return The future result
+	 */
+	public Future<Result<Long>> getFuture() {
+		return future;
+	}
+
+	CompletableFuture<Result<Long>> getCompletion() {
+		return future;
+	}
+
+	public boolean isDone() {
+		return future.isDone();
+	}
+
+	public long getSubmittedCount() {
+		return submittedCount.get();
+	}
+
+	public long getIndexedCount() {
+		return indexedCount.get();
+	}
+
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Get the number of private segments merged into the index so far.
+	 *
+	 * @return The number of segments
+	 */
+	public long getSegmentCount() {
+		return segmentCount.get();
+	}
+
+	public Duration getElapsed() {
+		long end = endTime == 0 ? System.nanoTime() : endTime;
+		return Duration.ofNanos( end - startTime );
+	}
+
+	public double getDocumentsPerSecond() {
+		long nanos = getElapsed().toNanos();
+		return nanos == 0 ? 0 : indexedCount.get() * 1e9 / nanos;
+	}
+
+	@Override
+	public String toString() {
+		return "{indexed=" + getIndexedCount() + " failed=" + getFailedCount() + " submitted=" + getSubmittedCount() + " hits=" + getHitCount() + " elapsed=" + getElapsed() + "}";
+	}
+
+	private void feed() {
+		try {
+			for( Document document : documents ) {
+				queue.put( document );
+				submittedCount.incrementAndGet();
+			}
+		} catch( InterruptedException exception ) {
+			Thread.currentThread().interrupt();
+		} catch( RuntimeException exception ) {
+			log.atWarn( exception ).log( "Unable to read documents to index" );
+		} finally {
+			endWorkers();
+		}
+	}
+
+	private void endWorkers() {
+		// The workers keep taking documents, so there is room for the end markers
+		boolean interrupted = Thread.interrupted();
+		for( int worker = 0; worker < workers; worker++ ) {
+			while( true ) {
+				try {
+					queue.put( END );
+					break;
+				} catch( InterruptedException exception ) {
+					interrupted = true;
+				}
+			}
+		}
+		if( interrupted ) Thread.currentThread().interrupt();
+	}
+
+	private void work() {
+		StandardIndex segment = new StandardIndex();
+		try {
+			Document document;
+			while( (document = queue.take()) != END ) {
+				index( segment, document );
+
+				if( segment.getHitCount() >= SegmentedIndex.DEFAULT_FLUSH_THRESHOLD ) {
+					merge( segment );
+					segment = new StandardIndex();
+				}
+			}
+		} catch( InterruptedException exception ) {
+			Thread.currentThread().interrupt();
+		} finally {
+			merge( segment );
+		}
+	}
+
+	private void index( StandardIndex segment, Document document ) {
+		try {
+			if( index instanceof SegmentedIndex segmented ) Indexer.store( segmented, document );
+			Result<Set<Hit>> result = new HitFinder( analyzer ).find( document, Indexer.createTermSource( document ) );
+			if( result.isSuccessful() ) {
+				segment.push( result.get() );
+				indexedCount.incrementAndGet();
+				hitCount.addAndGet( result.get().size() );
+				return;
+			}
+		} catch( RuntimeException exception ) {
+			// A worker must keep taking documents so the feeder does not block
+			log.atWarn( exception ).log( "Unable to index document: %s", document.uri() );
+		}
+		failedCount.incrementAndGet();
+	}
+
+	private void merge( StandardIndex segment ) {
+		if( segment.getHitCount() == 0 ) return;
+		if( index instanceof SegmentedIndex segmented ) {
+			try {
+				segmented.addSegment( segment );
+				segmentCount.incrementAndGet();
+				return;
+			} catch( IOException exception ) {
+				log.atWarn( exception ).log( "Unable to store indexed documents, keeping them in memory: %s", segmented.getFolder() );
+			}
+		}
+		index.push( segment.getHits() );
+		segmentCount.incrementAndGet();
+	}
+
+}
@@ -0,0 +1,229 @@
+package com.avereon.index;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Suggests words and document titles that start with a prefix, for search as
+ * you type. The suggestions are kept in a prefix trie where each node has the
+ * best suggestions below it, so completing a prefix only walks the prefix and
+ * does not look at the rest of the trie.
+ * <p>
+ * Each suggestion has a weight, the number of documents with the word, and a
+ * bigger weight for each document with the title. Weights only grow as hits
+ * are added, so the best suggestions of a node are kept up to date by
+ * checking the suggestion that grew against them. Removed documents are not
+ * subtracted, their words keep their weight until the completion index is
+ * built again. Updated documents only add the words and titles that are not
+ * suggested yet, so updating a document does not count it again.
+ * <p>
+ * Suggestions are matched case folded. Completing is safe while suggestions
+ * are added, the best suggestions of a node are replaced, not changed.
+ */
+public class CompletionIndex {
+
+	public static final int DEFAULT_SUGGESTION_COUNT = 10;
+
+	static final long TITLE_WEIGHT = 2;
+
+	private static final Suggestion[] NONE = new Suggestion[ 0 ];
+
+	private static final Comparator<Suggestion> ORDER = Comparator.comparingLong( ( Suggestion s ) -> s.weight ).reversed().thenComparing( s -> s.text );
+
+	private final int suggestionCount;
+
+	private final Map<String, Suggestion> suggestions;
+
+	private final Node root;
+
+	public CompletionIndex() {
+		this( DEFAULT_SUGGESTION_COUNT );
+	}
+
+	/**
+	 * Create a completion index.
+	 *
+	 * @param suggestionCount The number of suggestions kept for each prefix
+	 */
+	public CompletionIndex( int suggestionCount ) {
+		this.suggestionCount = Math.max( 1, suggestionCount );
+		this.suggestions = new HashMap<>();
+		this.root = new Node();
+	}
+
+	/**
+	 * Build a completion index from the words and titles of an index. The
+	 * words come from the dictionary, the titles from the title hits.
+	 *
+	 * @param index The index
+	 * @return The completion index
+	 */
+	public static CompletionIndex of( Index index ) {
+		CompletionIndex completions = new CompletionIndex();
+		Set<Document> titled = Collections.newSetFromMap( new IdentityHashMap<>() );
+		for( String word : index.getDictionary() ) {
+			completions.add( word, Math.max( 1, index.getDocumentFrequency( word ) ) );
+			for( Hit hit : index.getHits( word ) ) {
+				if( hit.getPriority() == Hit.TITLE_PRIORITY && hit.getDocument() != null ) titled.add( hit.getDocument() );
+			}
+		}
+		titled.forEach( d -> completions.add( d.title(), TITLE_WEIGHT ) );
+		return completions;
+	}
+
+	/**
+	 * Add the words and titles of hits, usually the hits of one document. Each
+	 * word counts once for each document.
+	 *
+	 * @param hits The hits
+	 */
+	public void add( Collection<Hit> hits ) {
+		getDocumentWords( hits ).forEach( ( document, words ) -> {
+			words.forEach( w -> add( w, 1 ) );
+			if( document != null ) add( document.title(), TITLE_WEIGHT );
+		} );
+	}
+
+	/**
+	 * Add the words and titles of hits of documents that replace documents
+	 * already added. The words and titles already suggested keep their weight,
+	 * only the new ones are added.
+	 *
+	 * @param hits The hits
+	 */
+	public void update( Collection<Hit> hits ) {
+		getDocumentWords( hits ).forEach( ( document, words ) -> {
+			words.forEach( w -> addIfAbsent( w, 1 ) );
+			if( document != null ) addIfAbsent( document.title(), TITLE_WEIGHT );
+		} );
+	}
+
+	/**
+	 * Add weight to a suggestion, adding the suggestion if it is new.
+	 *
+	 * @param text The suggestion text
+	 * @param weight The weight to add
+	 */
+	public synchronized void add( String text, long weight ) {
+		if( text == null || weight <= 0 ) return;
+		String key = fold( text.trim() );
+		if( key.isEmpty() ) return;
+
+		Suggestion suggestion = suggestions.computeIfAbsent( key, k -> new Suggestion( text.trim() ) );
+		suggestion.weight += weight;
+
+		Node node = root;
+		update( node, suggestion );
+		for( int index = 0; index < key.length(); index++ ) {
+			node = node.children.computeIfAbsent( key.charAt( index ), c -> new Node() );
+			update( node, suggestion );
+		}
+	}
+
+	/**
+	 * Get the best suggestions for a prefix.
+	 *
+	 * @param prefix The prefix
+	 * @return The suggestions, best first
+	 */
+	public List<String> complete( String prefix ) {
+		return complete( prefix, suggestionCount );
+	}
+
+	/**
+	 * Get the best suggestions for a prefix.
+	 *
+	 * @param prefix The prefix
+	 * @param limit The maximum number of suggestions, up to the number of
+	 * suggestions kept for each prefix
+	 * @return The suggestions, best first
+	 */
+	public List<String> complete( String prefix, int limit ) {
+		String key = fold( prefix == null ? "" : prefix.stripLeading() );
+		Node node = root;
+		for( int index = 0; index < key.length() && node != null; index++ ) {
+			node = node.children.get( key.charAt( index ) );
+		}
+		if( node == null ) return List.of();
+
+		Suggestion[] best = node.best;
+		int count = Math.min( Math.max( 0, limit ), best.length );
+		List<String> texts = new ArrayList<>( count );
+		for( int index = 0; index < count; index++ ) {
+			texts.add( best[ index ].text );
+		}
+		return texts;
+	}
+
+	public synchronized int size() {
+		return suggestions.size();
+	}
+
+	private synchronized void addIfAbsent( String text, long weight ) {
+		if( text == null || suggestions.containsKey( fold( text.trim() ) ) ) return;
+		add( text, weight );
+	}
+
+	private static Map<Document, Set<String>> getDocumentWords( Collection<Hit> hits ) {
+		Map<Document, Set<String>> documentWords = new IdentityHashMap<>();
+		for( Hit hit : hits ) {
+			documentWords.computeIfAbsent( hit.getDocument(), d -> new HashSet<>() ).add( hit.getWord() );
+		}
+		return documentWords;
+	}
+
+	/**
+	 * Check a suggestion that grew against the best suggestions of a node.
+	 */
+	private void update( Node node, Suggestion suggestion ) {
+		Suggestion[] best = node.best;
+		boolean present = false;
+		for( Suggestion candidate : best ) {
+			if( candidate == suggestion ) {
+				present = true;
+				break;
+			}
+		}
+		if( !present && best.length == suggestionCount && ORDER.compare( suggestion, best[ best.length - 1 ] ) > 0 ) return;
+
+		Suggestion[] updated;
+		if( present ) {
+			updated = best.clone();
+		} else if( best.length < suggestionCount ) {
+			updated = Arrays.copyOf( best, best.length + 1 );
+			updated[ best.length ] = suggestion;
+		} else {
+			updated = best.clone();
+			updated[ updated.length - 1 ] = suggestion;
+		}
+		Arrays.sort( updated, ORDER );
+		node.best = updated;
+	}
+
+	private static String fold( String text ) {
+		StringBuilder folded = new StringBuilder( text.length() );
+		text.codePoints().forEach( p -> folded.appendCodePoint( TextTokenizer.fold( p ) ) );
+		return folded.toString();
+	}
+
+	private static final class Node {
+
+		private final Map<Character, Node> children = new ConcurrentHashMap<>();
+
+		private volatile Suggestion[] best = NONE;
+
+	}
+
+	private static final class Suggestion {
+
+		private final String text;
+
+		private long weight;
+
+		private Suggestion( String text ) {
+			this.text = text;
+		}
+
+	}
+
+}
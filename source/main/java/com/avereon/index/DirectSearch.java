@@ -1,6 +1,7 @@
 package com.avereon.index;
 
 import com.avereon.result.Result;
+import lombok.EqualsAndHashCode;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -11,6 +12,7 @@ import java.util.stream.Collectors;
  * term, the hits are returned in undefined order, and it is up to the requester
  * to sort the resulting hit documents.
  */
+@EqualsAndHashCode
 public class DirectSearch implements Search {
 
 	@Override
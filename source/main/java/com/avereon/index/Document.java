@@ -73,6 +73,12 @@ public class Document {
 	 */
 	private String content;
 
+	/**
+	 * The content in a document store. Once the content is stored it is read
+	 * from the store instead of the {@link #content} or the {@link #url}.
+	 */
+	private DocumentStore.Entry stored;
+
 	/**
 	 * The replacement values for the content. These are to be replaced in the
 	 * content before the content is indexed.
@@ -128,18 +134,24 @@ public class Document {
 	}
 
 	public Reader reader() throws IOException {
-		Reader reader;
+		Reader reader = contentReader();
+		return reader == null ? null : new TokenReplacingReader( reader, values );
+	}
+
+	/**
+	 * Get a reader for the content before the replacement values are applied.
+	 */
+	Reader contentReader() throws IOException {
+		if( stored != null ) return stored.reader();
 
 		if( content != null ) {
 			if( TextUtil.isEmpty( content ) ) log.atConfig().log( "Document reader has empty content: " + uri() );
-			reader = new StringReader( content );
+			return new StringReader( content );
 		} else if( url != null ) {
-			reader = new InputStreamReader( url.openStream(), StandardCharsets.UTF_8 );
-		} else {
-			return null;
+			return new InputStreamReader( url.openStream(), StandardCharsets.UTF_8 );
 		}
 
-		return new TokenReplacingReader( reader, values );
+		return null;
 	}
 
 }
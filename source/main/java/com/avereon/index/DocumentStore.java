@@ -0,0 +1,417 @@
+package com.avereon.index;
+
+import com.avereon.util.IoUtil;
+import lombok.CustomLog;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * An append only file of document content, read through a memory mapping, so
+ * the content of stored documents does not stay in the heap. Storing a
+ * document moves its content to the store, and the document reads its content
+ * and the hit context from the store after that.
+ * <p>
+ * Each entry is a record of:
+ * <ol>
+ *   <li>The number of UTF-8 bytes of the content</li>
+ *   <li>The number of lines</li>
+ *   <li>The CRC-32 checksum of the content bytes</li>
+ *   <li>The offset of each line in the content bytes</li>
+ *   <li>The UTF-8 bytes of the content</li>
+ * </ol>
+ * Lines end the same way the text is indexed, see {@link TextTokenizer}, so
+ * the line of a hit is found without reading the lines before it. The offset
+ * table of the entries is rebuilt from the record sizes when the store is
+ * opened, and an incomplete last record is dropped. Index segments refer to
+ * an entry by its id, its offset and its checksum, see {@link #find}, so an
+ * entry appended after the store lost its tail is not taken for the entry
+ * that was lost.
+ * <p>
+ * The store is one mapping of at most 2 GB. Entries stay readable after the
+ * store is closed, until the mapping is released.
+ */
+@CustomLog
+public class DocumentStore implements Closeable {
+
+	private static final int RECORD_HEADER_SIZE = 3 * Integer.BYTES;
+
+	private final Path path;
+
+	private final FileChannel channel;
+
+	private long[] offsets;
+
+	private int count;
+
+	private long size;
+
+	private MappedByteBuffer buffer;
+
+	private DocumentStore( Path path, FileChannel channel ) {
+		this.path = path;
+		this.channel = channel;
+		this.offsets = new long[ 64 ];
+	}
+
+	/**
+	 * Open a document store, creating the file if it does not exist.
+	 *
+	 * @param path The store file
+	 * @return The document store
+	 * @throws IOException If the file cannot be opened
+	 */
+	public static DocumentStore open( Path path ) throws IOException {
+		FileChannel channel = FileChannel.open( path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE );
+		DocumentStore store = new DocumentStore( path, channel );
+		try {
+			store.load();
+		} catch( IOException exception ) {
+			channel.close();
+			throw exception;
+		}
+		return store;
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	public synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * Move the content of a document to the store. The content is read the
+	 * same way it is indexed, from the content or the URL, before the
+	 * replacement values are applied. The content of the document is cleared.
+	 *
+	 * @param document The document
+	 * @return The entry of the stored content, or null if the document has no
+	 * content
+	 * @throws IOException If the content cannot be read or stored
+	 */
+	public Entry store( Document document ) throws IOException {
+		String content;
+		try( Reader reader = document.contentReader() ) {
+			if( reader == null ) return null;
+			content = IoUtil.toString( reader );
+		}
+		Entry entry = append( content );
+		document.stored( entry ).content( null );
+		return entry;
+	}
+
+	/**
+	 * Append content to the store.
+	 *
+	 * @param content The content
+	 * @return The entry of the content
+	 * @throws IOException If the content cannot be stored
+	 */
+	public synchronized Entry append( String content ) throws IOException {
+		byte[] bytes = content.getBytes( StandardCharsets.UTF_8 );
+		int[] lines = getLineOffsets( bytes );
+
+		long recordSize = RECORD_HEADER_SIZE + (long)lines.length * Integer.BYTES + bytes.length;
+		if( size + recordSize > Integer.MAX_VALUE ) throw new IOException( "Document store full: " + path );
+
+		ByteBuffer record = ByteBuffer.allocate( (int)recordSize );
+		CRC32 checksum = new CRC32();
+		checksum.update( bytes );
+		record.putInt( bytes.length ).putInt( lines.length ).putInt( (int)checksum.getValue() );
+		for( int line : lines ) {
+			record.putInt( line );
+		}
+		record.put( bytes ).flip();
+		while( record.hasRemaining() ) {
+			channel.write( record, size + record.position() );
+		}
+
+		if( count == offsets.length ) offsets = Arrays.copyOf( offsets, count * 2 );
+		offsets[ count ] = size;
+		size += recordSize;
+		return new Entry( this, count++ );
+	}
+
+	public Entry get( int id ) {
+		synchronized( this ) {
+			if( id < 0 || id >= count ) throw new IndexOutOfBoundsException( "Document store entry " + id + " of " + count );
+		}
+		return new Entry( this, id );
+	}
+
+	/**
+	 * Find the entry an index segment refers to. The entry must still be at
+	 * the offset and have the checksum it was referred to with, otherwise the
+	 * store lost the entry and the id belongs to other content now.
+	 *
+	 * @param id The entry id
+	 * @param offset The offset of the entry record
+	 * @param checksum The checksum of the entry content
+	 * @return The entry, or null if the store does not have the entry
+	 */
+	Entry find( int id, long offset, int checksum ) {
+		synchronized( this ) {
+			if( id < 0 || id >= count || offsets[ id ] != offset ) return null;
+		}
+		Entry entry = new Entry( this, id );
+		return entry.getChecksum() == checksum ? entry : null;
+	}
+
+	/**
+	 * Force the appended entries to disk, before a segment that refers to them
+	 * is committed.
+	 *
+	 * @throws IOException If the store cannot be forced
+	 */
+	void force() throws IOException {
+		channel.force( true );
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Stores are equal when they are the same file, so entries read through
+	 * stores opened again are equal to the entries they were stored as.
+	 */
+	@Override
+	public boolean equals( Object object ) {
+		return object instanceof DocumentStore that && path.toAbsolutePath().normalize().equals( that.path.toAbsolutePath().normalize() );
+	}
+
+	@Override
+	public int hashCode() {
+		return path.toAbsolutePath().normalize().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return path.toString();
+	}
+
+	private void load() throws IOException {
+		long fileSize = channel.size();
+		if( fileSize > Integer.MAX_VALUE ) throw new IOException( "Document store too large: " + path );
+		MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, fileSize );
+
+		long offset = 0;
+		while( offset + RECORD_HEADER_SIZE <= fileSize ) {
+			long end = offset + RECORD_HEADER_SIZE + (long)buffer.getInt( (int)offset + Integer.BYTES ) * Integer.BYTES + buffer.getInt( (int)offset );
+			if( end > fileSize ) break;
+			if( count == offsets.length ) offsets = Arrays.copyOf( offsets, count * 2 );
+			offsets[ count++ ] = offset;
+			offset = end;
+		}
+
+		if( offset < fileSize ) {
+			log.atWarn().log( "Dropping incomplete document store record: %s", path );
+			channel.truncate( offset );
+		}
+		this.size = offset;
+	}
+
+	/**
+	 * Get a buffer for a record, mapping the file again if it grew since it
+	 * was mapped.
+	 */
+	private synchronized ByteBuffer getRecord( int id ) {
+		try {
+			if( buffer == null || buffer.capacity() < size ) buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, size );
+		} catch( IOException exception ) {
+			throw new UncheckedIOException( exception );
+		}
+		long end = id + 1 < count ? offsets[ id + 1 ] : size;
+		return buffer.slice( (int)offsets[ id ], (int)(end - offsets[ id ]) );
+	}
+
+	/**
+	 * Find the start of each line. Lines end with a line feed, a carriage
+	 * return or both, and a line end at the end of the content does not start
+	 * another line.
+	 */
+	private static int[] getLineOffsets( byte[] bytes ) {
+		int[] lines = new int[ 16 ];
+		int count = 0;
+		int start = 0;
+		while( start < bytes.length ) {
+			if( count == lines.length ) lines = Arrays.copyOf( lines, count * 2 );
+			lines[ count++ ] = start;
+			int end = start;
+			while( end < bytes.length && bytes[ end ] != '\n' && bytes[ end ] != '\r' ) end++;
+			if( end < bytes.length && bytes[ end ] == '\r' && end + 1 < bytes.length && bytes[ end + 1 ] == '\n' ) end++;
+			start = end + 1;
+		}
+		return Arrays.copyOf( lines, count );
+	}
+
+	/**
+	 * The stored content of a document.
+	 *
+	 * @param store The store
+	 * @param id The entry id, in the order the entries were added
+	 */
+	public record Entry(DocumentStore store, int id) {
+
+		/**
+		 * Read the content from the store, without copying it to the heap first.
+		 *
+		 * @return A content reader
+		 */
+		public Reader reader() {
+			return new InputStreamReader( new BufferInputStream( getContent() ), StandardCharsets.UTF_8 );
+		}
+
+		public String getText() {
+			ByteBuffer content = getContent();
+			byte[] bytes = new byte[ content.remaining() ];
+			content.get( bytes );
+			return new String( bytes, StandardCharsets.UTF_8 );
+		}
+
+		public int getLineCount() {
+			return store.getRecord( id ).getInt( Integer.BYTES );
+		}
+
+		/**
+		 * Get the offset of the entry record in the store file.
+		 */
+		long getOffset() {
+			synchronized( store ) {
+				return store.offsets[ id ];
+			}
+		}
+
+		/**
+		 * Get the CRC-32 checksum of the content bytes.
+		 */
+		int getChecksum() {
+			return store.getRecord( id ).getInt( 2 * Integer.BYTES );
+		}
+
+		/**
+		 * Get a line of the content, without its line end.
+		 *
+		 * @param line The line index
+		 * @return The line, or null if there is no such line
+		 */
+		public String getLine( int line ) {
+			ByteBuffer record = store.getRecord( id );
+			int lineCount = record.getInt( Integer.BYTES );
+			if( line < 0 || line >= lineCount ) return null;
+
+			int content = RECORD_HEADER_SIZE + lineCount * Integer.BYTES;
+			int start = content + record.getInt( RECORD_HEADER_SIZE + line * Integer.BYTES );
+			int end = start;
+			while( end < record.limit() && record.get( end ) != '\n' && record.get( end ) != '\r' ) end++;
+
+			byte[] bytes = new byte[ end - start ];
+			record.get( start, bytes );
+			return new String( bytes, StandardCharsets.UTF_8 );
+		}
+
+		/**
+		 * Get the byte range of the word of a content hit in the store file. The
+		 * hit coordinates are the line, the offset of the word in the trimmed
+		 * line and the word position.
+		 *
+		 * @param hit The hit
+		 * @return The byte range, or null if the hit is not in the content
+		 */
+		public Range getRange( Hit hit ) {
+			if( hit.getCoordinates() == null || hit.getCoordinates().size() < 2 ) return null;
+			int line = hit.getCoordinates().get( 0 );
+			String text = getLine( line );
+			if( text == null ) return null;
+
+			int lead = 0;
+			while( lead < text.length() && text.charAt( lead ) <= ' ' ) lead++;
+			int start = lead + hit.getCoordinates().get( 1 );
+			int end = start + hit.getLength();
+			if( end > text.length() ) return null;
+
+			ByteBuffer record = store.getRecord( id );
+			int lineStart = RECORD_HEADER_SIZE + record.getInt( Integer.BYTES ) * Integer.BYTES + record.getInt( RECORD_HEADER_SIZE + line * Integer.BYTES );
+			long base = getOffset() + lineStart;
+			long byteStart = base + getUtf8Length( text, 0, start );
+			return new Range( byteStart, byteStart + getUtf8Length( text, start, end ) );
+		}
+
+		private ByteBuffer getContent() {
+			ByteBuffer record = store.getRecord( id );
+			int length = record.getInt( 0 );
+			int lineCount = record.getInt( Integer.BYTES );
+			return record.slice( RECORD_HEADER_SIZE + lineCount * Integer.BYTES, length );
+		}
+
+		private static int getUtf8Length( String text, int start, int end ) {
+			int length = 0;
+			for( int index = start; index < end; index++ ) {
+				char c = text.charAt( index );
+				if( c < 0x80 ) {
+					length++;
+				} else if( c < 0x800 ) {
+					length += 2;
+				} else if( Character.isHighSurrogate( c ) ) {
+					length += 4;
+					index++;
+				} else {
+					length += 3;
+				}
+			}
+			return length;
+		}
+
+	}
+
+	/**
+	 * A byte range in the store file.
+	 *
+	 * @param start The first byte
+	 * @param end The byte after the last byte
+	 */
+	public record Range(long start, long end) {}
+
+	/**
+	 * An input stream over a byte buffer, for readers of stored content.
+	 */
+	private static final class BufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		private BufferInputStream( ByteBuffer buffer ) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read( byte[] bytes, int offset, int length ) {
+			if( length == 0 ) return 0;
+			if( !buffer.hasRemaining() ) return -1;
+			int count = Math.min( length, buffer.remaining() );
+			buffer.get( bytes, offset, count );
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.avereon.index;
+
+import com.avereon.result.Result;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs a search over several indexes without combining the indexes. The
+ * search runs on each index, in parallel if an executor is given, and the
+ * sorted hits of each index are merged with a heap of the next hit from each
+ * index. Equal hits from different indexes are only returned once.
+ * <p>
+ * Each document is expected to be in one index. A query with several terms
+ * only matches a document that has all the terms in the same index.
+ */
+public class FederatedSearch {
+
+	private final Search search;
+
+	private final ExecutorService executor;
+
+	public FederatedSearch( Search search ) {
+		this( search, null );
+	}
+
+	/**
+	 * Create a federated search that searches the indexes in parallel.
+	 *
+	 * @param search The search to run on each index
+	 * @param executor The executor to run the index searches, or null to
+	 * search the indexes in the calling thread. Searches the executor rejects
+	 * run in the calling thread.
+	 */
+	public FederatedSearch( Search search, ExecutorService executor ) {
+		this.search = search;
+		this.executor = executor;
+	}
+
+	public Result<List<Hit>> search( Collection<? extends Index> indexes, IndexQuery query ) {
+		List<List<Hit>> results = new ArrayList<>( indexes.size() );
+		try {
+			for( Result<List<Hit>> result : searchIndexes( indexes, query ) ) {
+				if( result.isFailed() ) return Result.of( result.getException() );
+				List<Hit> hits = new ArrayList<>( result.orElse( List.of() ) );
+				hits.sort( new HitSort() );
+				results.add( hits );
+			}
+		} catch( ExecutionException exception ) {
+			return Result.of( exception );
+		} catch( InterruptedException exception ) {
+			Thread.currentThread().interrupt();
+			return Result.of( exception );
+		}
+
+		return Result.of( merge( results ) );
+	}
+
+	private List<Result<List<Hit>>> searchIndexes( Collection<? extends Index> indexes, IndexQuery query ) throws ExecutionException, InterruptedException {
+		if( executor == null || indexes.size() < 2 ) return indexes.stream().map( i -> search.search( i, query ) ).toList();
+
+		List<Future<Result<List<Hit>>>> futures = indexes.stream().map( i -> submit( i, query ) ).toList();
+		List<Result<List<Hit>>> results = new ArrayList<>( futures.size() );
+		for( Future<Result<List<Hit>>> future : futures ) {
+			results.add( future.get() );
+		}
+		return results;
+	}
+
+	private Future<Result<List<Hit>>> submit( Index index, IndexQuery query ) {
+		try {
+			return executor.submit( () -> search.search( index, query ) );
+		} catch( RejectedExecutionException exception ) {
+			// The executor is shutting down, search in the calling thread
+			return CompletableFuture.completedFuture( search.search( index, query ) );
+		}
+	}
+
+	/**
+	 * Merge sorted hit lists into one sorted hit list.
+	 *
+	 * @param lists The sorted hit lists
+	 * @return The merged hits
+	 */
+	static List<Hit> merge( List<List<Hit>> lists ) {
+		if( lists.size() == 1 ) return lists.getFirst();
+
+		HitSort sort = new HitSort();
+		PriorityQueue<Cursor> heap = new PriorityQueue<>( Math.max( 1, lists.size() ), ( a, b ) -> sort.compare( a.hit(), b.hit() ) );
+		int size = 0;
+		for( List<Hit> list : lists ) {
+			if( !list.isEmpty() ) heap.add( new Cursor( list, 0 ) );
+			size += list.size();
+		}
+
+		List<Hit> merged = new ArrayList<>( size );
+		Set<Hit> seen = new HashSet<>( size * 2 );
+		while( !heap.isEmpty() ) {
+			Cursor cursor = heap.poll();
+			if( seen.add( cursor.hit() ) ) merged.add( cursor.hit() );
+			if( cursor.index() + 1 < cursor.hits().size() ) heap.add( new Cursor( cursor.hits(), cursor.index() + 1 ) );
+		}
+		return merged;
+	}
+
+	private record Cursor(List<Hit> hits, int index) {
+
+		Hit hit() {
+			return hits.get( index );
+		}
+
+	}
+
+}
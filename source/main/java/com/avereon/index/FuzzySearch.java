@@ -1,6 +1,7 @@
 package com.avereon.index;
 
 import com.avereon.result.Result;
+import lombok.EqualsAndHashCode;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -11,6 +12,7 @@ import java.util.stream.Collectors;
  * result in an ordered list of hits, but it is up to the requester to sort the
  * resulting hit documents.
  */
+@EqualsAndHashCode
 public class FuzzySearch implements Search {
 
 	/**
@@ -39,7 +41,8 @@ public class FuzzySearch implements Search {
 			if( hits.isEmpty() ) {
 				hits = termHits;
 			} else {
-				hits.retainAll( termHits );
+				// Hash the matches of the term so keeping the common documents is linear
+				hits.retainAll( new HashSet<>( termHits ) );
 			}
 		}
 
@@ -47,42 +50,46 @@ public class FuzzySearch implements Search {
 	}
 
 	private Result<List<Hit>> search( Index index, String term ) {
-		List<Hit> hits = index
-			.getDictionary()
-			.stream()
-			.map( word -> Map.entry( word, getRankPoints( term, word ) ) )
-			.filter( entry -> entry.getValue() >= cutoff )
-			.flatMap( entry -> index.getHits( entry.getKey() ).stream().peek( h -> h.setPoints( entry.getValue() ) ) )
-			.sorted( new HitSort() )
-			.collect( Collectors.toList() );
+		// Only the words close enough to reach the cutoff are ranked
+		List<Hit> hits = new ArrayList<>();
+		RatioScorer scorer = new RatioScorer( term );
+		index.getTermDictionary().forEachWithin( term, getMaxEdits( term.length() ), ( word, distance ) -> {
+			int points = scorer.score( word, cutoff );
+			if( points < cutoff ) return;
+			index.getHits( word ).forEach( h -> hits.add( h.setPoints( points ) ) );
+		} );
+		hits.sort( new HitSort() );
 		return Result.of( hits );
 	}
 
-	//	private Result<List<Hit>> search( Index index, String term ) {
-	//		Set<String> dictionary = index.getDictionary();
-	//
-	//		List<Hit> hits = new ArrayList<>();
-	//		dictionary.forEach( word -> {
-	//			int points = getRankPoints( term, word );
-	//			if( points < cutoff ) return;
-	//			hits.addAll( index.getHits( word ).stream().map( h -> h.points( points )).toList());
-	//		} );
-	//		hits.sort( new HitSort() );
-	//
-	//		return Result.of( new ArrayList<>( hits ) );
-	//	}
+	/**
+	 * Get the maximum number of Levenshtein edits between a term and a word that
+	 * can still rank at the cutoff. The rank is the rounded percent of
+	 * characters the strings have in common, which counts a substitution as two
+	 * edits, so it is never less than the Levenshtein distance. The rank also
+	 * limits how much longer than the term a word can be.
+	 *
+	 * @param length The term length
+	 * @return The maximum Levenshtein distance
+	 */
+	int getMaxEdits( int length ) {
+		double ratio = (cutoff - 0.5) / 100.0;
+		if( ratio <= 0 ) return Integer.MAX_VALUE;
+		int maxLength = (int)Math.floor( length * (2 - ratio) / ratio );
+		return (int)Math.floor( (length + maxLength) * (1 - ratio) );
+	}
 
 	/**
-	 * Get a percent rank (0-100) of how close two strings match using the
-	 * Levenshtein distance algorithm to calculate similarity between strings.
-	 * A value of 0 means an exact match.
+	 * Get a percent rank (0-100) of how close two strings match, the percent
+	 * of characters the strings have in common, see {@link RatioScorer}. A
+	 * value of 100 means an exact match.
 	 *
 	 * @param term Search term
 	 * @param word Word to check
 	 * @return Percent rank
 	 */
 	int getRankPoints( String term, String word ) {
-		return me.xdrop.fuzzywuzzy.FuzzySearch.ratio( term, word );
+		return new RatioScorer( term ).score( word );
 	}
 
 	/**
@@ -98,7 +105,7 @@ public class FuzzySearch implements Search {
 		}
 
 		public int hashCode() {
-			return this.hit.getDocument().hashCode();
+			return Objects.hashCode( this.hit.getDocument() );
 		}
 
 		public boolean equals( Object object ) {
@@ -0,0 +1,84 @@
+package com.avereon.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The term dictionary of an index that keeps adding words. The words are kept
+ * in immutable tries that grow like a binary counter: new words are collected
+ * in a small pending list, which becomes a trie when it is full, and a trie is
+ * merged with the previous one while that one is not much larger. Over time a
+ * word is rebuilt into a trie a logarithmic number of times, and a lookup
+ * visits a logarithmic number of tries, instead of rebuilding the whole
+ * dictionary when a word is added.
+ * <p>
+ * The tries hold different words, so the combined dictionary does not need to
+ * remove duplicates.
+ */
+final class GrowingDictionary {
+
+	private static final int PENDING_SIZE = 256;
+
+	// The tries, largest first
+	private final List<TrieDictionary> levels = new ArrayList<>();
+
+	private final List<String> pending = new ArrayList<>();
+
+	private TermDictionary snapshot;
+
+	/**
+	 * Add a word that is not in the dictionary yet.
+	 *
+	 * @param word The word
+	 */
+	synchronized void add( String word ) {
+		pending.add( word );
+		snapshot = null;
+		if( pending.size() < PENDING_SIZE ) return;
+
+		TrieDictionary level = TrieDictionary.of( pending );
+		pending.clear();
+		while( !levels.isEmpty() && levels.getLast().size() <= 2 * level.size() ) {
+			List<String> words = new ArrayList<>( levels.getLast().size() + level.size() );
+			levels.removeLast().forEachWithPrefix( "", words::add );
+			level.forEachWithPrefix( "", words::add );
+			level = TrieDictionary.of( words );
+		}
+		levels.add( level );
+	}
+
+	/**
+	 * Replace all the words, like after words have been removed.
+	 *
+	 * @param words The words
+	 */
+	synchronized void reset( Collection<String> words ) {
+		levels.clear();
+		pending.clear();
+		if( !words.isEmpty() ) levels.add( TrieDictionary.of( words ) );
+		snapshot = null;
+	}
+
+	/**
+	 * Get the current words as a term dictionary. The dictionary does not
+	 * change when words are added later.
+	 *
+	 * @return The term dictionary
+	 */
+	synchronized TermDictionary get() {
+		if( snapshot == null ) {
+			List<TermDictionary> dictionaries = new ArrayList<>( levels );
+			if( !pending.isEmpty() ) dictionaries.add( TrieDictionary.of( pending ) );
+			if( dictionaries.isEmpty() ) {
+				snapshot = TermDictionary.EMPTY;
+			} else if( dictionaries.size() == 1 ) {
+				snapshot = dictionaries.getFirst();
+			} else {
+				snapshot = UnionDictionary.disjoint( dictionaries );
+			}
+		}
+		return snapshot;
+	}
+
+}
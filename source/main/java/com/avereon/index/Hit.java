@@ -2,6 +2,7 @@ package com.avereon.index;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.experimental.Accessors;
 
@@ -12,6 +13,10 @@ import java.util.List;
  * types are very similar and have very similar uses. Index hits have all
  * the information regarding hits while indexing. Search hits can augment index
  * hits with more information regarding the search match.
+ * <p>
+ * The context is determined by the document, priority and coordinates of the
+ * hit, so it is not part of hit equality. Indexes do not store the context,
+ * it is derived from the document when first requested.
  */
 @Data
 @NoArgsConstructor
@@ -31,6 +36,7 @@ public class Hit {
 
 	private Document document;
 
+	@EqualsAndHashCode.Exclude
 	private String context;
 
 	private String word;
@@ -44,6 +50,11 @@ public class Hit {
 
 	private int priority;
 
+	public String getContext() {
+		if( context == null ) context = HitContext.resolve( document, priority, coordinates );
+		return context;
+	}
+
 	@Override
 	public String toString() {
 		return "{" + "title=" + document.title() + " length=" + length + " term=" + word + " context=" + context + " coords=" + coordinates + "}";
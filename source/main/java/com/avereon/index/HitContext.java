@@ -0,0 +1,137 @@
+package com.avereon.index;
+
+import lombok.CustomLog;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.*;
+
+/**
+ * Derives the context of a hit from its document, so indexes do not need to
+ * store the context of every hit. The first hit coordinate is the line of the
+ * indexed text and the context is that line, trimmed, like the term sources
+ * produce it. The indexed text depends on the hit priority:
+ * <ul>
+ *   <li>Tag hits: the sorted document tags, one tag per line</li>
+ *   <li>Title hits: the document title</li>
+ *   <li>Content hits: the text document content, HTML content hits have no
+ *   context</li>
+ * </ul>
+ * The content lines of recently used documents are cached since the hits of
+ * a search often come from the same documents. The lines of content in a
+ * {@link DocumentStore} are read from the store one at a time instead.
+ */
+@CustomLog
+final class HitContext {
+
+	private static final int CACHE_SIZE = 16;
+
+	// Keyed by document identity, hashing a document would hash its content
+	private static final Map<DocumentKey, List<String>> CONTENT_LINES = Collections.synchronizedMap( new LinkedHashMap<>( CACHE_SIZE, 0.75f, true ) {
+
+		@Override
+		protected boolean removeEldestEntry( Map.Entry<DocumentKey, List<String>> eldest ) {
+			return size() > CACHE_SIZE;
+		}
+
+	} );
+
+	private HitContext() {}
+
+	static String getTagText( Document document ) {
+		return String.join( "\n", new TreeSet<>( document.tags() ) );
+	}
+
+	static String resolve( Document document, int priority, List<Integer> coordinates ) {
+		if( document == null || coordinates == null || coordinates.isEmpty() ) return null;
+		int line = coordinates.getFirst();
+
+		return switch( priority ) {
+			case Hit.TAG_PRIORITY -> getLine( getLines( getTagText( document ) ), line );
+			case Hit.TITLE_PRIORITY -> getLine( getLines( document.title() ), line );
+			default -> getContentLine( document, line );
+		};
+	}
+
+	private static String getContentLine( Document document, int line ) {
+		if( document.mediaType() == Document.MediaType.HTML ) return null;
+
+		// Stored content has a line table, so only the one line is read, unless
+		// replacement values change the lines
+		DocumentStore.Entry stored = document.stored();
+		if( stored != null && (document.values() == null || document.values().isEmpty()) ) {
+			String text = stored.getLine( line );
+			return text == null ? null : text.trim();
+		}
+
+		return getLine( getContentLines( document ), line );
+	}
+
+	private static List<String> getContentLines( Document document ) {
+		DocumentKey key = new DocumentKey( document );
+		List<String> lines = CONTENT_LINES.get( key );
+		if( lines == null ) {
+			try( Reader reader = document.reader() ) {
+				lines = reader == null ? List.of() : readLines( reader );
+			} catch( IOException exception ) {
+				log.atWarn( exception ).log( "Unable to read hit context: %s", document.uri() );
+				return List.of();
+			}
+			CONTENT_LINES.put( key, lines );
+		}
+		return lines;
+	}
+
+	private static List<String> getLines( String text ) {
+		if( text == null ) return List.of();
+		try {
+			return readLines( new StringReader( text ) );
+		} catch( IOException exception ) {
+			// A string reader does not throw IO exceptions
+			return List.of();
+		}
+	}
+
+	private static List<String> readLines( Reader source ) throws IOException {
+		List<String> lines = new ArrayList<>();
+		try( BufferedReader reader = new BufferedReader( source ) ) {
+			String line;
+			while( (line = reader.readLine()) != null ) {
+				lines.add( line );
+			}
+		}
+		return lines;
+	}
+
+	private static String getLine( List<String> lines, int line ) {
+		return line >= 0 && line < lines.size() ? lines.get( line ).trim() : null;
+	}
+
+	/**
+	 * A cache key that compares documents by identity. Document equality uses
+	 * all the fields, so the hash code reads the whole content and changes when
+	 * the content is moved to a store.
+	 */
+	private static final class DocumentKey {
+
+		private final Document document;
+
+		private DocumentKey( Document document ) {
+			this.document = document;
+		}
+
+		@Override
+		public boolean equals( Object object ) {
+			return object instanceof DocumentKey that && this.document == that.document;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode( document );
+		}
+
+	}
+
+}
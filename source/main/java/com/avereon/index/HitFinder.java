@@ -4,18 +4,33 @@ import com.avereon.result.Result;
 import lombok.CustomLog;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Finds the hits of a document in its tags, title and content. The words of
+ * the terms are analyzed before they are indexed, see {@link Analyzer}.
+ */
 @CustomLog
 public class HitFinder {
 
+	private final Analyzer analyzer;
+
+	public HitFinder() {
+		this( Analyzer.NONE );
+	}
+
+	public HitFinder( Analyzer analyzer ) {
+		this.analyzer = analyzer;
+	}
+
 	public Result<Set<Hit>> find( Document document, TermSource source ) {
 		Set<Hit> hits = new HashSet<>();
 
-		// Add tags
-		hits.addAll( findHits( document, document.tags(), Hit.TAG_PRIORITY ) );
+		// Add tags, indexed as lines of text so the first coordinate is the tag
+		hits.addAll( findHits( document, HitContext.getTagText( document ), Hit.TAG_PRIORITY ) );
 
 		// Add name
 		hits.addAll( findHits( document, document.title(), Hit.TITLE_PRIORITY ) );
@@ -27,11 +42,6 @@ public class HitFinder {
 
 	}
 
-	@SuppressWarnings("SameParameterValue")
-	private Set<Hit> findHits( Document document, Set<String> content, int priority ) {
-		return content.stream().flatMap( t -> findHits( document, t, priority ).stream() ).collect( Collectors.toSet() );
-	}
-
 	private Set<Hit> findHits( Document document, String content, int priority ) {
 		return findHits( document, new TextTermSource( document, content ), priority );
 	}
@@ -39,13 +49,13 @@ public class HitFinder {
 	public Set<Hit> findHits( Document document, TermSource source, int priority ) {
 		Set<Hit> hits = new HashSet<>();
 
-		try {
-			hits.addAll( source
-				.index()
-				.map( t -> new Hit().setDocument( document ).setContext( t.context() ).setWord( t.word() ).setLength( t.length() ).setCoordinates( t.coordinates() ).setPriority( priority ) )
-				.toList() );
-		} catch( IOException exception ) {
-			log.atWarn( exception );
+		try( Stream<Term> terms = source.index() ) {
+			terms.forEach( t -> {
+				String word = analyzer.analyze( t.word() );
+				if( word != null ) hits.add( new Hit().setDocument( document ).setContext( t.context() ).setWord( word ).setLength( t.length() ).setCoordinates( t.coordinates() ).setPriority( priority ) );
+			} );
+		} catch( IOException | UncheckedIOException exception ) {
+			log.atWarn( exception ).log( "Unable to index document: %s", document.uri() );
 		}
 
 		return hits;
@@ -4,14 +4,11 @@ import java.util.Comparator;
 
 class HitSort implements Comparator<Hit> {
 
+	private static final Comparator<Hit> ORDER = Comparator.comparingInt( Hit::getPoints ).reversed().thenComparing( h -> h.getDocument().title() );
+
 	@Override
 	public int compare( Hit hit1, Hit hit2 ) {
-
-		return Comparator
-			.comparingInt( o -> ((Hit)o).getPoints() ).reversed()
-			//.thenComparingInt( o -> ((Hit)o).getPriority() )
-			.thenComparing( ( o ) -> ((Hit)o).getDocument().title() )
-			.compare( hit1, hit2 );
+		return ORDER.compare( hit1, hit2 );
 	}
 
 }
@@ -1,19 +1,30 @@
 package com.avereon.index;
 
-import com.avereon.util.IoUtil;
-import lombok.CustomLog;
-import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
 import org.jsoup.nodes.TextNode;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Stream;
 
-@CustomLog
+/**
+ * A term source for HTML. The document is parsed in one pass with a streaming
+ * parser and the text is split into terms as the elements are completed. The
+ * children of an element are released once its terms are found, so only the
+ * open elements and the empty elements before them are kept while the
+ * document is read. The stream should be closed if it is not consumed to the
+ * end.
+ * <p>
+ * The coordinates of a term are the sibling indexes of the nodes from the
+ * root to the text node, followed by the offset of the word in the text and
+ * the position of the word in the document, counted in words. The text is
+ * split in document order, so the positions of adjacent words are adjacent.
+ * The document title is set from the title element as it is read.
+ */
 public class HtmlTermSource implements TermSource {
 
 	private final Document document;
@@ -24,47 +35,90 @@ public class HtmlTermSource implements TermSource {
 
 	@Override
 	public Stream<Term> index() throws IOException {
-		document.title( getHtmlTitle( document ) );
-		return getTextNodes( document ).stream().map( n -> new Term( null, n.text(), n.text().length(), getCoordinates( n ) ) );
-	}
+		Reader reader = document.reader();
+		if( reader == null ) return Stream.empty();
 
-	private String getHtmlTitle( Document document ) {
-		return getHtmlRoot( document ).select( "html > head > title" ).text();
+		StreamParser parser = new StreamParser( Parser.htmlParser() ).parse( reader, document.uri() == null ? "" : document.uri().toString() );
+		Splitter splitter = new Splitter();
+		return parser.stream().flatMap( element -> splitter.complete( element ).stream() ).onClose( parser::close );
 	}
 
-	private List<TextNode> getTextNodes( Document document ) {
-		List<TextNode> elements = new ArrayList<>();
-
-		for( Node child : getHtmlRoot( document ).getAllElements() ) {
-			if( child instanceof TextNode text ) {
-				elements.add( text );
-			}
+	private static String fold( String text, int start, int end ) {
+		StringBuilder word = new StringBuilder( end - start );
+		for( int index = start; index < end; ) {
+			int point = text.codePointAt( index );
+			word.appendCodePoint( TextTokenizer.fold( point ) );
+			index += Character.charCount( point );
 		}
-
-		return elements;
+		return word.toString();
 	}
 
-	private List<Integer> getCoordinates( Node node ) {
-		List<Integer> coords = new ArrayList<>();
+	private static List<Integer> getCoordinates( Node node ) {
+		List<Integer> coordinates = new ArrayList<>();
 		while( node != null ) {
-			coords.add( node.siblingIndex() );
+			coordinates.add( node.siblingIndex() );
 			node = node.parentNode();
 		}
-		Collections.reverse( coords );
-		return coords;
+		Collections.reverse( coordinates );
+		return coordinates;
 	}
 
-	private org.jsoup.nodes.Document getHtmlRoot( Document document ) {
-		org.jsoup.nodes.Document htmlRoot = (org.jsoup.nodes.Document)document.properties().get( "org.jsoup.nodes.Document" );
-		if( htmlRoot == null ) {
-			try( Reader reader = document.reader() ) {
-				htmlRoot = Jsoup.parse( IoUtil.toString( reader ) );
-				document.properties().put( "org.jsoup.nodes.Document", htmlRoot );
-			} catch( IOException exception ) {
-				log.atWarn( exception );
+	/**
+	 * Splits the text of the elements as they are completed. When an element
+	 * is completed, the text before it in its open ancestors is also complete,
+	 * so that text is split first to keep the words in document order.
+	 */
+	private final class Splitter {
+
+		private final Map<String, String> words = new HashMap<>();
+
+		// The number of children already split for each open element
+		private final Map<Element, Integer> split = new IdentityHashMap<>();
+
+		private int position;
+
+		private List<Term> complete( Element element ) {
+			if( element.nameIs( "title" ) && element.parent() != null && element.parent().nameIs( "head" ) ) document.title( element.text() );
+
+			List<Term> terms = new ArrayList<>();
+			List<Element> ancestors = new ArrayList<>( element.parents() );
+			Collections.reverse( ancestors );
+			for( int index = 0; index < ancestors.size(); index++ ) {
+				Node child = index + 1 < ancestors.size() ? ancestors.get( index + 1 ) : element;
+				split( ancestors.get( index ), child.siblingIndex(), terms );
+			}
+			split( element, element.childNodeSize(), terms );
+			split.remove( element );
+
+			// The element stays as a placeholder so the sibling indexes do not change
+			element.empty();
+			return terms;
+		}
+
+		private void split( Element element, int end, List<Term> terms ) {
+			int start = split.getOrDefault( element, 0 );
+			if( start >= end ) return;
+			split.put( element, end );
+
+			List<Integer> path = null;
+			for( int index = start; index < end; index++ ) {
+				if( !(element.childNode( index ) instanceof TextNode node) || node.isBlank() ) continue;
+				if( path == null ) path = getCoordinates( element );
+
+				String text = node.getWholeText();
+				int sibling = index;
+				List<Integer> elementPath = path;
+				terms.addAll( Terms.split( text, ( wordStart, wordEnd ) -> {
+					List<Integer> coordinates = new ArrayList<>( elementPath.size() + 3 );
+					coordinates.addAll( elementPath );
+					coordinates.add( sibling );
+					coordinates.add( wordStart );
+					coordinates.add( position++ );
+					return new Term( null, words.computeIfAbsent( fold( text, wordStart, wordEnd ), word -> word ), wordEnd - wordStart, coordinates );
+				} ) );
 			}
 		}
-		return htmlRoot;
+
 	}
 
 }
@@ -1,6 +1,9 @@
 package com.avereon.index;
 
+import java.net.URI;
 import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -10,14 +13,116 @@ public interface Index {
 
 	Set<String> getDictionary();
 
+	/**
+	 * Get the words of the index as a term dictionary, for prefix and fuzzy
+	 * word lookups. Indexes should override this to return a cached dictionary
+	 * instead of building one from {@link #getDictionary()} on each request.
+	 *
+	 * @return The term dictionary
+	 */
+	default TermDictionary getTermDictionary() {
+		return TermDictionary.of( getDictionary() );
+	}
+
 	Set<Hit> getHits( String word );
 
 	Index push( Collection<Hit> hits );
 
+	/**
+	 * Remove the hits of the documents with a URI. Indexes that support removal
+	 * only mark the documents as deleted and reclaim the space later.
+	 *
+	 * @param uri The document URI
+	 * @return This index
+	 */
+	default Index remove( URI uri ) {
+		throw new UnsupportedOperationException( "Index does not support removing documents" );
+	}
+
+	/**
+	 * Replace the hits of the documents with a URI with new hits.
+	 *
+	 * @param uri The document URI
+	 * @param hits The new hits
+	 * @return This index
+	 */
+	default Index update( URI uri, Collection<Hit> hits ) {
+		remove( uri );
+		return push( hits );
+	}
+
+	/**
+	 * Get the number of documents with hits in the index.
+	 *
+	 * @return The number of documents
+	 */
+	default int getDocumentCount() {
+		return (int)getHits().stream().map( Hit::getDocument ).filter( Objects::nonNull ).distinct().count();
+	}
+
+	/**
+	 * Get the number of hits in the index, the sum of the document lengths.
+	 *
+	 * @return The number of hits
+	 */
+	default long getHitCount() {
+		return getHits().size();
+	}
+
+	/**
+	 * Get the length of a document, measured as the number of hits the document
+	 * has in the index.
+	 *
+	 * @param document The document
+	 * @return The number of hits of the document
+	 */
+	default int getDocumentLength( Document document ) {
+		return (int)getHits().stream().filter( h -> h.getDocument() == document ).count();
+	}
+
+	/**
+	 * Get the number of documents with hits for a word.
+	 *
+	 * @param word The word
+	 * @return The number of documents
+	 */
+	default int getDocumentFrequency( String word ) {
+		return (int)getHits( word ).stream().map( Hit::getDocument ).filter( Objects::nonNull ).distinct().count();
+	}
+
+	/**
+	 * Get the version of the index contents. The version changes every time
+	 * hits are added or documents are removed, so results computed at one
+	 * version are current as long as the version stays the same. Indexes that
+	 * do not track their changes return -1.
+	 *
+	 * @return The version, or -1 if the index does not track changes
+	 */
+	default long getVersion() {
+		return -1;
+	}
+
 	default Set<Hit> getHits() {
 		return getDictionary().stream().flatMap( t -> getHits( t ).stream() ).collect( Collectors.toSet() );
 	}
 
+	/**
+	 * Create a read only view of several indexes. Unlike {@link #merge}, the
+	 * hits are not copied.
+	 *
+	 * @param indexes The indexes
+	 * @return The index view
+	 */
+	static Index union( Collection<? extends Index> indexes ) {
+		return new IndexUnion( List.copyOf( indexes ) );
+	}
+
+	/**
+	 * Copy the hits of several indexes into a new index.
+	 *
+	 * @param indexes The indexes
+	 * @return The new index
+	 */
 	static Index merge( Collection<Index> indexes ) {
 		return indexes.stream().reduce( new StandardIndex(), Index::merge );
 	}
@@ -15,4 +15,24 @@ public class IndexQuery {
 	@Singular
 	private List<String> terms;
 
+	/**
+	 * The word position of each term in the query text, when words between the
+	 * terms were dropped, like stop words. Empty when the terms are next to
+	 * each other.
+	 */
+	@Singular
+	private List<Integer> positions;
+
+	/**
+	 * Get the distance in words from the first term to a term, for matching
+	 * phrases.
+	 *
+	 * @param term The term index
+	 * @return The number of words from the first term
+	 */
+	public int offset( int term ) {
+		if( positions.size() != terms.size() ) return term;
+		return positions.get( term ) - positions.getFirst();
+	}
+
 }
@@ -0,0 +1,443 @@
+package com.avereon.index;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.avereon.index.SegmentFormat.*;
+
+/**
+ * A read only index backed by a memory mapped segment file. See
+ * {@link SegmentFormat} for the file layout. Terms are found with a binary
+ * search of the term dictionary, comparing the UTF-8 bytes directly in the
+ * mapped file, and hits are created from the postings on each request.
+ * Documents are read from the document table the first time they are needed
+ * and hit contexts are derived from the documents. Document content in the
+ * document store of the index folder is read from the store.
+ * <p>
+ * Removing a document from a segment adds a tombstone instead of changing
+ * the segment file. The hits of removed documents are skipped, and dropped
+ * when the segment is merged.
+ */
+final class IndexSegment implements Index, PostingsSource {
+
+	@Getter
+	private final Path path;
+
+	@Getter
+	private final long generation;
+
+	private final ByteBuffer buffer;
+
+	private final DocumentStore store;
+
+	private final int documentCount;
+
+	private final int termCount;
+
+	private final int documentTable;
+
+	private final int dictionary;
+
+	private final long hitCount;
+
+	private final List<Long> replacedGenerations;
+
+	private final AtomicReferenceArray<Document> documents;
+
+	// The ids of the documents read so far, to look up document statistics
+	private final Map<Document, Integer> documentIds;
+
+	private volatile TermDictionary terms;
+
+	private volatile BitSet deleted;
+
+	private volatile Map<URI, List<Integer>> uriDocuments;
+
+	private IndexSegment( Path path, long generation, ByteBuffer buffer, DocumentStore store ) throws IOException {
+		this.path = path;
+		this.generation = generation;
+		this.buffer = buffer;
+		this.store = store;
+
+		int magic = buffer.getInt( 0 );
+		int version = buffer.getInt( 4 );
+		if( magic != MAGIC ) throw new IOException( "Not an index segment: " + path );
+		if( version != VERSION ) throw new IOException( "Unsupported index segment version " + version + ": " + path );
+
+		this.documentCount = buffer.getInt( 8 );
+		this.termCount = buffer.getInt( 12 );
+		this.documentTable = buffer.getInt( 16 );
+		this.dictionary = buffer.getInt( 20 );
+		this.hitCount = buffer.getLong( 24 );
+		int replacedTable = buffer.getInt( 32 );
+		int replacedCount = buffer.getInt( 36 );
+		List<Long> replacedGenerations = new ArrayList<>( replacedCount );
+		for( int index = 0; index < replacedCount; index++ ) {
+			replacedGenerations.add( buffer.getLong( replacedTable + index * Long.BYTES ) );
+		}
+		this.replacedGenerations = List.copyOf( replacedGenerations );
+		this.documents = new AtomicReferenceArray<>( documentCount );
+		this.documentIds = Collections.synchronizedMap( new IdentityHashMap<>() );
+
+		Path tombstones = getTombstonePath();
+		this.deleted = tombstones != null && Files.exists( tombstones ) ? BitSet.valueOf( Files.readAllBytes( tombstones ) ) : new BitSet();
+	}
+
+	/**
+	 * Open a segment file of an index folder by mapping it into memory.
+	 *
+	 * @param path The segment file
+	 * @param store The document store of the index folder
+	 * @return The segment
+	 * @throws IOException If the file cannot be read or is not a segment
+	 */
+	static IndexSegment open( Path path, DocumentStore store ) throws IOException {
+		return open( path, SegmentFormat.getGeneration( path.getFileName().toString() ), store );
+	}
+
+	/**
+	 * Open a segment file that is not part of a segmented index, like an index
+	 * snapshot, by mapping it into memory. Without a generation the segment has
+	 * no tombstones and documents cannot be removed.
+	 *
+	 * @param path The segment file
+	 * @param generation The segment generation, or -1 for no generation
+	 * @param store The document store of the segment, or null if the segment
+	 * has no store
+	 * @return The segment
+	 * @throws IOException If the file cannot be read or is not a segment
+	 */
+	static IndexSegment open( Path path, long generation, DocumentStore store ) throws IOException {
+		try( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) ) {
+			long size = channel.size();
+			if( size < HEADER_SIZE ) throw new IOException( "Not an index segment: " + path );
+			MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, size );
+			return new IndexSegment( path, generation, buffer, store );
+		}
+	}
+
+	@Override
+	public int getDocumentCount() {
+		return documentCount - getDeletedCount();
+	}
+
+	@Override
+	public long getHitCount() {
+		BitSet deleted = this.deleted;
+		return hitCount - deleted.stream().mapToLong( this::getDocumentLength ).sum();
+	}
+
+	@Override
+	public int getDocumentLength( Document document ) {
+		Integer id = documentIds.get( document );
+		return id == null || deleted.get( id ) ? 0 : getDocumentLength( id );
+	}
+
+	/**
+	 * The document count of the dictionary entry includes removed documents,
+	 * so when the segment has removed documents the postings are read to count
+	 * the documents that are left.
+	 */
+	@Override
+	public int getDocumentFrequency( String word ) {
+		int entry = find( toBytes( word ) );
+		if( entry < 0 ) return 0;
+
+		int position = dictionary + entry * DICTIONARY_ENTRY_SIZE;
+		BitSet deleted = this.deleted;
+		if( deleted.isEmpty() ) return buffer.getInt( position + 3 * Integer.BYTES );
+
+		ByteBuffer postings = at( buffer.getInt( position + Integer.BYTES ) );
+		int count = buffer.getInt( position + 2 * Integer.BYTES );
+		int frequency = 0;
+		int document = 0;
+		for( int index = 0; index < count; index++ ) {
+			int delta = readVarInt( postings );
+			document += delta;
+			readVarInt( postings );
+			readVarInt( postings );
+			int coordinateCount = readVarInt( postings ) - 1;
+			for( int coordinate = 0; coordinate < coordinateCount; coordinate++ ) {
+				readVarInt( postings );
+			}
+			if( (delta > 0 || index == 0) && !(document > 0 && deleted.get( document - 1 )) ) frequency++;
+		}
+		return frequency;
+	}
+
+	private int getDocumentLength( int id ) {
+		return buffer.getInt( documentTable + id * DOCUMENT_ENTRY_SIZE + Integer.BYTES );
+	}
+
+	/**
+	 * Get the size of the segment file in bytes.
+	 */
+	long getSize() {
+		return buffer.capacity();
+	}
+
+	int getDeletedCount() {
+		return deleted.cardinality();
+	}
+
+	/**
+	 * Get the generations of the segments this segment replaces, when it was
+	 * written by a merge.
+	 */
+	List<Long> getReplacedGenerations() {
+		return replacedGenerations;
+	}
+
+	Path getTombstonePath() {
+		return generation < 0 ? null : path.resolveSibling( getTombstoneFileName( generation ) );
+	}
+
+	/**
+	 * Mark the documents with a URI as removed and store the tombstones.
+	 *
+	 * @param uri The document URI
+	 * @return True if any documents were removed
+	 * @throws IOException If the tombstones cannot be stored
+	 */
+	synchronized boolean markDeleted( URI uri ) throws IOException {
+		List<Integer> ids = getUriDocuments().getOrDefault( uri, List.of() );
+		BitSet deleted = (BitSet)this.deleted.clone();
+		ids.forEach( deleted::set );
+		if( deleted.equals( this.deleted ) ) return false;
+
+		Path tombstones = getTombstonePath();
+		if( tombstones == null ) throw new IOException( "Index segment without tombstones: " + path );
+
+		// Searches see the tombstones even if they cannot be stored
+		this.deleted = deleted;
+		Path temp = tombstones.resolveSibling( tombstones.getFileName() + ".tmp" );
+		Files.write( temp, deleted.toByteArray() );
+		commit( temp, tombstones );
+		return true;
+	}
+
+	@Override
+	public Set<String> getDictionary() {
+		Set<String> words = new HashSet<>( termCount * 2 );
+		getTermDictionary().forEachWithPrefix( "", words::add );
+		return words;
+	}
+
+	@Override
+	public TermDictionary getTermDictionary() {
+		TermDictionary terms = this.terms;
+		if( terms == null ) {
+			List<String> words = new ArrayList<>( termCount );
+			for( int index = 0; index < termCount; index++ ) {
+				words.add( readString( at( buffer.getInt( dictionary + index * DICTIONARY_ENTRY_SIZE ) ) ) );
+			}
+			this.terms = terms = TermDictionary.of( words );
+		}
+		return terms;
+	}
+
+	@Override
+	public Set<Hit> getHits( String word ) {
+		int entry = find( toBytes( word ) );
+		if( entry < 0 ) return Set.of();
+
+		int position = dictionary + entry * DICTIONARY_ENTRY_SIZE;
+		ByteBuffer postings = at( buffer.getInt( position + Integer.BYTES ) );
+		int count = buffer.getInt( position + 2 * Integer.BYTES );
+
+		BitSet deleted = this.deleted;
+		Set<Hit> hits = new HashSet<>( count * 2 );
+		int document = 0;
+		for( int index = 0; index < count; index++ ) {
+			document += readVarInt( postings );
+			int priority = readVarInt( postings );
+			int length = readVarInt( postings );
+			int coordinateCount = readVarInt( postings ) - 1;
+			List<Integer> coordinates = coordinateCount < 0 ? null : new ArrayList<>( coordinateCount );
+			for( int coordinate = 0; coordinate < coordinateCount; coordinate++ ) {
+				coordinates.add( readVarInt( postings ) );
+			}
+			if( document > 0 && deleted.get( document - 1 ) ) continue;
+
+			hits.add( new Hit()
+				.setDocument( getDocument( document - 1 ) )
+				.setWord( word )
+				.setLength( length )
+				.setCoordinates( coordinates )
+				.setPriority( priority ) );
+		}
+
+		return hits;
+	}
+
+	@Override
+	public PostingsCursor getPostingsCursor( String word ) {
+		int entry = find( toBytes( word ) );
+		if( entry < 0 ) return null;
+
+		int position = dictionary + entry * DICTIONARY_ENTRY_SIZE;
+		return new Cursor( word, at( buffer.getInt( position + Integer.BYTES ) ), buffer.getInt( position + 2 * Integer.BYTES ) );
+	}
+
+	@Override
+	public Index push( Collection<Hit> hits ) {
+		throw new UnsupportedOperationException( "Index segments are read only" );
+	}
+
+	/**
+	 * Get a document from the document table.
+	 *
+	 * @param id The document id, or -1 for hits without a document
+	 * @return The document
+	 */
+	Document getDocument( int id ) {
+		if( id < 0 ) return null;
+		Document document = documents.get( id );
+		if( document == null ) {
+			document = readDocument( at( buffer.getInt( documentTable + id * DOCUMENT_ENTRY_SIZE ) ), store );
+			if( documents.compareAndSet( id, null, document ) ) {
+				documentIds.put( document, id );
+			} else {
+				document = documents.get( id );
+			}
+		}
+		return document;
+	}
+
+	private Map<URI, List<Integer>> getUriDocuments() {
+		Map<URI, List<Integer>> uriDocuments = this.uriDocuments;
+		if( uriDocuments == null ) {
+			uriDocuments = new HashMap<>();
+			for( int id = 0; id < documentCount; id++ ) {
+				URI uri = getDocument( id ).uri();
+				if( uri != null ) uriDocuments.computeIfAbsent( uri, k -> new ArrayList<>() ).add( id );
+			}
+			this.uriDocuments = uriDocuments;
+		}
+		return uriDocuments;
+	}
+
+	/**
+	 * Use the document objects of the index the segment was written from, so
+	 * hits from the segment refer to the same documents as before.
+	 */
+	void setDocuments( List<Document> documents ) {
+		for( int index = 0; index < documents.size(); index++ ) {
+			this.documents.set( index, documents.get( index ) );
+			this.documentIds.put( documents.get( index ), index );
+		}
+	}
+
+	/**
+	 * Find the dictionary entry of a term with a binary search.
+	 *
+	 * @param term The UTF-8 bytes of the term
+	 * @return The dictionary entry index or -1 if the term is not found
+	 */
+	private int find( byte[] term ) {
+		int low = 0;
+		int high = termCount - 1;
+		while( low <= high ) {
+			int middle = (low + high) >>> 1;
+			int comparison = compare( buffer.getInt( dictionary + middle * DICTIONARY_ENTRY_SIZE ), term );
+			if( comparison < 0 ) {
+				low = middle + 1;
+			} else if( comparison > 0 ) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	private int compare( int offset, byte[] term ) {
+		ByteBuffer source = at( offset );
+		int length = readVarInt( source ) - 1;
+		int start = source.position();
+		int count = Math.min( length, term.length );
+		for( int index = 0; index < count; index++ ) {
+			int comparison = Integer.compare( source.get( start + index ) & 0xff, term[ index ] & 0xff );
+			if( comparison != 0 ) return comparison;
+		}
+		return Integer.compare( length, term.length );
+	}
+
+	private ByteBuffer at( int offset ) {
+		return buffer.duplicate().position( offset );
+	}
+
+	@Override
+	public String toString() {
+		return path.toString();
+	}
+
+	/**
+	 * A cursor over the postings of a term in the mapped file. The entry handle
+	 * is the offset of the hit in the file.
+	 */
+	private final class Cursor extends PostingsCursor {
+
+		private final ByteBuffer postings;
+
+		private int remaining;
+
+		// Document ids in the postings are shifted by one
+		private int document;
+
+		private Cursor( String word, ByteBuffer postings, int count ) {
+			super( word, deleted, count );
+			this.postings = postings;
+			this.remaining = count;
+		}
+
+		@Override
+		boolean read() {
+			if( remaining == 0 ) return false;
+			remaining--;
+			entry = postings.position();
+			document += readVarInt( postings );
+			entryDocument = document - 1;
+			entryPriority = readVarInt( postings );
+			readVarInt( postings );
+			int coordinateCount = readVarInt( postings ) - 1;
+			entryPosition = -1;
+			for( int coordinate = 0; coordinate < coordinateCount; coordinate++ ) {
+				int value = readVarInt( postings );
+				if( coordinate == coordinateCount - 1 && coordinateCount >= 3 ) entryPosition = value;
+			}
+			return true;
+		}
+
+		@Override
+		Hit createHit( int document, long entry ) {
+			ByteBuffer source = at( (int)entry );
+			readVarInt( source );
+			int priority = readVarInt( source );
+			int length = readVarInt( source );
+			int coordinateCount = readVarInt( source ) - 1;
+			List<Integer> coordinates = new ArrayList<>( coordinateCount );
+			for( int coordinate = 0; coordinate < coordinateCount; coordinate++ ) {
+				coordinates.add( readVarInt( source ) );
+			}
+			return new Hit()
+				.setDocument( getDocument( document ) )
+				.setWord( getWord() )
+				.setLength( length )
+				.setCoordinates( coordinates )
+				.setPriority( priority );
+		}
+
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.avereon.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Exports an index to a snapshot file and loads it again, to ship prebuilt
+ * indexes instead of indexing the documents on first use. A snapshot is one
+ * index segment file, see {@link SegmentFormat}, with the term dictionary,
+ * the postings and the document fields, and the format version in the
+ * header. Document properties are not exported.
+ * <p>
+ * Loading maps the file into memory without reading it. Words are found with
+ * a binary search of the mapped term dictionary, and hits and documents are
+ * decoded from the mapped file when they are requested, so a loaded snapshot
+ * can be searched right away. A loaded snapshot is read only, use
+ * {@link Index#union} to search it together with an index of new documents.
+ */
+public final class IndexSnapshot {
+
+	private IndexSnapshot() {}
+
+	/**
+	 * Export an index to a snapshot file. The file is written next to the
+	 * path and then moved, so a snapshot is never seen partially written.
+	 *
+	 * @param index The index
+	 * @param path The snapshot file
+	 * @throws IOException If the snapshot cannot be written
+	 */
+	public static void export( Index index, Path path ) throws IOException {
+		Path folder = path.toAbsolutePath().getParent();
+		if( folder != null ) Files.createDirectories( folder );
+		SegmentWriter.save( path, index );
+	}
+
+	/**
+	 * Load an index from a snapshot file.
+	 *
+	 * @param path The snapshot file
+	 * @return The read only index
+	 * @throws IOException If the file cannot be read, is not a snapshot or has
+	 * an unsupported format version
+	 */
+	public static Index load( Path path ) throws IOException {
+		return IndexSegment.open( path, -1, null );
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.avereon.index;
+
+import java.util.*;
+
+/**
+ * A read only view of several indexes. Nothing is copied when the view is
+ * created, the dictionaries and hits of the indexes are combined when they
+ * are requested.
+ */
+final class IndexUnion implements Index {
+
+	private final List<? extends Index> indexes;
+
+	IndexUnion( List<? extends Index> indexes ) {
+		this.indexes = indexes;
+	}
+
+	List<? extends Index> getIndexes() {
+		return indexes;
+	}
+
+	@Override
+	public Set<String> getDictionary() {
+		Set<String> dictionary = new HashSet<>();
+		indexes.forEach( i -> dictionary.addAll( i.getDictionary() ) );
+		return dictionary;
+	}
+
+	@Override
+	public TermDictionary getTermDictionary() {
+		return TermDictionary.union( indexes.stream().map( Index::getTermDictionary ).toList() );
+	}
+
+	@Override
+	public Set<Hit> getHits( String word ) {
+		Set<Hit> hits = new HashSet<>();
+		indexes.forEach( i -> hits.addAll( i.getHits( word ) ) );
+		return hits;
+	}
+
+	@Override
+	public int getDocumentCount() {
+		return indexes.stream().mapToInt( Index::getDocumentCount ).sum();
+	}
+
+	@Override
+	public long getHitCount() {
+		return indexes.stream().mapToLong( Index::getHitCount ).sum();
+	}
+
+	@Override
+	public int getDocumentLength( Document document ) {
+		return indexes.stream().mapToInt( i -> i.getDocumentLength( document ) ).sum();
+	}
+
+	@Override
+	public int getDocumentFrequency( String word ) {
+		return indexes.stream().mapToInt( i -> i.getDocumentFrequency( word ) ).sum();
+	}
+
+	/**
+	 * The sum of the versions of the indexes. The versions only increase, so
+	 * the sum changes when any of them does.
+	 */
+	@Override
+	public long getVersion() {
+		long version = 0;
+		for( Index index : indexes ) {
+			long indexVersion = index.getVersion();
+			if( indexVersion < 0 ) return -1;
+			version += indexVersion;
+		}
+		return version;
+	}
+
+	@Override
+	public Index push( Collection<Hit> hits ) {
+		throw new UnsupportedOperationException( "Index union is read only" );
+	}
+
+}
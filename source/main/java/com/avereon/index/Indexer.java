@@ -4,28 +4,89 @@ import com.avereon.result.Result;
 import com.avereon.skill.Controllable;
 import lombok.CustomLog;
 
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * The indexer parses documents into hits and collects the hits in named
+ * indexes. If the indexer has an index path, each index is stored as a
+ * {@link SegmentedIndex} in a folder under the index path. The stored indexes
+ * are opened on start and new hits are flushed to new segments when there are
+ * enough of them, and on stop. Segments are merged in the background. Without
+ * an index path the indexes are only kept in memory.
+ * <p>
+ * Documents are identified by their URI. Updating a document replaces the
+ * hits of the documents indexed with the same URI, and removing a document
+ * removes them. Removed hits are skipped by searches right away and are
+ * dropped from the index by compacting it in the background.
+ */
 @CustomLog
 public class Indexer implements Controllable<Indexer> {
 
+	private static final long STOP_TIMEOUT = 10;
+
+	private static final int QUEUE_CAPACITY = 1024;
+
+	private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+
 	// A thread pool to run indexing tasks
 	private ExecutorService executor;
 
+	// A thread pool to search the indexes in parallel, apart from indexing
+	private ExecutorService searchExecutor;
+
+	// A single thread to merge and compact the indexes in the background
+	private ExecutorService maintenanceExecutor;
+
+	private final Set<BulkIndexing> bulkIndexing;
+
 	// A path to place index files
 	private final Path indexPath;
 
 	private final Map<String, Index> indexes;
 
+	private final SearchCache searchCache;
+
+	// The completion index of each index, built when first used
+	private final Map<String, CompletionIndex> completions;
+
+	// Indexing holds the read lock while it updates the completion indexes,
+	// building a completion index holds the write lock so no hits are missed
+	private final ReadWriteLock completionLock;
+
+	private final Analyzer analyzer;
+
 	public Indexer( Path indexPath ) {
+		this( indexPath, Analyzer.NONE );
+	}
+
+	/**
+	 * Create an indexer that analyzes the indexed words, see {@link Analyzer}.
+	 * Searches of the indexer analyze the query words the same way.
+	 *
+	 * @param indexPath The path to store the indexes, or null to keep them in
+	 * memory
+	 * @param analyzer The analyzer
+	 */
+	public Indexer( Path indexPath, Analyzer analyzer ) {
 		this.indexPath = indexPath;
+		this.analyzer = analyzer;
 		this.indexes = new ConcurrentHashMap<>();
+		this.searchCache = new SearchCache();
+		this.completions = new ConcurrentHashMap<>();
+		this.completionLock = new ReentrantReadWriteLock();
+		this.bulkIndexing = ConcurrentHashMap.newKeySet();
 	}
 
 	@Override
@@ -33,21 +94,120 @@ public class Indexer implements Controllable<Indexer> {
 		return executor != null && !executor.isShutdown();
 	}
 
+	/**
+	 * Start the indexer. Indexing tasks run on a thread per processor, and
+	 * when the task queue is full the submitting thread runs the task, which
+	 * slows down the submitter instead of queueing without limit. Searches
+	 * have their own threads, so they do not wait behind indexing tasks, and
+	 * merging and compacting run one at a time on a background thread.
+	 *
+	 * @return This indexer
+	 */
 	@Override
 	public Indexer start() {
-		executor = Executors.newCachedThreadPool();
-		// Start should load exising indexes
+		this.executor = createExecutor( THREAD_COUNT, new LinkedBlockingQueue<>( QUEUE_CAPACITY ), new ThreadPoolExecutor.CallerRunsPolicy() );
+		this.searchExecutor = createExecutor( THREAD_COUNT, new LinkedBlockingQueue<>(), new ThreadPoolExecutor.AbortPolicy() );
+		this.maintenanceExecutor = createExecutor( 1, new LinkedBlockingQueue<>(), new ThreadPoolExecutor.AbortPolicy() );
+		loadIndexes();
 		return this;
 	}
 
+	/**
+	 * Stop the indexer. Documents already submitted are still indexed, and the
+	 * stored indexes are flushed once they are.
+	 *
+	 * @return This indexer
+	 */
 	@Override
 	public Indexer stop() {
-		if( executor != null ) executor.shutdown();
+		if( executor == null ) return this;
+		executor.shutdown();
+		searchExecutor.shutdown();
+		try {
+			if( !executor.awaitTermination( STOP_TIMEOUT, TimeUnit.SECONDS ) ) log.atWarn().log( "Indexer tasks did not finish in %s seconds", STOP_TIMEOUT );
+			for( BulkIndexing bulk : Set.copyOf( bulkIndexing ) ) {
+				bulk.getCompletion().get( STOP_TIMEOUT, TimeUnit.SECONDS );
+			}
+		} catch( InterruptedException exception ) {
+			Thread.currentThread().interrupt();
+		} catch( ExecutionException | TimeoutException exception ) {
+			log.atWarn( exception ).log( "Bulk indexing did not finish in %s seconds", STOP_TIMEOUT );
+		}
+		indexes.values().forEach( this::flush );
+
+		// Let the merges and compactions, including the ones the flush queued, finish
+		maintenanceExecutor.shutdown();
+		try {
+			if( !maintenanceExecutor.awaitTermination( STOP_TIMEOUT, TimeUnit.SECONDS ) ) log.atWarn().log( "Index maintenance did not finish in %s seconds", STOP_TIMEOUT );
+		} catch( InterruptedException exception ) {
+			Thread.currentThread().interrupt();
+		}
 		return this;
 	}
 
+	/**
+	 * Search several indexes. Each index is searched on its own and the hits
+	 * are merged, so the indexes are not copied for the search.
+	 *
+	 * @param search The search
+	 * @param query The query
+	 * @param indexes The indexes to search
+	 * @return The sorted hits
+	 */
 	public static Result<List<Hit>> search( Search search, IndexQuery query, Collection<Index> indexes ) {
-		return search.search( Index.merge( indexes ), query );
+		return new FederatedSearch( search ).search( indexes, query );
+	}
+
+	/**
+	 * Search all the indexes of this indexer, searching the indexes in parallel
+	 * while the indexer is running. The results of each index are cached until
+	 * the index changes, see {@link #getSearchCache()}.
+	 *
+	 * @param search The search
+	 * @param query The query
+	 * @return The sorted hits
+	 */
+	public Result<List<Hit>> search( Search search, IndexQuery query ) {
+		return new FederatedSearch( searchCache.of( new AnalyzedSearch( search, analyzer ) ), isRunning() ? searchExecutor : null ).search( indexes.values(), query );
+	}
+
+	public Analyzer getAnalyzer() {
+		return analyzer;
+	}
+
+	public SearchCache getSearchCache() {
+		return searchCache;
+	}
+
+	public List<String> complete( String prefix, int limit ) {
+		return complete( Index.DEFAULT, prefix, limit );
+	}
+
+	/**
+	 * Suggest indexed words and document titles that start with a prefix, for
+	 * search as you type, see {@link CompletionIndex}. The completion index is
+	 * built from the index the first time and then updated as documents are
+	 * indexed. Updated documents only add their new words and titles. The
+	 * words are suggested as indexed, after the analyzer.
+	 *
+	 * @param index The index name
+	 * @param prefix The prefix
+	 * @param limit The maximum number of suggestions
+	 * @return The suggestions, best first
+	 */
+	public List<String> complete( String index, String prefix, int limit ) {
+		Index target = indexes.get( index );
+		if( target == null ) return List.of();
+		CompletionIndex completion = completions.get( index );
+		if( completion == null ) {
+			completionLock.writeLock().lock();
+			try {
+				completion = completions.computeIfAbsent( index, n -> CompletionIndex.of( target ) );
+			} finally {
+				completionLock.writeLock().unlock();
+			}
+		}
+		return completion.complete( prefix, limit );
 	}
 
 	public Result<Future<Result<Set<Hit>>>> submit( Document document ) {
@@ -56,7 +216,7 @@ public class Indexer implements Controllable<Indexer> {
 
 	public Result<Future<Result<Set<Hit>>>> submit( String index, Document document ) {
 		if( !isRunning() ) return Result.of( new IllegalStateException( "Indexer not running" ) );
-		return Result.of( executor.submit( () -> doIndex( index, document ) ) );
+		return Result.of( executor.submit( () -> doIndex( index, document, false ) ) );
 	}
 
 	public Result<Set<Future<Result<Set<Hit>>>>> submit( Document... documents ) {
@@ -65,7 +225,70 @@ public class Indexer implements Controllable<Indexer> {
 
 	public Result<Set<Future<Result<Set<Hit>>>>> submit( String index, Document... documents ) {
 		if( !isRunning() ) return Result.of( new IllegalStateException( "Indexer not running" ) );
-		return Result.of( Arrays.stream( documents ).map( d -> executor.submit( () -> doIndex( index, d ) ) ).collect( Collectors.toSet() ) );
+		return Result.of( Arrays.stream( documents ).map( d -> executor.submit( () -> doIndex( index, d, false ) ) ).collect( Collectors.toSet() ) );
+	}
+
+	public Result<BulkIndexing> submitAll( Iterable<Document> documents ) {
+		return submitAll( Index.DEFAULT, documents );
+	}
+
+	/**
+	 * Index many documents with a parallel pipeline, see {@link BulkIndexing}.
+	 * The documents are taken from the source as the workers are ready for
+	 * them.
+	 *
+	 * @param index The index name
+	 * @param documents The documents
+	 * @return The bulk indexing progress
+	 */
+	public Result<BulkIndexing> submitAll( String index, Iterable<Document> documents ) {
+		if( !isRunning() ) return Result.of( new IllegalStateException( "Indexer not running" ) );
+		Index target = indexes.computeIfAbsent( index, this::createIndex );
+
+		BulkIndexing bulk = new BulkIndexing( target, documents, analyzer, THREAD_COUNT );
+		bulkIndexing.add( bulk );
+		bulk.getCompletion().whenComplete( ( result, throwable ) -> {
+			bulkIndexing.remove( bulk );
+			// Build the completion index again instead of adding every document
+			completions.remove( index );
+			if( target instanceof SegmentedIndex segmented && segmented.isMergeNeeded() && isRunning() ) merge( segmented );
+		} );
+		return Result.of( bulk.start() );
+	}
+
+	public Result<Future<Result<Set<Hit>>>> update( Document document ) {
+		return update( Index.DEFAULT, document );
+	}
+
+	/**
+	 * Index a document, replacing the hits of the documents already indexed
+	 * with the same URI.
+	 *
+	 * @param index The index name
+	 * @param document The document
+	 * @return The future hits of the document
+	 */
+	public Result<Future<Result<Set<Hit>>>> update( String index, Document document ) {
+		if( !isRunning() ) return Result.of( new IllegalStateException( "Indexer not running" ) );
+		return Result.of( executor.submit( () -> doIndex( index, document, true ) ) );
+	}
+
+	public void removeDocument( URI uri ) {
+		removeDocument( Index.DEFAULT, uri );
+	}
+
+	/**
+	 * Remove the hits of the documents with a URI from an index. Documents
+	 * submitted but not yet indexed are not affected.
+	 *
+	 * @param index The index name
+	 * @param uri The document URI
+	 */
+	public void removeDocument( String index, URI uri ) {
+		Index target = indexes.get( index );
+		if( target == null ) return;
+		target.remove( uri );
+		if( isRunning() ) compactIfNeeded( target );
 	}
 
 	public Set<Index> allIndexes() {
@@ -77,18 +300,133 @@ public class Indexer implements Controllable<Indexer> {
 	}
 
 	public void removeIndex( String index ) {
-		indexes.remove( index );
+		completions.remove( index );
+		if( indexes.remove( index ) instanceof SegmentedIndex segmented ) {
+			try {
+				segmented.delete();
+			} catch( IOException exception ) {
+				log.atWarn( exception ).log( "Unable to delete index: %s", index );
+			}
+		}
 	}
 
-	private Result<Set<Hit>> doIndex( String name, Document document ) {
-		Index index = indexes.computeIfAbsent( name, k -> new StandardIndex() );
+	private Result<Set<Hit>> doIndex( String name, Document document, boolean replace ) {
+		Index index = indexes.computeIfAbsent( name, this::createIndex );
+		if( index instanceof SegmentedIndex segmented ) store( segmented, document );
+
+		Result<Set<Hit>> result = new HitFinder( analyzer ).find( document, createTermSource( document ) ).ifSuccess( hits -> {
+			completionLock.readLock().lock();
+			try {
+				CompletionIndex completion = completions.get( name );
+				if( replace ) {
+					index.update( document.uri(), hits );
+					if( completion != null ) completion.update( hits );
+				} else {
+					index.push( hits );
+					if( completion != null ) completion.add( hits );
+				}
+			} finally {
+				completionLock.readLock().unlock();
+			}
+		} ).ifFailure( e -> log.atWarn( e ).log( "Unable to parse document: %s", document ) );
+		if( index instanceof SegmentedIndex segmented && segmented.isFlushNeeded() ) flush( segmented );
+		if( replace ) compactIfNeeded( index );
+		return result;
+	}
+
+	/**
+	 * Move the content of a document to the document store of the index. The
+	 * content is stored before it is indexed, so it is read once, and the
+	 * document does not change after its hits are created.
+	 */
+	static void store( SegmentedIndex index, Document document ) {
+		try {
+			index.store( document );
+		} catch( IOException exception ) {
+			log.atWarn( exception ).log( "Unable to store document content, keeping it in memory: %s", document.uri() );
+		}
+	}
 
-		TermSource parser = switch( document.mediaType() ) {
-			case HTML -> new HtmlTermSource(document);
-			default -> new TextTermSource(document);
+	static TermSource createTermSource( Document document ) {
+		return switch( document.mediaType() ) {
+			case HTML -> new HtmlTermSource( document );
+			default -> new TextTermSource( document );
 		};
+	}
+
+	private Index createIndex( String name ) {
+		if( indexPath == null ) return new StandardIndex();
+		try {
+			return SegmentedIndex.open( indexPath.resolve( URLEncoder.encode( name, StandardCharsets.UTF_8 ) ) );
+		} catch( IOException exception ) {
+			log.atWarn( exception ).log( "Unable to store index, keeping it in memory: %s", name );
+			return new StandardIndex();
+		}
+	}
+
+	private void loadIndexes() {
+		if( indexPath == null || !Files.isDirectory( indexPath ) ) return;
+		try( Stream<Path> folders = Files.list( indexPath ) ) {
+			folders.filter( Files::isDirectory ).forEach( folder -> {
+				String name = URLDecoder.decode( folder.getFileName().toString(), StandardCharsets.UTF_8 );
+				indexes.computeIfAbsent( name, this::createIndex );
+				if( indexes.get( name ) instanceof SegmentedIndex segmented && segmented.isMergeNeeded() ) merge( segmented );
+			} );
+		} catch( IOException exception ) {
+			log.atWarn( exception ).log( "Unable to load indexes from: %s", indexPath );
+		}
+	}
+
+	private void flush( Index index ) {
+		if( !(index instanceof SegmentedIndex segmented) ) return;
+		try {
+			segmented.flush();
+		} catch( IOException exception ) {
+			log.atWarn( exception ).log( "Unable to flush index: %s", segmented.getFolder() );
+		}
+		if( segmented.isMergeNeeded() ) merge( segmented );
+	}
+
+	private void compactIfNeeded( Index index ) {
+		if( index instanceof StandardIndex standard && standard.isCompactNeeded() ) {
+			execute( standard::compact );
+		} else if( index instanceof SegmentedIndex segmented && segmented.isCompactNeeded() ) {
+			execute( () -> {
+				try {
+					segmented.compact();
+				} catch( IOException exception ) {
+					log.atWarn( exception ).log( "Unable to compact index: %s", segmented.getFolder() );
+				}
+			} );
+		}
+	}
+
+	private void execute( Runnable task ) {
+		try {
+			maintenanceExecutor.execute( task );
+		} catch( RejectedExecutionException exception ) {
+			// The indexer is stopping, the index is compacted later
+		}
+	}
+
+	private static ThreadPoolExecutor createExecutor( int threads, BlockingQueue<Runnable> queue, RejectedExecutionHandler handler ) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor( threads, threads, 60, TimeUnit.SECONDS, queue, handler );
+		executor.allowCoreThreadTimeOut( true );
+		return executor;
+	}
 
-		return new HitFinder().find( document, parser ).ifSuccess( index::push ).ifFailure( e -> log.atWarn( e ).log( "Unable to parse document: %s", document ) );
+	private void merge( SegmentedIndex index ) {
+		try {
+			maintenanceExecutor.execute( () -> {
+				try {
+					index.merge();
+				} catch( IOException exception ) {
+					log.atWarn( exception ).log( "Unable to merge index: %s", index.getFolder() );
+				}
+			} );
+		} catch( RejectedExecutionException exception ) {
+			// The indexer is stopping, the segments are merged on the next start
+		}
 	}
 
 }
@@ -0,0 +1,73 @@
+package com.avereon.index;
+
+/**
+ * A light stemmer for lower case English words. Only inflections are removed,
+ * so words keep their meaning and related words like "index", "indexes",
+ * "indexed" and "indexing" share a stem:
+ * <ul>
+ *   <li>Plurals: -ies to -y, -es after ss, x, z, ch and sh, and -s, except
+ *   after s, u and i</li>
+ *   <li>Verb forms: -ing and -ed, when a vowel is left, undoubling a final
+ *   double consonant</li>
+ * </ul>
+ * Short words and words with characters other than letters are not changed.
+ */
+final class LightStemmer {
+
+	private static final int MIN_STEM_LENGTH = 3;
+
+	private LightStemmer() {}
+
+	static String stem( String word ) {
+		if( word.length() <= MIN_STEM_LENGTH ) return word;
+		for( int index = 0; index < word.length(); index++ ) {
+			char c = word.charAt( index );
+			if( c < 'a' || c > 'z' ) return word;
+		}
+
+		String stem = stemPlural( word );
+		if( stem != word ) return stem;
+		if( word.endsWith( "ing" ) ) return stemVerb( word, 3 );
+		if( word.endsWith( "ed" ) ) return stemVerb( word, 2 );
+		return word;
+	}
+
+	private static String stemPlural( String word ) {
+		int length = word.length();
+		if( word.endsWith( "ies" ) && length > 4 && word.charAt( length - 4 ) != 'e' && word.charAt( length - 4 ) != 'a' ) {
+			return word.substring( 0, length - 3 ) + "y";
+		}
+		if( word.endsWith( "es" ) ) {
+			String base = word.substring( 0, length - 2 );
+			if( base.endsWith( "ss" ) || base.endsWith( "x" ) || base.endsWith( "z" ) || base.endsWith( "ch" ) || base.endsWith( "sh" ) ) return base;
+		}
+		if( word.endsWith( "s" ) ) {
+			char previous = word.charAt( length - 2 );
+			if( previous != 's' && previous != 'u' && previous != 'i' ) return word.substring( 0, length - 1 );
+		}
+		return word;
+	}
+
+	private static String stemVerb( String word, int suffix ) {
+		String stem = word.substring( 0, word.length() - suffix );
+		if( stem.length() < MIN_STEM_LENGTH || !hasVowel( stem ) ) return word;
+
+		// Running to run, but not falling to fal
+		int length = stem.length();
+		char last = stem.charAt( length - 1 );
+		if( last == stem.charAt( length - 2 ) && !isVowel( last ) && last != 'l' && last != 's' && last != 'z' ) return stem.substring( 0, length - 1 );
+		return stem;
+	}
+
+	private static boolean hasVowel( String stem ) {
+		for( int index = 0; index < stem.length(); index++ ) {
+			if( isVowel( stem.charAt( index ) ) ) return true;
+		}
+		return false;
+	}
+
+	private static boolean isVowel( char c ) {
+		return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u' || c == 'y';
+	}
+
+}
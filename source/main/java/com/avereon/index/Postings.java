@@ -0,0 +1,254 @@
+package com.avereon.index;
+
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * The hits of one word, stored in a growable int array instead of as hit
+ * objects. Each hit is stored as:
+ * <ol>
+ *   <li>The document id, as the difference from the previous hit</li>
+ *   <li>The priority</li>
+ *   <li>The length</li>
+ *   <li>The number of coordinates, or -1 if the hit has no coordinates</li>
+ *   <li>The coordinates, the first coordinate as the difference from the
+ *   first coordinate of the previous hit of the same document</li>
+ * </ol>
+ * The number of documents is counted as hits are added, for ranking, while
+ * the hits of each document are added in document order. When hits of
+ * concurrently pushed documents interleave, the hits are sorted by document
+ * again the next time the count or a cursor is needed. Adding a hit is
+ * amortized constant time. Readers decode the hits under the same lock as
+ * writers add them, and cursors read the hits added before they were created
+ * without the lock, since hits are only appended and sorting or removing hits
+ * replaces the array.
+ */
+final class Postings {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int[] data = new int[ INITIAL_CAPACITY ];
+
+	private int size;
+
+	private int count;
+
+	private int documentCount;
+
+	// False when hits were added out of document order
+	private boolean ordered = true;
+
+	private int maxDocument;
+
+	private int lastDocument;
+
+	private int lastLine;
+
+	synchronized void add( int document, int priority, int length, List<Integer> coordinates ) {
+		int coordinateCount = coordinates == null ? -1 : coordinates.size();
+		ensureCapacity( 4 + Math.max( coordinateCount, 0 ) );
+
+		if( count == 0 || document > maxDocument ) {
+			documentCount++;
+			maxDocument = document;
+		} else if( document != lastDocument ) {
+			// The document may have hits already, interleaved with other documents
+			ordered = false;
+		}
+		if( document != lastDocument ) lastLine = 0;
+		data[ size++ ] = document - lastDocument;
+		data[ size++ ] = priority;
+		data[ size++ ] = length;
+		data[ size++ ] = coordinateCount;
+		for( int index = 0; index < coordinateCount; index++ ) {
+			int coordinate = coordinates.get( index );
+			if( index == 0 ) {
+				data[ size++ ] = coordinate - lastLine;
+				lastLine = coordinate;
+			} else {
+				data[ size++ ] = coordinate;
+			}
+		}
+
+		lastDocument = document;
+		count++;
+	}
+
+	synchronized int count() {
+		return count;
+	}
+
+	/**
+	 * Get the number of different documents in the postings.
+	 *
+	 * @return The number of documents
+	 */
+	synchronized int documentCount() {
+		if( !ordered ) sort();
+		return documentCount;
+	}
+
+	/**
+	 * Get a cursor over the hits added so far, in document order.
+	 *
+	 * @param word The word of the postings
+	 * @param deleted The removed documents
+	 * @param documents The documents by id, to create hits
+	 * @return The cursor
+	 */
+	synchronized PostingsCursor cursor( String word, BitSet deleted, IntFunction<Document> documents ) {
+		if( !ordered ) sort();
+		return new Cursor( word, deleted, count, data, size, documents );
+	}
+
+	/**
+	 * Decode all the hits, in the order they were added.
+	 *
+	 * @param consumer The hit consumer
+	 */
+	synchronized void forEach( Consumer consumer ) {
+		int document = 0;
+		int line = 0;
+		int position = 0;
+		while( position < size ) {
+			int delta = data[ position++ ];
+			if( delta != 0 ) line = 0;
+			document += delta;
+
+			int priority = data[ position++ ];
+			int length = data[ position++ ];
+			int coordinateCount = data[ position++ ];
+
+			Integer[] coordinates = null;
+			if( coordinateCount >= 0 ) {
+				coordinates = new Integer[ coordinateCount ];
+				for( int index = 0; index < coordinateCount; index++ ) {
+					int coordinate = data[ position++ ];
+					if( index == 0 ) coordinate = line += coordinate;
+					coordinates[ index ] = coordinate;
+				}
+			}
+
+			consumer.accept( document, priority, length, coordinates == null ? null : List.of( coordinates ) );
+		}
+	}
+
+	/**
+	 * Remove the hits of some documents, re-encoding the remaining hits in
+	 * place.
+	 *
+	 * @param documents The documents to remove
+	 * @return The number of hits removed
+	 */
+	synchronized int remove( IntPredicate documents ) {
+		Postings retained = new Postings();
+		forEach( ( document, priority, length, coordinates ) -> {
+			if( !documents.test( document ) ) retained.add( document, priority, length, coordinates );
+		} );
+
+		int removed = count - retained.count;
+		replace( retained );
+		return removed;
+	}
+
+	/**
+	 * Sort the hits by document, keeping the order of the hits of each
+	 * document, and count the documents again.
+	 */
+	private void sort() {
+		List<Entry> entries = new ArrayList<>( count );
+		forEach( ( document, priority, length, coordinates ) -> entries.add( new Entry( document, priority, length, coordinates ) ) );
+		entries.sort( Comparator.comparingInt( Entry::document ) );
+
+		Postings sorted = new Postings();
+		entries.forEach( e -> sorted.add( e.document(), e.priority(), e.length(), e.coordinates() ) );
+		replace( sorted );
+	}
+
+	private void replace( Postings postings ) {
+		data = postings.data;
+		size = postings.size;
+		count = postings.count;
+		documentCount = postings.documentCount;
+		ordered = postings.ordered;
+		maxDocument = postings.maxDocument;
+		lastDocument = postings.lastDocument;
+		lastLine = postings.lastLine;
+	}
+
+	private void ensureCapacity( int required ) {
+		if( size + required > data.length ) data = Arrays.copyOf( data, Math.max( data.length * 2, size + required ) );
+	}
+
+	private record Entry(int document, int priority, int length, List<Integer> coordinates) {}
+
+	/**
+	 * A cursor over the hits of the postings when the cursor was created. The
+	 * entry handle is the index of the hit in the data with the line, the
+	 * first coordinate, in the high bits.
+	 */
+	private static final class Cursor extends PostingsCursor {
+
+		private final int[] data;
+
+		private final int size;
+
+		private final IntFunction<Document> documents;
+
+		private int position;
+
+		private int line;
+
+		private Cursor( String word, BitSet deleted, int cost, int[] data, int size, IntFunction<Document> documents ) {
+			super( word, deleted, cost );
+			this.data = data;
+			this.size = size;
+			this.documents = documents;
+			this.entryDocument = 0;
+		}
+
+		@Override
+		boolean read() {
+			if( position >= size ) return false;
+			int start = position;
+			int delta = data[ position++ ];
+			if( delta != 0 ) line = 0;
+			entryDocument += delta;
+			entryPriority = data[ position++ ];
+			position++;
+			int coordinateCount = data[ position++ ];
+			if( coordinateCount > 0 ) line += data[ position ];
+			entryPosition = coordinateCount < 3 ? -1 : data[ position + coordinateCount - 1 ];
+			position += Math.max( coordinateCount, 0 );
+			entry = (long)line << 32 | start;
+			return true;
+		}
+
+		@Override
+		Hit createHit( int document, long entry ) {
+			int position = (int)entry;
+			int length = data[ position + 2 ];
+			int coordinateCount = data[ position + 3 ];
+			Integer[] coordinates = new Integer[ coordinateCount ];
+			for( int index = 0; index < coordinateCount; index++ ) {
+				coordinates[ index ] = index == 0 ? (int)(entry >>> 32) : data[ position + 4 + index ];
+			}
+			return new Hit()
+				.setDocument( documents.apply( document ) )
+				.setWord( getWord() )
+				.setLength( length )
+				.setCoordinates( List.of( coordinates ) )
+				.setPriority( data[ position + 1 ] );
+		}
+
+	}
+
+	@FunctionalInterface
+	interface Consumer {
+
+		void accept( int document, int priority, int length, List<Integer> coordinates );
+
+	}
+
+}
@@ -0,0 +1,210 @@
+package com.avereon.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Reads the postings of a word one document at a time, in document order,
+ * without creating hits. The word positions of the current document, the
+ * last hit coordinate, are kept sorted by priority from the highest down and
+ * then by position, so the positions of one text are a sorted range. A hit
+ * is only created for a position when it is asked for.
+ * <p>
+ * Only the tag, title and content hits with a word position are read. Hits
+ * without a document and the hits of removed documents are skipped.
+ * <p>
+ * Subclasses decode the postings one entry at a time, in document order.
+ */
+abstract class PostingsCursor {
+
+	/**
+	 * The document after the last document.
+	 */
+	static final int END = Integer.MAX_VALUE;
+
+	private static final int[] PRIORITIES = { Hit.TAG_PRIORITY, Hit.TITLE_PRIORITY, Hit.CONTENT_PRIORITY };
+
+	private final String word;
+
+	private final BitSet deleted;
+
+	private final int cost;
+
+	// The entry read ahead, set by read()
+	int entryDocument;
+
+	int entryPriority;
+
+	int entryPosition;
+
+	long entry;
+
+	private boolean started;
+
+	private boolean more;
+
+	private int document = -1;
+
+	private int size;
+
+	private long[] keys = new long[ 8 ];
+
+	private long[] entries = new long[ 8 ];
+
+	private int[] positions = new int[ 8 ];
+
+	private long[] sorted = new long[ 8 ];
+
+	private final int[] starts = new int[ PRIORITIES.length + 1 ];
+
+	/**
+	 * @param word The word of the postings
+	 * @param deleted The removed documents
+	 * @param cost The number of postings, to read the rarest words first
+	 */
+	PostingsCursor( String word, BitSet deleted, int cost ) {
+		this.word = word;
+		this.deleted = deleted;
+		this.cost = cost;
+	}
+
+	/**
+	 * Read the next entry into the entry fields. The entry handle is passed
+	 * back to {@link #createHit} to create the hit of the entry.
+	 *
+	 * @return False if there are no more entries
+	 */
+	abstract boolean read();
+
+	/**
+	 * Create the hit of an entry.
+	 *
+	 * @param document The document id
+	 * @param entry The entry handle
+	 * @return The hit
+	 */
+	abstract Hit createHit( int document, long entry );
+
+	String getWord() {
+		return word;
+	}
+
+	int getCost() {
+		return cost;
+	}
+
+	/**
+	 * Get the current document, -1 before the first document or {@link #END}
+	 * after the last one.
+	 */
+	int document() {
+		return document;
+	}
+
+	/**
+	 * Move to the first document at or after a target document that has word
+	 * positions.
+	 *
+	 * @param target The target document
+	 * @return The current document, or {@link #END} if there are no more
+	 */
+	int advance( int target ) {
+		if( !started ) {
+			started = true;
+			more = read();
+		}
+		target = Math.max( target, 0 );
+		while( document < target ) {
+			while( more && (entryDocument < target || deleted.get( entryDocument )) ) more = read();
+			if( !more ) return document = END;
+
+			document = entryDocument;
+			size = 0;
+			while( more && entryDocument == document ) {
+				int rank = getRank( entryPriority );
+				if( rank >= 0 && entryPosition >= 0 ) add( rank, entryPosition );
+				more = read();
+			}
+			if( size == 0 ) {
+				target = document + 1;
+			} else {
+				sort();
+			}
+		}
+		return document;
+	}
+
+	/**
+	 * Get the first index of the positions of a priority.
+	 */
+	int start( int rank ) {
+		return starts[ rank ];
+	}
+
+	/**
+	 * Get the index after the positions of a priority.
+	 */
+	int end( int rank ) {
+		return starts[ rank + 1 ];
+	}
+
+	int position( int index ) {
+		return positions[ index ];
+	}
+
+	/**
+	 * Check if the positions of a priority contain a position.
+	 */
+	boolean contains( int rank, int position ) {
+		return Arrays.binarySearch( positions, start( rank ), end( rank ), position ) >= 0;
+	}
+
+	/**
+	 * Create the hit at a position index of the current document.
+	 */
+	Hit getHit( int index ) {
+		return createHit( document, sorted[ index ] );
+	}
+
+	static int getPriorityCount() {
+		return PRIORITIES.length;
+	}
+
+	private static int getRank( int priority ) {
+		for( int rank = 0; rank < PRIORITIES.length; rank++ ) {
+			if( PRIORITIES[ rank ] == priority ) return rank;
+		}
+		return -1;
+	}
+
+	private void add( int rank, int position ) {
+		if( size == keys.length ) {
+			keys = Arrays.copyOf( keys, size * 2 );
+			entries = Arrays.copyOf( entries, size * 2 );
+		}
+		// The rank and position sort together, the low bits keep the entry index
+		keys[ size ] = (long)rank << 61 | (long)position << 29 | size;
+		entries[ size ] = entry;
+		size++;
+	}
+
+	private void sort() {
+		Arrays.sort( keys, 0, size );
+		if( positions.length < size ) {
+			positions = new int[ keys.length ];
+			sorted = new long[ keys.length ];
+		}
+		Arrays.fill( starts, size );
+		for( int index = size - 1; index >= 0; index-- ) {
+			long key = keys[ index ];
+			starts[ (int)(key >>> 61) ] = index;
+			positions[ index ] = (int)(key >>> 29) & Integer.MAX_VALUE;
+			sorted[ index ] = entries[ (int)(key & ((1 << 29) - 1)) ];
+		}
+		// A priority without positions starts where the next one does
+		for( int rank = PRIORITIES.length - 1; rank >= 0; rank-- ) {
+			starts[ rank ] = Math.min( starts[ rank ], starts[ rank + 1 ] );
+		}
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.avereon.index;
+
+/**
+ * An index that reads the postings of a word with a cursor instead of
+ * creating a hit for each posting. The document ids of the cursors are only
+ * comparable between the cursors of the same index.
+ */
+interface PostingsSource {
+
+	/**
+	 * Get a cursor over the postings of a word.
+	 *
+	 * @param word The word
+	 * @return The cursor, or null if the index does not have the word
+	 */
+	PostingsCursor getPostingsCursor( String word );
+
+}
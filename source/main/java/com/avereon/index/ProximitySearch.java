@@ -0,0 +1,265 @@
+package com.avereon.index;
+
+import com.avereon.result.Result;
+import lombok.EqualsAndHashCode;
+
+import java.util.*;
+
+/**
+ * The proximity search implementation finds documents that have the query
+ * terms close together, using the word position of each hit, the last hit
+ * coordinate. There are two kinds of proximity:
+ * <ul>
+ *   <li>A phrase, the query terms next to each other in query order, or as
+ *   far apart as in the query text when the analyzer dropped words between
+ *   them</li>
+ *   <li>Near, the query terms in any order with at most a distance of words
+ *   from the first to the last term</li>
+ * </ul>
+ * The terms must be in the same text of a document, the tags, the title or
+ * the content. Hits indexed without a word position are not matched.
+ * <p>
+ * The postings of the terms are read with cursors in document order, see
+ * {@link PostingsCursor}. The rarest term leads and the other terms skip
+ * ahead to its documents, and the positions are only compared in the
+ * documents with all the terms. Each part of an index, like the segments of
+ * a {@link SegmentedIndex}, is searched on its own since it numbers its
+ * documents separately. One hit is created for each matching document, with
+ * the number of matches as points.
+ */
+@EqualsAndHashCode
+public class ProximitySearch implements Search {
+
+	private final int distance;
+
+	private final boolean ordered;
+
+	/**
+	 * Create a phrase search.
+	 */
+	public ProximitySearch() {
+		this.distance = 0;
+		this.ordered = true;
+	}
+
+	/**
+	 * Create a near search.
+	 *
+	 * @param distance The maximum number of words from the first to the last
+	 * term of a match
+	 */
+	public ProximitySearch( int distance ) {
+		this.distance = Math.max( 0, distance );
+		this.ordered = false;
+	}
+
+	@Override
+	public Result<List<Hit>> search( Index index, IndexQuery query ) {
+		List<String> terms = ordered ? query.terms() : List.copyOf( new LinkedHashSet<>( query.terms() ) );
+		if( terms.isEmpty() ) return Result.of( List.of() );
+
+		List<Hit> hits = new ArrayList<>();
+		int[] offsets = new int[ terms.size() ];
+		for( int term = 0; term < offsets.length; term++ ) {
+			offsets[ term ] = ordered ? query.offset( term ) : term;
+		}
+		for( Index part : getParts( index, new ArrayList<>() ) ) {
+			search( part, terms, offsets, hits );
+		}
+		hits.sort( new HitSort() );
+		return Result.of( hits );
+	}
+
+	/**
+	 * Search one index part, where the documents of the terms have comparable
+	 * ids.
+	 */
+	private void search( Index part, List<String> terms, int[] offsets, List<Hit> hits ) {
+		Map<Document, Integer> documentIds = new IdentityHashMap<>();
+		Map<String, PostingsCursor> cursors = new HashMap<>();
+		for( String term : terms ) {
+			if( cursors.containsKey( term ) ) continue;
+			PostingsCursor cursor = part instanceof PostingsSource source ? source.getPostingsCursor( term ) : new HitCursor( term, part.getHits( term ), documentIds );
+			if( cursor == null ) return;
+			cursors.put( term, cursor );
+		}
+		List<PostingsCursor> termCursors = terms.stream().map( cursors::get ).toList();
+
+		// The rarest term leads, the other terms only catch up with it
+		List<PostingsCursor> rarest = new ArrayList<>( cursors.values() );
+		rarest.sort( Comparator.comparingInt( PostingsCursor::getCost ) );
+		PostingsCursor lead = rarest.getFirst();
+		int document = lead.advance( 0 );
+		while( document != PostingsCursor.END ) {
+			int next = document;
+			for( int term = 1; term < rarest.size() && next == document; term++ ) {
+				next = rarest.get( term ).advance( document );
+			}
+			if( next == document ) {
+				Hit hit = match( termCursors, offsets );
+				if( hit != null ) hits.add( hit );
+				next = document + 1;
+			}
+			document = next == PostingsCursor.END ? next : lead.advance( next );
+		}
+	}
+
+	/**
+	 * Match the positions of the terms in the current document, trying the
+	 * texts from the highest priority down.
+	 *
+	 * @return The hit of the best match, with the number of matches as points,
+	 * or null if the terms do not match
+	 */
+	private Hit match( List<PostingsCursor> terms, int[] offsets ) {
+		Hit best = null;
+		int matches = 0;
+		for( int rank = 0; rank < PostingsCursor.getPriorityCount(); rank++ ) {
+			int text = rank;
+			if( terms.stream().anyMatch( t -> t.start( text ) == t.end( text ) ) ) continue;
+
+			Match match = ordered ? matchPhrase( terms, offsets, rank ) : matchNear( terms, rank );
+			if( match.count() == 0 ) continue;
+			if( best == null ) best = match.cursor().getHit( match.index() );
+			matches += match.count();
+		}
+		return best == null ? null : best.setPoints( matches );
+	}
+
+	/**
+	 * Count the positions of the first term that have each other term at its
+	 * offset from the first term in the query.
+	 */
+	private Match matchPhrase( List<PostingsCursor> terms, int[] offsets, int rank ) {
+		PostingsCursor first = terms.getFirst();
+		int found = -1;
+		int count = 0;
+		for( int index = first.start( rank ); index < first.end( rank ); index++ ) {
+			int position = first.position( index );
+			boolean match = true;
+			for( int term = 1; term < terms.size() && match; term++ ) {
+				match = terms.get( term ).contains( rank, position + offsets[ term ] );
+			}
+			if( !match ) continue;
+			if( found < 0 ) found = index;
+			count++;
+		}
+		return new Match( first, found, count );
+	}
+
+	/**
+	 * Slide a window over the positions of all the terms in position order,
+	 * counting the window ends that have every term within the distance.
+	 */
+	private Match matchNear( List<PostingsCursor> terms, int rank ) {
+		// Merge the sorted positions of the terms
+		int[] next = new int[ terms.size() ];
+		int total = 0;
+		for( int term = 0; term < terms.size(); term++ ) {
+			next[ term ] = terms.get( term ).start( rank );
+			total += terms.get( term ).end( rank ) - next[ term ];
+		}
+		int[] positions = new int[ total ];
+		int[] owners = new int[ total ];
+		int[] indexes = new int[ total ];
+		for( int merged = 0; merged < total; merged++ ) {
+			int owner = -1;
+			for( int term = 0; term < terms.size(); term++ ) {
+				PostingsCursor cursor = terms.get( term );
+				if( next[ term ] == cursor.end( rank ) ) continue;
+				if( owner < 0 || cursor.position( next[ term ] ) < positions[ merged ] ) {
+					owner = term;
+					positions[ merged ] = cursor.position( next[ term ] );
+				}
+			}
+			owners[ merged ] = owner;
+			indexes[ merged ] = next[ owner ]++;
+		}
+
+		int[] counts = new int[ terms.size() ];
+		int covered = 0;
+		int left = 0;
+		int found = -1;
+		int count = 0;
+		for( int right = 0; right < total; right++ ) {
+			if( counts[ owners[ right ] ]++ == 0 ) covered++;
+
+			boolean match = false;
+			while( covered == terms.size() ) {
+				if( positions[ right ] - positions[ left ] <= distance ) {
+					if( found < 0 ) found = left;
+					match = true;
+				}
+				if( --counts[ owners[ left ] ] == 0 ) covered--;
+				left++;
+			}
+			if( match ) count++;
+		}
+		return found < 0 ? new Match( null, -1, 0 ) : new Match( terms.get( owners[ found ] ), indexes[ found ], count );
+	}
+
+	/**
+	 * Collect the parts of an index that number their documents separately.
+	 */
+	private static List<Index> getParts( Index index, List<Index> parts ) {
+		if( index instanceof SegmentedIndex segmented ) return getParts( segmented.getParts(), parts );
+		if( index instanceof IndexUnion union ) {
+			union.getIndexes().forEach( i -> getParts( i, parts ) );
+		} else {
+			parts.add( index );
+		}
+		return parts;
+	}
+
+	private static int getPosition( Hit hit ) {
+		List<Integer> coordinates = hit.getCoordinates();
+		if( coordinates == null || coordinates.size() < 3 ) return -1;
+		return coordinates.getLast();
+	}
+
+	/**
+	 * A cursor over the hits of a term, for indexes that do not read their
+	 * postings with a cursor. The documents are numbered in the order they are
+	 * first seen in the part.
+	 */
+	private static final class HitCursor extends PostingsCursor {
+
+		private final List<Hit> hits;
+
+		private final int[] documents;
+
+		private int index;
+
+		private HitCursor( String word, Set<Hit> hits, Map<Document, Integer> documentIds ) {
+			super( word, new BitSet(), hits.size() );
+			Map<Hit, Integer> ids = new HashMap<>();
+			for( Hit hit : hits ) {
+				Document document = hit.getDocument();
+				ids.put( hit, document == null ? -1 : documentIds.computeIfAbsent( document, d -> documentIds.size() ) );
+			}
+			this.hits = new ArrayList<>( hits );
+			this.hits.sort( Comparator.comparingInt( ids::get ) );
+			this.documents = this.hits.stream().mapToInt( ids::get ).toArray();
+		}
+
+		@Override
+		boolean read() {
+			if( index == hits.size() ) return false;
+			Hit hit = hits.get( index );
+			entryDocument = documents[ index ];
+			entryPriority = hit.getPriority();
+			entryPosition = getPosition( hit );
+			entry = index++;
+			return true;
+		}
+
+		@Override
+		Hit createHit( int document, long entry ) {
+			return hits.get( (int)entry );
+		}
+
+	}
+
+	private record Match(PostingsCursor cursor, int index, int count) {}
+
+}
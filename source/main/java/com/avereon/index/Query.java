@@ -0,0 +1,95 @@
+package com.avereon.index;
+
+import java.util.List;
+
+/**
+ * A boolean query over the words of an index. Words can be scoped to a field,
+ * one of the hit priorities, and combined with and, or and not. Queries are
+ * usually parsed from text, see {@link #parse(String)}.
+ */
+public sealed interface Query permits Query.Word, Query.And, Query.Or, Query.Not {
+
+	/**
+	 * The priority of a word that matches hits of any priority.
+	 */
+	int ANY_PRIORITY = -1;
+
+	/**
+	 * Parse a query expression. The expression is made of:
+	 * <ul>
+	 *   <li>Words, optionally scoped with a field prefix, {@code tag:},
+	 *   {@code title:} or {@code content:}. A word with more than one indexed
+	 *   word, like {@code well-known}, matches all its words</li>
+	 *   <li>{@code AND}, {@code OR} and {@code NOT}, in any case. Words next to
+	 *   each other are combined with and, and a leading {@code -} is the same
+	 *   as {@code NOT}</li>
+	 *   <li>Parentheses to group parts of the expression</li>
+	 * </ul>
+	 * Not binds tighter than and, which binds tighter than or.
+	 *
+	 * @param expression The query expression
+	 * @return The query
+	 * @throws IllegalArgumentException If the expression is not a valid query
+	 */
+	static Query parse( String expression ) {
+		return parse( expression, Analyzer.NONE );
+	}
+
+	/**
+	 * Parse a query expression, analyzing the words the same way the indexed
+	 * words were analyzed. Parts of the expression where all the words are
+	 * dropped, like stop words, are left out.
+	 *
+	 * @param expression The query expression
+	 * @param analyzer The analyzer of the indexed words
+	 * @return The query
+	 * @throws IllegalArgumentException If the expression is not a valid query
+	 * or has no words left to search
+	 */
+	static Query parse( String expression, Analyzer analyzer ) {
+		return new QueryParser( expression, analyzer ).parse();
+	}
+
+	/**
+	 * Match the documents with hits for a word.
+	 *
+	 * @param word The word, as indexed
+	 * @param priority The priority of the hits, or {@link #ANY_PRIORITY}
+	 */
+	record Word(String word, int priority) implements Query {
+
+		public Word( String word ) {
+			this( word, ANY_PRIORITY );
+		}
+
+	}
+
+	/**
+	 * Match the documents that match all the queries.
+	 */
+	record And(List<Query> queries) implements Query {
+
+		public And {
+			queries = List.copyOf( queries );
+		}
+
+	}
+
+	/**
+	 * Match the documents that match any of the queries.
+	 */
+	record Or(List<Query> queries) implements Query {
+
+		public Or {
+			queries = List.copyOf( queries );
+		}
+
+	}
+
+	/**
+	 * Exclude the documents that match a query. A not query can only be part
+	 * of an and query with a query that is not negated.
+	 */
+	record Not(Query query) implements Query {}
+
+}
@@ -0,0 +1,149 @@
+package com.avereon.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * A recursive descent parser for query expressions, see
+ * {@link Query#parse(String)}.
+ */
+final class QueryParser {
+
+	private final String expression;
+
+	private final Analyzer analyzer;
+
+	private final List<String> tokens;
+
+	private int index;
+
+	QueryParser( String expression, Analyzer analyzer ) {
+		this.expression = expression;
+		this.analyzer = analyzer;
+		this.tokens = tokenize( expression == null ? "" : expression );
+	}
+
+	Query parse() {
+		if( tokens.isEmpty() ) throw error( "Empty query" );
+		Query query = parseOr();
+		if( index < tokens.size() ) throw error( "Unexpected " + tokens.get( index ) );
+		if( query == null ) throw error( "No words to search" );
+		return query;
+	}
+
+	/*
+	 * The parse methods return null for parts where the analyzer dropped all
+	 * the words, and those parts are left out of the query.
+	 */
+
+	private Query parseOr() {
+		List<Query> queries = new ArrayList<>();
+		add( queries, parseAnd() );
+		while( isOperator( "or" ) ) {
+			index++;
+			add( queries, parseAnd() );
+		}
+		return combine( queries, Query.Or::new );
+	}
+
+	private Query parseAnd() {
+		List<Query> queries = new ArrayList<>();
+		add( queries, parseUnary() );
+		while( index < tokens.size() && !isOperator( "or" ) && !")".equals( tokens.get( index ) ) ) {
+			if( isOperator( "and" ) ) index++;
+			add( queries, parseUnary() );
+		}
+		return combine( queries, Query.And::new );
+	}
+
+	private Query parseUnary() {
+		if( index >= tokens.size() ) throw error( "Missing word at end" );
+		String token = tokens.get( index );
+		if( isOperator( "not" ) || "-".equals( token ) ) {
+			index++;
+			Query query = parseUnary();
+			return query == null ? null : new Query.Not( query );
+		}
+		if( "(".equals( token ) ) {
+			index++;
+			Query query = parseOr();
+			if( index >= tokens.size() || !")".equals( tokens.get( index ) ) ) throw error( "Missing )" );
+			index++;
+			return query;
+		}
+		if( ")".equals( token ) || isOperator( "and" ) || isOperator( "or" ) ) throw error( "Unexpected " + token );
+		index++;
+		return parseWord( token );
+	}
+
+	private Query parseWord( String token ) {
+		int priority = Query.ANY_PRIORITY;
+		int colon = token.indexOf( ':' );
+		if( colon > 0 ) {
+			priority = switch( token.substring( 0, colon ).toLowerCase( Locale.ROOT ) ) {
+				case "tag" -> Hit.TAG_PRIORITY;
+				case "title" -> Hit.TITLE_PRIORITY;
+				case "content" -> Hit.CONTENT_PRIORITY;
+				default -> Query.ANY_PRIORITY;
+			};
+			if( priority != Query.ANY_PRIORITY ) token = token.substring( colon + 1 );
+		}
+
+		// Split the token the same way the text is indexed
+		List<Query> words = new ArrayList<>();
+		for( String word : Terms.split( token ) ) {
+			String analyzed = analyzer.analyze( fold( word ) );
+			if( analyzed != null ) words.add( new Query.Word( analyzed, priority ) );
+		}
+		return combine( words, Query.And::new );
+	}
+
+	private static void add( List<Query> queries, Query query ) {
+		if( query != null ) queries.add( query );
+	}
+
+	private static Query combine( List<Query> queries, Function<List<Query>, Query> combiner ) {
+		if( queries.isEmpty() ) return null;
+		return queries.size() == 1 ? queries.getFirst() : combiner.apply( queries );
+	}
+
+	private boolean isOperator( String operator ) {
+		return index < tokens.size() && tokens.get( index ).equalsIgnoreCase( operator );
+	}
+
+	private IllegalArgumentException error( String message ) {
+		return new IllegalArgumentException( message + ": " + expression );
+	}
+
+	private static String fold( String word ) {
+		StringBuilder folded = new StringBuilder( word.length() );
+		word.codePoints().forEach( p -> folded.appendCodePoint( TextTokenizer.fold( p ) ) );
+		return folded.toString();
+	}
+
+	/**
+	 * Split an expression into words, parentheses and leading minus signs.
+	 */
+	private static List<String> tokenize( String expression ) {
+		List<String> tokens = new ArrayList<>();
+		StringBuilder token = new StringBuilder();
+		for( int index = 0; index < expression.length(); index++ ) {
+			char c = expression.charAt( index );
+			if( Character.isWhitespace( c ) || c == '(' || c == ')' ) {
+				if( !token.isEmpty() ) tokens.add( token.toString() );
+				token.setLength( 0 );
+				if( c != '(' && c != ')' ) continue;
+				tokens.add( String.valueOf( c ) );
+			} else if( c == '-' && token.isEmpty() ) {
+				tokens.add( "-" );
+			} else {
+				token.append( c );
+			}
+		}
+		if( !token.isEmpty() ) tokens.add( token.toString() );
+		return tokens;
+	}
+
+}
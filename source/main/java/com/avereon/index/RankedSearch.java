@@ -0,0 +1,147 @@
+package com.avereon.index;
+
+import com.avereon.result.Result;
+import lombok.EqualsAndHashCode;
+
+import java.util.*;
+
+/**
+ * The ranked search implementation scores documents with the Okapi BM25
+ * ranking function and returns the best documents, one hit per document. Any
+ * of the query terms can match a document, and documents that match more or
+ * rarer terms rank higher.
+ * <p>
+ * The term frequency counts tag and title hits more than content hits. The
+ * document frequencies and lengths come from the statistics the index keeps
+ * as hits are added. The best documents are collected in a heap bounded by
+ * the result limit, so the documents are never all sorted.
+ */
+@EqualsAndHashCode
+public class RankedSearch implements Search {
+
+	public static final int DEFAULT_LIMIT = 100;
+
+	/**
+	 * The term frequency saturation. Higher values let repeated terms add more
+	 * to the score.
+	 */
+	private static final double K1 = 1.2;
+
+	/**
+	 * The document length normalization, from none at zero to full at one.
+	 */
+	private static final double B = 0.75;
+
+	private static final double CONTENT_BOOST = 1.0;
+
+	private static final double TITLE_BOOST = 2.0;
+
+	private static final double TAG_BOOST = 3.0;
+
+	private static final Comparator<Match> ORDER = Comparator.comparingDouble( Match::getScore ).thenComparing( Match::getTitle, Comparator.reverseOrder() );
+
+	private final int limit;
+
+	public RankedSearch() {
+		this( DEFAULT_LIMIT );
+	}
+
+	public RankedSearch( int limit ) {
+		this.limit = limit;
+	}
+
+	@Override
+	public Result<List<Hit>> search( Index index, IndexQuery query ) {
+		int documentCount = index.getDocumentCount();
+		if( documentCount == 0 || limit < 1 ) return Result.of( List.of() );
+		double averageLength = Math.max( 1.0, (double)index.getHitCount() / documentCount );
+
+		// Documents are compared by identity, document equality compares content
+		Map<Document, Match> matches = new IdentityHashMap<>();
+		for( String term : new LinkedHashSet<>( query.terms() ) ) {
+			Set<Hit> hits = index.getHits( term );
+			if( hits.isEmpty() ) continue;
+
+			int frequency = Math.max( 1, index.getDocumentFrequency( term ) );
+			double idf = Math.log( 1 + (documentCount - frequency + 0.5) / (frequency + 0.5) );
+
+			Map<Document, Match> termMatches = new IdentityHashMap<>();
+			for( Hit hit : hits ) {
+				if( hit.getDocument() == null ) continue;
+				termMatches.computeIfAbsent( hit.getDocument(), Match::new ).add( hit );
+			}
+
+			termMatches.forEach( ( document, termMatch ) -> {
+				double length = Math.max( 1, index.getDocumentLength( document ) );
+				double tf = termMatch.frequency;
+				double score = idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+				matches.computeIfAbsent( document, Match::new ).addTerm( termMatch, score );
+			} );
+		}
+
+		// Keep the best documents in a heap with the worst of them at the top
+		PriorityQueue<Match> best = new PriorityQueue<>( Math.min( limit, Math.max( 1, matches.size() ) ), ORDER );
+		for( Match match : matches.values() ) {
+			if( best.size() < limit ) {
+				best.add( match );
+			} else if( ORDER.compare( match, best.peek() ) > 0 ) {
+				best.poll();
+				best.add( match );
+			}
+		}
+
+		List<Hit> hits = new ArrayList<>( best.size() );
+		while( !best.isEmpty() ) {
+			Match match = best.poll();
+			hits.add( match.hit.setPoints( (int)Math.round( match.score * 100 ) ) );
+		}
+		Collections.reverse( hits );
+		return Result.of( hits );
+	}
+
+	private static double getBoost( int priority ) {
+		return switch( priority ) {
+			case Hit.TAG_PRIORITY -> TAG_BOOST;
+			case Hit.TITLE_PRIORITY -> TITLE_BOOST;
+			default -> CONTENT_BOOST;
+		};
+	}
+
+	/**
+	 * The hits of a document, with the hit to return for the document.
+	 */
+	private static final class Match {
+
+		private final Document document;
+
+		private Hit hit;
+
+		private double frequency;
+
+		private double score;
+
+		private Match( Document document ) {
+			this.document = document;
+		}
+
+		private void add( Hit hit ) {
+			frequency += getBoost( hit.getPriority() );
+			if( this.hit == null || getBoost( hit.getPriority() ) > getBoost( this.hit.getPriority() ) ) this.hit = hit;
+		}
+
+		private void addTerm( Match termMatch, double score ) {
+			if( hit == null || getBoost( termMatch.hit.getPriority() ) > getBoost( hit.getPriority() ) ) hit = termMatch.hit;
+			this.score += score;
+		}
+
+		private double getScore() {
+			return score;
+		}
+
+		private String getTitle() {
+			return document.title() == null ? "" : document.title();
+		}
+
+	}
+
+}
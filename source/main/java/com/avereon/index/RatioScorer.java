@@ -0,0 +1,139 @@
+package com.avereon.index;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Scores how close words are to a term with the same percent ratio as
+ * {@code me.xdrop.fuzzywuzzy.FuzzySearch.ratio}. The ratio counts the
+ * characters the strings have in common, twice the length of the longest
+ * common subsequence, over the total length of both strings.
+ * <p>
+ * The longest common subsequence is computed with the bit-parallel algorithm
+ * of Allison-Dix and Hyyrö. Each character of the term is a bit, and each
+ * character of a word updates the bits with a few word operations, 64 term
+ * characters at a time. The character masks of the term are built once and
+ * the bit vector is reused for every word, so scoring does not allocate.
+ * <p>
+ * Scoring against a cutoff stops early: a word is rejected on the lengths
+ * alone when the shorter string can not have enough characters in common, and
+ * while scanning a word when the characters left can not reach the cutoff.
+ * <p>
+ * A scorer is not thread safe, use one scorer for each thread.
+ */
+final class RatioScorer {
+
+	// The characters with masks in the table instead of the map
+	private static final int TABLE_SIZE = 256;
+
+	private final int length;
+
+	private final int blocks;
+
+	private final long[] table;
+
+	private final Map<Character, long[]> masks;
+
+	private final long[] vector;
+
+	private final long lastBlockMask;
+
+	RatioScorer( String term ) {
+		this.length = term.length();
+		this.blocks = Math.max( 1, (length + 63) >>> 6 );
+		this.table = new long[ TABLE_SIZE * blocks ];
+		this.masks = new HashMap<>();
+		this.vector = new long[ blocks ];
+		this.lastBlockMask = length % 64 == 0 ? -1L : (1L << (length % 64)) - 1;
+
+		for( int index = 0; index < length; index++ ) {
+			char c = term.charAt( index );
+			long bit = 1L << index;
+			if( c < TABLE_SIZE ) {
+				table[ c * blocks + (index >>> 6) ] |= bit;
+			} else {
+				masks.computeIfAbsent( c, k -> new long[ blocks ] )[ index >>> 6 ] |= bit;
+			}
+		}
+	}
+
+	/**
+	 * Get the exact ratio of the term and a word.
+	 *
+	 * @param word The word
+	 * @return The percent ratio (0-100)
+	 */
+	int score( String word ) {
+		return score( word, 0 );
+	}
+
+	/**
+	 * Get the ratio of the term and a word, if it reaches a cutoff.
+	 *
+	 * @param word The word
+	 * @param cutoff The minimum ratio
+	 * @return The percent ratio (0-100), or -1 if it is less than the cutoff
+	 */
+	int score( String word, int cutoff ) {
+		int wordLength = word.length();
+		int total = length + wordLength;
+		int shortest = Math.min( length, wordLength );
+
+		// The least number of common characters to reach the cutoff
+		int required = Math.max( 0, (int)Math.ceil( (cutoff - 0.5) * total / 200.0 ) - 1 );
+		while( required <= shortest && ratio( required, total ) < cutoff ) required++;
+		if( required > shortest ) return -1;
+		if( length == 0 ) return ratio( 0, total );
+
+		Arrays.fill( vector, -1L );
+		for( int index = 0; index < wordLength; index++ ) {
+			char c = word.charAt( index );
+			long[] mask = table;
+			int offset = c * blocks;
+			if( c >= TABLE_SIZE ) {
+				mask = masks.get( c );
+				offset = 0;
+			}
+
+			if( mask != null ) {
+				long carry = 0;
+				for( int block = 0; block < blocks; block++ ) {
+					long v = vector[ block ];
+					long u = v & mask[ offset + block ];
+					long sum = v + u + carry;
+					carry = Long.compareUnsigned( sum, v ) < 0 || (carry != 0 && sum == v) ? 1 : 0;
+					vector[ block ] = sum | (v - u);
+				}
+			}
+
+			// Stop when even matching every character left is not enough
+			int left = wordLength - index - 1;
+			if( left < required && common() + left < required ) return -1;
+		}
+
+		return ratio( common(), total );
+	}
+
+	/**
+	 * Get the length of the longest common subsequence so far, the number of
+	 * cleared bits in the vector.
+	 */
+	private int common() {
+		int set = 0;
+		for( int block = 0; block < blocks - 1; block++ ) {
+			set += Long.bitCount( vector[ block ] );
+		}
+		set += Long.bitCount( vector[ blocks - 1 ] & lastBlockMask );
+		return length - set;
+	}
+
+	/**
+	 * Compute the ratio the same way as fuzzywuzzy, including the rounding.
+	 */
+	private static int ratio( int common, int total ) {
+		if( total == 0 ) return 100;
+		return (int)Math.round( 100 * ((double)(2 * common) / total) );
+	}
+
+}
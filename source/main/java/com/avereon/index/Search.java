@@ -8,4 +8,17 @@ public interface Search {
 
 	Result<List<Hit>> search( Index index, IndexQuery query );
 
+	/**
+	 * Search an index that was indexed with an analyzer. The query words are
+	 * analyzed the same way before searching.
+	 *
+	 * @param index The index
+	 * @param query The query
+	 * @param analyzer The analyzer the index was indexed with
+	 * @return The hits
+	 */
+	default Result<List<Hit>> search( Index index, IndexQuery query, Analyzer analyzer ) {
+		return search( index, analyzer.analyze( query ) );
+	}
+
 }
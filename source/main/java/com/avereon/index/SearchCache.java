@@ -0,0 +1,191 @@
+package com.avereon.index;
+
+import com.avereon.result.Result;
+
+import java.util.*;
+
+/**
+ * A bounded cache of search results, for queries that are searched again and
+ * again. The results are keyed by the index, the search and the normalized
+ * query terms, and the least recently used results are evicted when the cache
+ * is full.
+ * <p>
+ * Each result is stored with the {@link Index#getVersion() version} of the
+ * index it was computed from, and is only used while the index has the same
+ * version, so adding hits or removing documents invalidates the results of
+ * the index. Indexes that do not track their version are not cached.
+ * <p>
+ * Searches are compared with equals, so equal searches share results. The
+ * cached hit lists are shared by the callers and cannot be modified.
+ */
+public class SearchCache {
+
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private final int capacity;
+
+	private final Map<Key, Entry> entries;
+
+	private long hitCount;
+
+	private long missCount;
+
+	private long evictionCount;
+
+	public SearchCache() {
+		this( DEFAULT_CAPACITY );
+	}
+
+	public SearchCache( int capacity ) {
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<>( 16, 0.75f, true ) {
+
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<Key, Entry> eldest ) {
+				if( size() <= SearchCache.this.capacity ) return false;
+				evictionCount++;
+				return true;
+			}
+
+		};
+	}
+
+	/**
+	 * Get a search that uses this cache for the results of another search.
+	 *
+	 * @param search The search to cache
+	 * @return The caching search
+	 */
+	public Search of( Search search ) {
+		return ( index, query ) -> search( search, index, query );
+	}
+
+	/**
+	 * Search an index, using the cached result if the index has not changed
+	 * since the query was last searched. Failed results are not cached.
+	 *
+	 * @param search The search
+	 * @param index The index
+	 * @param query The query
+	 * @return The hits
+	 */
+	public Result<List<Hit>> search( Search search, Index index, IndexQuery query ) {
+		long version = index.getVersion();
+		IndexQuery normalized = normalize( query );
+		if( version < 0 || capacity < 1 ) return search.search( index, normalized );
+
+		Key key = new Key( index, search, normalized.terms() );
+		synchronized( this ) {
+			Entry entry = entries.get( key );
+			if( entry != null && entry.version() == version ) {
+				hitCount++;
+				return Result.of( entry.hits() );
+			}
+			missCount++;
+		}
+
+		// The search runs outside the lock, so concurrent misses of the same
+		// query may both search
+		Result<List<Hit>> result = search.search( index, normalized );
+		if( result.isFailed() ) return result;
+
+		List<Hit> hits = Collections.unmodifiableList( new ArrayList<>( result.orElse( List.of() ) ) );
+		synchronized( this ) {
+			Entry entry = entries.get( key );
+			if( entry == null || entry.version() <= version ) entries.put( key, new Entry( version, hits ) );
+		}
+		return Result.of( hits );
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get the number of searches answered from the cache.
+	 *
+	 * @return The number of cache hits
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Get the number of searches not answered from the cache, because the
+	 * query was not cached or the index changed.
+	 *
+	 * @return The number of cache misses
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Get the number of results removed to make room for newer results.
+	 *
+	 * @return The number of evictions
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * Get the fraction of cacheable searches answered from the cache.
+	 *
+	 * @return The hit rate, from zero to one
+	 */
+	public synchronized double getHitRate() {
+		long requests = hitCount + missCount;
+		return requests == 0 ? 0 : (double)hitCount / requests;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "{size=" + entries.size() + " hits=" + hitCount + " misses=" + missCount + " evictions=" + evictionCount + "}";
+	}
+
+	/**
+	 * Normalize the query terms the same way words are indexed. The terms are
+	 * trimmed and case folded, and empty terms are dropped. Repeated terms are
+	 * kept, since phrases and query expressions depend on them.
+	 */
+	static IndexQuery normalize( IndexQuery query ) {
+		List<String> terms = new ArrayList<>();
+		for( String term : query.terms() ) {
+			String trimmed = term.trim();
+			if( trimmed.isEmpty() ) continue;
+			StringBuilder word = new StringBuilder( trimmed.length() );
+			trimmed.codePoints().forEach( p -> word.appendCodePoint( TextTokenizer.fold( p ) ) );
+			terms.add( word.toString() );
+		}
+		return IndexQuery.builder().terms( terms ).build();
+	}
+
+	/**
+	 * The index is compared by identity, index equality compares the hits.
+	 */
+	private record Key(Index index, Search search, List<String> terms) {
+
+		@Override
+		public boolean equals( Object object ) {
+			return object instanceof Key that && index == that.index && search.equals( that.search ) && terms.equals( that.terms );
+		}
+
+		@Override
+		public int hashCode() {
+			return (System.identityHashCode( index ) * 31 + search.hashCode()) * 31 + terms.hashCode();
+		}
+
+	}
+
+	private record Entry(long version, List<Hit> hits) {}
+
+}
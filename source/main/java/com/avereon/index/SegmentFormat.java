@@ -0,0 +1,267 @@
+package com.avereon.index;
+
+import lombok.CustomLog;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * The constants and encoding helpers of the index segment file format. A
+ * segment file has these sections:
+ * <ul>
+ *   <li>The header, with the section offsets and counts and the total hit
+ *   count</li>
+ *   <li>The replaced generations, the generations of the segments a merged
+ *   segment replaces</li>
+ *   <li>The document table, an offset and the hit count for each document,
+ *   and the document records</li>
+ *   <li>The term dictionary, a fixed size entry for each term, sorted by the
+ *   UTF-8 bytes of the term, with the term offset, the postings offset, the
+ *   hit count and the document count</li>
+ *   <li>The term strings</li>
+ *   <li>The postings, the hits for each term ordered by document id</li>
+ * </ul>
+ * The header comes first and the other sections are found by their offsets,
+ * so they can be in any order. The writer streams the postings first.
+ * Numbers in records are unsigned variable length integers, seven bits per
+ * byte. Strings are the UTF-8 length plus one, zero for null, followed by the
+ * UTF-8 bytes. Lists are written the same way, the size plus one followed by
+ * the items.
+ * <p>
+ * The documents of a segment that have been removed are listed in a tombstone
+ * file next to the segment file, as the bytes of a bit set of document ids.
+ * Segment files are never changed, the tombstone file is replaced instead.
+ * <p>
+ * A merged segment is committed before the segments it replaces are deleted.
+ * If they are still there when the folder is opened again, after a crash or
+ * a failed delete, the replaced generations of the merged segment tell which
+ * segments to skip.
+ * <p>
+ * The segments of an index folder share a {@link DocumentStore} in the
+ * folder. A document record refers to content in that store by the store
+ * entry id plus one, or zero when the content is in the record, so the
+ * content is not copied into each segment and is read from the store mapping
+ * when it is needed. The entry id is followed by the offset and the checksum
+ * of the entry, and a segment only uses the entry when the store still has
+ * it. The store is forced to disk before a segment that refers to it is
+ * committed.
+ */
+@CustomLog
+final class SegmentFormat {
+
+	static final int MAGIC = 0x5A494458;
+
+	static final int VERSION = 6;
+
+	static final String EXTENSION = ".seg";
+
+	static final String TOMBSTONE_EXTENSION = ".del";
+
+	static final String STORE_FILE_NAME = "content.store";
+
+	static final int HEADER_SIZE = 64;
+
+	static final int DOCUMENT_ENTRY_SIZE = 2 * Integer.BYTES;
+
+	static final int DICTIONARY_ENTRY_SIZE = 4 * Integer.BYTES;
+
+	private SegmentFormat() {}
+
+	static String getFileName( long generation ) {
+		return String.format( "%016x", generation ) + EXTENSION;
+	}
+
+	static String getTombstoneFileName( long generation ) {
+		return String.format( "%016x", generation ) + TOMBSTONE_EXTENSION;
+	}
+
+	static long getGeneration( String fileName ) {
+		return Long.parseLong( fileName.substring( 0, fileName.length() - EXTENSION.length() ), 16 );
+	}
+
+	/**
+	 * Replace a file with a temporary file. The temporary file is forced to
+	 * disk before it is moved, so after a crash the file is either the old or
+	 * the new file, never a partial one.
+	 *
+	 * @param temp The temporary file
+	 * @param path The file to replace
+	 * @throws IOException If the file cannot be forced or moved
+	 */
+	static void commit( Path temp, Path path ) throws IOException {
+		try( FileChannel channel = FileChannel.open( temp, StandardOpenOption.WRITE ) ) {
+			channel.force( true );
+		}
+		Files.move( temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+
+		// Force the folder so the move is durable, where folders can be opened
+		Path folder = path.toAbsolutePath().getParent();
+		try( FileChannel channel = FileChannel.open( folder, StandardOpenOption.READ ) ) {
+			channel.force( true );
+		} catch( IOException exception ) {
+			// Some platforms, like Windows, cannot open folders
+		}
+	}
+
+	static byte[] toBytes( String value ) {
+		return value.getBytes( StandardCharsets.UTF_8 );
+	}
+
+	static void writeVarInt( DataOutputStream output, int value ) throws IOException {
+		while( (value & ~0x7f) != 0 ) {
+			output.writeByte( (value & 0x7f) | 0x80 );
+			value >>>= 7;
+		}
+		output.writeByte( value );
+	}
+
+	static int readVarInt( ByteBuffer buffer ) {
+		int value = 0;
+		int shift = 0;
+		int next;
+		do {
+			next = buffer.get() & 0xff;
+			value |= (next & 0x7f) << shift;
+			shift += 7;
+		} while( (next & 0x80) != 0 );
+		return value;
+	}
+
+	static void writeString( DataOutputStream output, String value ) throws IOException {
+		if( value == null ) {
+			writeVarInt( output, 0 );
+			return;
+		}
+		byte[] bytes = toBytes( value );
+		writeVarInt( output, bytes.length + 1 );
+		output.write( bytes );
+	}
+
+	static String readString( ByteBuffer buffer ) {
+		int length = readVarInt( buffer ) - 1;
+		if( length < 0 ) return null;
+		byte[] bytes = new byte[ length ];
+		buffer.get( bytes );
+		return new String( bytes, StandardCharsets.UTF_8 );
+	}
+
+	/**
+	 * Write the document fields, except the properties, which have no defined
+	 * form. Content in the document store of the segment is written as the
+	 * store entry id, offset and checksum, other content is written in the
+	 * record.
+	 *
+	 * @param output The output
+	 * @param document The document
+	 * @param store The document store of the segment, or null if the segment
+	 * has no store
+	 */
+	static void writeDocument( DataOutputStream output, Document document, DocumentStore store ) throws IOException {
+		output.writeByte( document.mediaType() == null ? -1 : document.mediaType().ordinal() );
+		writeString( output, document.uri() == null ? null : document.uri().toString() );
+		writeString( output, document.icon() );
+		writeString( output, document.title() );
+		writeStrings( output, document.tags() );
+		writeString( output, document.url() == null ? null : document.url().toString() );
+		DocumentStore.Entry stored = document.stored();
+		boolean inStore = stored != null && store != null && stored.store() == store;
+		writeVarInt( output, inStore ? stored.id() + 1 : 0 );
+		if( inStore ) {
+			writeVarInt( output, (int)stored.getOffset() );
+			output.writeInt( stored.getChecksum() );
+			writeString( output, null );
+		} else {
+			writeString( output, document.content() == null && stored != null ? stored.getText() : document.content() );
+		}
+
+		Map<String, String> values = document.values();
+		writeVarInt( output, values == null ? 0 : values.size() + 1 );
+		if( values != null ) {
+			for( Map.Entry<String, String> entry : values.entrySet() ) {
+				writeString( output, entry.getKey() );
+				writeString( output, entry.getValue() );
+			}
+		}
+	}
+
+	/**
+	 * Read the document fields. Stored content is only attached when the
+	 * store still has the entry the record refers to.
+	 *
+	 * @param buffer The buffer at the document record
+	 * @param store The document store of the segment, or null if the segment
+	 * has no store
+	 * @return The document
+	 */
+	static Document readDocument( ByteBuffer buffer, DocumentStore store ) {
+		Document document = new Document();
+		int mediaType = buffer.get();
+		document.mediaType( mediaType < 0 ? null : Document.MediaType.values()[ mediaType ] );
+		String uri = readString( buffer );
+		document.uri( uri == null ? null : URI.create( uri ) );
+		document.icon( readString( buffer ) );
+		document.title( readString( buffer ) );
+		List<String> tags = readStrings( buffer );
+		if( !tags.isEmpty() ) document.tags( tags );
+		document.url( toUrl( readString( buffer ) ) );
+		int entry = readVarInt( buffer ) - 1;
+		if( entry >= 0 ) {
+			long offset = readVarInt( buffer );
+			int checksum = buffer.getInt();
+			DocumentStore.Entry stored = store == null ? null : store.find( entry, offset, checksum );
+			if( stored == null ) {
+				log.atWarn().log( "Stored content missing for document: %s", document.uri() );
+			} else {
+				document.stored( stored );
+			}
+		}
+		document.content( readString( buffer ) );
+
+		int count = readVarInt( buffer ) - 1;
+		if( count >= 0 ) {
+			Map<String, String> values = new HashMap<>();
+			for( int index = 0; index < count; index++ ) {
+				values.put( readString( buffer ), readString( buffer ) );
+			}
+			document.values( values );
+		}
+
+		return document;
+	}
+
+	private static void writeStrings( DataOutputStream output, Collection<String> values ) throws IOException {
+		writeVarInt( output, values.size() );
+		for( String value : values ) {
+			writeString( output, value );
+		}
+	}
+
+	private static List<String> readStrings( ByteBuffer buffer ) {
+		int count = readVarInt( buffer );
+		List<String> values = new ArrayList<>( count );
+		for( int index = 0; index < count; index++ ) {
+			values.add( readString( buffer ) );
+		}
+		return values;
+	}
+
+	private static URL toUrl( String url ) {
+		try {
+			return url == null ? null : URI.create( url ).toURL();
+		} catch( MalformedURLException | IllegalArgumentException exception ) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,228 @@
+package com.avereon.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static com.avereon.index.SegmentFormat.*;
+
+/**
+ * Writes an index to a segment file. See {@link SegmentFormat} for the file
+ * layout. The sections are streamed to a temporary file, one term of postings
+ * at a time, and the header is written last. The file is forced to disk and
+ * then moved to the segment path, so a segment file is never seen partially
+ * written, even after a crash.
+ */
+final class SegmentWriter {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final DocumentStore store;
+
+	private final Collection<Long> replacedGenerations;
+
+	private final Map<Document, Integer> documentIds = new IdentityHashMap<>();
+
+	private final List<Document> documents = new ArrayList<>();
+
+	private final List<Integer> documentLengths = new ArrayList<>();
+
+	private long hitCount;
+
+	private SegmentWriter( DocumentStore store, Collection<Long> replacedGenerations ) {
+		this.store = store;
+		this.replacedGenerations = replacedGenerations;
+	}
+
+	/**
+	 * Write the index to a segment file and open the segment.
+	 *
+	 * @param path The segment file
+	 * @param index The index to write
+	 * @param store The document store the segment refers to for stored content
+	 * @return The segment
+	 * @throws IOException If the segment cannot be written
+	 */
+	static IndexSegment write( Path path, Index index, DocumentStore store ) throws IOException {
+		return write( path, index, store, List.of() );
+	}
+
+	/**
+	 * Write a merged index to a segment file and open the segment.
+	 *
+	 * @param path The segment file
+	 * @param index The index to write
+	 * @param store The document store the segment refers to for stored content
+	 * @param replacedGenerations The generations of the segments the segment
+	 * replaces
+	 * @return The segment
+	 * @throws IOException If the segment cannot be written
+	 */
+	static IndexSegment write( Path path, Index index, DocumentStore store, Collection<Long> replacedGenerations ) throws IOException {
+		SegmentWriter writer = new SegmentWriter( store, replacedGenerations );
+		writer.writeFile( path, index );
+		IndexSegment segment = IndexSegment.open( path, store );
+		segment.setDocuments( writer.documents );
+		return segment;
+	}
+
+	/**
+	 * Write the index to a segment file without opening the segment. The
+	 * segment has no document store, the content of the documents is written
+	 * in the segment.
+	 *
+	 * @param path The segment file
+	 * @param index The index to write
+	 * @throws IOException If the segment cannot be written
+	 */
+	static void save( Path path, Index index ) throws IOException {
+		new SegmentWriter( null, List.of() ).writeFile( path, index );
+	}
+
+	private void writeFile( Path path, Index source ) throws IOException {
+		List<byte[]> terms = source.getDictionary().stream().map( SegmentFormat::toBytes ).sorted( Arrays::compareUnsigned ).toList();
+		int[] termOffsets = new int[ terms.size() ];
+		int[] postingOffsets = new int[ terms.size() ];
+		int[] hitCounts = new int[ terms.size() ];
+		int[] documentCounts = new int[ terms.size() ];
+
+		Path temp = path.resolveSibling( path.getFileName() + ".tmp" );
+		try( FileChannel channel = FileChannel.open( temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) ) {
+			DataOutputStream output = new DataOutputStream( new BufferedOutputStream( Channels.newOutputStream( channel ), BUFFER_SIZE ) );
+			output.write( new byte[ HEADER_SIZE ] );
+
+			// The postings also collect the documents, one term at a time
+			for( int index = 0; index < terms.size(); index++ ) {
+				postingOffsets[ index ] = checkSize( output );
+				List<Posting> termPostings = getPostings( source.getHits( new String( terms.get( index ), StandardCharsets.UTF_8 ) ) );
+				hitCounts[ index ] = termPostings.size();
+				documentCounts[ index ] = writePostings( output, termPostings );
+			}
+
+			for( int index = 0; index < terms.size(); index++ ) {
+				termOffsets[ index ] = checkSize( output );
+				writeVarInt( output, terms.get( index ).length + 1 );
+				output.write( terms.get( index ) );
+			}
+
+			int[] documentOffsets = new int[ documents.size() ];
+			for( int index = 0; index < documents.size(); index++ ) {
+				documentOffsets[ index ] = checkSize( output );
+				writeDocument( output, documents.get( index ), store );
+			}
+
+			int documentTable = checkSize( output );
+			for( int index = 0; index < documents.size(); index++ ) {
+				output.writeInt( documentOffsets[ index ] );
+				output.writeInt( documentLengths.get( index ) );
+			}
+
+			int dictionary = checkSize( output );
+			for( int index = 0; index < terms.size(); index++ ) {
+				output.writeInt( termOffsets[ index ] );
+				output.writeInt( postingOffsets[ index ] );
+				output.writeInt( hitCounts[ index ] );
+				output.writeInt( documentCounts[ index ] );
+			}
+			int replacedTable = checkSize( output );
+			for( long generation : replacedGenerations ) {
+				output.writeLong( generation );
+			}
+			checkSize( output );
+			output.flush();
+
+			// The header is written last, when the section offsets are known
+			ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+			header.putInt( MAGIC );
+			header.putInt( VERSION );
+			header.putInt( documents.size() );
+			header.putInt( terms.size() );
+			header.putInt( documentTable );
+			header.putInt( dictionary );
+			header.putLong( hitCount );
+			header.putInt( replacedTable );
+			header.putInt( replacedGenerations.size() );
+			header.rewind();
+			while( header.hasRemaining() ) {
+				channel.write( header, header.position() );
+			}
+		} catch( IOException | RuntimeException exception ) {
+			Files.deleteIfExists( temp );
+			throw exception;
+		}
+		if( store != null ) store.force();
+		commit( temp, path );
+	}
+
+	/**
+	 * Get the position of the next section, failing when the segment has grown
+	 * past the offsets the format can hold.
+	 */
+	private static int checkSize( DataOutputStream output ) throws IOException {
+		// The output size stops counting at the maximum integer
+		int size = output.size();
+		if( size == Integer.MAX_VALUE ) throw new IOException( "Index segment too large" );
+		return size;
+	}
+
+	private List<Posting> getPostings( Collection<Hit> hits ) {
+		List<Posting> postings = new ArrayList<>( hits.size() );
+		for( Hit hit : hits ) {
+			int document = getDocumentId( hit.getDocument() );
+			if( document >= 0 ) documentLengths.set( document, documentLengths.get( document ) + 1 );
+			postings.add( new Posting( document, hit ) );
+		}
+		postings.sort( Comparator.comparingInt( Posting::document ) );
+		hitCount += postings.size();
+		return postings;
+	}
+
+	/**
+	 * Write the postings of a term.
+	 *
+	 * @return The number of documents in the postings
+	 */
+	private int writePostings( DataOutputStream output, List<Posting> postings ) throws IOException {
+		int documentCount = 0;
+		int previous = 0;
+		for( Posting posting : postings ) {
+			if( posting.document() + 1 != previous || documentCount == 0 ) documentCount++;
+			Hit hit = posting.hit();
+			List<Integer> coordinates = hit.getCoordinates();
+
+			// Document ids are shifted by one so hits without a document are zero
+			writeVarInt( output, posting.document() + 1 - previous );
+			writeVarInt( output, hit.getPriority() );
+			writeVarInt( output, hit.getLength() );
+			writeVarInt( output, coordinates == null ? 0 : coordinates.size() + 1 );
+			if( coordinates != null ) {
+				for( int coordinate : coordinates ) {
+					writeVarInt( output, coordinate );
+				}
+			}
+			previous = posting.document() + 1;
+		}
+
+		return documentCount;
+	}
+
+	private int getDocumentId( Document document ) {
+		if( document == null ) return -1;
+		return documentIds.computeIfAbsent( document, k -> {
+			documents.add( k );
+			documentLengths.add( 0 );
+			return documents.size() - 1;
+		} );
+	}
+
+	private record Posting(int document, Hit hit) {}
+
+}
@@ -0,0 +1,535 @@
+package com.avereon.index;
+
+import com.avereon.util.FileUtil;
+import lombok.CustomLog;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * An index stored as segment files in a folder. New hits are collected in
+ * memory and written to a new segment when the index is flushed. Segments are
+ * memory mapped, so opening an index is fast and does not read the whole index
+ * into memory. When there are too many segments of similar size they are
+ * merged into one larger segment, so each hit is only rewritten a few times as
+ * the index grows.
+ * <p>
+ * Searches see the hits in memory, the hits being flushed and the hits in all
+ * the segments.
+ * <p>
+ * Removing a document marks it deleted in memory and adds tombstones to the
+ * segments that have it. Documents removed while a flush or merge is writing
+ * a segment are also removed from the new segment. The hits of removed
+ * documents are dropped from memory by {@link #compact()} and from the
+ * segments when they are merged.
+ * <p>
+ * The content of the documents can be moved to the document store of the
+ * folder, see {@link #store(Document)}. The segments refer to the stored
+ * content instead of copying it, and read it from the store mapping when it
+ * is needed. The store is only appended to, the content of removed and
+ * updated documents stays in the store until the index is deleted.
+ */
+@CustomLog
+public class SegmentedIndex implements Index {
+
+	/**
+	 * The number of hits in memory that makes a flush worthwhile.
+	 */
+	public static final int DEFAULT_FLUSH_THRESHOLD = 100_000;
+
+	/**
+	 * The number of segments of similar size that makes a merge worthwhile.
+	 * The size tiers are this many times larger than each other.
+	 */
+	public static final int DEFAULT_MERGE_THRESHOLD = 8;
+
+	// Segments up to this size are all in the first size tier
+	static final long MIN_TIER_SIZE = 1 << 20;
+
+	// Merged segments stay well below the largest segment the format can hold
+	static final long MAX_MERGED_SIZE = 1L << 30;
+
+	@Getter
+	private final Path folder;
+
+	private final DocumentStore store;
+
+	private final ReentrantReadWriteLock stateLock;
+
+	private final ReentrantLock flushLock;
+
+	private final ReentrantLock mergeLock;
+
+	private final AtomicLong nextGeneration;
+
+	private final AtomicLong memoryHitCount;
+
+	// Flushing and merging move hits without changing them, so the version
+	// only changes when hits are added or removed
+	private final AtomicLong version;
+
+	// The URIs removed while a flush or merge writes a segment
+	private final List<Set<URI>> pendingRemovals;
+
+	private volatile State state;
+
+	private SegmentedIndex( Path folder, DocumentStore store, List<IndexSegment> segments ) {
+		this.folder = folder;
+		this.store = store;
+		this.stateLock = new ReentrantReadWriteLock();
+		this.flushLock = new ReentrantLock();
+		this.mergeLock = new ReentrantLock();
+		this.nextGeneration = new AtomicLong( segments.stream().mapToLong( IndexSegment::getGeneration ).max().orElse( 0 ) + 1 );
+		this.memoryHitCount = new AtomicLong();
+		this.version = new AtomicLong();
+		this.pendingRemovals = new CopyOnWriteArrayList<>();
+		this.state = new State( new StandardIndex(), null, List.copyOf( segments ) );
+	}
+
+	/**
+	 * Open the index stored in a folder, creating the folder if needed. Files
+	 * left from an interrupted flush or merge are removed, and segment files
+	 * that cannot be read are skipped. Segments replaced by a merged segment,
+	 * left by a merge that did not finish deleting them, are skipped and
+	 * removed. Tombstone files without a segment file are removed.
+	 *
+	 * @param folder The index folder
+	 * @return The index
+	 * @throws IOException If the folder cannot be read
+	 */
+	public static SegmentedIndex open( Path folder ) throws IOException {
+		Files.createDirectories( folder );
+		DocumentStore store = DocumentStore.open( folder.resolve( SegmentFormat.STORE_FILE_NAME ) );
+
+		List<IndexSegment> segments = new ArrayList<>();
+		try( Stream<Path> paths = Files.list( folder ) ) {
+			for( Path path : paths.sorted().toList() ) {
+				String name = path.getFileName().toString();
+				if( name.endsWith( ".tmp" ) ) {
+					Files.deleteIfExists( path );
+				} else if( name.endsWith( SegmentFormat.TOMBSTONE_EXTENSION ) ) {
+					String segmentName = name.substring( 0, name.length() - SegmentFormat.TOMBSTONE_EXTENSION.length() ) + SegmentFormat.EXTENSION;
+					if( !Files.exists( path.resolveSibling( segmentName ) ) ) Files.deleteIfExists( path );
+				} else if( name.endsWith( SegmentFormat.EXTENSION ) ) {
+					try {
+						segments.add( IndexSegment.open( path, store ) );
+					} catch( IOException | RuntimeException exception ) {
+						log.atWarn( exception ).log( "Unable to open index segment: %s", path );
+					}
+				}
+			}
+		}
+
+		Set<Long> replaced = new HashSet<>();
+		segments.forEach( s -> replaced.addAll( s.getReplacedGenerations() ) );
+		segments.removeIf( s -> {
+			if( !replaced.contains( s.getGeneration() ) ) return false;
+			deleteSegment( s );
+			return true;
+		} );
+
+		return new SegmentedIndex( folder, store, segments );
+	}
+
+	@Override
+	public Set<String> getDictionary() {
+		State state = this.state;
+		Set<String> dictionary = new HashSet<>( state.memory().getDictionary() );
+		if( state.flushing() != null ) dictionary.addAll( state.flushing().getDictionary() );
+		state.segments().forEach( s -> dictionary.addAll( s.getDictionary() ) );
+		return dictionary;
+	}
+
+	@Override
+	public TermDictionary getTermDictionary() {
+		State state = this.state;
+		List<TermDictionary> dictionaries = new ArrayList<>();
+		dictionaries.add( state.memory().getTermDictionary() );
+		if( state.flushing() != null ) dictionaries.add( state.flushing().getTermDictionary() );
+		state.segments().forEach( s -> dictionaries.add( s.getTermDictionary() ) );
+		return TermDictionary.union( dictionaries );
+	}
+
+	@Override
+	public Set<Hit> getHits( String word ) {
+		State state = this.state;
+		Set<Hit> hits = new HashSet<>( state.memory().getHits( word ) );
+		if( state.flushing() != null ) hits.addAll( state.flushing().getHits( word ) );
+		state.segments().forEach( s -> hits.addAll( s.getHits( word ) ) );
+		return hits;
+	}
+
+	@Override
+	public int getDocumentCount() {
+		return getParts().getDocumentCount();
+	}
+
+	@Override
+	public long getHitCount() {
+		return getParts().getHitCount();
+	}
+
+	@Override
+	public int getDocumentLength( Document document ) {
+		return getParts().getDocumentLength( document );
+	}
+
+	@Override
+	public int getDocumentFrequency( String word ) {
+		return getParts().getDocumentFrequency( word );
+	}
+
+	@Override
+	public long getVersion() {
+		return version.get();
+	}
+
+	@Override
+	public Index push( Collection<Hit> hits ) {
+		stateLock.readLock().lock();
+		try {
+			state.memory().push( hits );
+			memoryHitCount.addAndGet( hits.size() );
+			version.incrementAndGet();
+		} finally {
+			stateLock.readLock().unlock();
+		}
+		return this;
+	}
+
+	@Override
+	public Index remove( URI uri ) {
+		stateLock.writeLock().lock();
+		try {
+			state.memory().remove( uri );
+			removeFromSegments( uri );
+			version.incrementAndGet();
+		} finally {
+			stateLock.writeLock().unlock();
+		}
+		return this;
+	}
+
+	/**
+	 * Replace the hits of the documents with a URI. The new hits are added to
+	 * memory before the old documents are removed.
+	 *
+	 * @param uri The document URI
+	 * @param hits The new hits
+	 * @return This index
+	 */
+	@Override
+	public Index update( URI uri, Collection<Hit> hits ) {
+		stateLock.writeLock().lock();
+		try {
+			state.memory().update( uri, hits );
+			memoryHitCount.addAndGet( hits.size() );
+			removeFromSegments( uri );
+			version.incrementAndGet();
+		} finally {
+			stateLock.writeLock().unlock();
+		}
+		return this;
+	}
+
+	/**
+	 * Move the content of a document to the document store of the index, so
+	 * the content is not kept in the heap and the segments refer to it instead
+	 * of copying it. The content is read the same way it is indexed. Content
+	 * already in the store is not stored again.
+	 *
+	 * @param document The document
+	 * @throws IOException If the content cannot be read or stored
+	 */
+	public void store( Document document ) throws IOException {
+		DocumentStore.Entry stored = document.stored();
+		if( stored != null && stored.store() == store ) return;
+		store.store( document );
+	}
+
+	public int getSegmentCount() {
+		return state.segments().size();
+	}
+
+	public boolean isFlushNeeded() {
+		return memoryHitCount.get() >= DEFAULT_FLUSH_THRESHOLD;
+	}
+
+	public boolean isMergeNeeded() {
+		return !selectMerge( state.segments(), DEFAULT_MERGE_THRESHOLD ).isEmpty();
+	}
+
+	/**
+	 * Check if enough of the hits in memory or documents in a segment have been
+	 * removed to make compacting worthwhile.
+	 *
+	 * @return True if the index should be compacted
+	 */
+	public boolean isCompactNeeded() {
+		State state = this.state;
+		if( state.memory().isCompactNeeded() ) return true;
+		return state.segments().stream().anyMatch( s -> s.getDeletedCount() > 0 && s.getDeletedCount() * 3 >= s.getDocumentCount() );
+	}
+
+	/**
+	 * Drop the hits of removed documents. The hits in memory are compacted in
+	 * place and each segment with removed documents is rewritten. If a merge is
+	 * already running the segments are not rewritten.
+	 *
+	 * @throws IOException If a rewritten segment cannot be written
+	 */
+	public void compact() throws IOException {
+		state.memory().compact();
+		if( !mergeLock.tryLock() ) return;
+		try {
+			for( IndexSegment segment : state.segments() ) {
+				if( segment.getDeletedCount() > 0 ) merge( List.of( segment ) );
+			}
+		} finally {
+			mergeLock.unlock();
+		}
+	}
+
+	/**
+	 * Write the hits in memory to a new segment.
+	 *
+	 * @throws IOException If the segment cannot be written
+	 */
+	public void flush() throws IOException {
+		flushLock.lock();
+		try {
+			StandardIndex memory;
+			Set<URI> removals = new HashSet<>();
+			stateLock.writeLock().lock();
+			try {
+				if( memoryHitCount.get() == 0 ) return;
+				memory = state.memory();
+				state = new State( new StandardIndex(), memory, state.segments() );
+				memoryHitCount.set( 0 );
+				pendingRemovals.add( removals );
+			} finally {
+				stateLock.writeLock().unlock();
+			}
+
+			IndexSegment segment = null;
+			try {
+				segment = SegmentWriter.write( createSegmentPath(), memory, store );
+			} finally {
+				// If the write failed, put the flushing hits back in memory
+				stateLock.writeLock().lock();
+				try {
+					List<IndexSegment> segments = new ArrayList<>( state.segments() );
+					pendingRemovals.removeIf( r -> r == removals );
+					if( segment == null ) {
+						state.memory().push( memory.getHits() );
+						memoryHitCount.addAndGet( memory.getHits().size() );
+					} else {
+						segments.add( segment );
+						removeFromSegment( segment, removals );
+					}
+					state = new State( state.memory(), null, List.copyOf( segments ) );
+				} finally {
+					stateLock.writeLock().unlock();
+				}
+			}
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Write an index built elsewhere, like by a bulk indexing worker, as a new
+	 * segment. The hits do not pass through memory.
+	 *
+	 * @param source The index to add
+	 * @throws IOException If the segment cannot be written
+	 */
+	void addSegment( Index source ) throws IOException {
+		IndexSegment segment = SegmentWriter.write( createSegmentPath(), source, store );
+		stateLock.writeLock().lock();
+		try {
+			List<IndexSegment> segments = new ArrayList<>( state.segments() );
+			segments.add( segment );
+			state = new State( state.memory(), state.flushing(), List.copyOf( segments ) );
+			version.incrementAndGet();
+		} finally {
+			stateLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Merge segments of similar size into one segment, dropping the hits of
+	 * removed documents. The segments of the smallest size tier with enough
+	 * segments to need a merge are merged, otherwise the segments of the
+	 * smallest tier with more than one segment. Segments are not merged past
+	 * the maximum merged size. If a merge is already running this method
+	 * returns immediately.
+	 *
+	 * @throws IOException If the merged segment cannot be written
+	 */
+	public void merge() throws IOException {
+		if( !mergeLock.tryLock() ) return;
+		try {
+			List<IndexSegment> segments = state.segments();
+			List<IndexSegment> merging = selectMerge( segments, DEFAULT_MERGE_THRESHOLD );
+			if( merging.isEmpty() ) merging = selectMerge( segments, 2 );
+			if( !merging.isEmpty() ) merge( merging );
+		} finally {
+			mergeLock.unlock();
+		}
+	}
+
+	/**
+	 * Merge segments into one segment, holding the merge lock.
+	 */
+	private void merge( List<IndexSegment> merging ) throws IOException {
+		// The merged segment also replaces the segments its segments replaced
+		// that are still in the folder, so they are not loaded again either
+		Set<Long> replaced = new TreeSet<>();
+		for( IndexSegment segment : merging ) {
+			replaced.add( segment.getGeneration() );
+			segment.getReplacedGenerations().stream().filter( g -> Files.exists( folder.resolve( SegmentFormat.getFileName( g ) ) ) ).forEach( replaced::add );
+		}
+
+		Set<URI> removals = new HashSet<>();
+		pendingRemovals.add( removals );
+
+		IndexSegment merged;
+		try {
+			merged = SegmentWriter.write( createSegmentPath(), new IndexUnion( merging ), store, replaced );
+		} catch( IOException | RuntimeException exception ) {
+			pendingRemovals.removeIf( r -> r == removals );
+			throw exception;
+		}
+
+		stateLock.writeLock().lock();
+		try {
+			pendingRemovals.removeIf( r -> r == removals );
+			removeFromSegment( merged, removals );
+			List<IndexSegment> segments = new ArrayList<>( state.segments() );
+			segments.removeAll( merging );
+			segments.add( merged );
+			segments.sort( Comparator.comparingLong( IndexSegment::getGeneration ) );
+			state = new State( state.memory(), state.flushing(), List.copyOf( segments ) );
+		} finally {
+			stateLock.writeLock().unlock();
+		}
+
+		// Searches already in progress keep using the mapped buffers
+		merging.forEach( SegmentedIndex::deleteSegment );
+	}
+
+	/**
+	 * Delete the files of a segment that was replaced by a merged segment. A
+	 * segment that cannot be deleted is skipped when the folder is opened, so
+	 * the failure is only logged.
+	 */
+	private static void deleteSegment( IndexSegment segment ) {
+		try {
+			Files.deleteIfExists( segment.getPath() );
+			Files.deleteIfExists( segment.getTombstonePath() );
+		} catch( IOException exception ) {
+			log.atWarn( exception ).log( "Unable to delete replaced index segment: %s", segment.getPath() );
+		}
+	}
+
+	/**
+	 * Select the segments to merge, the smallest segments of the smallest size
+	 * tier with at least a number of segments that fit in the maximum merged
+	 * size.
+	 *
+	 * @param segments The segments
+	 * @param count The least number of segments to merge
+	 * @return The segments to merge, or an empty list
+	 */
+	static List<IndexSegment> selectMerge( List<IndexSegment> segments, int count ) {
+		Map<Integer, List<IndexSegment>> tiers = new TreeMap<>();
+		for( IndexSegment segment : segments ) {
+			if( segment.getSize() < MAX_MERGED_SIZE ) tiers.computeIfAbsent( getTier( segment.getSize() ), k -> new ArrayList<>() ).add( segment );
+		}
+
+		for( List<IndexSegment> tier : tiers.values() ) {
+			tier.sort( Comparator.comparingLong( IndexSegment::getSize ) );
+			List<IndexSegment> merging = new ArrayList<>();
+			long size = 0;
+			for( IndexSegment segment : tier ) {
+				if( size + segment.getSize() > MAX_MERGED_SIZE ) break;
+				size += segment.getSize();
+				merging.add( segment );
+			}
+			if( merging.size() >= count ) return merging;
+		}
+
+		return List.of();
+	}
+
+	private static int getTier( long size ) {
+		int tier = 0;
+		for( long limit = MIN_TIER_SIZE; size > limit; limit *= DEFAULT_MERGE_THRESHOLD ) {
+			tier++;
+		}
+		return tier;
+	}
+
+	/**
+	 * Delete the index folder and all the segments.
+	 *
+	 * @throws IOException If the folder cannot be deleted
+	 */
+	public void delete() throws IOException {
+		stateLock.writeLock().lock();
+		try {
+			state = new State( new StandardIndex(), null, List.of() );
+			memoryHitCount.set( 0 );
+			store.close();
+			FileUtil.delete( folder );
+		} finally {
+			stateLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Get a view of the index parts, the memory index, the index being flushed
+	 * and the segments. Each part numbers its documents separately.
+	 */
+	IndexUnion getParts() {
+		State state = this.state;
+		List<Index> parts = new ArrayList<>( state.segments().size() + 2 );
+		parts.add( state.memory() );
+		if( state.flushing() != null ) parts.add( state.flushing() );
+		parts.addAll( state.segments() );
+		return new IndexUnion( parts );
+	}
+
+	private void removeFromSegments( URI uri ) {
+		if( state.flushing() != null ) state.flushing().remove( uri );
+		state.segments().forEach( s -> removeFromSegment( s, Set.of( uri ) ) );
+		pendingRemovals.forEach( r -> r.add( uri ) );
+	}
+
+	private void removeFromSegment( IndexSegment segment, Set<URI> uris ) {
+		for( URI uri : uris ) {
+			try {
+				segment.markDeleted( uri );
+			} catch( IOException exception ) {
+				log.atWarn( exception ).log( "Unable to store tombstones: %s", segment.getTombstonePath() );
+			}
+		}
+	}
+
+	private Path createSegmentPath() {
+		return folder.resolve( SegmentFormat.getFileName( nextGeneration.getAndIncrement() ) );
+	}
+
+	private record State(StandardIndex memory, StandardIndex flushing, List<IndexSegment> segments) {}
+
+}
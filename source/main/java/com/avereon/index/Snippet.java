@@ -0,0 +1,90 @@
+package com.avereon.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A part of the line of a hit, with the words of the hits on the line marked,
+ * for showing search results. Snippets are created when they are requested
+ * from the hit context, so indexes do not store any text for them.
+ *
+ * @param text The snippet text
+ * @param highlights The highlighted words, in text order
+ */
+public record Snippet(String text, List<Snippet.Span> highlights) {
+
+	public Snippet {
+		highlights = List.copyOf( highlights );
+	}
+
+	/**
+	 * Create a snippet around a hit.
+	 *
+	 * @param hit The hit
+	 * @param width The maximum snippet length
+	 * @return The snippet, or null if the hit has no context
+	 */
+	public static Snippet of( Hit hit, int width ) {
+		return of( List.of( hit ), width );
+	}
+
+	/**
+	 * Create a snippet around the first hit, with the words of the other hits
+	 * on the same line also highlighted.
+	 *
+	 * @param hits The hits of a document
+	 * @param width The maximum snippet length
+	 * @return The snippet, or null if there are no hits or the first hit has no
+	 * context
+	 */
+	public static Snippet of( List<Hit> hits, int width ) {
+		if( hits.isEmpty() ) return null;
+		Hit first = hits.getFirst();
+		String line = first.getContext();
+		if( line == null || first.getCoordinates() == null || first.getCoordinates().size() < 2 ) return null;
+
+		int hitStart = Math.min( line.length(), first.getCoordinates().get( 1 ) );
+		int hitEnd = Math.min( line.length(), hitStart + first.getLength() );
+		int start = Math.max( 0, hitStart - Math.max( 0, width - (hitEnd - hitStart) ) / 2 );
+		int end = Math.min( line.length(), start + width );
+		start = Math.max( 0, Math.min( start, end - width ) );
+
+		// Do not split a character outside the basic plane
+		if( start > 0 && Character.isLowSurrogate( line.charAt( start ) ) ) start++;
+		if( end < line.length() && end > start && Character.isHighSurrogate( line.charAt( end - 1 ) ) ) end--;
+
+		List<Span> highlights = new ArrayList<>();
+		for( Hit hit : hits ) {
+			if( !isSameLine( first, hit ) ) continue;
+			int spanStart = hit.getCoordinates().get( 1 );
+			int spanEnd = spanStart + hit.getLength();
+			if( spanStart < start || spanEnd > end ) continue;
+			highlights.add( new Span( spanStart - start, spanEnd - start ) );
+		}
+		highlights.sort( null );
+
+		return new Snippet( line.substring( start, end ), highlights );
+	}
+
+	private static boolean isSameLine( Hit first, Hit hit ) {
+		if( hit.getDocument() != first.getDocument() || hit.getPriority() != first.getPriority() ) return false;
+		List<Integer> coordinates = hit.getCoordinates();
+		return coordinates != null && coordinates.size() >= 2 && coordinates.getFirst().equals( first.getCoordinates().getFirst() );
+	}
+
+	/**
+	 * A highlighted part of the snippet text.
+	 *
+	 * @param start The first character
+	 * @param end The character after the last character
+	 */
+	public record Span(int start, int end) implements Comparable<Span> {
+
+		@Override
+		public int compareTo( Span that ) {
+			return start != that.start ? Integer.compare( start, that.start ) : Integer.compare( end, that.end );
+		}
+
+	}
+
+}
@@ -2,45 +2,314 @@ package com.avereon.index;
 
 import lombok.CustomLog;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.net.URI;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * The in memory index. The hits of each word are stored as {@link Postings},
+ * with the documents in a document table and the hits referring to the
+ * documents by id. Hit objects are only created when the hits of a word are
+ * requested, and their context is derived from the document when needed.
+ * <p>
+ * Removed documents are marked with a tombstone and their hits are skipped
+ * until the index is compacted. The document table keeps the words each
+ * document has hits for, so compacting only rewrites the postings of the
+ * words of removed documents.
+ */
 @CustomLog
-public class StandardIndex implements Index {
+public class StandardIndex implements Index, PostingsSource {
 
-	private final Map<String, Set<Hit>> index;
+	private static final int NO_DOCUMENT = -1;
+
+	private final Map<String, Postings> index;
+
+	private final Map<Document, Integer> documentIds;
+
+	private final Map<URI, List<Integer>> uriDocuments;
+
+	private final List<DocumentEntry> documents;
+
+	private final ReadWriteLock compactLock;
+
+	private final AtomicLong hitCount;
+
+	private final AtomicLong version;
+
+	private volatile BitSet deleted;
+
+	private long deletedHitCount;
+
+	private final GrowingDictionary terms;
 
 	public StandardIndex() {
 		this.index = new ConcurrentHashMap<>();
+		this.documentIds = new IdentityHashMap<>();
+		this.uriDocuments = new HashMap<>();
+		this.documents = new ArrayList<>();
+		this.compactLock = new ReentrantReadWriteLock();
+		this.hitCount = new AtomicLong();
+		this.version = new AtomicLong();
+		this.deleted = new BitSet();
+		this.terms = new GrowingDictionary();
 	}
 
 	public Set<String> getDictionary() {
 		return new HashSet<>( index.keySet() );
 	}
 
+	@Override
+	public TermDictionary getTermDictionary() {
+		return terms.get();
+	}
+
+	@Override
+	public synchronized int getDocumentCount() {
+		return documentIds.size();
+	}
+
+	@Override
+	public long getHitCount() {
+		long count = hitCount.get();
+		synchronized( this ) {
+			return count - deletedHitCount;
+		}
+	}
+
+	@Override
+	public synchronized int getDocumentLength( Document document ) {
+		Integer id = documentIds.get( document );
+		return id == null ? 0 : (int)documents.get( id ).hitCount;
+	}
+
+	@Override
+	public int getDocumentFrequency( String word ) {
+		Postings postings = index.get( word );
+		return postings == null ? 0 : postings.documentCount();
+	}
+
+	@Override
+	public long getVersion() {
+		return version.get();
+	}
+
 	@Override
 	public Set<Hit> getHits( String word ) {
-		return index.getOrDefault( word, Set.of() );
+		Postings postings = index.get( word );
+		if( postings == null ) return Set.of();
+
+		BitSet deleted = this.deleted;
+		Set<Hit> hits = new HashSet<>();
+		postings.forEach( ( document, priority, length, coordinates ) -> {
+			if( document != NO_DOCUMENT && deleted.get( document ) ) return;
+			hits.add( new Hit()
+				.setDocument( getDocument( document ) )
+				.setWord( word )
+				.setLength( length )
+				.setCoordinates( coordinates )
+				.setPriority( priority ) );
+		} );
+		return hits;
+	}
+
+	@Override
+	public PostingsCursor getPostingsCursor( String word ) {
+		Postings postings = index.get( word );
+		return postings == null ? null : postings.cursor( word, deleted, this::getDocument );
 	}
 
 	public Index push( Collection<Hit> hits ) {
-		hits.forEach( h -> index.computeIfAbsent( h.getWord(), k -> new CopyOnWriteArraySet<>() ).add( h ) );
+		compactLock.readLock().lock();
+		try {
+			// The hits pushed together usually share a document
+			Document document = null;
+			int documentId = NO_DOCUMENT;
+			Set<String> words = new HashSet<>();
+			int count = 0;
+			for( Hit hit : hits ) {
+				if( hit.getDocument() != document || documentId == NO_DOCUMENT ) {
+					register( documentId, words, count );
+					document = hit.getDocument();
+					documentId = getDocumentId( document );
+					words = new HashSet<>();
+					count = 0;
+				}
+				getPostings( hit.getWord() ).add( documentId, hit.getPriority(), hit.getLength(), hit.getCoordinates() );
+				words.add( hit.getWord() );
+				count++;
+			}
+			register( documentId, words, count );
+			hitCount.addAndGet( hits.size() );
+			version.incrementAndGet();
+		} finally {
+			compactLock.readLock().unlock();
+		}
+		return this;
+	}
+
+	@Override
+	public Index remove( URI uri ) {
+		delete( detach( uri ) );
 		return this;
 	}
 
+	/**
+	 * Replace the hits of the documents with a URI. The new hits are added
+	 * before the old documents are removed, so searches do not miss the
+	 * document while it is updated.
+	 *
+	 * @param uri The document URI
+	 * @param hits The new hits
+	 * @return This index
+	 */
+	@Override
+	public Index update( URI uri, Collection<Hit> hits ) {
+		List<Integer> previous = detach( uri );
+		push( hits );
+		delete( previous );
+		return this;
+	}
+
+	/**
+	 * Check if enough of the hits belong to removed documents to make
+	 * compacting worthwhile.
+	 *
+	 * @return True if the index should be compacted
+	 */
+	public synchronized boolean isCompactNeeded() {
+		return deletedHitCount > 0 && deletedHitCount * 4 >= hitCount.get();
+	}
+
+	/**
+	 * Remove the hits of removed documents from the postings and release the
+	 * removed documents. Words left without hits are removed from the
+	 * dictionary.
+	 */
+	public void compact() {
+		compactLock.writeLock().lock();
+		try {
+			BitSet deleted = this.deleted;
+			Set<String> words = new HashSet<>();
+			synchronized( this ) {
+				deleted.stream().forEach( id -> {
+					DocumentEntry entry = documents.get( id );
+					if( entry == null ) return;
+					words.addAll( entry.words );
+					documents.set( id, null );
+				} );
+			}
+
+			long removed = 0;
+			for( String word : words ) {
+				Postings postings = index.get( word );
+				if( postings == null ) continue;
+				removed += postings.remove( deleted::get );
+				if( postings.count() == 0 ) index.remove( word );
+			}
+
+			hitCount.addAndGet( -removed );
+			synchronized( this ) {
+				deletedHitCount = Math.max( 0, deletedHitCount - removed );
+			}
+			if( words.stream().anyMatch( w -> !index.containsKey( w ) ) ) terms.reset( index.keySet() );
+		} finally {
+			compactLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the postings of a word, adding the word to the term dictionary if it
+	 * is new.
+	 */
+	private Postings getPostings( String word ) {
+		Postings postings = index.get( word );
+		if( postings != null ) return postings;
+
+		Postings created = new Postings();
+		postings = index.putIfAbsent( word, created );
+		if( postings != null ) return postings;
+		terms.add( word );
+		return created;
+	}
+
+	/**
+	 * Detach the documents with a URI from the document table, so hits pushed
+	 * later start a new document, without removing their hits yet.
+	 */
+	private synchronized List<Integer> detach( URI uri ) {
+		List<Integer> ids = uriDocuments.remove( uri );
+		if( ids == null ) return List.of();
+		ids.forEach( id -> documentIds.remove( documents.get( id ).document ) );
+		return ids;
+	}
+
+	private synchronized void delete( List<Integer> ids ) {
+		if( ids.isEmpty() ) return;
+		BitSet deleted = (BitSet)this.deleted.clone();
+		for( int id : ids ) {
+			if( deleted.get( id ) ) continue;
+			deleted.set( id );
+			deletedHitCount += documents.get( id ).hitCount;
+		}
+		this.deleted = deleted;
+		version.incrementAndGet();
+	}
+
+	private synchronized void register( int documentId, Set<String> words, int count ) {
+		if( documentId == NO_DOCUMENT ) return;
+		DocumentEntry entry = documents.get( documentId );
+		entry.words.addAll( words );
+		entry.hitCount += count;
+		if( deleted.get( documentId ) ) deletedHitCount += count;
+	}
+
+	private synchronized int getDocumentId( Document document ) {
+		if( document == null ) return NO_DOCUMENT;
+		return documentIds.computeIfAbsent( document, k -> {
+			int id = documents.size();
+			documents.add( new DocumentEntry( k ) );
+			if( k.uri() != null ) uriDocuments.computeIfAbsent( k.uri(), u -> new ArrayList<>() ).add( id );
+			return id;
+		} );
+	}
+
+	private synchronized Document getDocument( int id ) {
+		if( id == NO_DOCUMENT ) return null;
+		DocumentEntry entry = documents.get( id );
+		return entry == null ? null : entry.document;
+	}
+
 	@Override
 	public int hashCode() {
-		return index.hashCode();
+		return index.keySet().hashCode();
 	}
 
 	@Override
 	public boolean equals( Object object ) {
-		if( !(object instanceof StandardIndex) ) return false;
-		return index.equals( ((StandardIndex)object).index );
+		if( !(object instanceof StandardIndex that) ) return false;
+		if( !index.keySet().equals( that.index.keySet() ) ) return false;
+		return index.keySet().stream().allMatch( w -> getHits( w ).equals( that.getHits( w ) ) );
+	}
+
+	/**
+	 * A document and the words it has hits for.
+	 */
+	private static final class DocumentEntry {
+
+		private final Document document;
+
+		private final Set<String> words;
+
+		private long hitCount;
+
+		private DocumentEntry( Document document ) {
+			this.document = document;
+			this.words = new HashSet<>();
+		}
+
 	}
 
 }
@@ -0,0 +1,78 @@
+package com.avereon.index;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * The words of an index, organized for searching. Besides checking for a word,
+ * a term dictionary can enumerate the words with a prefix and the words within
+ * an edit distance of a term, without visiting every word in the dictionary.
+ */
+public interface TermDictionary {
+
+	TermDictionary EMPTY = of( List.of() );
+
+	/**
+	 * Create a term dictionary from a collection of words.
+	 *
+	 * @param words The words
+	 * @return The term dictionary
+	 */
+	static TermDictionary of( Collection<String> words ) {
+		return TrieDictionary.of( words );
+	}
+
+	/**
+	 * Create a term dictionary that combines several term dictionaries. Words in
+	 * more than one of the dictionaries are only reported once.
+	 *
+	 * @param dictionaries The term dictionaries
+	 * @return The combined term dictionary
+	 */
+	static TermDictionary union( Collection<? extends TermDictionary> dictionaries ) {
+		if( dictionaries.size() == 1 ) return dictionaries.iterator().next();
+		return new UnionDictionary( List.copyOf( dictionaries ) );
+	}
+
+	/**
+	 * Get the number of words in the dictionary.
+	 *
+	 * @return The number of words
+	 */
+	int size();
+
+	boolean contains( String word );
+
+	/**
+	 * Pass each word that starts with the prefix to the consumer, in order.
+	 *
+	 * @param prefix The prefix
+	 * @param consumer The word consumer
+	 */
+	void forEachWithPrefix( String prefix, Consumer<String> consumer );
+
+	/**
+	 * Pass each word within the maximum Levenshtein distance of the term to the
+	 * consumer, with the distance. The search only follows the dictionary paths
+	 * that can still lead to a word within the distance.
+	 *
+	 * @param term The term
+	 * @param maxDistance The maximum Levenshtein distance
+	 * @param consumer The word and distance consumer
+	 */
+	void forEachWithin( String term, int maxDistance, ObjIntConsumer<String> consumer );
+
+	default List<String> getWordsWithPrefix( String prefix ) {
+		List<String> words = new ArrayList<>();
+		forEachWithPrefix( prefix, words::add );
+		return words;
+	}
+
+	default Map<String, Integer> getWordsWithin( String term, int maxDistance ) {
+		Map<String, Integer> words = new HashMap<>();
+		forEachWithin( term, maxDistance, words::put );
+		return words;
+	}
+
+}
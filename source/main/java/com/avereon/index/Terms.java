@@ -17,13 +17,11 @@ public class Terms {
 		int index = 0;
 		int start = -1;
 		int length = text.length();
-		int endIndex = length - 1;
-		String hitText = text.toLowerCase();
 		while( index < length ) {
-			point = hitText.codePointAt( index );
+			point = text.codePointAt( index );
 
 			// Are we at the last character in the line?
-			boolean lastChar = index >= endIndex;
+			boolean lastChar = index + Character.charCount( point ) >= length;
 			// Is the character a word character?
 			boolean wordChar = Character.isLetterOrDigit( point );
 			// Is this character the start of a word?
@@ -42,7 +40,7 @@ public class Terms {
 				start = -1;
 			}
 
-			index++;
+			index += Character.charCount( point );
 		}
 
 		return terms;
@@ -1,13 +1,19 @@
 package com.avereon.index;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * A term source for plain text. The terms are read from the text as the
+ * stream is consumed, see {@link TextTokenizer}. The stream should be closed
+ * if it is not consumed to the end.
+ */
 public class TextTermSource implements TermSource {
 
 	private final Document document;
@@ -25,30 +31,17 @@ public class TextTermSource implements TermSource {
 
 	@Override
 	public Stream<Term> index() throws IOException {
-		return getTerms( text == null ? document.reader() : new StringReader( text ) ).stream();
-	}
-
-	private List<Term> getTerms( Reader source ) throws IOException {
-		List<Term> terms = new ArrayList<>();
-
-		try( BufferedReader reader = new BufferedReader( source ) ) {
-			String text;
-			int lineIndex = 0;
-			while( (text = reader.readLine()) != null ) {
-				final String line = text.trim();
-				final int finalLineIndex = lineIndex;
-
-				terms.addAll( Terms.split( line, ( start, end ) -> {
-					int length = end - start;
-					String word = line.substring( start, end ).toLowerCase();
-					return new Term( line, word, length, List.of( finalLineIndex, start ) );
-				} ) );
-
-				lineIndex++;
+		Reader reader = text == null ? document.reader() : new StringReader( text );
+		if( reader == null ) return Stream.empty();
+
+		TextTokenizer tokenizer = new TextTokenizer( reader );
+		return StreamSupport.stream( Spliterators.spliteratorUnknownSize( tokenizer, Spliterator.ORDERED | Spliterator.NONNULL ), false ).onClose( () -> {
+			try {
+				tokenizer.close();
+			} catch( IOException exception ) {
+				throw new UncheckedIOException( exception );
 			}
-		}
-
-		return terms;
+		} );
 	}
 
 }
@@ -0,0 +1,254 @@
+package com.avereon.index;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Splits text into terms as the terms are requested. The text is read into a
+ * character buffer a block at a time and each line is scanned in the buffer,
+ * one code point at a time, so words with supplementary characters are not
+ * split. Words are case folded one code point at a time, independent of the
+ * default locale.
+ * <p>
+ * The coordinates of a term are the line index, the offset of the word in the
+ * trimmed line, the same as splitting each trimmed line of the text, and the
+ * position of the word in the text, counted in words. The context of a term is
+ * the trimmed line, created once per line, and equal words share one string.
+ */
+final class TextTokenizer implements Iterator<Term> {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Reader reader;
+
+	private final WordTable words;
+
+	private final StringBuilder word;
+
+	private CharBuffer buffer;
+
+	private boolean endOfInput;
+
+	private boolean finished;
+
+	private boolean inLine;
+
+	private int line;
+
+	private int position;
+
+	private int index;
+
+	private int contentStart;
+
+	private int contentEnd;
+
+	private int nextLine;
+
+	private String context;
+
+	private Term next;
+
+	TextTokenizer( Reader reader ) {
+		this.reader = reader;
+		this.words = new WordTable();
+		this.word = new StringBuilder();
+		this.buffer = CharBuffer.allocate( BUFFER_SIZE ).flip();
+		this.line = -1;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if( next == null && !finished ) {
+			try {
+				next = advance();
+			} catch( IOException exception ) {
+				throw new UncheckedIOException( exception );
+			}
+			finished = next == null;
+		}
+		return next != null;
+	}
+
+	@Override
+	public Term next() {
+		if( !hasNext() ) throw new NoSuchElementException();
+		Term term = next;
+		next = null;
+		return term;
+	}
+
+	void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * Case fold a code point. Upper casing first folds characters that have
+	 * more than one lower case form, like the final sigma.
+	 */
+	static int fold( int point ) {
+		return Character.toLowerCase( Character.toUpperCase( point ) );
+	}
+
+	private Term advance() throws IOException {
+		while( true ) {
+			if( !inLine && !readLine() ) return null;
+
+			while( index < contentEnd ) {
+				int point = codePointAt( index );
+				if( !Character.isLetterOrDigit( point ) ) {
+					index += Character.charCount( point );
+					continue;
+				}
+
+				int start = index;
+				word.setLength( 0 );
+				do {
+					word.appendCodePoint( fold( point ) );
+					index += Character.charCount( point );
+				} while( index < contentEnd && Character.isLetterOrDigit( point = codePointAt( index ) ) );
+
+				if( context == null ) context = new String( buffer.array(), buffer.arrayOffset() + contentStart, contentEnd - contentStart );
+				return new Term( context, words.get( word ), index - start, List.of( line, start - contentStart, position++ ) );
+			}
+
+			buffer.position( nextLine );
+			inLine = false;
+		}
+	}
+
+	/**
+	 * Find the next line in the buffer, reading more text as needed. Lines end
+	 * with a line feed, a carriage return or both, like
+	 * {@link java.io.BufferedReader#readLine()}.
+	 *
+	 * @return True if there is another line
+	 */
+	private boolean readLine() throws IOException {
+		int scanned = 0;
+		while( true ) {
+			int start = buffer.position();
+			int limit = buffer.limit();
+			int end = start + scanned;
+			while( end < limit && buffer.get( end ) != '\n' && buffer.get( end ) != '\r' ) end++;
+
+			if( end < limit && (buffer.get( end ) == '\n' || end + 1 < limit || endOfInput) ) {
+				nextLine = end + 1;
+				if( buffer.get( end ) == '\r' && nextLine < limit && buffer.get( nextLine ) == '\n' ) nextLine++;
+				startLine( start, end );
+				return true;
+			}
+
+			if( endOfInput ) {
+				if( start == limit ) {
+					close();
+					return false;
+				}
+				nextLine = limit;
+				startLine( start, limit );
+				return true;
+			}
+
+			scanned = end - start;
+			fill();
+		}
+	}
+
+	private void startLine( int start, int end ) {
+		while( start < end && buffer.get( start ) <= ' ' ) start++;
+		while( end > start && buffer.get( end - 1 ) <= ' ' ) end--;
+		contentStart = start;
+		contentEnd = end;
+		index = start;
+		context = null;
+		inLine = true;
+		line++;
+	}
+
+	/**
+	 * Read more text into the buffer, keeping the unscanned text and growing
+	 * the buffer if a line does not fit.
+	 */
+	private void fill() throws IOException {
+		buffer.compact();
+		if( !buffer.hasRemaining() ) {
+			CharBuffer larger = CharBuffer.allocate( buffer.capacity() * 2 );
+			larger.put( buffer.flip() );
+			buffer = larger;
+		}
+		// Not all readers support reading into a char buffer
+		int count = reader.read( buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining() );
+		if( count < 0 ) {
+			endOfInput = true;
+		} else {
+			buffer.position( buffer.position() + count );
+		}
+		buffer.flip();
+	}
+
+	private int codePointAt( int index ) {
+		char high = buffer.get( index );
+		if( Character.isHighSurrogate( high ) && index + 1 < contentEnd ) {
+			char low = buffer.get( index + 1 );
+			if( Character.isLowSurrogate( low ) ) return Character.toCodePoint( high, low );
+		}
+		return high;
+	}
+
+	/**
+	 * A hash table of the words found so far, to use one string for equal
+	 * words. Words are looked up by their characters, so a string is only
+	 * created the first time a word is found.
+	 */
+	private static final class WordTable {
+
+		private String[] table = new String[ 256 ];
+
+		private int size;
+
+		String get( CharSequence word ) {
+			int hash = hash( word );
+			int mask = table.length - 1;
+			for( int slot = hash & mask; ; slot = (slot + 1) & mask ) {
+				String existing = table[ slot ];
+				if( existing == null ) {
+					String value = word.toString();
+					table[ slot ] = value;
+					if( ++size * 2 > table.length ) grow();
+					return value;
+				}
+				if( existing.hashCode() == hash && existing.contentEquals( word ) ) return existing;
+			}
+		}
+
+		private void grow() {
+			String[] previous = table;
+			table = new String[ previous.length * 2 ];
+			int mask = table.length - 1;
+			for( String value : previous ) {
+				if( value == null ) continue;
+				int slot = value.hashCode() & mask;
+				while( table[ slot ] != null ) slot = (slot + 1) & mask;
+				table[ slot ] = value;
+			}
+		}
+
+		/**
+		 * The same hash as {@link String#hashCode()}.
+		 */
+		private static int hash( CharSequence word ) {
+			int hash = 0;
+			for( int index = 0; index < word.length(); index++ ) {
+				hash = 31 * hash + word.charAt( index );
+			}
+			return hash;
+		}
+
+	}
+
+}
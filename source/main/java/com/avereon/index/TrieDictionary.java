@@ -0,0 +1,206 @@
+package com.avereon.index;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An immutable trie of words stored in flat arrays. Node zero is the root and
+ * the children of each node are stored together, sorted by their character,
+ * so a child is found with a binary search. Each node only takes a character,
+ * two ints and a bit.
+ * <p>
+ * The words within an edit distance of a term are found by walking the trie
+ * while computing one row of the Levenshtein distance matrix per node, the
+ * same as running a Levenshtein automaton over the trie. A branch is skipped
+ * as soon as every value in the row is over the maximum distance.
+ * <p>
+ * The trie is walked depth first with a stack instead of recursion, so a very
+ * long word does not overflow the call stack.
+ */
+final class TrieDictionary implements TermDictionary {
+
+	private final char[] labels;
+
+	private final int[] firstChild;
+
+	private final int[] childCount;
+
+	private final BitSet terminal;
+
+	private final int size;
+
+	private TrieDictionary( char[] labels, int[] firstChild, int[] childCount, BitSet terminal, int size ) {
+		this.labels = labels;
+		this.firstChild = firstChild;
+		this.childCount = childCount;
+		this.terminal = terminal;
+		this.size = size;
+	}
+
+	static TrieDictionary of( Collection<String> words ) {
+		String[] sorted = new TreeSet<>( words ).toArray( new String[ 0 ] );
+
+		// The number of nodes is at most the number of characters plus the root
+		int capacity = 1;
+		for( String word : sorted ) {
+			capacity += word.length();
+		}
+		char[] labels = new char[ capacity ];
+		int[] firstChild = new int[ capacity ];
+		int[] childCount = new int[ capacity ];
+		BitSet terminal = new BitSet( capacity );
+
+		// Build breadth first so the children of each node are together
+		int nodes = 1;
+		Deque<int[]> queue = new ArrayDeque<>();
+		queue.add( new int[]{ 0, 0, sorted.length, 0 } );
+		while( !queue.isEmpty() ) {
+			int[] entry = queue.poll();
+			int node = entry[ 0 ];
+			int from = entry[ 1 ];
+			int to = entry[ 2 ];
+			int depth = entry[ 3 ];
+
+			// A word that ends here sorts before the longer words
+			if( from < to && sorted[ from ].length() == depth ) {
+				terminal.set( node );
+				from++;
+			}
+
+			firstChild[ node ] = nodes;
+			int start = from;
+			while( start < to ) {
+				char label = sorted[ start ].charAt( depth );
+				int end = start + 1;
+				while( end < to && sorted[ end ].charAt( depth ) == label ) end++;
+
+				labels[ nodes ] = label;
+				queue.add( new int[]{ nodes, start, end, depth + 1 } );
+				childCount[ node ]++;
+				nodes++;
+				start = end;
+			}
+		}
+
+		return new TrieDictionary( Arrays.copyOf( labels, nodes ), Arrays.copyOf( firstChild, nodes ), Arrays.copyOf( childCount, nodes ), terminal, sorted.length );
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains( String word ) {
+		int node = find( word );
+		return node >= 0 && terminal.get( node );
+	}
+
+	@Override
+	public void forEachWithPrefix( String prefix, Consumer<String> consumer ) {
+		int node = find( prefix );
+		if( node >= 0 ) collect( node, new StringBuilder( prefix ), consumer );
+	}
+
+	@Override
+	public void forEachWithin( String term, int maxDistance, ObjIntConsumer<String> consumer ) {
+		int[] row = new int[ term.length() + 1 ];
+		for( int index = 0; index < row.length; index++ ) {
+			row[ index ] = index;
+		}
+		if( terminal.get( 0 ) && row[ term.length() ] <= maxDistance ) consumer.accept( "", row[ term.length() ] );
+
+		Deque<Step> stack = new ArrayDeque<>();
+		pushChildren( stack, 0, 1, row );
+		StringBuilder word = new StringBuilder();
+		int columns = term.length() + 1;
+		while( !stack.isEmpty() ) {
+			Step step = stack.pop();
+			int node = step.node();
+			char label = labels[ node ];
+			int[] previous = step.row();
+			row = new int[ columns ];
+			row[ 0 ] = previous[ 0 ] + 1;
+
+			int minimum = row[ 0 ];
+			for( int column = 1; column < columns; column++ ) {
+				int insert = row[ column - 1 ] + 1;
+				int delete = previous[ column ] + 1;
+				int replace = previous[ column - 1 ] + (term.charAt( column - 1 ) == label ? 0 : 1);
+				row[ column ] = Math.min( Math.min( insert, delete ), replace );
+				minimum = Math.min( minimum, row[ column ] );
+			}
+
+			// No word below this node can be within the distance
+			if( minimum > maxDistance ) continue;
+
+			word.setLength( step.depth() - 1 );
+			word.append( label );
+			if( terminal.get( node ) && row[ columns - 1 ] <= maxDistance ) consumer.accept( word.toString(), row[ columns - 1 ] );
+			pushChildren( stack, node, step.depth() + 1, row );
+		}
+	}
+
+	private void collect( int node, StringBuilder word, Consumer<String> consumer ) {
+		int depth = word.length();
+		if( terminal.get( node ) ) consumer.accept( word.toString() );
+
+		Deque<Step> stack = new ArrayDeque<>();
+		pushChildren( stack, node, depth + 1, null );
+		while( !stack.isEmpty() ) {
+			Step step = stack.pop();
+			word.setLength( step.depth() - 1 );
+			word.append( labels[ step.node() ] );
+			if( terminal.get( step.node() ) ) consumer.accept( word.toString() );
+			pushChildren( stack, step.node(), step.depth() + 1, null );
+		}
+	}
+
+	/**
+	 * Push the children of a node in reverse, so they are popped in order.
+	 */
+	private void pushChildren( Deque<Step> stack, int node, int depth, int[] row ) {
+		int first = firstChild[ node ];
+		for( int child = first + childCount[ node ] - 1; child >= first; child-- ) {
+			stack.push( new Step( child, depth, row ) );
+		}
+	}
+
+	/**
+	 * Find the node at the end of a path of characters.
+	 *
+	 * @param path The characters
+	 * @return The node or -1 if there is no such path
+	 */
+	private int find( String path ) {
+		int node = 0;
+		for( int index = 0; index < path.length() && node >= 0; index++ ) {
+			node = findChild( node, path.charAt( index ) );
+		}
+		return node;
+	}
+
+	private int findChild( int node, char label ) {
+		int low = firstChild[ node ];
+		int high = low + childCount[ node ] - 1;
+		while( low <= high ) {
+			int middle = (low + high) >>> 1;
+			if( labels[ middle ] < label ) {
+				low = middle + 1;
+			} else if( labels[ middle ] > label ) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * A node to visit, the length of the word at the node and the distance
+	 * row of its parent.
+	 */
+	private record Step(int node, int depth, int[] row) {}
+
+}
@@ -0,0 +1,82 @@
+package com.avereon.index;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A term dictionary that combines several term dictionaries, like the
+ * dictionaries of the segments of an index. When the dictionaries are known to
+ * hold different words, the size is the sum of their sizes. Otherwise the
+ * words of all but the largest dictionary are checked against the others the
+ * first time the size is needed.
+ */
+final class UnionDictionary implements TermDictionary {
+
+	private final List<TermDictionary> dictionaries;
+
+	private final boolean disjoint;
+
+	private volatile int size = -1;
+
+	UnionDictionary( List<TermDictionary> dictionaries ) {
+		this( dictionaries, false );
+	}
+
+	private UnionDictionary( List<TermDictionary> dictionaries, boolean disjoint ) {
+		this.dictionaries = dictionaries;
+		this.disjoint = disjoint;
+	}
+
+	/**
+	 * Combine dictionaries that hold different words.
+	 *
+	 * @param dictionaries The term dictionaries
+	 * @return The combined term dictionary
+	 */
+	static UnionDictionary disjoint( List<? extends TermDictionary> dictionaries ) {
+		return new UnionDictionary( List.copyOf( dictionaries ), true );
+	}
+
+	@Override
+	public int size() {
+		int size = this.size;
+		if( size < 0 ) this.size = size = disjoint ? dictionaries.stream().mapToInt( TermDictionary::size ).sum() : countWords();
+		return size;
+	}
+
+	private int countWords() {
+		List<TermDictionary> bySize = new ArrayList<>( dictionaries );
+		bySize.sort( Comparator.comparingInt( TermDictionary::size ).reversed() );
+		int[] count = { bySize.isEmpty() ? 0 : bySize.getFirst().size() };
+		for( int index = 1; index < bySize.size(); index++ ) {
+			List<TermDictionary> previous = bySize.subList( 0, index );
+			bySize.get( index ).forEachWithPrefix( "", word -> {
+				if( previous.stream().noneMatch( d -> d.contains( word ) ) ) count[ 0 ]++;
+			} );
+		}
+		return count[ 0 ];
+	}
+
+	@Override
+	public boolean contains( String word ) {
+		return dictionaries.stream().anyMatch( d -> d.contains( word ) );
+	}
+
+	@Override
+	public void forEachWithPrefix( String prefix, Consumer<String> consumer ) {
+		// Collect in a sorted set to keep the words in order
+		Set<String> words = new TreeSet<>();
+		dictionaries.forEach( d -> d.forEachWithPrefix( prefix, words::add ) );
+		words.forEach( consumer );
+	}
+
+	@Override
+	public void forEachWithin( String term, int maxDistance, ObjIntConsumer<String> consumer ) {
+		Set<String> words = new HashSet<>();
+		dictionaries.forEach( d -> d.forEachWithin( term, maxDistance, ( word, distance ) -> {
+			if( words.add( word ) ) consumer.accept( word, distance );
+		} ) );
+	}
+
+}
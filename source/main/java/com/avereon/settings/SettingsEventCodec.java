@@ -0,0 +1,59 @@
+package com.avereon.settings;
+
+import com.avereon.event.EventCodec;
+import com.avereon.event.EventType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The {@link EventCodec} for settings events. The settings path, key and
+ * values are forwarded. In the receiving process the event source is the
+ * node, at the same path, of the settings given to the codec.
+ */
+public class SettingsEventCodec implements EventCodec<SettingsEvent> {
+
+	private final Settings settings;
+
+	/**
+	 * Create a settings event codec.
+	 *
+	 * @param settings The root settings used for received events
+	 */
+	public SettingsEventCodec( Settings settings ) {
+		this.settings = settings;
+	}
+
+	@Override
+	public EventType<SettingsEvent> getEventType() {
+		return SettingsEvent.ANY;
+	}
+
+	@Override
+	public Collection<EventType<? extends SettingsEvent>> getEventTypes() {
+		return List.of( SettingsEvent.ANY, SettingsEvent.SAVED, SettingsEvent.CHANGED, SettingsEvent.LOADED );
+	}
+
+	@Override
+	public void encode( SettingsEvent event, DataOutput output ) throws IOException {
+		EventCodec.writeString( output, event.getPath() );
+		EventCodec.writeString( output, event.getKey() );
+		EventCodec.writeValue( output, event.getOldValue() );
+		EventCodec.writeValue( output, event.getNewValue() );
+	}
+
+	@Override
+	@SuppressWarnings( "unchecked" )
+	public SettingsEvent decode( EventType<? extends SettingsEvent> type, DataInput input ) throws IOException {
+		String path = EventCodec.readString( input );
+		String key = EventCodec.readString( input );
+		Object oldValue = EventCodec.readValue( input );
+		Object newValue = EventCodec.readValue( input );
+		Settings source = path == null ? settings : settings.getNode( path );
+		return new SettingsEvent( source, (EventType<SettingsEvent>)type, path, key, oldValue, newValue );
+	}
+
+}
@@ -71,7 +71,8 @@ public class DelayedAction {
 	// Called when the dirty time needs to be updated, commonly due to state being changed.
 	public void request() {
 		lastChangeTime.set( System.currentTimeMillis() );
-		if( lastDirtyTime.get() <= lastActionTime.get() ) lastDirtyTime.set( lastChangeTime.get() );
+		// A change in the same millisecond as the last action still needs an action
+		if( lastDirtyTime.get() <= lastActionTime.get() ) lastDirtyTime.set( Math.max( lastChangeTime.get(), lastActionTime.get() + 1 ) );
 		schedule();
 	}
 
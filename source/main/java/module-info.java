@@ -6,6 +6,7 @@ module com.avereon.zevra {
 	requires static java.logging;
 	requires static java.management;
 	requires static java.xml;
+	requires static jdk.jfr;
 	requires static jdk.management;
 	requires static jsr305;
 	requires static lombok;
@@ -13,7 +14,6 @@ module com.avereon.zevra {
 	requires com.fasterxml.jackson.annotation;
 	requires com.fasterxml.jackson.databind;
 	requires com.fasterxml.jackson.core;
-	requires me.xdrop.fuzzywuzzy;
 	requires org.jsoup;
 
 	opens com.avereon.util to com.fasterxml.jackson.databind;
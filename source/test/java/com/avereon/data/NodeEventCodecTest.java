@@ -0,0 +1,45 @@
+package com.avereon.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NodeEventCodecTest {
+
+	@Test
+	void testEncodeDecode() throws Exception {
+		MockNode parent = new MockNode( "parent" );
+		MockNode child = new MockNode( "child" );
+		NodeEvent event = new NodeEvent( parent, NodeEvent.CHILD_ADDED, "child", null, child );
+
+		MockNode localParent = new MockNode( "parent" );
+		MockNode localChild = new MockNode( "child" );
+		Map<String, MockNode> nodes = Map.of( "parent", localParent, "child", localChild );
+		NodeEventCodec codec = new NodeEventCodec( n -> ((MockNode)n).getMockId(), nodes::get );
+
+		NodeEvent decoded = codec.decode( NodeEvent.CHILD_ADDED, new DataInputStream( new ByteArrayInputStream( encode( codec, event ) ) ) );
+		assertThat( (MockNode)decoded.getNode() ).isSameAs( localParent );
+		assertThat( decoded.getEventType() ).isEqualTo( NodeEvent.CHILD_ADDED );
+		assertThat( decoded.getKey() ).isEqualTo( "child" );
+		assertThat( (Object)decoded.getOldValue() ).isNull();
+		assertThat( (Object)decoded.getNewValue() ).isSameAs( localChild );
+	}
+
+	@Test
+	void testDecodeUnknownNode() throws Exception {
+		NodeEvent event = new NodeEvent( new MockNode( "unknown" ), NodeEvent.VALUE_CHANGED, "a", 1, 2 );
+		NodeEventCodec codec = new NodeEventCodec( n -> ((MockNode)n).getMockId(), id -> null );
+
+		assertThat( codec.decode( NodeEvent.VALUE_CHANGED, new DataInputStream( new ByteArrayInputStream( encode( codec, event ) ) ) ) ).isNull();
+	}
+
+	private static byte[] encode( NodeEventCodec codec, NodeEvent event ) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		codec.encode( event, new DataOutputStream( bytes ) );
+		return bytes.toByteArray();
+	}
+
+}
@@ -0,0 +1,195 @@
+package com.avereon.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncEventHubTest {
+
+	@Test
+	void testDispatch() throws Exception {
+		CountDownLatch latch = new CountDownLatch( 3 );
+		List<Event> events = new CopyOnWriteArrayList<>();
+
+		AsyncEventHub hub = new AsyncEventHub();
+		hub.register( TestEvent.ANY, e -> {
+			events.add( e );
+			latch.countDown();
+		} );
+
+		TestEvent a = new TestEvent( this, TestEvent.A );
+		TestEvent b = new TestEvent( this, TestEvent.B );
+		TestEvent c = new TestEvent( this, TestEvent.A );
+		hub.dispatch( a );
+		hub.dispatch( b );
+		hub.dispatch( c );
+
+		assertThat( latch.await( 1, TimeUnit.SECONDS ) ).isTrue();
+		assertThat( events ).containsExactly( a, b, c );
+	}
+
+	@Test
+	void testDispatchDoesNotWaitForHandlers() throws Exception {
+		CountDownLatch release = new CountDownLatch( 1 );
+		CountDownLatch handled = new CountDownLatch( 1 );
+
+		AsyncEventHub hub = new AsyncEventHub();
+		hub.register( TestEvent.ANY, e -> {
+			try {
+				release.await();
+			} catch( InterruptedException exception ) {
+				Thread.currentThread().interrupt();
+			}
+			handled.countDown();
+		} );
+
+		hub.dispatch( new TestEvent( this, TestEvent.A ) );
+		assertThat( handled.getCount() ).isEqualTo( 1 );
+
+		release.countDown();
+		assertThat( handled.await( 1, TimeUnit.SECONDS ) ).isTrue();
+	}
+
+	@Test
+	void testBatchHandler() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		CountDownLatch block = blockExecutor( executor );
+		List<List<TestEvent>> batches = new CopyOnWriteArrayList<>();
+
+		AsyncEventHub hub = new AsyncEventHub( executor );
+		CountDownLatch latch = new CountDownLatch( 1 );
+		BatchEventHandler<TestEvent> handler = events -> {
+			batches.add( events );
+			latch.countDown();
+		};
+		hub.register( TestEvent.ANY, handler );
+
+		List<TestEvent> events = new ArrayList<>();
+		for( int index = 0; index < 5; index++ ) {
+			events.add( new TestEvent( this, TestEvent.A ) );
+			hub.dispatch( events.get( index ) );
+		}
+		block.countDown();
+
+		assertThat( latch.await( 1, TimeUnit.SECONDS ) ).isTrue();
+		assertThat( batches ).containsExactly( events );
+		executor.shutdown();
+	}
+
+	@Test
+	void testDropBackPressure() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		CountDownLatch block = blockExecutor( executor );
+		List<Event> events = new CopyOnWriteArrayList<>();
+
+		AsyncEventHub hub = new AsyncEventHub( executor, 2, BackPressure.DROP );
+		hub.register( TestEvent.ANY, events::add );
+
+		TestEvent a = new TestEvent( this, TestEvent.A );
+		TestEvent b = new TestEvent( this, TestEvent.A );
+		hub.dispatch( a );
+		hub.dispatch( b );
+		hub.dispatch( new TestEvent( this, TestEvent.A ) );
+		assertThat( hub.getQueueDepth() ).isEqualTo( 2 );
+		assertThat( hub.getDroppedCount() ).isEqualTo( 1 );
+
+		block.countDown();
+		executor.shutdown();
+		assertThat( executor.awaitTermination( 1, TimeUnit.SECONDS ) ).isTrue();
+		assertThat( events ).containsExactly( a, b );
+	}
+
+	@Test
+	void testCoalesceBackPressure() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		CountDownLatch block = blockExecutor( executor );
+		List<Event> events = new CopyOnWriteArrayList<>();
+
+		AsyncEventHub hub = new AsyncEventHub( executor, 1, BackPressure.COALESCE );
+		hub.register( TestEvent.ANY, events::add );
+
+		TestEvent a = new TestEvent( this, TestEvent.A );
+		TestEvent b = new TestEvent( this, TestEvent.B );
+		TestEvent c = new TestEvent( this, TestEvent.A );
+		TestEvent d = new TestEvent( this, TestEvent.A );
+		hub.dispatch( a );
+		hub.dispatch( b );
+		hub.dispatch( c );
+		hub.dispatch( d );
+		assertThat( hub.getQueueDepth() ).isEqualTo( 3 );
+
+		block.countDown();
+		executor.shutdown();
+		assertThat( executor.awaitTermination( 1, TimeUnit.SECONDS ) ).isTrue();
+		assertThat( events ).containsExactly( a, b, d );
+	}
+
+	@Test
+	void testMonitorQueueDepth() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		CountDownLatch block = blockExecutor( executor );
+		EventHubStatistics statistics = new EventHubStatistics();
+
+		AsyncEventHub hub = new AsyncEventHub( executor );
+		hub.setMonitor( statistics );
+		hub.register( TestEvent.ANY, e -> {} );
+		hub.dispatch( new TestEvent( this, TestEvent.A ) );
+		hub.dispatch( new TestEvent( this, TestEvent.A ) );
+		hub.dispatch( new TestEvent( this, TestEvent.A ) );
+		assertThat( statistics.getQueueDepth( hub ) ).isEqualTo( 3 );
+
+		block.countDown();
+		executor.shutdown();
+		assertThat( executor.awaitTermination( 1, TimeUnit.SECONDS ) ).isTrue();
+		assertThat( statistics.getQueueDepth( hub ) ).isEqualTo( 0 );
+		assertThat( statistics.getMaxQueueDepth( hub ) ).isEqualTo( 3 );
+		assertThat( statistics.getDeliveryCounts() ).containsEntry( TestEvent.A, 3L );
+	}
+
+	@Test
+	void testDispatchToParent() throws Exception {
+		CountDownLatch latch = new CountDownLatch( 1 );
+		EventHub parent = new EventHub();
+		parent.register( TestEvent.ANY, e -> latch.countDown() );
+
+		AsyncEventHub hub = new AsyncEventHub();
+		hub.parent( parent );
+		hub.dispatch( new TestEvent( this, TestEvent.A ) );
+
+		assertThat( latch.await( 1, TimeUnit.SECONDS ) ).isTrue();
+	}
+
+	private static CountDownLatch blockExecutor( ExecutorService executor ) throws InterruptedException {
+		CountDownLatch started = new CountDownLatch( 1 );
+		CountDownLatch block = new CountDownLatch( 1 );
+		executor.execute( () -> {
+			started.countDown();
+			try {
+				block.await();
+			} catch( InterruptedException exception ) {
+				Thread.currentThread().interrupt();
+			}
+		} );
+		started.await();
+		return block;
+	}
+
+	private static class TestEvent extends Event {
+
+		public static final EventType<TestEvent> ANY = new EventType<>( EventType.ROOT, "ASYNC_TEST" );
+
+		public static final EventType<TestEvent> A = new EventType<>( ANY, "A" );
+
+		public static final EventType<TestEvent> B = new EventType<>( ANY, "B" );
+
+		public TestEvent( Object source, EventType<TestEvent> type ) {
+			super( source, type );
+		}
+
+	}
+
+}
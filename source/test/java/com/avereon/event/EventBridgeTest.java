@@ -0,0 +1,171 @@
+package com.avereon.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventBridgeTest {
+
+	@TempDir
+	private Path folder;
+
+	private EventHub publisher;
+
+	private EventBridge bridge;
+
+	@BeforeEach
+	void setup() throws Exception {
+		publisher = new EventHub();
+		bridge = new EventBridge( folder.resolve( "events.socket" ), 4 ).forward( new TestEventCodec() ).start();
+		publisher.register( bridge );
+	}
+
+	@AfterEach
+	void teardown() throws Exception {
+		bridge.close();
+	}
+
+	@Test
+	void testForwardEvents() throws Exception {
+		EventHub hub = new EventHub();
+		EventWatcher watcher = new EventWatcher( 1000 );
+		hub.register( TestEvent.ANY, watcher );
+
+		try( EventBridgeReceiver receiver = new EventBridgeReceiver( hub ).receive( new TestEventCodec() ).connect( bridge.getPath() ) ) {
+			waitForReceivers( 1 );
+
+			publisher.dispatch( new TestEvent( this, TestEvent.A, "alpha", 1 ) );
+			publisher.dispatch( new Event( this, Event.ANY ) );
+			publisher.dispatch( new TestEvent( this, TestEvent.B, null, "😀" ) );
+
+			TestEvent a = (TestEvent)watcher.waitForEvent( TestEvent.A );
+			assertThat( a.getSource() ).isInstanceOf( TestEventCodec.class );
+			assertThat( a.getText() ).isEqualTo( "alpha" );
+			assertThat( a.getValue() ).isEqualTo( 1 );
+
+			TestEvent b = (TestEvent)watcher.waitForEvent( TestEvent.B );
+			assertThat( b.getText() ).isNull();
+			assertThat( b.getValue() ).isEqualTo( "😀" );
+
+			assertThat( bridge.getForwardedCount() ).isEqualTo( 2 );
+			assertThat( receiver.getReceivedCount() ).isEqualTo( 2 );
+		}
+	}
+
+	@Test
+	void testSlowReceiverDoesNotStallPublisher() throws Exception {
+		// A receiver that never reads
+		try( SocketChannel channel = SocketChannel.open( StandardProtocolFamily.UNIX ) ) {
+			channel.connect( UnixDomainSocketAddress.of( bridge.getPath() ) );
+			waitForReceivers( 1 );
+
+			String text = "x".repeat( 4096 );
+			for( int index = 0; index < 10000; index++ ) {
+				publisher.dispatch( new TestEvent( this, TestEvent.A, text, index ) );
+			}
+
+			assertThat( bridge.getForwardedCount() ).isEqualTo( 10000 );
+			assertThat( bridge.getDroppedCount() ).isGreaterThan( 0 );
+		}
+	}
+
+	@Test
+	void testReceiverClosesOnInvalidFrameLength() throws Exception {
+		Path path = folder.resolve( "invalid.socket" );
+		try( ServerSocketChannel server = ServerSocketChannel.open( StandardProtocolFamily.UNIX ) ) {
+			server.bind( UnixDomainSocketAddress.of( path ) );
+			try( EventBridgeReceiver receiver = new EventBridgeReceiver( new EventHub() ).receive( new TestEventCodec() ).connect( path ); SocketChannel channel = server.accept() ) {
+				ByteBuffer frame = ByteBuffer.allocate( 8 ).putInt( EventFrames.MAX_FRAME_LENGTH + 1 ).putInt( 0 ).flip();
+				while( frame.hasRemaining() ) {
+					channel.write( frame );
+				}
+
+				long limit = System.currentTimeMillis() + 1000;
+				while( receiver.isConnected() && System.currentTimeMillis() < limit ) {
+					Thread.sleep( 1 );
+				}
+				assertThat( receiver.isConnected() ).isFalse();
+				assertThat( channel.read( ByteBuffer.allocate( 1 ) ) ).isEqualTo( -1 );
+				assertThat( receiver.getReceivedCount() ).isZero();
+			}
+		}
+	}
+
+	private void waitForReceivers( int count ) throws InterruptedException {
+		long limit = System.currentTimeMillis() + 1000;
+		while( bridge.getReceiverCount() < count && System.currentTimeMillis() < limit ) {
+			Thread.sleep( 1 );
+		}
+		assertThat( bridge.getReceiverCount() ).isEqualTo( count );
+	}
+
+	private static class TestEventCodec implements EventCodec<TestEvent> {
+
+		@Override
+		public EventType<TestEvent> getEventType() {
+			return TestEvent.ANY;
+		}
+
+		@Override
+		public Collection<EventType<? extends TestEvent>> getEventTypes() {
+			return List.of( TestEvent.ANY, TestEvent.A, TestEvent.B );
+		}
+
+		@Override
+		public void encode( TestEvent event, DataOutput output ) throws IOException {
+			EventCodec.writeString( output, event.getText() );
+			EventCodec.writeValue( output, event.getValue() );
+		}
+
+		@Override
+		@SuppressWarnings( "unchecked" )
+		public TestEvent decode( EventType<? extends TestEvent> type, DataInput input ) throws IOException {
+			return new TestEvent( this, (EventType<TestEvent>)type, EventCodec.readString( input ), EventCodec.readValue( input ) );
+		}
+
+	}
+
+	private static class TestEvent extends Event {
+
+		public static final EventType<TestEvent> ANY = new EventType<>( EventType.ROOT, "BRIDGE_TEST" );
+
+		public static final EventType<TestEvent> A = new EventType<>( ANY, "A" );
+
+		public static final EventType<TestEvent> B = new EventType<>( ANY, "B" );
+
+		private final String text;
+
+		private final Object value;
+
+		public TestEvent( Object source, EventType<TestEvent> type, String text, Object value ) {
+			super( source, type );
+			this.text = text;
+			this.value = value;
+		}
+
+		public String getText() {
+			return text;
+		}
+
+		public Object getValue() {
+			return value;
+		}
+
+	}
+
+}
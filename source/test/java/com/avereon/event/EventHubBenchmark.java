@@ -0,0 +1,112 @@
+package com.avereon.event;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.invoke.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the event dispatch of one event to 100 handlers of 1, 10 and 100
+ * different classes with the standard dispatch, the typed dispatch with one
+ * shared call site, which only caches the routes, and the typed dispatch with
+ * a call site for each handler class. Each handler class is spun with
+ * the {@link LambdaMetafactory}, which defines a new class for every call, so
+ * the handlers have the same behavior but different classes.
+ * <p>
+ * Run with the main method, or with the JMH runner, after the test classes
+ * have been compiled with the JMH annotation processor.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class EventHubBenchmark {
+
+	private static final int HANDLERS = 100;
+
+	@Param( { "1", "10", "100" } )
+	private int handlerTypes;
+
+	@Param( { "standard", "routed", "typed" } )
+	private String dispatch;
+
+	private EventHub hub;
+
+	private BenchmarkEvent event;
+
+	private static Blackhole blackhole;
+
+	@Setup
+	@SuppressWarnings( "unchecked" )
+	public void setup( Blackhole blackhole ) throws Throwable {
+		EventHubBenchmark.blackhole = blackhole;
+
+		List<MethodHandle> factories = new ArrayList<>();
+		for( int index = 0; index < handlerTypes; index++ ) {
+			factories.add( createHandlerFactory() );
+		}
+
+		hub = switch( dispatch ) {
+			case "routed" -> new EventHub().setTypedDispatch( true, false );
+			case "typed" -> new EventHub().setTypedDispatch( true, true );
+			default -> new EventHub();
+		};
+		for( int index = 0; index < HANDLERS; index++ ) {
+			hub.register( BenchmarkEvent.ANY, (EventHandler<BenchmarkEvent>)factories.get( index % handlerTypes ).invoke( index ) );
+		}
+		event = new BenchmarkEvent( this );
+	}
+
+	@Benchmark
+	public Event dispatch() {
+		return hub.dispatch( event );
+	}
+
+	public static void main( String[] parameters ) throws RunnerException {
+		Options options = new OptionsBuilder().include( EventHubBenchmark.class.getSimpleName() ).build();
+		new Runner( options ).run();
+	}
+
+	private static void handle( int id, BenchmarkEvent event ) {
+		blackhole.consume( id );
+		blackhole.consume( event );
+	}
+
+	/**
+	 * Create a factory for a new handler class. The handlers capture an id so
+	 * every call to the factory creates a new handler instance.
+	 */
+	private static MethodHandle createHandlerFactory() throws Throwable {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		MethodHandle handle = lookup.findStatic( EventHubBenchmark.class, "handle", MethodType.methodType( void.class, int.class, BenchmarkEvent.class ) );
+		CallSite site = LambdaMetafactory.metafactory(
+			lookup,
+			"handle",
+			MethodType.methodType( EventHandler.class, int.class ),
+			MethodType.methodType( void.class, Event.class ),
+			handle,
+			MethodType.methodType( void.class, BenchmarkEvent.class )
+		);
+		return site.getTarget();
+	}
+
+	private static class BenchmarkEvent extends Event {
+
+		public static final EventType<BenchmarkEvent> ANY = new EventType<>( EventType.ROOT, "BENCHMARK" );
+
+		public BenchmarkEvent( Object source ) {
+			super( source, ANY );
+		}
+
+	}
+
+}
@@ -1,10 +1,15 @@
 package com.avereon.event;
 
+import com.avereon.util.ThreadUtil;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Fail.fail;
@@ -40,7 +45,7 @@ class EventHubTest {
 
 	@Test
 	void testPrior() {
-		EventHub bus = new EventHub();
+		EventHub bus = new EventHub().trackPriorEvents( true );
 		assertThat( bus.<Event> getPriorEvent( TestEvent.class ) ).isNull();
 		TestEvent any = new TestEvent( this, TestEvent.ANY );
 		bus.dispatch( any );
@@ -55,6 +60,35 @@ class EventHubTest {
 		assertThat( bus.<Event> getPriorEvent( TestEvent.class ) ).isEqualTo( b );
 	}
 
+	@Test
+	void testPriorNotTrackedByDefault() {
+		EventHub bus = new EventHub();
+		bus.dispatch( new TestEvent( this, TestEvent.ANY ) );
+		assertThat( bus.<Event> getPriorEvent( TestEvent.class ) ).isNull();
+	}
+
+	@Test
+	void testPriorWithTrackedClass() {
+		EventHub bus = new EventHub().trackPriorEvent( TestEvent.class );
+		TestEvent a = new TestEvent( this, TestEvent.A );
+		bus.dispatch( a );
+		bus.dispatch( new Event( this, Event.ANY ) );
+		assertThat( bus.<Event> getPriorEvent( TestEvent.class ) ).isEqualTo( a );
+		assertThat( bus.<Event> getPriorEvent( Event.class ) ).isNull();
+
+		bus.trackPriorEvents( false );
+		assertThat( bus.<Event> getPriorEvent( TestEvent.class ) ).isNull();
+	}
+
+	@Test
+	void testPriorOnParent() {
+		EventHub parent = new EventHub().trackPriorEvents( true );
+		EventHub child = new EventHub().parent( parent );
+		TestEvent a = new TestEvent( this, TestEvent.A );
+		child.dispatch( a );
+		assertThat( parent.<Event> getPriorEvent( TestEvent.class ) ).isEqualTo( a );
+	}
+
 	@Test
 	void testDispatchWithPeer() {
 		List<Event> testEvents = new ArrayList<>();
@@ -71,6 +105,195 @@ class EventHubTest {
 		assertThat( testEvents.size() ).isEqualTo( 1 );
 	}
 
+	@Test
+	void testDispatchWithParent() {
+		List<Event> parentEvents = new ArrayList<>();
+
+		EventHub parent = new EventHub();
+		EventHub child = new EventHub().parent( parent );
+		parent.register( TestEvent.ANY, parentEvents::add );
+
+		child.dispatch( new TestEvent( this, TestEvent.A ) );
+		assertThat( parentEvents.size() ).isEqualTo( 1 );
+		assertThat( parent.getRoutingMetrics().getDeliveredCount() ).isEqualTo( 1 );
+		assertThat( parent.getRoutingMetrics().getPrunedCount() ).isEqualTo( 0 );
+	}
+
+	@Test
+	void testDispatchPrunesUninterestedHubs() {
+		List<Event> peerEvents = new ArrayList<>();
+
+		EventHub grandparent = new EventHub();
+		EventHub parent = new EventHub().parent( grandparent );
+		EventHub child = new EventHub().parent( parent );
+		EventHub peer = new EventHub();
+		child.register( peer );
+		peer.register( TestEvent.B, peerEvents::add );
+		grandparent.register( Event.ANY, e -> {} );
+
+		// The parent has no handlers but the grandparent is interested in everything
+		child.dispatch( new TestEvent( this, TestEvent.A ) );
+		assertThat( peer.getRoutingMetrics().getPrunedCount() ).isEqualTo( 1 );
+		assertThat( parent.getRoutingMetrics().getDeliveredCount() ).isEqualTo( 1 );
+		assertThat( grandparent.getRoutingMetrics().getDeliveredCount() ).isEqualTo( 1 );
+
+		child.dispatch( new TestEvent( this, TestEvent.B ) );
+		assertThat( peerEvents.size() ).isEqualTo( 1 );
+
+		// Without the grandparent the whole parent chain is pruned
+		parent.parent( null );
+		child.dispatch( new TestEvent( this, TestEvent.A ) );
+		assertThat( parent.getRoutingMetrics().getPrunedCount() ).isEqualTo( 1 );
+		assertThat( parent.getRoutingMetrics().getDeliveredCount() ).isEqualTo( 2 );
+		assertThat( grandparent.getRoutingMetrics().getDeliveredCount() ).isEqualTo( 2 );
+	}
+
+	@Test
+	void testRoutingChangesOnlyRebuildDependentHubs() {
+		List<Event> parentEvents = new ArrayList<>();
+
+		EventHub parent = new EventHub();
+		EventHub child = new EventHub().parent( parent );
+		EventHub other = new EventHub();
+		child.dispatch( new TestEvent( this, TestEvent.A ) );
+		other.dispatch( new TestEvent( this, TestEvent.A ) );
+		long childRebuilds = child.getRoutingMetrics().getRebuildCount();
+
+		// A change on an unrelated hub does not rebuild the child
+		other.register( TestEvent.A, e -> {} );
+		other.unregister( TestEvent.B, e -> {} );
+		child.dispatch( new TestEvent( this, TestEvent.A ) );
+		assertThat( child.getRoutingMetrics().getRebuildCount() ).isEqualTo( childRebuilds );
+		assertThat( parent.getRoutingMetrics().getPrunedCount() ).isEqualTo( 2 );
+
+		// A change on the parent reaches the child
+		parent.register( TestEvent.A, parentEvents::add );
+		child.dispatch( new TestEvent( this, TestEvent.A ) );
+		assertThat( child.getRoutingMetrics().getRebuildCount() ).isEqualTo( childRebuilds + 1 );
+		assertThat( parentEvents.size() ).isEqualTo( 1 );
+
+		// Unregistering a handler that is not registered changes nothing
+		parent.unregister( TestEvent.A, e -> {} );
+		child.dispatch( new TestEvent( this, TestEvent.A ) );
+		assertThat( child.getRoutingMetrics().getRebuildCount() ).isEqualTo( childRebuilds + 1 );
+		assertThat( parentEvents.size() ).isEqualTo( 2 );
+	}
+
+	@Test
+	void testCoalescedHandler() throws Exception {
+		List<Event> events = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch( 1 );
+
+		EventHub bus = new EventHub();
+		bus.register( TestEvent.ANY, e -> {
+			events.add( e );
+			latch.countDown();
+		}, CoalescePolicy.latest( 50 ) );
+
+		TestEvent last = null;
+		for( int index = 0; index < 100; index++ ) {
+			bus.dispatch( last = new TestEvent( this, TestEvent.A ) );
+		}
+
+		assertThat( latch.await( 1, TimeUnit.SECONDS ) ).isTrue();
+		assertThat( events ).containsExactly( last );
+	}
+
+	@Test
+	void testCoalescedHandlerWithKey() throws Exception {
+		List<Event> events = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch( 2 );
+		Object sourceA = new Object();
+		Object sourceB = new Object();
+
+		EventHub bus = new EventHub();
+		bus.register( TestEvent.ANY, e -> {
+			events.add( e );
+			latch.countDown();
+		}, CoalescePolicy.latest( 50, Event::getSource ) );
+
+		TestEvent lastA = null;
+		TestEvent lastB = null;
+		for( int index = 0; index < 100; index++ ) {
+			bus.dispatch( lastA = new TestEvent( sourceA, TestEvent.A ) );
+			bus.dispatch( lastB = new TestEvent( sourceB, TestEvent.B ) );
+		}
+
+		assertThat( latch.await( 1, TimeUnit.SECONDS ) ).isTrue();
+		assertThat( events ).containsExactly( lastA, lastB );
+	}
+
+	@Test
+	void testUnregisterCoalescedHandler() {
+		EventHub bus = new EventHub();
+		EventHandler<TestEvent> handler = e -> {};
+		bus.register( TestEvent.ANY, handler, CoalescePolicy.latest( 50 ) );
+		assertThat( bus.getEventHandlers( TestEvent.ANY ) ).hasSize( 1 );
+
+		bus.unregister( TestEvent.ANY, handler );
+		assertThat( bus.getEventHandlers( TestEvent.ANY ) ).isEmpty();
+	}
+
+	@Test
+	void testMonitor() {
+		EventHubStatistics statistics = new EventHubStatistics( Duration.ofMillis( 5 ) );
+		EventHub bus = new EventHub().setMonitor( statistics );
+		EventHandler<TestEvent> slowHandler = new SlowHandler();
+		bus.register( TestEvent.A, slowHandler );
+		bus.register( TestEvent.ANY, e -> {} );
+
+		bus.dispatch( new TestEvent( this, TestEvent.A ) );
+		bus.dispatch( new TestEvent( this, TestEvent.B ) );
+		bus.dispatch( new TestEvent( this, TestEvent.B ) );
+
+		assertThat( statistics.getDeliveryCounts() ).containsEntry( TestEvent.A, 1L ).containsEntry( TestEvent.B, 2L );
+		assertThat( statistics.getHandlerTimes().get( SlowHandler.class.getName() ).getCount() ).isEqualTo( 1 );
+		assertThat( statistics.getSlowHandlers() ).hasSize( 1 );
+		assertThat( statistics.getSlowHandlers().get( 0 ).handler() ).isEqualTo( SlowHandler.class.getName() );
+		assertThat( statistics.getSlowHandlers().get( 0 ).type() ).isEqualTo( TestEvent.A );
+
+		// Removing the monitor stops the measurements
+		bus.setMonitor( null );
+		bus.dispatch( new TestEvent( this, TestEvent.A ) );
+		assertThat( statistics.getDeliveryCounts() ).containsEntry( TestEvent.A, 1L );
+	}
+
+	@Test
+	void testTypedDispatch() {
+		EventHub bus = new EventHub().setTypedDispatch( true );
+		List<String> calls = new ArrayList<>();
+		EventHandler<TestEvent> handlerA = e -> calls.add( "A" );
+		bus.register( TestEvent.A, handlerA );
+		bus.register( TestEvent.A, new SlowHandler() );
+		bus.register( TestEvent.ANY, e -> calls.add( "ANY" ) );
+
+		bus.dispatch( new TestEvent( this, TestEvent.A ) );
+		bus.dispatch( new TestEvent( this, TestEvent.B ) );
+		assertThat( calls ).containsExactly( "A", "ANY", "ANY" );
+
+		// Changing the handlers changes the routes
+		calls.clear();
+		bus.unregister( TestEvent.A, handlerA );
+		bus.register( TestEvent.B, e -> calls.add( "B" ) );
+		bus.dispatch( new TestEvent( this, TestEvent.A ) );
+		bus.dispatch( new TestEvent( this, TestEvent.B ) );
+		assertThat( calls ).containsExactly( "ANY", "B", "ANY" );
+	}
+
+	@Test
+	void testTypedDispatchWithFailingHandler() {
+		EventHub bus = new EventHub().setTypedDispatch( true );
+		List<String> calls = new ArrayList<>();
+		bus.register( TestEvent.A, e -> {
+			throw new IllegalStateException( "Intentional test failure" );
+		} );
+		bus.register( TestEvent.A, e -> calls.add( "A" ) );
+		bus.register( TestEvent.ANY, e -> calls.add( "ANY" ) );
+
+		bus.dispatch( new TestEvent( this, TestEvent.A ) );
+		assertThat( calls ).containsExactly( "A", "ANY" );
+	}
+
 	@Test
 	void testRemovingEventHandlerFromItself() {
 		EventHub bus = new EventHub();
@@ -108,6 +331,15 @@ class EventHubTest {
 		assertThat( events ).isEmpty();
 	}
 
+	private static class SlowHandler implements EventHandler<TestEvent> {
+
+		@Override
+		public void handle( TestEvent event ) {
+			ThreadUtil.pause( 10 );
+		}
+
+	}
+
 	private static class TestEvent extends Event {
 
 		public static final EventType<TestEvent> TEST = new EventType<>( EventType.ROOT, "TEST" );
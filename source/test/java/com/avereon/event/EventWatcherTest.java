@@ -0,0 +1,173 @@
+package com.avereon.event;
+
+import com.avereon.util.ThreadUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventWatcherTest {
+
+	@Test
+	void testWaitForEventAlreadyCaptured() throws Exception {
+		EventWatcher watcher = new EventWatcher();
+		TestEvent a = new TestEvent( this, TestEvent.A );
+		watcher.handle( a );
+
+		assertThat( watcher.waitForEvent( TestEvent.A ) ).isEqualTo( a );
+		assertThat( watcher.getEvents() ).isEmpty();
+	}
+
+	@Test
+	void testWaitForEventKeepsUnrelatedEvents() throws Exception {
+		EventWatcher watcher = new EventWatcher();
+		TestEvent a = new TestEvent( this, TestEvent.A );
+		TestEvent b = new TestEvent( this, TestEvent.B );
+		watcher.handle( a );
+		watcher.handle( b );
+
+		assertThat( watcher.waitForEvent( TestEvent.B ) ).isEqualTo( b );
+		assertThat( watcher.waitForEvent( TestEvent.A ) ).isEqualTo( a );
+	}
+
+	@Test
+	void testWaitForEventMatchesExactType() throws Exception {
+		EventWatcher watcher = new EventWatcher();
+		TestEvent a = new TestEvent( this, TestEvent.A );
+		watcher.handle( a );
+
+		assertThat( watcher.waitForEvent( TestEvent.ANY, 0 ) ).isNull();
+		assertThat( watcher.getEvents() ).containsExactly( a );
+	}
+
+	@Test
+	void testWaitForEventWithoutTimeout() throws Exception {
+		EventWatcher watcher = new EventWatcher();
+		assertThat( watcher.waitForEvent( TestEvent.A, 0 ) ).isNull();
+
+		TestEvent a = new TestEvent( this, TestEvent.A );
+		watcher.handle( a );
+		assertThat( watcher.waitForEvent( TestEvent.A, 0 ) ).isEqualTo( a );
+	}
+
+	@Test
+	void testWaitForEventWithPredicate() throws Exception {
+		EventWatcher watcher = new EventWatcher();
+		Object source = new Object();
+		TestEvent a = new TestEvent( source, TestEvent.A );
+		watcher.handle( new TestEvent( this, TestEvent.A ) );
+		watcher.handle( a );
+
+		assertThat( watcher.waitForEvent( TestEvent.A, e -> e.getSource() == source, 100 ) ).isEqualTo( a );
+		assertThat( watcher.getEvents() ).hasSize( 1 );
+	}
+
+	@Test
+	void testWaitForEventFromOtherThread() throws Exception {
+		EventWatcher watcher = new EventWatcher();
+		TestEvent a = new TestEvent( this, TestEvent.A );
+		Thread.ofVirtual().start( () -> watcher.handle( a ) );
+
+		assertThat( watcher.waitForEvent( TestEvent.A ) ).isEqualTo( a );
+	}
+
+	@Test
+	void testWaitForEventTimeout() {
+		EventWatcher watcher = new EventWatcher( 10 );
+		watcher.handle( new TestEvent( this, TestEvent.B ) );
+
+		assertThatThrownBy( () -> watcher.waitForEvent( TestEvent.A ) ).isInstanceOf( TimeoutException.class );
+	}
+
+	@Test
+	void testTimedOutWaitDoesNotTakeEvents() {
+		EventWatcher watcher = new EventWatcher( 10 );
+		assertThatThrownBy( () -> watcher.waitForEvent( TestEvent.A ) ).isInstanceOf( TimeoutException.class );
+
+		TestEvent a = new TestEvent( this, TestEvent.A );
+		watcher.handle( a );
+		assertThat( watcher.getEvents() ).containsExactly( a );
+	}
+
+	@Test
+	void testCapturedEventsBounded() {
+		EventWatcher watcher = new EventWatcher();
+		TestEvent first = new TestEvent( this, TestEvent.A );
+		watcher.handle( first );
+		for( int count = 0; count < EventWatcher.MAX_CAPTURED_EVENTS; count++ ) {
+			watcher.handle( new TestEvent( this, TestEvent.B ) );
+		}
+
+		assertThat( watcher.getEvents() ).hasSize( EventWatcher.MAX_CAPTURED_EVENTS ).doesNotContain( first );
+	}
+
+	@Test
+	void testWaitForNextEvent() throws Exception {
+		EventWatcher watcher = new EventWatcher();
+		watcher.handle( new TestEvent( this, TestEvent.A ) );
+		TestEvent next = new TestEvent( this, TestEvent.A );
+		Thread.ofVirtual().start( () -> {
+			// Give the waiting thread a chance to start waiting
+			ThreadUtil.pause( 10 );
+			watcher.handle( next );
+		} );
+
+		assertThat( watcher.waitForNextEvent( TestEvent.A ) ).isEqualTo( next );
+	}
+
+	@Test
+	void testExpect() throws Exception {
+		EventWatcher watcher = new EventWatcher();
+		CompletableFuture<TestEvent> futureA = watcher.expect( TestEvent.A );
+		CompletableFuture<TestEvent> futureB = watcher.expect( TestEvent.B );
+		assertThat( futureA ).isNotDone();
+
+		TestEvent b = new TestEvent( this, TestEvent.B );
+		TestEvent a = new TestEvent( this, TestEvent.A );
+		watcher.handle( b );
+		watcher.handle( a );
+
+		assertThat( futureA.get( 1, TimeUnit.SECONDS ) ).isEqualTo( a );
+		assertThat( futureB.get( 1, TimeUnit.SECONDS ) ).isEqualTo( b );
+		assertThat( watcher.getEvents() ).isEmpty();
+	}
+
+	@Test
+	void testExpectAlreadyCaptured() {
+		EventWatcher watcher = new EventWatcher();
+		TestEvent a = new TestEvent( this, TestEvent.A );
+		watcher.handle( a );
+
+		assertThat( watcher.expect( TestEvent.A ) ).isCompletedWithValue( a );
+	}
+
+	@Test
+	void testExpectCancelled() {
+		EventWatcher watcher = new EventWatcher();
+		CompletableFuture<TestEvent> future = watcher.expect( TestEvent.A );
+		future.cancel( false );
+
+		TestEvent a = new TestEvent( this, TestEvent.A );
+		watcher.handle( a );
+		assertThat( watcher.getEvents() ).containsExactly( a );
+	}
+
+	private static class TestEvent extends Event {
+
+		public static final EventType<TestEvent> ANY = new EventType<>( EventType.ROOT, "WATCHER_TEST" );
+
+		public static final EventType<TestEvent> A = new EventType<>( ANY, "A" );
+
+		public static final EventType<TestEvent> B = new EventType<>( ANY, "B" );
+
+		public TestEvent( Object source, EventType<TestEvent> type ) {
+			super( source, type );
+		}
+
+	}
+
+}
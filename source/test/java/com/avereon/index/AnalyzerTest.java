@@ -0,0 +1,67 @@
+package com.avereon.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AnalyzerTest {
+
+	@Test
+	void testStemmer() {
+		Analyzer stemmer = Analyzer.stemmer();
+		assertThat( List.of( "index", "indexes", "indexed", "indexing" ) ).allMatch( w -> stemmer.analyze( w ).equals( "index" ) );
+		assertThat( stemmer.analyze( "running" ) ).isEqualTo( "run" );
+		assertThat( stemmer.analyze( "falling" ) ).isEqualTo( "fall" );
+		assertThat( stemmer.analyze( "queries" ) ).isEqualTo( "query" );
+		assertThat( stemmer.analyze( "classes" ) ).isEqualTo( "class" );
+		assertThat( stemmer.analyze( "documents" ) ).isEqualTo( "document" );
+		assertThat( stemmer.analyze( "houses" ) ).isEqualTo( "house" );
+		assertThat( stemmer.analyze( "status" ) ).isEqualTo( "status" );
+		assertThat( stemmer.analyze( "glass" ) ).isEqualTo( "glass" );
+		assertThat( stemmer.analyze( "string" ) ).isEqualTo( "string" );
+		assertThat( stemmer.analyze( "being" ) ).isEqualTo( "being" );
+		assertThat( stemmer.analyze( "größes" ) ).isEqualTo( "größes" );
+	}
+
+	@Test
+	void testChain() {
+		Analyzer analyzer = Analyzer.english().then( Analyzer.synonyms( Map.of( "car", "automobile" ) ) );
+		assertThat( analyzer.analyze( "The" ) ).isNull();
+		assertThat( analyzer.analyze( "Cars" ) ).isEqualTo( "automobile" );
+		assertThat( analyzer.analyze( IndexQuery.builder().term( "the indexed" ).term( "of" ).build() ).terms() ).containsExactly( "index" );
+	}
+
+	@Test
+	void testIndexAndQueryAnalyzedTheSame() {
+		Analyzer analyzer = Analyzer.english();
+		Document document = new Document( URI.create( "test:a" ), "", "Indexing", "The documents are indexed" );
+		Index index = new StandardIndex().push( new HitFinder( analyzer ).find( document, new TextTermSource( document ) ).get() );
+		assertThat( index.getDictionary() ).containsExactlyInAnyOrder( "index", "document" );
+
+		Hit hit = index.getHits( "document" ).iterator().next();
+		assertThat( hit.getLength() ).isEqualTo( 9 );
+		assertThat( hit.getContext() ).isEqualTo( "The documents are indexed" );
+
+		IndexQuery query = IndexQuery.builder().term( "indexes" ).build();
+		assertThat( new DirectSearch().search( index, query ).get() ).isEmpty();
+		assertThat( new DirectSearch().search( index, query, analyzer ).get() ).hasSize( 2 );
+		assertThat( new BooleanSearch().search( index, IndexQuery.builder().term( "title:indexes AND the document" ).build(), analyzer ).get() ).hasSize( 1 );
+	}
+
+	@Test
+	void testIndexerSearchUsesAnalyzer() throws Exception {
+		Indexer indexer = new Indexer( null, Analyzer.english() ).start();
+		try {
+			Document document = new Document( URI.create( "test:a" ), "", "Title", "Searching the indexes" );
+			indexer.submit( document ).get().get();
+			assertThat( indexer.search( new DirectSearch(), IndexQuery.builder().term( "searched" ).build() ).get() ).extracting( Hit::getDocument ).containsExactly( document );
+		} finally {
+			indexer.stop();
+		}
+	}
+
+}
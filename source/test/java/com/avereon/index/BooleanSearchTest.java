@@ -0,0 +1,91 @@
+package com.avereon.index;
+
+import com.avereon.result.Result;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+
+import static com.avereon.index.TestIndexes.index;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BooleanSearchTest {
+
+	private final Document java = new Document( URI.create( "test:java" ), "", "Java Index", "An index written in java" ).tags( Set.of( "draft" ) );
+
+	private final Document kotlin = new Document( URI.create( "test:kotlin" ), "", "Kotlin Search", "A search written in kotlin" );
+
+	private final Document notes = new Document( URI.create( "test:notes" ), "", "Notes", "Notes about the java index and search" );
+
+	private final Index index = index( java, kotlin, notes );
+
+	@Test
+	void testParse() {
+		assertThat( Query.parse( "title:Index AND (java OR kotlin) -draft" ) ).isEqualTo( new Query.And( List.of(
+			new Query.Word( "index", Hit.TITLE_PRIORITY ),
+			new Query.Or( List.of( new Query.Word( "java" ), new Query.Word( "kotlin" ) ) ),
+			new Query.Not( new Query.Word( "draft" ) )
+		) ) );
+		assertThat( Query.parse( "a b or not c" ) ).isEqualTo( new Query.Or( List.of(
+			new Query.And( List.of( new Query.Word( "a" ), new Query.Word( "b" ) ) ),
+			new Query.Not( new Query.Word( "c" ) )
+		) ) );
+		assertThat( Query.parse( "tag:well-known" ) ).isEqualTo( new Query.And( List.of( new Query.Word( "well", Hit.TAG_PRIORITY ), new Query.Word( "known", Hit.TAG_PRIORITY ) ) ) );
+	}
+
+	@Test
+	void testParseErrors() {
+		assertThatThrownBy( () -> Query.parse( "" ) ).isInstanceOf( IllegalArgumentException.class );
+		assertThatThrownBy( () -> Query.parse( "(a or b" ) ).isInstanceOf( IllegalArgumentException.class );
+		assertThatThrownBy( () -> Query.parse( "a and" ) ).isInstanceOf( IllegalArgumentException.class );
+		assertThatThrownBy( () -> Query.parse( "a )" ) ).isInstanceOf( IllegalArgumentException.class );
+	}
+
+	@Test
+	void testAnd() {
+		assertThat( search( "java index" ) ).containsExactlyInAnyOrder( java, notes );
+		assertThat( search( "java kotlin" ) ).isEmpty();
+	}
+
+	@Test
+	void testOr() {
+		assertThat( search( "java OR kotlin" ) ).containsExactlyInAnyOrder( java, kotlin, notes );
+	}
+
+	@Test
+	void testNot() {
+		assertThat( search( "java -draft" ) ).containsExactly( notes );
+		assertThat( search( "written AND NOT (java OR title:notes)" ) ).containsExactly( kotlin );
+	}
+
+	@Test
+	void testFieldScope() {
+		assertThat( search( "title:index" ) ).containsExactly( java );
+		assertThat( search( "content:index" ) ).containsExactlyInAnyOrder( java, notes );
+		assertThat( search( "tag:draft" ) ).containsExactly( java );
+		assertThat( search( "tag:java" ) ).isEmpty();
+	}
+
+	@Test
+	void testBestHitAndPoints() {
+		List<Hit> hits = new BooleanSearch().search( index, IndexQuery.builder().term( "java" ).build() ).get();
+		assertThat( hits.getFirst().getDocument() ).isSameAs( java );
+		assertThat( hits.getFirst().getPriority() ).isEqualTo( Hit.TITLE_PRIORITY );
+		assertThat( hits.getFirst().getPoints() ).isEqualTo( 2 );
+	}
+
+	@Test
+	void testOnlyExcludedFails() {
+		assertThat( new BooleanSearch().search( index, IndexQuery.builder().term( "-java" ).build() ).isFailed() ).isTrue();
+		assertThat( new BooleanSearch().search( index, IndexQuery.builder().term( "kotlin OR -java" ).build() ).isFailed() ).isTrue();
+		assertThat( new BooleanSearch().search( index, IndexQuery.builder().term( "(java" ).build() ).isFailed() ).isTrue();
+	}
+
+	private List<Document> search( String expression ) {
+		Result<List<Hit>> result = new BooleanSearch().search( index, IndexQuery.builder().terms( List.of( expression.split( " " ) ) ).build() );
+		return result.get().stream().map( Hit::getDocument ).toList();
+	}
+
+}
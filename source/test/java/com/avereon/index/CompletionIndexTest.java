@@ -0,0 +1,83 @@
+package com.avereon.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompletionIndexTest {
+
+	@Test
+	void testCompleteByWeight() {
+		CompletionIndex completions = new CompletionIndex();
+		completions.add( "index", 3 );
+		completions.add( "indexer", 1 );
+		completions.add( "indigo", 2 );
+		completions.add( "other", 5 );
+
+		assertThat( completions.complete( "ind" ) ).containsExactly( "index", "indigo", "indexer" );
+		assertThat( completions.complete( "IND", 2 ) ).containsExactly( "index", "indigo" );
+		assertThat( completions.complete( "indexe" ) ).containsExactly( "indexer" );
+		assertThat( completions.complete( "x" ) ).isEmpty();
+		assertThat( completions.complete( "" ) ).startsWith( "other" );
+	}
+
+	@Test
+	void testWeightGrowsIntoBestSuggestions() {
+		CompletionIndex completions = new CompletionIndex( 2 );
+		completions.add( "apple", 3 );
+		completions.add( "apricot", 2 );
+		completions.add( "avocado", 1 );
+		assertThat( completions.complete( "a" ) ).containsExactly( "apple", "apricot" );
+
+		completions.add( "avocado", 3 );
+		assertThat( completions.complete( "a" ) ).containsExactly( "avocado", "apple" );
+		assertThat( completions.complete( "ap" ) ).containsExactly( "apple", "apricot" );
+		assertThat( completions.size() ).isEqualTo( 3 );
+	}
+
+	@Test
+	void testOfIndex() {
+		Document a = new Document( URI.create( "test:a" ), "", "Search Engines", "search the index" );
+		Document b = new Document( URI.create( "test:b" ), "", "Other", "searching for seals" );
+		Index index = new StandardIndex().push( new HitFinder().find( a, new TextTermSource( a ) ).get() ).push( new HitFinder().find( b, new TextTermSource( b ) ).get() );
+
+		CompletionIndex completions = CompletionIndex.of( index );
+		assertThat( completions.complete( "sea" ) ).containsExactly( "Search Engines", "seals", "search", "searching" );
+		assertThat( completions.complete( "search e" ) ).containsExactly( "Search Engines" );
+	}
+
+	@Test
+	void testIndexerUpdatesCompletions() throws Exception {
+		Indexer indexer = new Indexer( null ).start();
+		try {
+			indexer.submit( new Document( URI.create( "test:a" ), "", "Alpha", "complete" ) ).get().get();
+			assertThat( indexer.complete( "comp", 5 ) ).containsExactly( "complete" );
+
+			indexer.submit( new Document( URI.create( "test:b" ), "", "Beta", "completion completion" ) ).get().get();
+			indexer.submit( new Document( URI.create( "test:c" ), "", "Gamma", "completion" ) ).get().get();
+			assertThat( indexer.complete( "comp", 5 ) ).containsExactly( "completion", "complete" );
+			assertThat( indexer.complete( "missing", "comp", 5 ) ).isEmpty();
+		} finally {
+			indexer.stop();
+		}
+	}
+
+	@Test
+	void testIndexerUpdateDoesNotCountDocumentAgain() throws Exception {
+		Indexer indexer = new Indexer( null ).start();
+		try {
+			indexer.submit( new Document( URI.create( "test:a" ), "", "Alpha", "complete" ) ).get().get();
+			indexer.submit( new Document( URI.create( "test:b" ), "", "Beta", "completion" ) ).get().get();
+			assertThat( indexer.complete( "comp", 5 ) ).containsExactly( "complete", "completion" );
+
+			indexer.update( new Document( URI.create( "test:a" ), "", "Alpha", "complete compiler" ) ).get().get();
+			indexer.update( new Document( URI.create( "test:a" ), "", "Alpha", "complete compiler" ) ).get().get();
+			assertThat( indexer.complete( "comp", 5 ) ).containsExactly( "compiler", "complete", "completion" );
+		} finally {
+			indexer.stop();
+		}
+	}
+
+}
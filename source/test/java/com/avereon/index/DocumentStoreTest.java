@@ -0,0 +1,97 @@
+package com.avereon.index;
+
+import com.avereon.util.IoUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DocumentStoreTest {
+
+	@TempDir
+	private Path folder;
+
+	@Test
+	void testStore() throws Exception {
+		Path path = folder.resolve( "documents.store" );
+		Document document = new Document( URI.create( "test:a" ), "", "Title", "First line\r\n  Größe  matters \rlast" );
+		Index index = new StandardIndex();
+		try( DocumentStore store = DocumentStore.open( path ) ) {
+			DocumentStore.Entry entry = store.store( document );
+			assertThat( document.content() ).isNull();
+			assertThat( document.stored() ).isEqualTo( entry );
+			assertThat( entry.getLineCount() ).isEqualTo( 3 );
+			assertThat( entry.getLine( 1 ) ).isEqualTo( "  Größe  matters " );
+			assertThat( entry.getLine( 3 ) ).isNull();
+
+			try( Reader reader = document.reader() ) {
+				assertThat( IoUtil.toString( reader ) ).isEqualTo( "First line\r\n  Größe  matters \rlast" );
+			}
+
+			index.push( new HitFinder().find( document, new TextTermSource( document ) ).get() );
+			Hit hit = index.getHits( "matters" ).iterator().next();
+			assertThat( hit.getContext() ).isEqualTo( "Größe  matters" );
+
+			// The byte range of the word in the store file
+			DocumentStore.Range range = entry.getRange( hit );
+			byte[] bytes = Files.readAllBytes( path );
+			assertThat( new String( Arrays.copyOfRange( bytes, (int)range.start(), (int)range.end() ), StandardCharsets.UTF_8 ) ).isEqualTo( "matters" );
+		}
+
+		// Reopen and append
+		try( DocumentStore store = DocumentStore.open( path ) ) {
+			assertThat( store.size() ).isEqualTo( 1 );
+			assertThat( store.get( 0 ).getText() ).isEqualTo( "First line\r\n  Größe  matters \rlast" );
+			DocumentStore.Entry entry = store.append( "Second\n" );
+			assertThat( entry.id() ).isEqualTo( 1 );
+			assertThat( entry.getText() ).isEqualTo( "Second\n" );
+			assertThat( entry.getLineCount() ).isEqualTo( 1 );
+		}
+	}
+
+	@Test
+	void testIncompleteRecordDropped() throws Exception {
+		Path path = folder.resolve( "documents.store" );
+		try( DocumentStore store = DocumentStore.open( path ) ) {
+			store.append( "one" );
+			store.append( "two" );
+		}
+		long size = Files.size( path );
+		try( var channel = Files.newByteChannel( path, StandardOpenOption.WRITE ) ) {
+			channel.truncate( size - 1 );
+		}
+
+		try( DocumentStore store = DocumentStore.open( path ) ) {
+			assertThat( store.size() ).isEqualTo( 1 );
+			assertThat( store.append( "three" ).getText() ).isEqualTo( "three" );
+			assertThat( store.get( 1 ).getText() ).isEqualTo( "three" );
+		}
+	}
+
+	@Test
+	void testSnippet() {
+		Document document = new Document( URI.create( "test:a" ), "", "Title", "The quick brown fox jumps over the lazy dog" );
+		Index index = new StandardIndex().push( new HitFinder().find( document, new TextTermSource( document ) ).get() );
+		Hit fox = index.getHits( "fox" ).iterator().next();
+		Hit dog = index.getHits( "dog" ).iterator().next();
+		Hit quick = index.getHits( "quick" ).iterator().next();
+
+		Snippet snippet = Snippet.of( List.of( fox, quick, dog ), 21 );
+		assertThat( snippet.text() ).isEqualTo( "ck brown fox jumps ov" );
+		assertThat( snippet.highlights() ).containsExactly( new Snippet.Span( 9, 12 ) );
+
+		snippet = Snippet.of( List.of( fox, quick, dog ), 100 );
+		assertThat( snippet.text() ).isEqualTo( "The quick brown fox jumps over the lazy dog" );
+		assertThat( snippet.highlights() ).containsExactly( new Snippet.Span( 4, 9 ), new Snippet.Span( 16, 19 ), new Snippet.Span( 40, 43 ) );
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.avereon.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FederatedSearchTest {
+
+	@Test
+	void testMerge() {
+		Hit a = hit( "A", 90 );
+		Hit b = hit( "B", 80 );
+		Hit c = hit( "C", 80 );
+		Hit d = hit( "D", 70 );
+
+		List<Hit> merged = FederatedSearch.merge( List.of( List.of( a, c ), List.of(), List.of( b, c, d ) ) );
+		assertThat( merged ).containsExactly( a, b, c, d );
+	}
+
+	@Test
+	void testSearch() {
+		Index first = new StandardIndex().push( Set.of( hit( "Alpha", 0 ).setWord( "word" ), hit( "Charlie", 0 ).setWord( "word" ) ) );
+		Index second = new StandardIndex().push( Set.of( hit( "Bravo", 0 ).setWord( "word" ), hit( "Delta", 0 ).setWord( "other" ) ) );
+		IndexQuery query = IndexQuery.builder().term( "word" ).build();
+
+		List<Hit> hits = new FederatedSearch( new FuzzySearch() ).search( List.of( first, second ), query ).get();
+		assertThat( hits ).extracting( h -> h.getDocument().title() ).containsExactly( "Alpha", "Bravo", "Charlie" );
+
+		ExecutorService executor = Executors.newFixedThreadPool( 2 );
+		try {
+			List<Hit> parallel = new FederatedSearch( new FuzzySearch(), executor ).search( List.of( first, second ), query ).get();
+			assertThat( parallel ).isEqualTo( hits );
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testUnion() {
+		Index first = new StandardIndex().push( Set.of( hit( "Alpha", 0 ).setWord( "a" ) ) );
+		Index second = new StandardIndex().push( Set.of( hit( "Bravo", 0 ).setWord( "b" ) ) );
+
+		Index union = Index.union( List.of( first, second ) );
+		assertThat( union.getDictionary() ).containsExactlyInAnyOrder( "a", "b" );
+		assertThat( union.getTermDictionary().getWordsWithPrefix( "" ) ).containsExactly( "a", "b" );
+		assertThat( union.getHits( "b" ) ).extracting( h -> h.getDocument().title() ).containsExactly( "Bravo" );
+	}
+
+	private static Hit hit( String title, int points ) {
+		return new Hit().setDocument( new Document( URI.create( "test:" + title ), "", title, "" ) ).setWord( title.toLowerCase() ).setPoints( points );
+	}
+
+}
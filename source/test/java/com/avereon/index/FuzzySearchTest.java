@@ -3,6 +3,7 @@ package com.avereon.index;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -55,6 +56,21 @@ public class FuzzySearchTest {
 		assertThat( me.xdrop.fuzzywuzzy.FuzzySearch.weightedRatio( "arc", "marcador" ) ).isEqualTo( 90 );
 	}
 
+	@Test
+	void testMaxEditsIncludesEveryWordAtCutoff() {
+		List<String> words = List.of( "a", "ab", "abc", "line", "linea", "lines", "línea", "in", "exact", "exam", "example", "marcador", "arc", "lineament" );
+		for( int cutoff : new int[]{ 0, 50, 67, 80, 95, 100 } ) {
+			FuzzySearch search = new FuzzySearch( cutoff );
+			for( String term : words ) {
+				for( String word : words ) {
+					if( search.getRankPoints( term, word ) < cutoff ) continue;
+					Map<String, Integer> candidates = TermDictionary.of( Set.of( word ) ).getWordsWithin( term, search.getMaxEdits( term.length() ) );
+					assertThat( candidates ).as( term + " " + word + " " + cutoff ).containsKey( word );
+				}
+			}
+		}
+	}
+
 	@Test
 	void testSearchWithDuplicateSearchTerms() {
 		Search search = new FuzzySearch( 80 );
@@ -0,0 +1,48 @@
+package com.avereon.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HtmlTermSourceTest {
+
+	@Test
+	void testIndex() throws Exception {
+		Document document = new Document( URI.create( "test:a" ), "", null, "<html><head><title>Cat Page</title></head><body><p>Hello <b>BIG</b> world</p></body></html>" );
+		List<Term> terms = index( document );
+		assertThat( terms ).containsExactly(
+			new Term( null, "cat", 3, List.of( 0, 0, 0, 0, 0, 0, 0 ) ),
+			new Term( null, "page", 4, List.of( 0, 0, 0, 0, 0, 4, 1 ) ),
+			new Term( null, "hello", 5, List.of( 0, 0, 1, 0, 0, 0, 2 ) ),
+			new Term( null, "big", 3, List.of( 0, 0, 1, 0, 1, 0, 0, 3 ) ),
+			new Term( null, "world", 5, List.of( 0, 0, 1, 0, 2, 1, 4 ) )
+		);
+		assertThat( document.title() ).isEqualTo( "Cat Page" );
+		assertThat( document.properties() ).isEmpty();
+	}
+
+	@Test
+	void testIndexSkipsScripts() throws Exception {
+		Document document = new Document( URI.create( "test:a" ), "", null, "<body><script>var hidden = 1;</script><div>Shown</div></body>" );
+		assertThat( index( document ) ).extracting( Term::word ).containsExactly( "shown" );
+	}
+
+	@Test
+	void testIndexWithManyElements() throws Exception {
+		String body = "<p>word</p>".repeat( 5000 );
+		List<Term> terms = index( new Document( URI.create( "test:a" ), "", null, "<html><body>" + body + "</body></html>" ) );
+		assertThat( terms ).hasSize( 5000 );
+		assertThat( terms.get( 4999 ).coordinates() ).isEqualTo( List.of( 0, 0, 1, 4999, 0, 0, 4999 ) );
+	}
+
+	private static List<Term> index( Document document ) throws Exception {
+		try( Stream<Term> terms = new HtmlTermSource( document ).index() ) {
+			return terms.toList();
+		}
+	}
+
+}
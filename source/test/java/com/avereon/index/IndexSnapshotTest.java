@@ -0,0 +1,71 @@
+package com.avereon.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class IndexSnapshotTest {
+
+	@TempDir
+	private Path folder;
+
+	@Test
+	void testExportAndLoad() throws Exception {
+		Document a = new Document( URI.create( "test:a" ), "icon", "Index Snapshots", "Prebuilt indexes load fast" ).tags( Set.of( "help" ) );
+		Document b = new Document( URI.create( "test:b" ), "", "Other", "Indexes are searchable" );
+		Index index = new StandardIndex().push( new HitFinder().find( a, new TextTermSource( a ) ).get() ).push( new HitFinder().find( b, new TextTermSource( b ) ).get() );
+
+		Path path = folder.resolve( "help" ).resolve( "help.idx" );
+		IndexSnapshot.export( index, path );
+		Index snapshot = IndexSnapshot.load( path );
+
+		assertThat( snapshot.getDictionary() ).isEqualTo( index.getDictionary() );
+		assertThat( snapshot.getHits( "indexes" ) ).isEqualTo( index.getHits( "indexes" ) );
+		assertThat( snapshot.getDocumentCount() ).isEqualTo( 2 );
+		assertThat( snapshot.getHitCount() ).isEqualTo( index.getHitCount() );
+		assertThat( snapshot.getDocumentFrequency( "indexes" ) ).isEqualTo( 2 );
+
+		Document document = snapshot.getHits( "help" ).iterator().next().getDocument();
+		assertThat( document ).isNotSameAs( a );
+		assertThat( document.uri() ).isEqualTo( a.uri() );
+		assertThat( document.title() ).isEqualTo( "Index Snapshots" );
+		assertThat( document.tags() ).containsExactly( "help" );
+
+		List<Hit> hits = new FuzzySearch().search( snapshot, IndexQuery.builder().term( "snapshot" ).build() ).get();
+		assertThat( hits ).extracting( Hit::getWord ).containsExactly( "snapshots" );
+		assertThat( hits.getFirst().getContext() ).isEqualTo( "Index Snapshots" );
+		assertThat( Files.list( path.getParent() ) ).containsExactly( path );
+	}
+
+	@Test
+	void testLoadedSnapshotIsReadOnly() throws Exception {
+		Path path = folder.resolve( "empty.idx" );
+		IndexSnapshot.export( new StandardIndex(), path );
+		Index snapshot = IndexSnapshot.load( path );
+
+		assertThat( snapshot.getDictionary() ).isEmpty();
+		assertThatThrownBy( () -> snapshot.push( Set.of( new Hit().setWord( "word" ) ) ) ).isInstanceOf( UnsupportedOperationException.class );
+		assertThatThrownBy( () -> snapshot.remove( URI.create( "test:a" ) ) ).isInstanceOf( UnsupportedOperationException.class );
+	}
+
+	@Test
+	void testLoadChecksFormat() throws Exception {
+		Path path = folder.resolve( "other.idx" );
+		Files.write( path, new byte[ SegmentFormat.HEADER_SIZE ] );
+		assertThatThrownBy( () -> IndexSnapshot.load( path ) ).isInstanceOf( IOException.class ).hasMessageContaining( "Not an index segment" );
+
+		Files.write( path, ByteBuffer.allocate( SegmentFormat.HEADER_SIZE ).putInt( SegmentFormat.MAGIC ).putInt( SegmentFormat.VERSION + 1 ).array() );
+		assertThatThrownBy( () -> IndexSnapshot.load( path ) ).isInstanceOf( IOException.class ).hasMessageContaining( "Unsupported index segment version" );
+	}
+
+}
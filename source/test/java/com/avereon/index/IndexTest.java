@@ -2,6 +2,8 @@ package com.avereon.index;
 
 import org.junit.jupiter.api.Test;
 
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -49,4 +51,113 @@ public class IndexTest {
 		assertThat( merged.getHits( "c" ).size() ).isEqualTo( 1 );
 	}
 
+	@Test
+	void testHitContextDerivedFromDocument() {
+		Document document = new Document( URI.create( "test:a" ), "", " The Title ", "First line\n  second line here " ).tags( Set.of( "beta tag", "alpha" ) );
+		Index index = new StandardIndex().push( new HitFinder().find( document, new TextTermSource( document ) ).get() );
+
+		Hit content = index.getHits( "second" ).iterator().next();
+		assertThat( content.getCoordinates() ).isEqualTo( List.of( 1, 0, 2 ) );
+		assertThat( content.getContext() ).isEqualTo( "second line here" );
+
+		Hit title = index.getHits( "title" ).iterator().next();
+		assertThat( title.getPriority() ).isEqualTo( Hit.TITLE_PRIORITY );
+		assertThat( title.getContext() ).isEqualTo( "The Title" );
+
+		Hit tag = index.getHits( "beta" ).iterator().next();
+		assertThat( tag.getPriority() ).isEqualTo( Hit.TAG_PRIORITY );
+		assertThat( tag.getCoordinates() ).isEqualTo( List.of( 1, 0, 1 ) );
+		assertThat( tag.getContext() ).isEqualTo( "beta tag" );
+	}
+
+	@Test
+	void testPushManyHitsForOneWord() {
+		Index index = new StandardIndex();
+		for( int count = 0; count < 1000; count++ ) {
+			Document document = new Document( URI.create( "test:" + count ), "", "", "" );
+			index.push( List.of( new Hit().setDocument( document ).setWord( "word" ).setCoordinates( List.of( count, 3 ) ), new Hit().setDocument( document ).setWord( "word" ).setCoordinates( List.of( count, 8 ) ) ) );
+		}
+
+		Set<Hit> hits = index.getHits( "word" );
+		assertThat( hits ).hasSize( 2000 );
+		assertThat( hits ).contains( new Hit().setDocument( new Document( URI.create( "test:500" ), "", "", "" ) ).setWord( "word" ).setCoordinates( List.of( 500, 8 ) ) );
+	}
+
+	@Test
+	void testRemoveAndCompact() {
+		StandardIndex index = new StandardIndex();
+		Document a = new Document( URI.create( "test:a" ), "", "A", "" );
+		Document b = new Document( URI.create( "test:b" ), "", "B", "" );
+		index.push( Set.of( new Hit().setDocument( a ).setWord( "only" ), new Hit().setDocument( a ).setWord( "shared" ) ) );
+		index.push( Set.of( new Hit().setDocument( b ).setWord( "shared" ) ) );
+
+		index.remove( URI.create( "test:a" ) );
+		assertThat( index.getHits( "only" ) ).isEmpty();
+		assertThat( index.getHits( "shared" ) ).extracting( Hit::getDocument ).containsExactly( b );
+		assertThat( index.isCompactNeeded() ).isTrue();
+
+		index.compact();
+		assertThat( index.isCompactNeeded() ).isFalse();
+		assertThat( index.getDictionary() ).containsExactly( "shared" );
+		assertThat( index.getTermDictionary().contains( "only" ) ).isFalse();
+		assertThat( index.getHits( "shared" ) ).extracting( Hit::getDocument ).containsExactly( b );
+	}
+
+	@Test
+	void testUpdate() {
+		StandardIndex index = new StandardIndex();
+		Document document = new Document( URI.create( "test:a" ), "", "A", "" );
+		index.push( Set.of( new Hit().setDocument( document ).setWord( "old" ) ) );
+
+		// The same document object can be updated
+		index.update( document.uri(), Set.of( new Hit().setDocument( document ).setWord( "new" ) ) );
+		assertThat( index.getHits( "old" ) ).isEmpty();
+		assertThat( index.getHits( "new" ) ).hasSize( 1 );
+
+		index.compact();
+		assertThat( index.getDictionary() ).containsExactly( "new" );
+		assertThat( index.getHits( "new" ) ).extracting( Hit::getDocument ).containsExactly( document );
+	}
+
+	@Test
+	void testDocumentFrequencyWithInterleavedDocuments() throws Exception {
+		Document a = new Document( URI.create( "test:a" ), "", "A", "" );
+		Document b = new Document( URI.create( "test:b" ), "", "B", "" );
+
+		// The hits of several documents pushed together, in any order
+		StandardIndex index = new StandardIndex();
+		index.push( List.of( hit( a, 0 ), hit( b, 0 ), hit( a, 1 ), hit( b, 1 ) ) );
+		assertThat( index.getDocumentFrequency( "word" ) ).isEqualTo( 2 );
+		assertThat( index.getDocumentCount() ).isEqualTo( 2 );
+
+		// Concurrent pushes interleave the hits of common words
+		StandardIndex concurrent = new StandardIndex();
+		List<Thread> threads = new ArrayList<>();
+		for( int thread = 0; thread < 8; thread++ ) {
+			int offset = thread;
+			threads.add( Thread.ofPlatform().start( () -> {
+				for( int count = 0; count < 50; count++ ) {
+					Document document = new Document( URI.create( "test:" + offset + "-" + count ), "", "", "" );
+					List<Hit> hits = new ArrayList<>();
+					for( int line = 0; line < 20; line++ ) {
+						hits.add( hit( document, line ) );
+					}
+					concurrent.push( hits );
+				}
+			} ) );
+		}
+		for( Thread thread : threads ) {
+			thread.join();
+		}
+		assertThat( concurrent.getDocumentFrequency( "word" ) ).isEqualTo( 400 ).isEqualTo( concurrent.getDocumentCount() );
+
+		concurrent.remove( URI.create( "test:0-0" ) );
+		concurrent.compact();
+		assertThat( concurrent.getDocumentFrequency( "word" ) ).isEqualTo( 399 );
+	}
+
+	private static Hit hit( Document document, int line ) {
+		return new Hit().setDocument( document ).setWord( "word" ).setLength( 4 ).setCoordinates( List.of( line, 0, line ) );
+	}
+
 }
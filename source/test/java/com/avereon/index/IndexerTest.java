@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
@@ -18,13 +19,15 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 public class IndexerTest {
 
+	private Path indexPath;
+
 	private Indexer indexer;
 
 	private FuzzySearch search;
 
 	@BeforeEach
 	void setup() throws IOException {
-		Path indexPath = FileUtil.createTempFolder( "IndexerTest" );
+		indexPath = FileUtil.createTempFolder( "IndexerTest" );
 		indexer = new Indexer( indexPath );
 		search = new FuzzySearch( 75 );
 	}
@@ -64,42 +67,42 @@ public class IndexerTest {
 		// Check the hits
 		assertThat( indexer.getIndex( Index.DEFAULT ).orElseThrow().getHits( "document" ) ).contains( new Hit()
 			.setContext( title )
-			.setCoordinates( List.of( 0, 0 ) )
+			.setCoordinates( List.of( 0, 0, 0 ) )
 			.setWord( "document" )
 			.setLength( 8 )
 			.setDocument( document )
 			.setPriority( Hit.TITLE_PRIORITY ) );
 		assertThat( indexer.getIndex( Index.DEFAULT ).orElseThrow().getHits( "this" ) ).contains( new Hit()
 			.setContext( text )
-			.setCoordinates( List.of( 0, 0 ) )
+			.setCoordinates( List.of( 0, 0, 0 ) )
 			.setWord( "this" )
 			.setLength( 4 )
 			.setDocument( document )
 			.setPriority( Hit.CONTENT_PRIORITY ) );
 		assertThat( indexer.getIndex( Index.DEFAULT ).orElseThrow().getHits( "is" ) ).contains( new Hit()
 			.setContext( text )
-			.setCoordinates( List.of( 0, 5 ) )
+			.setCoordinates( List.of( 0, 5, 1 ) )
 			.setWord( "is" )
 			.setLength( 2 )
 			.setDocument( document )
 			.setPriority( Hit.CONTENT_PRIORITY ) );
 		assertThat( indexer.getIndex( Index.DEFAULT ).orElseThrow().getHits( "some" ) ).contains( new Hit()
 			.setContext( text )
-			.setCoordinates( List.of( 0, 8 ) )
+			.setCoordinates( List.of( 0, 8, 2 ) )
 			.setWord( "some" )
 			.setLength( 4 )
 			.setDocument( document )
 			.setPriority( Hit.CONTENT_PRIORITY ) );
 		assertThat( indexer.getIndex( Index.DEFAULT ).orElseThrow().getHits( "arbitrary" ) ).contains( new Hit()
 			.setContext( text )
-			.setCoordinates( List.of( 0, 13 ) )
+			.setCoordinates( List.of( 0, 13, 3 ) )
 			.setWord( "arbitrary" )
 			.setLength( 9 )
 			.setDocument( document )
 			.setPriority( Hit.CONTENT_PRIORITY ) );
 		assertThat( indexer.getIndex( Index.DEFAULT ).orElseThrow().getHits( "content" ) ).contains( new Hit()
 			.setContext( text )
-			.setCoordinates( List.of( 0, 23 ) )
+			.setCoordinates( List.of( 0, 23, 4 ) )
 			.setWord( "content" )
 			.setLength( 7 )
 			.setDocument( document )
@@ -126,39 +129,39 @@ public class IndexerTest {
 		// Check the hits
 		assertThat( indexer.getIndex( Index.DEFAULT ).orElseThrow().getHits( "document" ) ).contains( new Hit()
 			.setContext( name.trim() )
-			.setCoordinates( List.of( 0, 10 ) )
+			.setCoordinates( List.of( 0, 10, 2 ) )
 			.setWord( "document" )
 			.setLength( 8 )
 			.setDocument( document )
 			.setPriority( Hit.TITLE_PRIORITY ) );
 		assertThat( indexer.getIndex( Index.DEFAULT ).orElseThrow().getHits( "this" ) ).contains(
-			new Hit().setContext( name.trim() ).setCoordinates( List.of( 0, 0 ) ).setWord( "this" ).setLength( 4 ).setDocument( document ).setPriority( Hit.TITLE_PRIORITY ),
-			new Hit().setContext( line0.trim() ).setCoordinates( List.of( 0, 0 ) ).setWord( "this" ).setLength( 4 ).setDocument( document ).setPriority( Hit.CONTENT_PRIORITY )
+			new Hit().setContext( name.trim() ).setCoordinates( List.of( 0, 0, 0 ) ).setWord( "this" ).setLength( 4 ).setDocument( document ).setPriority( Hit.TITLE_PRIORITY ),
+			new Hit().setContext( line0.trim() ).setCoordinates( List.of( 0, 0, 0 ) ).setWord( "this" ).setLength( 4 ).setDocument( document ).setPriority( Hit.CONTENT_PRIORITY )
 		);
 		assertThat( indexer.getIndex( Index.DEFAULT ).orElseThrow().getHits( "is" ) ).contains( new Hit()
 			.setContext( line0.trim() )
-			.setCoordinates( List.of( 0, 6 ) )
+			.setCoordinates( List.of( 0, 6, 1 ) )
 			.setWord( "is" )
 			.setLength( 2 )
 			.setDocument( document )
 			.setPriority( Hit.CONTENT_PRIORITY ) );
 		assertThat( indexer.getIndex( Index.DEFAULT ).orElseThrow().getHits( "some" ) ).contains( new Hit()
 			.setContext( line1.trim() )
-			.setCoordinates( List.of( 1, 0 ) )
+			.setCoordinates( List.of( 1, 0, 2 ) )
 			.setWord( "some" )
 			.setLength( 4 )
 			.setDocument( document )
 			.setPriority( Hit.CONTENT_PRIORITY ) );
 		assertThat( indexer.getIndex( Index.DEFAULT ).orElseThrow().getHits( "arbitrary" ) ).contains( new Hit()
 			.setContext( line1.trim() )
-			.setCoordinates( List.of( 1, 6 ) )
+			.setCoordinates( List.of( 1, 6, 3 ) )
 			.setWord( "arbitrary" )
 			.setLength( 9 )
 			.setDocument( document )
 			.setPriority( Hit.CONTENT_PRIORITY ) );
 		assertThat( indexer.getIndex( Index.DEFAULT ).orElseThrow().getHits( "content" ) ).contains( new Hit()
 			.setContext( line1.trim() )
-			.setCoordinates( List.of( 1, 16 ) )
+			.setCoordinates( List.of( 1, 16, 4 ) )
 			.setWord( "content" )
 			.setLength( 7 )
 			.setDocument( document )
@@ -168,6 +171,83 @@ public class IndexerTest {
 		assertThat( indexer.getIndex( Index.DEFAULT ).orElseThrow().getDictionary() ).contains( "a", "document", "this", "is", "some", "arbitrary", "content" );
 	}
 
+	@Test
+	void testStoredIndexLoadedOnStart() throws Exception {
+		Document document = new Document( URI.create( "test:document" ), "document", "Document", "This is some arbitrary content" );
+
+		indexer.start();
+		Result<Future<Result<Set<Hit>>>> result = indexer.submit( document );
+		indexer.stop();
+		result.get().get();
+
+		Indexer restarted = new Indexer( indexPath ).start();
+		Set<Hit> hits = restarted.getIndex( Index.DEFAULT ).orElseThrow().getHits( "arbitrary" );
+		restarted.stop();
+
+		assertThat( hits ).containsExactly( new Hit()
+			.setContext( "This is some arbitrary content" )
+			.setCoordinates( List.of( 0, 13, 3 ) )
+			.setWord( "arbitrary" )
+			.setLength( 9 )
+			.setDocument( document )
+			.setPriority( Hit.CONTENT_PRIORITY ) );
+	}
+
+	@Test
+	void testRemoveStoredIndex() throws Exception {
+		indexer.start();
+		indexer.submit( "removed", new Document( URI.create( "" ), "", "Title", "" ) ).get().get();
+		indexer.stop();
+
+		indexer.removeIndex( "removed" );
+		assertThat( new Indexer( indexPath ).start().stop().getIndex( "removed" ) ).isEmpty();
+	}
+
+	@Test
+	void testUpdateAndRemoveDocument() throws Exception {
+		URI uri = URI.create( "test:document" );
+
+		indexer.start();
+		indexer.submit( new Document( uri, "document", "Document", "The original content" ) ).get().get();
+		indexer.update( new Document( uri, "document", "Document", "The changed content" ) ).get().get();
+
+		Index index = indexer.getIndex( Index.DEFAULT ).orElseThrow();
+		assertThat( index.getHits( "original" ) ).isEmpty();
+		assertThat( index.getHits( "changed" ) ).hasSize( 1 );
+
+		indexer.removeDocument( uri );
+		assertThat( index.getHits( "changed" ) ).isEmpty();
+		assertThat( index.getHits( "content" ) ).isEmpty();
+		indexer.stop();
+	}
+
+	@Test
+	void testSubmitAll() throws Exception {
+		List<Document> documents = new ArrayList<>();
+		for( int index = 0; index < 500; index++ ) {
+			documents.add( new Document( URI.create( "test:" + index ), "", "Document " + index, "Content number " + index ) );
+		}
+
+		indexer.start();
+		BulkIndexing bulk = indexer.submitAll( documents ).get();
+		assertThat( bulk.getFuture().get().get() ).isEqualTo( 500 );
+		assertThat( bulk.isDone() ).isTrue();
+		assertThat( bulk.getSubmittedCount() ).isEqualTo( 500 );
+		assertThat( bulk.getIndexedCount() ).isEqualTo( 500 );
+		assertThat( bulk.getFailedCount() ).isZero();
+		assertThat( bulk.getHitCount() ).isEqualTo( 2500 );
+		assertThat( bulk.getDocumentsPerSecond() ).isPositive();
+
+		Index index = indexer.getIndex( Index.DEFAULT ).orElseThrow();
+		assertThat( index.getHits( "content" ) ).hasSize( 500 );
+		assertThat( index.getHits( "123" ) ).extracting( Hit::getDocument ).extracting( Document::uri ).containsOnly( URI.create( "test:123" ) );
+		indexer.stop();
+
+		Indexer restarted = new Indexer( indexPath ).start();
+		assertThat( restarted.getIndex( Index.DEFAULT ).orElseThrow().getDocumentCount() ).isEqualTo( 500 );
+		restarted.stop();
+	}
+
 	@Test
 	void testSearch() throws Exception {
 		String text = "This is some \"arbitrary content\".";
@@ -291,8 +371,10 @@ public class IndexerTest {
 		String textB = "This is another document";
 
 		indexer.start();
-		Result<Future<Result<Set<Hit>>>> resultA = indexer.submit( "a", new Document( URI.create( "" ), icon, nameA, textA ) );
-		Result<Future<Result<Set<Hit>>>> resultB = indexer.submit( "b", new Document( URI.create( "" ), icon, nameB, textB ) );
+		Document documentA = new Document( URI.create( "" ), icon, nameA, textA );
+		Result<Future<Result<Set<Hit>>>> resultA = indexer.submit( "a", documentA );
+		Document documentB = new Document( URI.create( "" ), icon, nameB, textB );
+		Result<Future<Result<Set<Hit>>>> resultB = indexer.submit( "b", documentB );
 		indexer.stop();
 		resultA.get().get();
 		resultB.get().get();
@@ -307,7 +389,9 @@ public class IndexerTest {
 		Search search = new FuzzySearch( 80 );
 		IndexQuery query = IndexQuery.builder().terms( List.of( "document", "about" ) ).build();
 		List<Hit> hits = Indexer.search( search, query, indexer.allIndexes() ).get();
-		assertThat( hits.get( 0 ).getDocument() ).isEqualTo( new Document( URI.create( "" ), icon, nameA, textA ) );
+		// The content of the document is moved to the document store of the index
+		assertThat( hits.get( 0 ).getDocument() ).isSameAs( documentA );
+		assertThat( documentA.stored().getText() ).isEqualTo( textA );
 		assertThat( hits.get( 0 ).getPriority() ).isEqualTo( Hit.CONTENT_PRIORITY );
 		assertThat( hits.size() ).isEqualTo( 1 );
 
@@ -315,9 +399,9 @@ public class IndexerTest {
 		Search search2 = new FuzzySearch( 80 );
 		IndexQuery query2 = IndexQuery.builder().terms( List.of( "document" ) ).build();
 		List<Hit> hits2 = Indexer.search( search2, query2, indexer.allIndexes() ).get();
-		assertThat( hits2.get( 0 ).getDocument() ).isEqualTo( new Document( URI.create( "" ), icon, nameA, textA ) );
+		assertThat( hits2.get( 0 ).getDocument() ).isSameAs( documentA );
 		assertThat( hits2.get( 0 ).getPriority() ).isEqualTo( Hit.CONTENT_PRIORITY );
-		assertThat( hits2.get( 1 ).getDocument() ).isEqualTo( new Document( URI.create( "" ), icon, nameB, textB ) );
+		assertThat( hits2.get( 1 ).getDocument() ).isSameAs( documentB );
 		assertThat( hits2.get( 1 ).getPriority() ).isEqualTo( Hit.CONTENT_PRIORITY );
 		assertThat( hits2.size() ).isEqualTo( 2 );
 	}
@@ -0,0 +1,149 @@
+package com.avereon.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.avereon.index.TestIndexes.index;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProximitySearchTest {
+
+	@Test
+	void testPhrase() {
+		Document a = new Document( URI.create( "test:a" ), "", "A", "the quick brown fox" );
+		Document b = new Document( URI.create( "test:b" ), "", "B", "the brown quick fox" );
+		Document c = new Document( URI.create( "test:c" ), "", "C", "quick\nbrown fox, quick brown" );
+		Index index = index( a, b, c );
+
+		List<Hit> hits = new ProximitySearch().search( index, query( "quick", "brown" ) ).get();
+		assertThat( hits ).extracting( Hit::getDocument ).containsExactly( c, a );
+		assertThat( hits.getFirst().getPoints() ).isEqualTo( 2 );
+		assertThat( hits.getFirst().getWord() ).isEqualTo( "quick" );
+		assertThat( hits.getFirst().getCoordinates() ).isEqualTo( List.of( 0, 0, 0 ) );
+	}
+
+	@Test
+	void testPhraseInTitle() {
+		Document a = new Document( URI.create( "test:a" ), "", "Brown Fox", "brown fox" );
+		List<Hit> hits = new ProximitySearch().search( index( a ), query( "brown", "fox" ) ).get();
+		assertThat( hits ).hasSize( 1 );
+		assertThat( hits.getFirst().getPriority() ).isEqualTo( Hit.TITLE_PRIORITY );
+		assertThat( hits.getFirst().getPoints() ).isEqualTo( 2 );
+	}
+
+	@Test
+	void testPhraseNotAcrossTexts() {
+		Document a = new Document( URI.create( "test:a" ), "", "Brown", "fox" );
+		assertThat( new ProximitySearch().search( index( a ), query( "brown", "fox" ) ).get() ).isEmpty();
+	}
+
+	@Test
+	void testPhraseWithStopWords() {
+		Document a = new Document( URI.create( "test:a" ), "", "A", "The state of the art in search" );
+		Document b = new Document( URI.create( "test:b" ), "", "B", "A state art gallery" );
+		StandardIndex index = new StandardIndex();
+		HitFinder finder = new HitFinder( Analyzer.english() );
+		index.push( finder.find( a, new TextTermSource( a ) ).get() );
+		index.push( finder.find( b, new TextTermSource( b ) ).get() );
+
+		ProximitySearch search = new ProximitySearch();
+		assertThat( search.search( index, query( "state of the art" ), Analyzer.english() ).get() ).extracting( Hit::getDocument ).containsExactly( a );
+		assertThat( search.search( index, query( "state", "of", "the", "art" ), Analyzer.english() ).get() ).extracting( Hit::getDocument ).containsExactly( a );
+		assertThat( search.search( index, query( "state art" ), Analyzer.english() ).get() ).extracting( Hit::getDocument ).containsExactly( b );
+	}
+
+	@Test
+	void testNear() {
+		Document a = new Document( URI.create( "test:a" ), "", "A", "fox jumps over the dog" );
+		Document b = new Document( URI.create( "test:b" ), "", "B", "dog and fox" );
+		Document c = new Document( URI.create( "test:c" ), "", "C", "fox" );
+		Index index = index( a, b, c );
+
+		assertThat( new ProximitySearch( 2 ).search( index, query( "fox", "dog" ) ).get() ).extracting( Hit::getDocument ).containsExactly( b );
+		assertThat( new ProximitySearch( 4 ).search( index, query( "fox", "dog" ) ).get() ).extracting( Hit::getDocument ).containsExactlyInAnyOrder( a, b );
+	}
+
+	@Test
+	void testMissingTerm() {
+		Document a = new Document( URI.create( "test:a" ), "", "A", "fox" );
+		assertThat( new ProximitySearch( 5 ).search( index( a ), query( "fox", "cat" ) ).get() ).isEmpty();
+		assertThat( new ProximitySearch().search( index( a ), query() ).get() ).isEmpty();
+	}
+
+	@Test
+	void testPhraseInSegmentsAndMemory( @TempDir Path folder ) throws Exception {
+		Document a = new Document( URI.create( "test:a" ), "", "A", "the quick brown fox" );
+		Document b = new Document( URI.create( "test:b" ), "", "B", "quick brown" );
+		SegmentedIndex index = SegmentedIndex.open( folder );
+		index.push( find( a ) );
+		index.flush();
+		index.push( find( b ) );
+
+		assertThat( new ProximitySearch().search( index, query( "quick", "brown" ) ).get() ).extracting( Hit::getDocument ).containsExactlyInAnyOrder( a, b );
+		index.remove( a.uri() );
+		assertThat( new ProximitySearch().search( index, query( "quick", "brown" ) ).get() ).extracting( Hit::getDocument ).containsExactly( b );
+	}
+
+	@Test
+	void testPhraseWithInterleavedPushes() {
+		Document a = new Document( URI.create( "test:a" ), "", "A", "quick brown fox" );
+		Document b = new Document( URI.create( "test:b" ), "", "B", "quick brown fox" );
+		List<Hit> hits = new ArrayList<>( find( a ) );
+		hits.sort( Comparator.comparing( Hit::getWord ) );
+
+		// The hits of document a are pushed before and after the hits of document b
+		StandardIndex index = new StandardIndex();
+		index.push( hits.subList( 0, hits.size() / 2 ) );
+		index.push( find( b ) );
+		index.push( hits.subList( hits.size() / 2, hits.size() ) );
+
+		assertThat( new ProximitySearch().search( index, query( "quick", "brown", "fox" ) ).get() ).extracting( Hit::getDocument ).containsExactlyInAnyOrder( a, b );
+		assertThat( new ProximitySearch( 1 ).search( index, query( "fox", "brown" ) ).get() ).extracting( Hit::getDocument ).containsExactlyInAnyOrder( a, b );
+	}
+
+	@Test
+	void testPhraseInIndexWithoutCursors() {
+		Document a = new Document( URI.create( "test:a" ), "", "A", "the quick brown fox" );
+		Index index = Index.union( List.of( new HitIndex( find( a ) ) ) );
+
+		List<Hit> hits = new ProximitySearch().search( index, query( "quick", "brown" ) ).get();
+		assertThat( hits ).extracting( Hit::getDocument ).containsExactly( a );
+		assertThat( hits.getFirst().getCoordinates() ).isEqualTo( List.of( 0, 4, 1 ) );
+	}
+
+	private static Set<Hit> find( Document document ) {
+		return new HitFinder().find( document, new TextTermSource( document ) ).get();
+	}
+
+	private static IndexQuery query( String... terms ) {
+		return IndexQuery.builder().terms( List.of( terms ) ).build();
+	}
+
+	/**
+	 * An index that only has hits, without postings.
+	 */
+	private record HitIndex(Set<Hit> hits) implements Index {
+
+		@Override
+		public Set<String> getDictionary() {
+			return hits.stream().map( Hit::getWord ).collect( Collectors.toSet() );
+		}
+
+		@Override
+		public Set<Hit> getHits( String word ) {
+			return hits.stream().filter( h -> h.getWord().equals( word ) ).collect( Collectors.toSet() );
+		}
+
+		@Override
+		public Index push( Collection<Hit> hits ) {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.avereon.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static com.avereon.index.TestIndexes.index;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RankedSearchTest {
+
+	@TempDir
+	private Path folder;
+
+	@Test
+	void testTitleRanksOverContent() {
+		Index index = index(
+			new Document( URI.create( "test:a" ), "", "Other", "Something about a cat" ),
+			new Document( URI.create( "test:b" ), "", "Cat", "Something else" ),
+			new Document( URI.create( "test:c" ), "", "Bird", "Nothing here" )
+		);
+
+		List<Hit> hits = new RankedSearch().search( index, IndexQuery.builder().term( "cat" ).build() ).get();
+		assertThat( hits ).extracting( h -> h.getDocument().title() ).containsExactly( "Cat", "Other" );
+		assertThat( hits.getFirst().getPriority() ).isEqualTo( Hit.TITLE_PRIORITY );
+		assertThat( hits.get( 0 ).getPoints() ).isGreaterThan( hits.get( 1 ).getPoints() );
+	}
+
+	@Test
+	void testTagRanksOverTitle() {
+		Index index = index(
+			new Document( URI.create( "test:a" ), "", "Cat", "Something" ),
+			new Document( URI.create( "test:b" ), "", "Other", "Something" ).tags( Set.of( "cat" ) )
+		);
+
+		List<Hit> hits = new RankedSearch().search( index, IndexQuery.builder().term( "cat" ).build() ).get();
+		assertThat( hits ).extracting( h -> h.getDocument().title() ).containsExactly( "Other", "Cat" );
+	}
+
+	@Test
+	void testMoreTermsRankHigher() {
+		Index index = index(
+			new Document( URI.create( "test:a" ), "", "A", "The cat sat" ),
+			new Document( URI.create( "test:b" ), "", "B", "The cat sat on the mat" ),
+			new Document( URI.create( "test:c" ), "", "C", "The dog" )
+		);
+
+		List<Hit> hits = new RankedSearch().search( index, IndexQuery.builder().terms( List.of( "cat", "mat" ) ).build() ).get();
+		assertThat( hits ).extracting( h -> h.getDocument().title() ).containsExactly( "B", "A" );
+	}
+
+	@Test
+	void testUpdatedDocumentsInSegments() throws Exception {
+		SegmentedIndex index = SegmentedIndex.open( folder );
+		for( String uri : List.of( "test:a", "test:b" ) ) {
+			Document document = new Document( URI.create( uri ), "", "Alpha", "" );
+			index.push( new HitFinder().find( document, new TextTermSource( document ) ).get() );
+		}
+		index.flush();
+
+		// Each update leaves the old hits of the document in a segment
+		for( int count = 0; count < 4; count++ ) {
+			Document document = new Document( URI.create( "test:a" ), "", "Alpha", "" );
+			index.update( document.uri(), new HitFinder().find( document, new TextTermSource( document ) ).get() );
+			index.flush();
+		}
+		assertThat( index.getDocumentCount() ).isEqualTo( 2 );
+		assertThat( index.getDocumentFrequency( "alpha" ) ).isEqualTo( 2 );
+
+		List<Hit> hits = new RankedSearch().search( index, IndexQuery.builder().term( "alpha" ).build() ).get();
+		assertThat( hits ).hasSize( 2 );
+		assertThat( hits ).allMatch( h -> h.getPoints() > 0 );
+	}
+
+	@Test
+	void testLimit() {
+		Index index = index(
+			new Document( URI.create( "test:a" ), "", "A", "word" ),
+			new Document( URI.create( "test:b" ), "", "B", "word word" ),
+			new Document( URI.create( "test:c" ), "", "C", "word word word" )
+		);
+
+		List<Hit> hits = new RankedSearch( 2 ).search( index, IndexQuery.builder().term( "word" ).build() ).get();
+		assertThat( hits ).extracting( h -> h.getDocument().title() ).containsExactly( "C", "B" );
+		assertThat( new RankedSearch().search( new StandardIndex(), IndexQuery.builder().term( "word" ).build() ).get() ).isEmpty();
+	}
+
+}
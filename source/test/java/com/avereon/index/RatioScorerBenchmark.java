@@ -0,0 +1,79 @@
+package com.avereon.index;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the fuzzywuzzy ratio with the bit-parallel ratio scorer, with and
+ * without a cutoff, when ranking one term against 1000 random words.
+ * <p>
+ * Run with the main method, or with the JMH runner, after the test classes
+ * have been compiled with the JMH annotation processor.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class RatioScorerBenchmark {
+
+	private static final int WORDS = 1000;
+
+	private static final int CUTOFF = 80;
+
+	private String term;
+
+	private String[] words;
+
+	@Setup
+	public void setup() {
+		Random random = new Random( 42 );
+		term = "documentation";
+		words = new String[ WORDS ];
+		for( int index = 0; index < WORDS; index++ ) {
+			StringBuilder word = new StringBuilder();
+			int length = 3 + random.nextInt( 12 );
+			for( int count = 0; count < length; count++ ) {
+				word.append( (char)('a' + random.nextInt( 26 )) );
+			}
+			words[ index ] = word.toString();
+		}
+	}
+
+	@Benchmark
+	public void reference( Blackhole blackhole ) {
+		for( String word : words ) {
+			blackhole.consume( me.xdrop.fuzzywuzzy.FuzzySearch.ratio( term, word ) );
+		}
+	}
+
+	@Benchmark
+	public void scorer( Blackhole blackhole ) {
+		RatioScorer scorer = new RatioScorer( term );
+		for( String word : words ) {
+			blackhole.consume( scorer.score( word ) );
+		}
+	}
+
+	@Benchmark
+	public void scorerWithCutoff( Blackhole blackhole ) {
+		RatioScorer scorer = new RatioScorer( term );
+		for( String word : words ) {
+			blackhole.consume( scorer.score( word, CUTOFF ) );
+		}
+	}
+
+	public static void main( String[] parameters ) throws RunnerException {
+		Options options = new OptionsBuilder().include( RatioScorerBenchmark.class.getSimpleName() ).build();
+		new Runner( options ).run();
+	}
+
+}
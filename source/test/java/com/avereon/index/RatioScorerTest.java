@@ -0,0 +1,57 @@
+package com.avereon.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RatioScorerTest {
+
+	@Test
+	void testScore() {
+		assertThat( new RatioScorer( "exact" ).score( "exact" ) ).isEqualTo( 100 );
+		assertThat( new RatioScorer( "exact" ).score( "ex" ) ).isEqualTo( 57 );
+		assertThat( new RatioScorer( "exact" ).score( "example" ) ).isEqualTo( 50 );
+		assertThat( new RatioScorer( "line" ).score( "línea" ) ).isEqualTo( 67 );
+		assertThat( new RatioScorer( "arc" ).score( "marcador" ) ).isEqualTo( 55 );
+		assertThat( new RatioScorer( "" ).score( "word" ) ).isEqualTo( 0 );
+	}
+
+	@Test
+	void testScoreWithCutoff() {
+		RatioScorer scorer = new RatioScorer( "exact" );
+		assertThat( scorer.score( "exam", 67 ) ).isEqualTo( 67 );
+		assertThat( scorer.score( "exam", 68 ) ).isEqualTo( -1 );
+		assertThat( scorer.score( "e", 50 ) ).isEqualTo( -1 );
+		assertThat( scorer.score( "zzzzz", 10 ) ).isEqualTo( -1 );
+	}
+
+	@Test
+	void testScoreMatchesReference() {
+		Random random = new Random( 42 );
+		String alphabet = "abcdeéß日";
+		for( int count = 0; count < 2000; count++ ) {
+			String term = randomWord( random, alphabet, count % 10 == 0 ? 200 : 12 );
+			String word = randomWord( random, alphabet, count % 10 == 0 ? 200 : 12 );
+			if( term.isEmpty() && word.isEmpty() ) continue;
+
+			int expected = me.xdrop.fuzzywuzzy.FuzzySearch.ratio( term, word );
+			RatioScorer scorer = new RatioScorer( term );
+			assertThat( scorer.score( word ) ).as( term + " " + word ).isEqualTo( expected );
+			for( int cutoff : new int[]{ 1, 50, 80, 100 } ) {
+				assertThat( scorer.score( word, cutoff ) ).as( term + " " + word + " " + cutoff ).isEqualTo( expected < cutoff ? -1 : expected );
+			}
+		}
+	}
+
+	private static String randomWord( Random random, String alphabet, int maxLength ) {
+		StringBuilder word = new StringBuilder();
+		int length = random.nextInt( maxLength + 1 );
+		for( int index = 0; index < length; index++ ) {
+			word.append( alphabet.charAt( random.nextInt( alphabet.length() ) ) );
+		}
+		return word.toString();
+	}
+
+}
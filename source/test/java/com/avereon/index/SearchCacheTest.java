@@ -0,0 +1,118 @@
+package com.avereon.index;
+
+import com.avereon.result.Result;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchCacheTest {
+
+	@Test
+	void testSearchUsesCachedResult() {
+		StandardIndex index = index( "test:a", "Cat and dog" );
+		SearchCache cache = new SearchCache();
+		CountingSearch search = new CountingSearch();
+
+		List<Hit> hits = cache.search( search, index, IndexQuery.builder().term( "cat" ).build() ).get();
+		assertThat( hits ).extracting( Hit::getWord ).containsExactly( "cat" );
+
+		// Equal after normalizing the terms
+		assertThat( cache.search( search, index, IndexQuery.builder().term( " CAT " ).build() ).get() ).isSameAs( hits );
+		assertThat( search.count.get() ).isEqualTo( 1 );
+		assertThat( cache.getHitCount() ).isEqualTo( 1 );
+		assertThat( cache.getMissCount() ).isEqualTo( 1 );
+		assertThat( cache.getHitRate() ).isEqualTo( 0.5 );
+	}
+
+	@Test
+	void testSearchInvalidatedByIndexChanges() {
+		StandardIndex index = index( "test:a", "Cat" );
+		SearchCache cache = new SearchCache();
+		Search search = cache.of( new DirectSearch() );
+		IndexQuery query = IndexQuery.builder().term( "cat" ).build();
+		assertThat( search.search( index, query ).get() ).hasSize( 1 );
+
+		push( index, "test:b", "Cat" );
+		assertThat( search.search( index, query ).get() ).hasSize( 2 );
+
+		index.remove( URI.create( "test:a" ) );
+		assertThat( search.search( index, query ).get() ).hasSize( 1 );
+		assertThat( cache.getHitCount() ).isZero();
+		assertThat( cache.getMissCount() ).isEqualTo( 3 );
+	}
+
+	@Test
+	void testSearchKeyedBySearch() {
+		StandardIndex index = index( "test:a", "Cat" );
+		SearchCache cache = new SearchCache();
+		IndexQuery query = IndexQuery.builder().term( "cat" ).build();
+		cache.search( new FuzzySearch( 80 ), index, query );
+		cache.search( new FuzzySearch( 80 ), index, query );
+		cache.search( new FuzzySearch( 90 ), index, query );
+		cache.search( new DirectSearch(), index, query );
+		assertThat( cache.getHitCount() ).isEqualTo( 1 );
+		assertThat( cache.size() ).isEqualTo( 3 );
+	}
+
+	@Test
+	void testEviction() {
+		StandardIndex index = index( "test:a", "one two three" );
+		SearchCache cache = new SearchCache( 2 );
+		Search search = new DirectSearch();
+		cache.search( search, index, IndexQuery.builder().term( "one" ).build() );
+		cache.search( search, index, IndexQuery.builder().term( "two" ).build() );
+		cache.search( search, index, IndexQuery.builder().term( "one" ).build() );
+		cache.search( search, index, IndexQuery.builder().term( "three" ).build() );
+
+		// The least recently used query was evicted
+		cache.search( search, index, IndexQuery.builder().term( "one" ).build() );
+		cache.search( search, index, IndexQuery.builder().term( "two" ).build() );
+		assertThat( cache.getEvictionCount() ).isEqualTo( 2 );
+		assertThat( cache.getHitCount() ).isEqualTo( 2 );
+		assertThat( cache.size() ).isEqualTo( 2 );
+	}
+
+	@Test
+	void testUntrackedIndexNotCached() {
+		Index index = new StandardIndex() {
+
+			@Override
+			public long getVersion() {
+				return -1;
+			}
+
+		};
+		SearchCache cache = new SearchCache();
+		cache.search( new DirectSearch(), index, IndexQuery.builder().term( "cat" ).build() );
+		cache.search( new DirectSearch(), index, IndexQuery.builder().term( "cat" ).build() );
+		assertThat( cache.size() ).isZero();
+		assertThat( cache.getHitCount() + cache.getMissCount() ).isZero();
+	}
+
+	private static StandardIndex index( String uri, String content ) {
+		return push( new StandardIndex(), uri, content );
+	}
+
+	private static StandardIndex push( StandardIndex index, String uri, String content ) {
+		Document document = new Document( URI.create( uri ), "", "", content );
+		index.push( new HitFinder().find( document, new TextTermSource( document ) ).get() );
+		return index;
+	}
+
+	private static final class CountingSearch extends DirectSearch {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Result<List<Hit>> search( Index index, IndexQuery query ) {
+			count.incrementAndGet();
+			return super.search( index, query );
+		}
+
+	}
+
+}
@@ -0,0 +1,236 @@
+package com.avereon.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SegmentedIndexTest {
+
+	@TempDir
+	private Path folder;
+
+	@Test
+	void testFlush() throws Exception {
+		Document document = new Document( URI.create( "test:a" ), "icon", "Title", "Some content" );
+		Hit hit = new Hit().setDocument( document ).setContext( "Some content" ).setWord( "content" ).setLength( 7 ).setCoordinates( List.of( 0, 5 ) );
+
+		SegmentedIndex index = SegmentedIndex.open( folder );
+		index.push( Set.of( hit ) );
+		assertThat( index.getSegmentCount() ).isEqualTo( 0 );
+
+		index.flush();
+		assertThat( index.getSegmentCount() ).isEqualTo( 1 );
+		assertThat( index.getDictionary() ).containsExactly( "content" );
+		assertThat( index.getHits( "content" ) ).containsExactly( hit );
+		assertThat( index.getHits( "content" ).iterator().next().getDocument() ).isSameAs( document );
+		assertThat( index.getHits( "missing" ) ).isEmpty();
+	}
+
+	@Test
+	void testOpen() throws Exception {
+		Document document = new Document( URI.create( "test:a" ), "icon", "Title", "Some content" ).tags( Set.of( "tag" ) );
+		Hit hit = new Hit().setDocument( document ).setContext( "Title" ).setWord( "title" ).setLength( 5 ).setCoordinates( List.of( 0, 0 ) ).setPriority( Hit.TITLE_PRIORITY );
+
+		SegmentedIndex index = SegmentedIndex.open( folder );
+		index.push( Set.of( hit ) );
+		index.flush();
+
+		SegmentedIndex reopened = SegmentedIndex.open( folder );
+		assertThat( reopened.getSegmentCount() ).isEqualTo( 1 );
+		assertThat( reopened.getHits( "title" ) ).containsExactly( hit );
+		assertThat( reopened.getHits( "title" ).iterator().next().getDocument() ).isNotSameAs( document );
+	}
+
+	@Test
+	void testSegmentsReferToStoredContent() throws Exception {
+		Document document = new Document( URI.create( "test:a" ), "", "Title", "Some stored content" );
+		SegmentedIndex index = SegmentedIndex.open( folder );
+		index.store( document );
+		index.push( new HitFinder().find( document, new TextTermSource( document ) ).get() );
+		index.flush();
+		assertThat( document.content() ).isNull();
+
+		SegmentedIndex reopened = SegmentedIndex.open( folder );
+		Hit hit = reopened.getHits( "stored" ).iterator().next();
+		assertThat( hit.getDocument().content() ).isNull();
+		assertThat( hit.getDocument().stored().getText() ).isEqualTo( "Some stored content" );
+		assertThat( hit.getContext() ).isEqualTo( "Some stored content" );
+
+		// The content is only in the store, not in the segment
+		try( var files = Files.list( folder ) ) {
+			Path segment = files.filter( p -> p.getFileName().toString().endsWith( SegmentFormat.EXTENSION ) ).findFirst().orElseThrow();
+			assertThat( new String( Files.readAllBytes( segment ), StandardCharsets.UTF_8 ) ).doesNotContain( "Some stored content" );
+		}
+	}
+
+	@Test
+	void testSegmentsIgnoreLostStoredContent() throws Exception {
+		SegmentedIndex index = SegmentedIndex.open( folder );
+		for( String word : List.of( "alpha", "bravo" ) ) {
+			Document document = new Document( URI.create( "test:" + word ), "", word, "Content " + word );
+			index.store( document );
+			index.push( new HitFinder().find( document, new TextTermSource( document ) ).get() );
+		}
+		index.flush();
+
+		// Lose the last store entry and store other content of the same size
+		Path path = folder.resolve( SegmentFormat.STORE_FILE_NAME );
+		long size = Files.size( path );
+		try( var channel = Files.newByteChannel( path, StandardOpenOption.WRITE ) ) {
+			channel.truncate( size - 1 );
+		}
+		SegmentedIndex reopened = SegmentedIndex.open( folder );
+		Document charlie = new Document( URI.create( "test:charlie" ), "", "charlie", "Content xxxxx" );
+		reopened.store( charlie );
+
+		Document alpha = reopened.getHits( "alpha" ).iterator().next().getDocument();
+		Document bravo = reopened.getHits( "bravo" ).iterator().next().getDocument();
+		assertThat( alpha.stored().getText() ).isEqualTo( "Content alpha" );
+		assertThat( bravo.stored() ).isNull();
+		assertThat( bravo.content() ).isNull();
+	}
+
+	@Test
+	void testMerge() throws Exception {
+		SegmentedIndex index = SegmentedIndex.open( folder );
+		for( String word : List.of( "a", "b", "c", "b" ) ) {
+			Document document = new Document( URI.create( "test:" + word ), "", word, "" );
+			index.push( Set.of( new Hit().setDocument( document ).setWord( word ).setLength( 1 ) ) );
+			index.flush();
+		}
+		assertThat( index.getSegmentCount() ).isEqualTo( 4 );
+
+		index.merge();
+		assertThat( index.getSegmentCount() ).isEqualTo( 1 );
+		assertThat( index.getDictionary() ).containsExactlyInAnyOrder( "a", "b", "c" );
+		assertThat( index.getHits( "b" ) ).hasSize( 1 );
+		try( var files = Files.list( folder ) ) {
+			assertThat( files.map( p -> p.getFileName().toString() ).filter( n -> !n.equals( SegmentFormat.STORE_FILE_NAME ) ) ).hasSize( 1 );
+		}
+	}
+
+	@Test
+	void testMergedSegmentsNotLoadedAgain() throws Exception {
+		SegmentedIndex index = SegmentedIndex.open( folder );
+		for( String word : List.of( "a", "b", "c", "b" ) ) {
+			Document document = new Document( URI.create( "test:" + word ), "", word, "" );
+			index.push( Set.of( new Hit().setDocument( document ).setWord( word ).setLength( 1 ) ) );
+			index.flush();
+		}
+		Map<Path, byte[]> replaced = new HashMap<>();
+		for( long generation = 1; generation <= 4; generation++ ) {
+			Path path = folder.resolve( SegmentFormat.getFileName( generation ) );
+			replaced.put( path, Files.readAllBytes( path ) );
+		}
+		index.merge();
+
+		// Put the replaced segments back, like a crash before they were deleted
+		for( Map.Entry<Path, byte[]> entry : replaced.entrySet() ) {
+			Files.write( entry.getKey(), entry.getValue() );
+		}
+		SegmentedIndex reopened = SegmentedIndex.open( folder );
+		assertThat( reopened.getSegmentCount() ).isEqualTo( 1 );
+		assertThat( reopened.getDocumentCount() ).isEqualTo( 3 );
+		assertThat( reopened.getHits( "b" ) ).hasSize( 1 );
+		assertThat( replaced.keySet() ).allMatch( p -> !Files.exists( p ) );
+	}
+
+	@Test
+	void testMergeSegmentsOfSimilarSize() throws Exception {
+		SegmentedIndex index = SegmentedIndex.open( folder );
+		Set<Hit> hits = new HashSet<>();
+		for( int count = 0; count < 20_000; count++ ) {
+			Document document = new Document( URI.create( "test:large" + count ), "", "Large", "" );
+			hits.add( new Hit().setDocument( document ).setWord( "word" + count ).setLength( 5 ) );
+		}
+		index.push( hits );
+		index.flush();
+		Path large = index.getFolder().resolve( SegmentFormat.getFileName( 1 ) );
+		assertThat( Files.size( large ) ).isGreaterThan( SegmentedIndex.MIN_TIER_SIZE );
+
+		for( String word : List.of( "a", "b" ) ) {
+			index.push( Set.of( new Hit().setDocument( new Document( URI.create( "test:" + word ), "", word, "" ) ).setWord( word ) ) );
+			index.flush();
+		}
+		assertThat( index.isMergeNeeded() ).isFalse();
+
+		// Only the small segments are merged, the large segment is not rewritten
+		index.merge();
+		assertThat( index.getSegmentCount() ).isEqualTo( 2 );
+		assertThat( large ).exists();
+		assertThat( index.getHits( "a" ) ).hasSize( 1 );
+		assertThat( index.getHits( "word7" ) ).hasSize( 1 );
+	}
+
+	@Test
+	void testCompactRewritesOnlySegmentsWithRemovedDocuments() throws Exception {
+		SegmentedIndex index = SegmentedIndex.open( folder );
+		for( String word : List.of( "a", "b" ) ) {
+			index.push( Set.of( new Hit().setDocument( new Document( URI.create( "test:" + word ), "", word, "" ) ).setWord( word ) ) );
+			index.flush();
+		}
+		Path kept = index.getFolder().resolve( SegmentFormat.getFileName( 2 ) );
+
+		index.remove( URI.create( "test:a" ) );
+		index.compact();
+		assertThat( index.getSegmentCount() ).isEqualTo( 2 );
+		assertThat( kept ).exists();
+		assertThat( index.getHits( "a" ) ).isEmpty();
+		assertThat( index.getHits( "b" ) ).hasSize( 1 );
+	}
+
+	@Test
+	void testRemove() throws Exception {
+		Document a = new Document( URI.create( "test:a" ), "", "A", "" );
+		Document b = new Document( URI.create( "test:b" ), "", "B", "" );
+
+		SegmentedIndex index = SegmentedIndex.open( folder );
+		index.push( Set.of( new Hit().setDocument( a ).setWord( "word" ) ) );
+		index.flush();
+		index.push( Set.of( new Hit().setDocument( b ).setWord( "word" ) ) );
+
+		index.remove( URI.create( "test:a" ) );
+		assertThat( index.getHits( "word" ) ).extracting( Hit::getDocument ).containsExactly( b );
+		assertThat( index.isCompactNeeded() ).isTrue();
+
+		// The tombstones are stored with the segment
+		index.flush();
+		SegmentedIndex reopened = SegmentedIndex.open( folder );
+		assertThat( reopened.getHits( "word" ) ).extracting( Hit::getDocument ).extracting( Document::uri ).containsExactly( URI.create( "test:b" ) );
+
+		// Only the segment with the removed document is rewritten, without tombstones
+		reopened.compact();
+		assertThat( reopened.isCompactNeeded() ).isFalse();
+		assertThat( reopened.getSegmentCount() ).isEqualTo( 2 );
+		assertThat( reopened.getHits( "word" ) ).extracting( Hit::getDocument ).extracting( Document::uri ).containsExactly( URI.create( "test:b" ) );
+		try( var files = Files.list( folder ) ) {
+			assertThat( files.map( p -> p.getFileName().toString() ).filter( n -> !n.equals( SegmentFormat.STORE_FILE_NAME ) ) ).allMatch( n -> n.endsWith( SegmentFormat.EXTENSION ) ).hasSize( 2 );
+		}
+	}
+
+	@Test
+	void testUpdate() throws Exception {
+		Document document = new Document( URI.create( "test:a" ), "", "A", "" );
+
+		SegmentedIndex index = SegmentedIndex.open( folder );
+		index.push( Set.of( new Hit().setDocument( document ).setWord( "old" ) ) );
+		index.flush();
+
+		index.update( document.uri(), Set.of( new Hit().setDocument( document ).setWord( "new" ) ) );
+		assertThat( index.getHits( "old" ) ).isEmpty();
+		assertThat( index.getHits( "new" ) ).extracting( Hit::getDocument ).containsExactly( document );
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.avereon.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TermDictionaryTest {
+
+	private final TermDictionary dictionary = TermDictionary.of( Set.of( "line", "linea", "lines", "lint", "in", "example", "exact", "exam" ) );
+
+	@Test
+	void testContains() {
+		assertThat( dictionary.size() ).isEqualTo( 8 );
+		assertThat( dictionary.contains( "line" ) ).isTrue();
+		assertThat( dictionary.contains( "lin" ) ).isFalse();
+		assertThat( dictionary.contains( "liner" ) ).isFalse();
+		assertThat( dictionary.contains( "" ) ).isFalse();
+	}
+
+	@Test
+	void testGetWordsWithPrefix() {
+		assertThat( dictionary.getWordsWithPrefix( "lin" ) ).containsExactly( "line", "linea", "lines", "lint" );
+		assertThat( dictionary.getWordsWithPrefix( "exa" ) ).containsExactly( "exact", "exam", "example" );
+		assertThat( dictionary.getWordsWithPrefix( "in" ) ).containsExactly( "in" );
+		assertThat( dictionary.getWordsWithPrefix( "z" ) ).isEmpty();
+		assertThat( dictionary.getWordsWithPrefix( "" ) ).hasSize( 8 );
+	}
+
+	@Test
+	void testGetWordsWithin() {
+		assertThat( dictionary.getWordsWithin( "line", 0 ) ).isEqualTo( Map.of( "line", 0 ) );
+		assertThat( dictionary.getWordsWithin( "line", 1 ) ).isEqualTo( Map.of( "line", 0, "linea", 1, "lines", 1, "lint", 1 ) );
+		assertThat( dictionary.getWordsWithin( "exsmple", 1 ) ).isEqualTo( Map.of( "example", 1 ) );
+		assertThat( dictionary.getWordsWithin( "xyz", 1 ) ).isEmpty();
+	}
+
+	@Test
+	void testLongWord() {
+		String word = "x".repeat( 20000 );
+		TermDictionary dictionary = TermDictionary.of( List.of( word, "abc" ) );
+		assertThat( dictionary.getWordsWithPrefix( "" ) ).containsExactly( "abc", word );
+		assertThat( dictionary.getWordsWithin( "x", 20000 ) ).containsEntry( word, 19999 ).containsEntry( "abc", 3 );
+	}
+
+	@Test
+	void testUnion() {
+		TermDictionary union = TermDictionary.union( List.of( TermDictionary.of( Set.of( "line", "lint" ) ), TermDictionary.of( Set.of( "line", "lines" ) ) ) );
+		assertThat( union.size() ).isEqualTo( 3 );
+		assertThat( union.contains( "lines" ) ).isTrue();
+		assertThat( union.getWordsWithPrefix( "lin" ) ).containsExactly( "line", "lines", "lint" );
+		assertThat( union.getWordsWithin( "line", 1 ) ).isEqualTo( Map.of( "line", 0, "lines", 1, "lint", 1 ) );
+	}
+
+	@Test
+	void testGrowingDictionary() {
+		GrowingDictionary growing = new GrowingDictionary();
+		Set<String> words = new HashSet<>();
+		for( int count = 0; count < 2000; count++ ) {
+			String word = "word" + count;
+			growing.add( word );
+			words.add( word );
+			if( count % 300 == 0 ) assertThat( growing.get().size() ).isEqualTo( words.size() );
+		}
+
+		TermDictionary snapshot = growing.get();
+		assertThat( snapshot.size() ).isEqualTo( 2000 );
+		assertThat( snapshot.getWordsWithPrefix( "word199" ) ).containsExactly( "word199", "word1990", "word1991", "word1992", "word1993", "word1994", "word1995", "word1996", "word1997", "word1998", "word1999" );
+		assertThat( snapshot.getWordsWithin( "wurd5", 1 ) ).isEqualTo( Map.of( "word5", 1 ) );
+
+		growing.add( "extra" );
+		assertThat( snapshot.contains( "extra" ) ).isFalse();
+		assertThat( growing.get().contains( "extra" ) ).isTrue();
+
+		growing.reset( Set.of( "line" ) );
+		assertThat( growing.get().getWordsWithPrefix( "" ) ).containsExactly( "line" );
+	}
+
+	@Test
+	void testStandardIndexDictionaryFollowsPushAndCompact() {
+		StandardIndex index = new StandardIndex();
+		Document a = new Document( URI.create( "test:a" ), "", "A", "" );
+		Set<Hit> hits = new HashSet<>();
+		for( int count = 0; count < 600; count++ ) {
+			hits.add( new Hit().setDocument( a ).setWord( "word" + count ) );
+		}
+		index.push( hits );
+		index.push( Set.of( new Hit().setDocument( new Document( URI.create( "test:b" ), "", "B", "" ) ).setWord( "other" ) ) );
+		assertThat( index.getTermDictionary().size() ).isEqualTo( 601 );
+
+		index.remove( URI.create( "test:a" ) );
+		index.compact();
+		assertThat( index.getTermDictionary().getWordsWithPrefix( "" ) ).containsExactly( "other" );
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.avereon.index;
+
+/**
+ * Builds indexes of documents for the search tests.
+ */
+final class TestIndexes {
+
+	private TestIndexes() {}
+
+	/**
+	 * Index the text of documents in a standard index.
+	 *
+	 * @param documents The documents
+	 * @return The index
+	 */
+	static StandardIndex index( Document... documents ) {
+		StandardIndex index = new StandardIndex();
+		for( Document document : documents ) {
+			index.push( new HitFinder().find( document, new TextTermSource( document ) ).get() );
+		}
+		return index;
+	}
+
+}
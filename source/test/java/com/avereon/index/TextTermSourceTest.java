@@ -0,0 +1,67 @@
+package com.avereon.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TextTermSourceTest {
+
+	@Test
+	void testIndex() throws Exception {
+		List<Term> terms = index( "  First line, here \r\n\nSecond\rthird LINE" );
+		assertThat( terms ).containsExactly(
+			new Term( "First line, here", "first", 5, List.of( 0, 0, 0 ) ),
+			new Term( "First line, here", "line", 4, List.of( 0, 6, 1 ) ),
+			new Term( "First line, here", "here", 4, List.of( 0, 12, 2 ) ),
+			new Term( "Second", "second", 6, List.of( 2, 0, 3 ) ),
+			new Term( "third LINE", "third", 5, List.of( 3, 0, 4 ) ),
+			new Term( "third LINE", "line", 4, List.of( 3, 6, 5 ) )
+		);
+
+		// Equal words and the terms of a line share strings
+		assertThat( terms.get( 5 ).word() ).isSameAs( terms.get( 1 ).word() );
+		assertThat( terms.get( 1 ).context() ).isSameAs( terms.get( 0 ).context() );
+	}
+
+	@Test
+	void testIndexWithSupplementaryCharacters() throws Exception {
+		// Deseret capital and small letters are outside the basic plane
+		String word = "𐐀𐐁";
+		List<Term> terms = index( "x " + word + " y" );
+		assertThat( terms ).extracting( Term::word ).containsExactly( "x", "𐐨𐐩", "y" );
+		assertThat( terms.get( 1 ).length() ).isEqualTo( 4 );
+		assertThat( terms.get( 2 ).coordinates() ).isEqualTo( List.of( 0, 7, 2 ) );
+	}
+
+	@Test
+	void testIndexFoldsCase() throws Exception {
+		assertThat( index( "ΟΔΟΣ οδος" ) ).extracting( Term::word ).containsExactly( "οδοσ", "οδοσ" );
+	}
+
+	@Test
+	void testIndexWithLongLine() throws Exception {
+		String line = "word ".repeat( 5000 ).trim();
+		List<Term> terms = index( "before\n" + line + "\nafter" );
+		assertThat( terms ).hasSize( 5002 );
+		assertThat( terms.get( 5000 ).coordinates() ).isEqualTo( List.of( 1, 24995, 5000 ) );
+		assertThat( terms.get( 5001 ) ).isEqualTo( new Term( "after", "after", 5, List.of( 2, 0, 5001 ) ) );
+	}
+
+	@Test
+	void testIndexIsLazy() throws Exception {
+		try( Stream<Term> terms = new TextTermSource( new Document(), "one two three" ).index() ) {
+			assertThat( terms.limit( 1 ).map( Term::word ) ).containsExactly( "one" );
+		}
+	}
+
+	private static List<Term> index( String text ) throws Exception {
+		try( Stream<Term> terms = new TextTermSource( new Document( URI.create( "test:a" ), "", "", "" ), text ).index() ) {
+			return terms.toList();
+		}
+	}
+
+}
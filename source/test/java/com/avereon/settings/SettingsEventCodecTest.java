@@ -0,0 +1,30 @@
+package com.avereon.settings;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SettingsEventCodecTest {
+
+	@Test
+	void testEncodeDecode() throws Exception {
+		Settings publisher = new MapSettings().getNode( "/a/b" );
+		SettingsEvent event = new SettingsEvent( publisher, SettingsEvent.CHANGED, publisher.getPath(), "key", 3L, "value" );
+
+		Settings receiver = new MapSettings();
+		SettingsEventCodec codec = new SettingsEventCodec( receiver );
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		codec.encode( event, new DataOutputStream( bytes ) );
+		SettingsEvent decoded = codec.decode( SettingsEvent.CHANGED, new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) );
+
+		assertThat( decoded.getEventType() ).isEqualTo( SettingsEvent.CHANGED );
+		assertThat( decoded.getSettings().getPath() ).isEqualTo( "/a/b" );
+		assertThat( decoded.getPath() ).isEqualTo( "/a/b" );
+		assertThat( decoded.getKey() ).isEqualTo( "key" );
+		assertThat( decoded.getOldValue() ).isEqualTo( 3L );
+		assertThat( decoded.getNewValue() ).isEqualTo( "value" );
+	}
+
+}